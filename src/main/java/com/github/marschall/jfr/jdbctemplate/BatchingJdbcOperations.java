@@ -0,0 +1,498 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * An implementation of {@link JdbcOperations} that coalesces consecutive
+ * updates with identical SQL inside a transaction into a single batch
+ * update.
+ *
+ * <p>Only {@link #update(String, Object...)} calls inside an active Spring
+ * managed transaction are buffered. The buffer is flushed as a single
+ * {@link JdbcOperations#batchUpdate(String, List)} when</p>
+ * <ul>
+ *   <li>an update with a different SQL query string is executed,</li>
+ *   <li>any other operation, including a read, is executed through this
+ *       instance,</li>
+ *   <li>the buffer reaches the maximum batch size,</li>
+ *   <li>the transaction is about to be committed or suspended.</li>
+ * </ul>
+ * <p>The buffer is discarded when the transaction is rolled back.</p>
+ *
+ * <p>The update count of a buffered call is not known when it returns, in
+ * this case {@link Statement#SUCCESS_NO_INFO} is returned. The call that
+ * fills the buffer up to the maximum batch size returns its actual update
+ * count. Errors of buffered updates are reported by the operation that
+ * flushes the buffer. Do not use this class for code that checks the
+ * update counts of individual updates.</p>
+ *
+ * <p>Buffered updates are only visible to operations executed through this
+ * instance. Other {@link JdbcOperations}, JPA or plain JDBC code in the same
+ * transaction do not see them until the buffer is flushed, and constraint
+ * violations are reported by the operation that flushes the buffer instead
+ * of the update that caused them. Only use this class when all access to
+ * the affected tables in a transaction goes through the same instance.</p>
+ *
+ * <p>Every flushed batch generates a "Coalesced Batch" event in the
+ * {@value JfrConstants#CATEGORY} category.</p>
+ */
+public final class BatchingJdbcOperations implements JdbcOperations {
+
+  private final JdbcOperations delegate;
+
+  private final int maximumBatchSize;
+
+  /**
+   * Constructs a new {@link BatchingJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param maximumBatchSize the maximum number of updates in a batch, positive
+   */
+  public BatchingJdbcOperations(JdbcOperations delegate, int maximumBatchSize) {
+    Objects.requireNonNull(delegate, "delegate");
+    if (maximumBatchSize <= 0) {
+      throw new IllegalArgumentException("maximumBatchSize must be positive but was: " + maximumBatchSize);
+    }
+    this.delegate = delegate;
+    this.maximumBatchSize = maximumBatchSize;
+  }
+
+  @Override
+  public int update(String sql, Object... args) {
+    UpdateBuffer buffer = this.getBuffer();
+    if (buffer == null) {
+      return this.delegate.update(sql, args);
+    }
+    return buffer.add(sql, args);
+  }
+
+  // generated by WrapperGenerator, do not edit
+
+  @Override
+  public <T> T execute(ConnectionCallback<T> action) {
+    this.flush();
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public <T> T execute(StatementCallback<T> action) {
+    this.flush();
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public void execute(String sql) {
+    this.flush();
+    this.delegate.execute(sql);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse) {
+    this.flush();
+    return this.delegate.query(sql, rse);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch) {
+    this.flush();
+    this.delegate.query(sql, rch);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.query(sql, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.queryForStream(sql, rowMapper);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.queryForObject(sql, rowMapper);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType) {
+    this.flush();
+    return this.delegate.queryForObject(sql, requiredType);
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql) {
+    this.flush();
+    return this.delegate.queryForMap(sql);
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType) {
+    this.flush();
+    return this.delegate.queryForList(sql, elementType);
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql) {
+    this.flush();
+    return this.delegate.queryForList(sql);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql) {
+    this.flush();
+    return this.delegate.queryForRowSet(sql);
+  }
+
+  @Override
+  public int update(String sql) {
+    this.flush();
+    return this.delegate.update(sql);
+  }
+
+  @Override
+  public int[] batchUpdate(String... sql) {
+    this.flush();
+    return this.delegate.batchUpdate(sql);
+  }
+
+  @Override
+  public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    this.flush();
+    return this.delegate.execute(psc, action);
+  }
+
+  @Override
+  public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+    this.flush();
+    return this.delegate.execute(sql, action);
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    this.flush();
+    return this.delegate.query(psc, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    this.flush();
+    return this.delegate.query(sql, pss, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    this.flush();
+    return this.delegate.query(sql, args, argTypes, rse);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+    this.flush();
+    return this.delegate.query(sql, args, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    this.flush();
+    return this.delegate.query(sql, rse, args);
+  }
+
+  @Override
+  public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    this.flush();
+    this.delegate.query(psc, rch);
+  }
+
+  @Override
+  public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    this.flush();
+    this.delegate.query(sql, pss, rch);
+  }
+
+  @Override
+  public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    this.flush();
+    this.delegate.query(sql, args, argTypes, rch);
+  }
+
+  @Override
+  @Deprecated
+  public void query(String sql, Object[] args, RowCallbackHandler rch) {
+    this.flush();
+    this.delegate.query(sql, args, rch);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch, Object... args) {
+    this.flush();
+    this.delegate.query(sql, rch, args);
+  }
+
+  @Override
+  public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.query(psc, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.query(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.query(sql, args, argTypes, rowMapper);
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.query(sql, args, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    this.flush();
+    return this.delegate.query(sql, rowMapper, args);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.queryForStream(psc, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.queryForStream(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    this.flush();
+    return this.delegate.queryForStream(sql, rowMapper, args);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.queryForObject(sql, args, argTypes, rowMapper);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+    this.flush();
+    return this.delegate.queryForObject(sql, args, rowMapper);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    this.flush();
+    return this.delegate.queryForObject(sql, rowMapper, args);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    this.flush();
+    return this.delegate.queryForObject(sql, args, argTypes, requiredType);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+    this.flush();
+    return this.delegate.queryForObject(sql, args, requiredType);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+    this.flush();
+    return this.delegate.queryForObject(sql, requiredType, args);
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+    this.flush();
+    return this.delegate.queryForMap(sql, args, argTypes);
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object... args) {
+    this.flush();
+    return this.delegate.queryForMap(sql, args);
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    this.flush();
+    return this.delegate.queryForList(sql, args, argTypes, elementType);
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+    this.flush();
+    return this.delegate.queryForList(sql, args, elementType);
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+    this.flush();
+    return this.delegate.queryForList(sql, elementType, args);
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+    this.flush();
+    return this.delegate.queryForList(sql, args, argTypes);
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object... args) {
+    this.flush();
+    return this.delegate.queryForList(sql, args);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    this.flush();
+    return this.delegate.queryForRowSet(sql, args, argTypes);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object... args) {
+    this.flush();
+    return this.delegate.queryForRowSet(sql, args);
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc) {
+    this.flush();
+    return this.delegate.update(psc);
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    this.flush();
+    return this.delegate.update(psc, generatedKeyHolder);
+  }
+
+  @Override
+  public int update(String sql, PreparedStatementSetter pss) {
+    this.flush();
+    return this.delegate.update(sql, pss);
+  }
+
+  @Override
+  public int update(String sql, Object[] args, int[] argTypes) {
+    this.flush();
+    return this.delegate.update(sql, args, argTypes);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    this.flush();
+    return this.delegate.batchUpdate(sql, pss);
+  }
+
+  @Override
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    this.flush();
+    return this.delegate.batchUpdate(psc, pss, generatedKeyHolder);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+    this.flush();
+    return this.delegate.batchUpdate(sql, batchArgs);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    this.flush();
+    return this.delegate.batchUpdate(sql, batchArgs, argTypes);
+  }
+
+  @Override
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    this.flush();
+    return this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
+  }
+
+  @Override
+  public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    this.flush();
+    return this.delegate.execute(csc, action);
+  }
+
+  @Override
+  public <T> T execute(String callString, CallableStatementCallback<T> action) {
+    this.flush();
+    return this.delegate.execute(callString, action);
+  }
+
+  @Override
+  public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    this.flush();
+    return this.delegate.call(csc, declaredParameters);
+  }
+
+  // end of generated methods
+
+  private void flush() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    UpdateBuffer buffer = (UpdateBuffer) TransactionSynchronizationManager.getResource(this);
+    if (buffer != null) {
+      buffer.flush(UpdateBuffer.TRIGGER_STATEMENT);
+    }
+  }
+
+  private UpdateBuffer getBuffer() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()
+            || !TransactionSynchronizationManager.isActualTransactionActive()) {
+      return null;
+    }
+    UpdateBuffer buffer = (UpdateBuffer) TransactionSynchronizationManager.getResource(this);
+    if (buffer == null) {
+      buffer = new UpdateBuffer(this.delegate, this, this.maximumBatchSize);
+      TransactionSynchronizationManager.bindResource(this, buffer);
+      TransactionSynchronizationManager.registerSynchronization(buffer);
+    }
+    return buffer;
+  }
+
+}
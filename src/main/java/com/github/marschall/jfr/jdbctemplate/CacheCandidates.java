@@ -0,0 +1,381 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Percentage;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Detects reads that are repeated with identical arguments and therefore
+ * are candidates for caching.
+ *
+ * <p>The SQL query string and the bound arguments are hashed into a
+ * {@link CountMinSketch} of fixed size. Keys whose estimated count is among
+ * the highest are tracked as heavy hitters together with the time spent
+ * executing them. Only the hash of the arguments is kept, never the
+ * arguments themselves. Every periodic event reports the hottest keys since
+ * the previous one, the sketch is then cleared.</p>
+ *
+ * <p>Only {@code SELECT} statements of operations that take a SQL query
+ * string and their arguments as objects are considered. Nested operations,
+ * eg. a {@link JfrNamedParameterJdbcOperations} on top of a
+ * {@link JfrJdbcOperations}, are only counted once. Reads are only tracked
+ * while {@link CacheCandidateEvent} is enabled.</p>
+ */
+final class CacheCandidates {
+
+  /**
+   * Marker for operations that have a SQL query string but no arguments.
+   */
+  static final Object NO_ARGUMENTS = new Object[0];
+
+  private static final int SKETCH_DEPTH = 4;
+
+  private static final int SKETCH_WIDTH = 4096;
+
+  private static final int MAX_CANDIDATES = 64;
+
+  private static final int MAX_REPORTED = 10;
+
+  private static final CountMinSketch SKETCH = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+
+  private static final ConcurrentMap<QueryKey, Candidate> CANDIDATES = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+  private static final EventType CACHE_CANDIDATE_EVENT_TYPE;
+
+  static {
+    CACHE_CANDIDATE_EVENT_TYPE = EventType.getEventType(CacheCandidateEvent.class);
+    FlightRecorder.addPeriodicEvent(CacheCandidateEvent.class, CacheCandidates::emitCacheCandidates);
+  }
+
+  private CacheCandidates() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Marks the start of a JDBC operation on the current thread.
+   *
+   * @param arguments the bound arguments, {@code null} if unknown
+   * @return the start time to pass to {@link #exit(long, String, Object)},
+   *         {@code 0} if the operation is not tracked
+   */
+  static long enter(Object arguments) {
+    if ((arguments == null) || !CACHE_CANDIDATE_EVENT_TYPE.isEnabled()) {
+      return 0L;
+    }
+    DEPTH.get()[0] += 1;
+    long now = System.nanoTime();
+    // 0 means not tracked
+    return now != 0L ? now : 1L;
+  }
+
+  /**
+   * Marks the end of a JDBC operation.
+   *
+   * @param startNanos the value returned by {@link #enter(Object)}
+   * @param query the SQL query string, may be {@code null}
+   * @param arguments the bound arguments
+   */
+  static void exit(long startNanos, String query, Object arguments) {
+    if (startNanos == 0L) {
+      return;
+    }
+    int[] depth = DEPTH.get();
+    depth[0] -= 1;
+    if (depth[0] > 0) {
+      return;
+    }
+    Classification classification = SqlClassifier.classify(query);
+    if ((classification == null) || !classification.getStatementType().equals(SqlClassifier.SELECT)) {
+      return;
+    }
+    long argumentsHash = hashArguments(arguments);
+    if (argumentsHash == 0L) {
+      // not hashable
+      return;
+    }
+    long durationNanos = System.nanoTime() - startNanos;
+    long estimate = SKETCH.increment(mix(query.hashCode() * 31L + argumentsHash));
+    record(new QueryKey(query, argumentsHash), estimate, durationNanos);
+  }
+
+  private static void record(QueryKey key, long estimate, long durationNanos) {
+    Candidate candidate = CANDIDATES.get(key);
+    if (candidate == null) {
+      if (estimate < 2L) {
+        // not repeated (yet)
+        return;
+      }
+      candidate = admit(key, estimate);
+      if (candidate == null) {
+        return;
+      }
+    }
+    candidate.record(estimate, durationNanos);
+  }
+
+  private static Candidate admit(QueryKey key, long estimate) {
+    if (CANDIDATES.size() < MAX_CANDIDATES) {
+      return CANDIDATES.computeIfAbsent(key, k -> new Candidate());
+    }
+    // only happens for keys that are repeated but not yet tracked
+    synchronized (CANDIDATES) {
+      Entry<QueryKey, Candidate> coldest = null;
+      for (Entry<QueryKey, Candidate> entry : CANDIDATES.entrySet()) {
+        if ((coldest == null) || (entry.getValue().getCount() < coldest.getValue().getCount())) {
+          coldest = entry;
+        }
+      }
+      if ((coldest == null) || (coldest.getValue().getCount() >= estimate)) {
+        return null;
+      }
+      CANDIDATES.remove(coldest.getKey());
+      return CANDIDATES.computeIfAbsent(key, k -> new Candidate());
+    }
+  }
+
+  static long hashArguments(Object arguments) {
+    long hash;
+    if (arguments instanceof Object[]) {
+      hash = 1L;
+      for (Object argument : (Object[]) arguments) {
+        hash = (31L * hash) + hashArgument(argument);
+      }
+    } else if (arguments instanceof Map) {
+      // order independent, same as SqlParameterSource
+      hash = 2L;
+      for (Entry<?, ?> entry : ((Map<?, ?>) arguments).entrySet()) {
+        hash += mix((31L * Objects.hashCode(entry.getKey())) + hashArgument(entry.getValue()));
+      }
+    } else if (arguments instanceof SqlParameterSource) {
+      SqlParameterSource parameterSource = (SqlParameterSource) arguments;
+      String[] parameterNames = parameterSource.getParameterNames();
+      if (parameterNames == null) {
+        return 0L;
+      }
+      hash = 2L;
+      for (String parameterName : parameterNames) {
+        hash += mix((31L * parameterName.hashCode()) + hashArgument(parameterSource.getValue(parameterName)));
+      }
+    } else {
+      return 0L;
+    }
+    long mixed = mix(hash);
+    // 0 means not hashable
+    return mixed != 0L ? mixed : 1L;
+  }
+
+  private static long hashArgument(Object argument) {
+    if (argument == null) {
+      return 0L;
+    }
+    if (argument instanceof SqlParameterValue) {
+      return hashArgument(((SqlParameterValue) argument).getValue());
+    }
+    if (argument instanceof Object[]) {
+      return Arrays.deepHashCode((Object[]) argument);
+    }
+    if (argument instanceof byte[]) {
+      return Arrays.hashCode((byte[]) argument);
+    }
+    if (argument instanceof Collection) {
+      long hash = 1L;
+      for (Object element : (Collection<?>) argument) {
+        hash = (31L * hash) + hashArgument(element);
+      }
+      return hash;
+    }
+    return argument.hashCode();
+  }
+
+  private static long mix(long value) {
+    // murmur3 finalizer
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static void emitCacheCandidates() {
+    List<Entry<QueryKey, Candidate>> candidates = new ArrayList<>(CANDIDATES.entrySet());
+    CANDIDATES.clear();
+    SKETCH.clear();
+    candidates.sort(Comparator.comparingLong((Entry<QueryKey, Candidate> entry) -> entry.getValue().getCount()).reversed());
+    for (Entry<QueryKey, Candidate> entry : candidates.subList(0, Math.min(candidates.size(), MAX_REPORTED))) {
+      QueryKey key = entry.getKey();
+      Candidate candidate = entry.getValue();
+      long count = candidate.getCount();
+      long trackedCount = candidate.trackedCount.sum();
+      long averageNanos = trackedCount > 0L ? candidate.totalDuration.sum() / trackedCount : 0L;
+      CacheCandidateEvent event = new CacheCandidateEvent();
+      event.setQuery(key.getQuery());
+      event.setArgumentsHash(Long.toHexString(key.getArgumentsHash()));
+      event.setExecutionCount(count);
+      // every execution but the first would have been a hit
+      event.setEstimatedHitRate((double) (count - 1L) / count);
+      event.setSavedTime(averageNanos * (count - 1L));
+      event.commit();
+    }
+  }
+
+  static final class QueryKey {
+
+    private final String query;
+
+    private final long argumentsHash;
+
+    QueryKey(String query, long argumentsHash) {
+      this.query = query;
+      this.argumentsHash = argumentsHash;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    long getArgumentsHash() {
+      return this.argumentsHash;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.query.hashCode() ^ Long.hashCode(this.argumentsHash);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof QueryKey)) {
+        return false;
+      }
+      QueryKey other = (QueryKey) obj;
+      return (this.argumentsHash == other.argumentsHash) && this.query.equals(other.query);
+    }
+
+  }
+
+  static final class Candidate {
+
+    private final AtomicLong count = new AtomicLong();
+
+    final LongAdder trackedCount = new LongAdder();
+
+    final LongAdder totalDuration = new LongAdder();
+
+    void record(long estimate, long durationNanos) {
+      this.count.accumulateAndGet(estimate, Math::max);
+      this.trackedCount.increment();
+      this.totalDuration.add(durationNanos);
+    }
+
+    long getCount() {
+      return this.count.get();
+    }
+
+  }
+
+  @Label("Cache Candidate")
+  @Description("A read that was repeated with identical arguments")
+  @Category(JfrConstants.CATEGORY)
+  @Period("60 s")
+  @Enabled(false)
+  @StackTrace(false)
+  static class CacheCandidateEvent extends Event {
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Arguments Hash")
+    @Description("The hash of the bound arguments, identical arguments have identical hashes")
+    private String argumentsHash;
+
+    @Label("Execution Count")
+    @Description("The estimated number of executions with identical arguments")
+    private long executionCount;
+
+    @Label("Estimated Hit Rate")
+    @Description("The fraction of executions that could have been served from a cache")
+    @Percentage
+    private double estimatedHitRate;
+
+    @Label("Saved Time")
+    @Description("The estimated database time a cache would have saved")
+    @Timespan(Timespan.NANOSECONDS)
+    private long savedTime;
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    String getArgumentsHash() {
+      return this.argumentsHash;
+    }
+
+    void setArgumentsHash(String argumentsHash) {
+      this.argumentsHash = argumentsHash;
+    }
+
+    long getExecutionCount() {
+      return this.executionCount;
+    }
+
+    void setExecutionCount(long executionCount) {
+      this.executionCount = executionCount;
+    }
+
+    double getEstimatedHitRate() {
+      return this.estimatedHitRate;
+    }
+
+    void setEstimatedHitRate(double estimatedHitRate) {
+      this.estimatedHitRate = estimatedHitRate;
+    }
+
+    long getSavedTime() {
+      return this.savedTime;
+    }
+
+    void setSavedTime(long savedTime) {
+      this.savedTime = savedTime;
+    }
+
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The queries cached by a {@link CachingJdbcOperations}.
+ *
+ * <p>Only queries whose SQL query string is in the allowlist are cached, the
+ * arguments are bound using placeholders so the query string is the shape of
+ * the query. Results are evicted once they are older than the time to live
+ * or the cache exceeds its maximum size, in which case the least recently
+ * used result is evicted first.</p>
+ *
+ * <p>Instances of this class are immutable and thread safe.</p>
+ */
+public final class CachedQueries {
+
+  private final Set<String> queries;
+
+  private final int maximumSize;
+
+  private final long timeToLiveNanos;
+
+  /**
+   * Constructs a new {@link CachedQueries}.
+   *
+   * @param queries the SQL query strings of the queries to cache, not {@code null}
+   * @param maximumSize the maximum number of cached results, positive
+   * @param timeToLive the maximum age of a cached result, positive, not {@code null}
+   */
+  public CachedQueries(Collection<String> queries, int maximumSize, Duration timeToLive) {
+    Objects.requireNonNull(queries, "queries");
+    Objects.requireNonNull(timeToLive, "timeToLive");
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive but was: " + maximumSize);
+    }
+    if (timeToLive.isNegative() || timeToLive.isZero()) {
+      throw new IllegalArgumentException("timeToLive must be positive but was: " + timeToLive);
+    }
+    this.queries = Set.copyOf(queries);
+    this.maximumSize = maximumSize;
+    this.timeToLiveNanos = timeToLive.toNanos();
+  }
+
+  boolean isCached(String query) {
+    return this.queries.contains(query);
+  }
+
+  int getMaximumSize() {
+    return this.maximumSize;
+  }
+
+  long getTimeToLiveNanos() {
+    return this.timeToLiveNanos;
+  }
+
+}
@@ -0,0 +1,488 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * An implementation of {@link JdbcOperations} that caches the results of
+ * queries.
+ *
+ * <p>Only the results of {@code query} methods with a {@link RowMapper}
+ * and of {@code queryForObject}, {@code queryForList} and
+ * {@code queryForMap} methods that take their arguments as objects are
+ * cached, and only if the SQL query string is allowlisted in
+ * {@link CachedQueries}. The key consists of the operation, the SQL query
+ * string, the arguments and the required type or {@link RowMapper}. Row
+ * mappers are usually compared by identity so only shared row mappers, eg.
+ * non-capturing lambdas, result in cache hits. Cached lists and maps are
+ * unmodifiable.</p>
+ *
+ * <p>Statements that are not {@code SELECT} statements invalidate the
+ * cached results of queries that reference the same tables. If the tables
+ * of a statement are not known, for example for
+ * {@link #execute(ConnectionCallback)} or a stored procedure call, all cached
+ * results are invalidated. The cache is not transaction aware, uncommitted
+ * changes invalidate results and results read in a transaction are visible
+ * to other transactions.</p>
+ *
+ * <p>Cache hits, misses, evictions and invalidations generate events in the
+ * {@value JfrConstants#CATEGORY} category. Wrap this class in a
+ * {@link JfrJdbcOperations} in order to have events generated for the
+ * operations as well.</p>
+ */
+public final class CachingJdbcOperations implements JdbcOperations {
+
+  private final JdbcOperations delegate;
+
+  private final ResultCache cache;
+
+  /**
+   * Constructs a new {@link CachingJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param cachedQueries the queries to cache, not {@code null}
+   */
+  public CachingJdbcOperations(JdbcOperations delegate, CachedQueries cachedQueries) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(cachedQueries, "cachedQueries");
+    this.delegate = delegate;
+    this.cache = new ResultCache(cachedQueries);
+  }
+
+  @Override
+  public <T> T execute(ConnectionCallback<T> action) {
+    try {
+      return this.delegate.execute(action);
+    } finally {
+      this.cache.invalidate(null);
+    }
+  }
+
+  @Override
+  public <T> T execute(StatementCallback<T> action) {
+    try {
+      return this.delegate.execute(action);
+    } finally {
+      this.cache.invalidate(getSql(action));
+    }
+  }
+
+  @Override
+  public void execute(String sql) {
+    try {
+      this.delegate.execute(sql);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+    return this.cache.get("query", sql, rowMapper, null, null, () -> Collections.unmodifiableList(this.delegate.query(sql, rowMapper)));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+    return this.cache.get("queryForObject", sql, rowMapper, null, null, () -> this.delegate.queryForObject(sql, rowMapper));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType) {
+    return this.cache.get("queryForObject", sql, requiredType, null, null, () -> this.delegate.queryForObject(sql, requiredType));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql) {
+    return this.cache.get("queryForMap", sql, null, null, null, () -> Collections.unmodifiableMap(this.delegate.queryForMap(sql)));
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType) {
+    return this.cache.get("queryForList", sql, elementType, null, null, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, elementType)));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql) {
+    return this.cache.get("queryForList", sql, null, null, null, () -> SharedResults.unmodifiableMaps(this.delegate.queryForList(sql)));
+  }
+
+  @Override
+  public int update(String sql) {
+    try {
+      return this.delegate.update(sql);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String... sql) {
+    try {
+      return this.delegate.batchUpdate(sql);
+    } finally {
+      for (String each : sql) {
+        this.cache.invalidate(each);
+      }
+    }
+  }
+
+  @Override
+  public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    try {
+      return this.delegate.execute(psc, action);
+    } finally {
+      this.cache.invalidate(getSql(psc));
+    }
+  }
+
+  @Override
+  public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+    try {
+      return this.delegate.execute(sql, action);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.cache.get("query", sql, rowMapper, args, argTypes, () -> Collections.unmodifiableList(this.delegate.query(sql, args, argTypes, rowMapper)));
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+    return this.cache.get("query", sql, rowMapper, args, null, () -> Collections.unmodifiableList(this.delegate.query(sql, args, rowMapper)));
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.cache.get("query", sql, rowMapper, args, null, () -> Collections.unmodifiableList(this.delegate.query(sql, rowMapper, args)));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.cache.get("queryForObject", sql, rowMapper, args, argTypes, () -> this.delegate.queryForObject(sql, args, argTypes, rowMapper));
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+    return this.cache.get("queryForObject", sql, rowMapper, args, null, () -> this.delegate.queryForObject(sql, args, rowMapper));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.cache.get("queryForObject", sql, rowMapper, args, null, () -> this.delegate.queryForObject(sql, rowMapper, args));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    return this.cache.get("queryForObject", sql, requiredType, args, argTypes, () -> this.delegate.queryForObject(sql, args, argTypes, requiredType));
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+    return this.cache.get("queryForObject", sql, requiredType, args, null, () -> this.delegate.queryForObject(sql, args, requiredType));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+    return this.cache.get("queryForObject", sql, requiredType, args, null, () -> this.delegate.queryForObject(sql, requiredType, args));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+    return this.cache.get("queryForMap", sql, null, args, argTypes, () -> Collections.unmodifiableMap(this.delegate.queryForMap(sql, args, argTypes)));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object... args) {
+    return this.cache.get("queryForMap", sql, null, args, null, () -> Collections.unmodifiableMap(this.delegate.queryForMap(sql, args)));
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    return this.cache.get("queryForList", sql, elementType, args, argTypes, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, args, argTypes, elementType)));
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+    return this.cache.get("queryForList", sql, elementType, args, null, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, args, elementType)));
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+    return this.cache.get("queryForList", sql, elementType, args, null, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, elementType, args)));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+    return this.cache.get("queryForList", sql, null, args, argTypes, () -> SharedResults.unmodifiableMaps(this.delegate.queryForList(sql, args, argTypes)));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object... args) {
+    return this.cache.get("queryForList", sql, null, args, null, () -> SharedResults.unmodifiableMaps(this.delegate.queryForList(sql, args)));
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc) {
+    try {
+      return this.delegate.update(psc);
+    } finally {
+      this.cache.invalidate(getSql(psc));
+    }
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    try {
+      return this.delegate.update(psc, generatedKeyHolder);
+    } finally {
+      this.cache.invalidate(getSql(psc));
+    }
+  }
+
+  @Override
+  public int update(String sql, PreparedStatementSetter pss) {
+    try {
+      return this.delegate.update(sql, pss);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int update(String sql, Object[] args, int[] argTypes) {
+    try {
+      return this.delegate.update(sql, args, argTypes);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int update(String sql, Object... args) {
+    try {
+      return this.delegate.update(sql, args);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    try {
+      return this.delegate.batchUpdate(sql, pss);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+    try {
+      return this.delegate.batchUpdate(sql, batchArgs);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    try {
+      return this.delegate.batchUpdate(sql, batchArgs, argTypes);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    try {
+      return this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
+    } finally {
+      this.cache.invalidate(sql);
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    try {
+      return this.delegate.batchUpdate(psc, pss, generatedKeyHolder);
+    } finally {
+      this.cache.invalidate(getSql(psc));
+    }
+  }
+
+  @Override
+  public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    try {
+      return this.delegate.execute(csc, action);
+    } finally {
+      this.cache.invalidate(getSql(csc));
+    }
+  }
+
+  @Override
+  public <T> T execute(String callString, CallableStatementCallback<T> action) {
+    try {
+      return this.delegate.execute(callString, action);
+    } finally {
+      this.cache.invalidate(callString);
+    }
+  }
+
+  @Override
+  public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    try {
+      return this.delegate.call(csc, declaredParameters);
+    } finally {
+      this.cache.invalidate(getSql(csc));
+    }
+  }
+
+  // generated by WrapperGenerator, do not edit
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, rse);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch) {
+    this.delegate.query(sql, rch);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(sql, rowMapper);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql) {
+    return this.delegate.queryForRowSet(sql);
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    return this.delegate.query(psc, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, pss, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, args, argTypes, rse);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, args, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    return this.delegate.query(sql, rse, args);
+  }
+
+  @Override
+  public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    this.delegate.query(psc, rch);
+  }
+
+  @Override
+  public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    this.delegate.query(sql, pss, rch);
+  }
+
+  @Override
+  public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    this.delegate.query(sql, args, argTypes, rch);
+  }
+
+  @Override
+  @Deprecated
+  public void query(String sql, Object[] args, RowCallbackHandler rch) {
+    this.delegate.query(sql, args, rch);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch, Object... args) {
+    this.delegate.query(sql, rch, args);
+  }
+
+  @Override
+  public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.delegate.query(psc, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.delegate.query(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(psc, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.delegate.queryForStream(sql, rowMapper, args);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    return this.delegate.queryForRowSet(sql, args, argTypes);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object... args) {
+    return this.delegate.queryForRowSet(sql, args);
+  }
+
+  // end of generated methods
+
+  private static String getSql(Object o) {
+    if (o instanceof SqlProvider) {
+      return ((SqlProvider) o).getSql();
+    }
+    return null;
+  }
+
+}
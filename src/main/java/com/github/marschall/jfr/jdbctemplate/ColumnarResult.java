@@ -0,0 +1,513 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * The rows of a query stored by column in primitive arrays.
+ *
+ * <p>Integer columns are stored in {@code int[]}, {@code BIGINT} columns in
+ * {@code long[]} and floating point columns in {@code double[]}. Character
+ * columns are dictionary encoded, every distinct string is only stored once.
+ * All other columns are stored as objects. Compared to a
+ * {@code List<Map<String, Object>>} this avoids a map per row and a boxed
+ * value per cell.</p>
+ *
+ * <p>Rows and columns are indexed starting with {@code 0}. The primitive
+ * accessors return {@code 0} for {@code NULL} values, use
+ * {@link #isNull(int, int)} to tell them apart. Instances of this class are
+ * created by {@link ColumnarResultSetExtractor}, are effectively immutable
+ * and thread safe once created.</p>
+ */
+public final class ColumnarResult {
+
+  private final String[] columnNames;
+
+  private final Column[] columns;
+
+  private final int rowCount;
+
+  ColumnarResult(String[] columnNames, Column[] columns, int rowCount) {
+    this.columnNames = columnNames;
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Returns the number of columns.
+   *
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return this.columns.length;
+  }
+
+  /**
+   * Returns the name of a column.
+   *
+   * @param column the index of the column
+   * @return the column label as reported by the driver
+   */
+  public String getColumnName(int column) {
+    return this.columnNames[column];
+  }
+
+  /**
+   * Returns the index of a column, ignoring case.
+   *
+   * @param columnName the name of the column, not {@code null}
+   * @return the index of the column
+   * @throws IllegalArgumentException if there is no such column
+   */
+  public int getColumnIndex(String columnName) {
+    for (int i = 0; i < this.columnNames.length; i++) {
+      if (this.columnNames[i].equalsIgnoreCase(columnName)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("no column named: " + columnName);
+  }
+
+  /**
+   * Whether a value is {@code NULL}.
+   *
+   * @param row the index of the row
+   * @param column the index of the column
+   * @return {@code true} if the value is {@code NULL}
+   */
+  public boolean isNull(int row, int column) {
+    return this.column(row, column).isNull(row);
+  }
+
+  /**
+   * Returns a value of an integer column.
+   *
+   * @param row the index of the row
+   * @param column the index of the column
+   * @return the value, {@code 0} if {@code NULL}
+   * @throws IllegalStateException if the column is not an integer column
+   */
+  public int getInt(int row, int column) {
+    return this.column(row, column).getInt(row);
+  }
+
+  /**
+   * Returns a value of an integer or {@code BIGINT} column.
+   *
+   * @param row the index of the row
+   * @param column the index of the column
+   * @return the value, {@code 0} if {@code NULL}
+   * @throws IllegalStateException if the column is not an integer or
+   *                               {@code BIGINT} column
+   */
+  public long getLong(int row, int column) {
+    return this.column(row, column).getLong(row);
+  }
+
+  /**
+   * Returns a value of a numeric column stored in a primitive array.
+   *
+   * @param row the index of the row
+   * @param column the index of the column
+   * @return the value, {@code 0} if {@code NULL}
+   * @throws IllegalStateException if the column is not an integer,
+   *                               {@code BIGINT} or floating point column
+   */
+  public double getDouble(int row, int column) {
+    return this.column(row, column).getDouble(row);
+  }
+
+  /**
+   * Returns a value of a character column.
+   *
+   * @param row the index of the row
+   * @param column the index of the column
+   * @return the value, {@code null} if {@code NULL}
+   * @throws IllegalStateException if the column is not a character column
+   */
+  public String getString(int row, int column) {
+    return this.column(row, column).getString(row);
+  }
+
+  /**
+   * Returns a value of any column, boxing primitive values.
+   *
+   * @param row the index of the row
+   * @param column the index of the column
+   * @return the value, {@code null} if {@code NULL}
+   */
+  public Object getObject(int row, int column) {
+    return this.column(row, column).getObject(row);
+  }
+
+  /**
+   * Returns an estimate of the heap used by the values.
+   *
+   * @return the estimated size in bytes
+   */
+  public long getEstimatedSize() {
+    long size = 0L;
+    for (Column column : this.columns) {
+      size += column.getEstimatedSize();
+    }
+    return size;
+  }
+
+  private Column column(int row, int column) {
+    if ((row < 0) || (row >= this.rowCount)) {
+      throw new IndexOutOfBoundsException("row " + row + " out of bounds for " + this.rowCount + " rows");
+    }
+    return this.columns[column];
+  }
+
+  static int newCapacity(int capacity) {
+    // grow by 50%
+    return Math.max(capacity + (capacity >> 1), 16);
+  }
+
+  /**
+   * The values of a column.
+   */
+  abstract static class Column {
+
+    private final String name;
+
+    private BitSet nulls;
+
+    int size;
+
+    Column(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Reads the value of the current row.
+     *
+     * @param resultSet the result set positioned on the row
+     * @param index the JDBC index of the column
+     */
+    abstract void read(ResultSet resultSet, int index) throws SQLException;
+
+    /**
+     * Releases unused capacity once all rows have been read.
+     */
+    abstract void trim();
+
+    abstract long getEstimatedSize();
+
+    abstract Object getObject(int row);
+
+    void addNull(boolean isNull) {
+      if (isNull) {
+        if (this.nulls == null) {
+          this.nulls = new BitSet();
+        }
+        this.nulls.set(this.size);
+      }
+    }
+
+    boolean isNull(int row) {
+      return (this.nulls != null) && this.nulls.get(row);
+    }
+
+    long getNullsEstimatedSize() {
+      return this.nulls != null ? this.nulls.size() / 8L : 0L;
+    }
+
+    int getInt(int row) {
+      throw this.notReadableAs("int");
+    }
+
+    long getLong(int row) {
+      throw this.notReadableAs("long");
+    }
+
+    double getDouble(int row) {
+      throw this.notReadableAs("double");
+    }
+
+    String getString(int row) {
+      throw this.notReadableAs("String");
+    }
+
+    private IllegalStateException notReadableAs(String type) {
+      return new IllegalStateException("column " + this.name + " can not be read as " + type);
+    }
+
+  }
+
+  static final class IntColumn extends Column {
+
+    private int[] values;
+
+    IntColumn(String name) {
+      super(name);
+      this.values = new int[0];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index) throws SQLException {
+      int value = resultSet.getInt(index);
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(this.size));
+      }
+      this.addNull(resultSet.wasNull());
+      this.values[this.size++] = value;
+    }
+
+    @Override
+    void trim() {
+      this.values = Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    long getEstimatedSize() {
+      return (this.values.length * 4L) + this.getNullsEstimatedSize();
+    }
+
+    @Override
+    int getInt(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    long getLong(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    double getDouble(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    Object getObject(int row) {
+      return this.isNull(row) ? null : this.values[row];
+    }
+
+  }
+
+  static final class LongColumn extends Column {
+
+    private long[] values;
+
+    LongColumn(String name) {
+      super(name);
+      this.values = new long[0];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index) throws SQLException {
+      long value = resultSet.getLong(index);
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(this.size));
+      }
+      this.addNull(resultSet.wasNull());
+      this.values[this.size++] = value;
+    }
+
+    @Override
+    void trim() {
+      this.values = Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    long getEstimatedSize() {
+      return (this.values.length * 8L) + this.getNullsEstimatedSize();
+    }
+
+    @Override
+    long getLong(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    double getDouble(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    Object getObject(int row) {
+      return this.isNull(row) ? null : this.values[row];
+    }
+
+  }
+
+  static final class DoubleColumn extends Column {
+
+    private double[] values;
+
+    DoubleColumn(String name) {
+      super(name);
+      this.values = new double[0];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index) throws SQLException {
+      double value = resultSet.getDouble(index);
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(this.size));
+      }
+      this.addNull(resultSet.wasNull());
+      this.values[this.size++] = value;
+    }
+
+    @Override
+    void trim() {
+      this.values = Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    long getEstimatedSize() {
+      return (this.values.length * 8L) + this.getNullsEstimatedSize();
+    }
+
+    @Override
+    double getDouble(int row) {
+      return this.values[row];
+    }
+
+    @Override
+    Object getObject(int row) {
+      return this.isNull(row) ? null : this.values[row];
+    }
+
+  }
+
+  /**
+   * A dictionary encoded character column.
+   */
+  static final class StringColumn extends Column {
+
+    private static final int NULL_CODE = -1;
+
+    private int[] codes;
+
+    private final List<String> dictionary;
+
+    private final Map<String, Integer> codesByValue;
+
+    StringColumn(String name) {
+      super(name);
+      this.codes = new int[0];
+      this.dictionary = new ArrayList<>();
+      this.codesByValue = new HashMap<>();
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index) throws SQLException {
+      String value = resultSet.getString(index);
+      if (this.size == this.codes.length) {
+        this.codes = Arrays.copyOf(this.codes, newCapacity(this.size));
+      }
+      this.codes[this.size++] = value != null ? this.encode(value) : NULL_CODE;
+    }
+
+    private int encode(String value) {
+      Integer code = this.codesByValue.get(value);
+      if (code == null) {
+        code = this.dictionary.size();
+        this.dictionary.add(value);
+        this.codesByValue.put(value, code);
+      }
+      return code;
+    }
+
+    @Override
+    void trim() {
+      this.codes = Arrays.copyOf(this.codes, this.size);
+      // only needed for encoding
+      this.codesByValue.clear();
+    }
+
+    @Override
+    boolean isNull(int row) {
+      return this.codes[row] == NULL_CODE;
+    }
+
+    @Override
+    long getEstimatedSize() {
+      long size = this.codes.length * 4L;
+      for (String value : this.dictionary) {
+        // header, array header, compact string
+        size += 40L + value.length();
+      }
+      return size;
+    }
+
+    @Override
+    String getString(int row) {
+      int code = this.codes[row];
+      return code != NULL_CODE ? this.dictionary.get(code) : null;
+    }
+
+    @Override
+    Object getObject(int row) {
+      return this.getString(row);
+    }
+
+    int getDictionarySize() {
+      return this.dictionary.size();
+    }
+
+  }
+
+  static final class ObjectColumn extends Column {
+
+    private Object[] values;
+
+    ObjectColumn(String name) {
+      super(name);
+      this.values = new Object[0];
+    }
+
+    @Override
+    void read(ResultSet resultSet, int index) throws SQLException {
+      Object value = JdbcUtils.getResultSetValue(resultSet, index);
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, newCapacity(this.size));
+      }
+      this.values[this.size++] = value;
+    }
+
+    @Override
+    void trim() {
+      this.values = Arrays.copyOf(this.values, this.size);
+    }
+
+    @Override
+    boolean isNull(int row) {
+      return this.values[row] == null;
+    }
+
+    @Override
+    long getEstimatedSize() {
+      // reference plus a small object
+      return this.values.length * 24L;
+    }
+
+    @Override
+    Object getObject(int row) {
+      return this.values[row];
+    }
+
+  }
+
+}
@@ -0,0 +1,149 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import com.github.marschall.jfr.jdbctemplate.ColumnarResult.Column;
+import com.github.marschall.jfr.jdbctemplate.ColumnarResult.DoubleColumn;
+import com.github.marschall.jfr.jdbctemplate.ColumnarResult.IntColumn;
+import com.github.marschall.jfr.jdbctemplate.ColumnarResult.LongColumn;
+import com.github.marschall.jfr.jdbctemplate.ColumnarResult.ObjectColumn;
+import com.github.marschall.jfr.jdbctemplate.ColumnarResult.StringColumn;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * A {@link ResultSetExtractor} that reads all rows into a
+ * {@link ColumnarResult}.
+ *
+ * <p>Use instead of {@code queryForList(String)} for large results with
+ * mostly numeric columns, for example
+ * {@code jdbcOperations.query(sql, new ColumnarResultSetExtractor())}. The
+ * column types are determined from the {@link ResultSetMetaData}.</p>
+ *
+ * <p>Every extraction generates a "Columnar Result" event in the
+ * {@value JfrConstants#CATEGORY} category with the number of rows and the
+ * estimated size of the result. {@link JfrJdbcOperations} reports the
+ * number of rows of a {@link ColumnarResult} as row count.</p>
+ *
+ * <p>Instances of this class are stateless and thread safe.</p>
+ */
+public final class ColumnarResultSetExtractor implements ResultSetExtractor<ColumnarResult> {
+
+  @Override
+  public ColumnarResult extractData(ResultSet rs) throws SQLException {
+    ColumnarResultEvent event = new ColumnarResultEvent();
+    event.begin();
+    ResultSetMetaData metaData = rs.getMetaData();
+    int columnCount = metaData.getColumnCount();
+    String[] columnNames = new String[columnCount];
+    Column[] columns = new Column[columnCount];
+    for (int i = 0; i < columnCount; i++) {
+      String columnName = JdbcUtils.lookupColumnName(metaData, i + 1);
+      columnNames[i] = columnName;
+      columns[i] = newColumn(columnName, metaData.getColumnType(i + 1));
+    }
+
+    int rowCount = 0;
+    while (rs.next()) {
+      for (int i = 0; i < columnCount; i++) {
+        columns[i].read(rs, i + 1);
+      }
+      rowCount += 1;
+    }
+    for (Column column : columns) {
+      column.trim();
+    }
+    ColumnarResult result = new ColumnarResult(columnNames, columns, rowCount);
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.setRowCount(rowCount);
+      event.setColumnCount(columnCount);
+      event.setEstimatedSize(result.getEstimatedSize());
+      event.commit();
+    }
+    return result;
+  }
+
+  private static Column newColumn(String columnName, int sqlType) {
+    switch (sqlType) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        return new IntColumn(columnName);
+      case Types.BIGINT:
+        return new LongColumn(columnName);
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return new DoubleColumn(columnName);
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        return new StringColumn(columnName);
+      default:
+        // including DECIMAL which does not fit into a double
+        return new ObjectColumn(columnName);
+    }
+  }
+
+  @Label("Columnar Result")
+  @Description("The rows of a query read into columnar storage")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class ColumnarResultEvent extends Event {
+
+    @Label("Row Count")
+    @Description("The number of rows read")
+    private long rowCount;
+
+    @Label("Column Count")
+    @Description("The number of columns")
+    private int columnCount;
+
+    @Label("Estimated Size")
+    @Description("The estimated heap used by the values")
+    @DataAmount
+    private long estimatedSize;
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    int getColumnCount() {
+      return this.columnCount;
+    }
+
+    void setColumnCount(int columnCount) {
+      this.columnCount = columnCount;
+    }
+
+    long getEstimatedSize() {
+      return this.estimatedSize;
+    }
+
+    void setEstimatedSize(long estimatedSize) {
+      this.estimatedSize = estimatedSize;
+    }
+
+  }
+
+}
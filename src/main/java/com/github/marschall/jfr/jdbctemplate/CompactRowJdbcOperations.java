@@ -0,0 +1,487 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * An implementation of {@link JdbcOperations} that returns compact rows
+ * from {@code queryForList} and {@code queryForMap}.
+ *
+ * <p>{@link JdbcTemplate} maps every row to a {@link LinkedCaseInsensitiveMap}
+ * which needs two hash tables per row. The rows returned by this class are
+ * still case insensitive {@link Map}s but all rows of a query share one
+ * immutable index from column name to position and every row only holds
+ * an array of its values. Values of existing columns can be replaced,
+ * columns can not be added or removed. All other operations are passed to
+ * the delegate unchanged.</p>
+ *
+ * <p>Every compact operation generates a "Compact Rows" event in the
+ * {@value JfrConstants#CATEGORY} category with the estimated size of the
+ * rows and the estimated size saved compared to
+ * {@link LinkedCaseInsensitiveMap}, both excluding the values. Wrap this
+ * class in a {@link JfrJdbcOperations} in order to have events generated
+ * for the operations as well.</p>
+ */
+public final class CompactRowJdbcOperations implements JdbcOperations {
+
+  private final JdbcOperations delegate;
+
+  /**
+   * Constructs a new {@link CompactRowJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   */
+  public CompactRowJdbcOperations(JdbcOperations delegate) {
+    Objects.requireNonNull(delegate, "delegate");
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql) {
+    CompactRowMapper rowMapper = new CompactRowMapper();
+    return this.record("queryForMap", sql, rowMapper, () -> this.delegate.queryForObject(sql, rowMapper));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql) {
+    CompactRowMapper rowMapper = new CompactRowMapper();
+    return this.record("queryForList", sql, rowMapper, () -> this.delegate.query(sql, rowMapper));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+    CompactRowMapper rowMapper = new CompactRowMapper();
+    return this.record("queryForMap", sql, rowMapper, () -> this.delegate.queryForObject(sql, args, argTypes, rowMapper));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object... args) {
+    CompactRowMapper rowMapper = new CompactRowMapper();
+    return this.record("queryForMap", sql, rowMapper, () -> this.delegate.queryForObject(sql, rowMapper, args));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+    CompactRowMapper rowMapper = new CompactRowMapper();
+    return this.record("queryForList", sql, rowMapper, () -> this.delegate.query(sql, args, argTypes, rowMapper));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object... args) {
+    CompactRowMapper rowMapper = new CompactRowMapper();
+    return this.record("queryForList", sql, rowMapper, () -> this.delegate.query(sql, rowMapper, args));
+  }
+
+  // generated by WrapperGenerator, do not edit
+
+  @Override
+  public <T> T execute(ConnectionCallback<T> action) {
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public <T> T execute(StatementCallback<T> action) {
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public void execute(String sql) {
+    this.delegate.execute(sql);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, rse);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch) {
+    this.delegate.query(sql, rch);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+    return this.delegate.query(sql, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(sql, rowMapper);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+    return this.delegate.queryForObject(sql, rowMapper);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType) {
+    return this.delegate.queryForObject(sql, requiredType);
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType) {
+    return this.delegate.queryForList(sql, elementType);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql) {
+    return this.delegate.queryForRowSet(sql);
+  }
+
+  @Override
+  public int update(String sql) {
+    return this.delegate.update(sql);
+  }
+
+  @Override
+  public int[] batchUpdate(String... sql) {
+    return this.delegate.batchUpdate(sql);
+  }
+
+  @Override
+  public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    return this.delegate.execute(psc, action);
+  }
+
+  @Override
+  public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+    return this.delegate.execute(sql, action);
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    return this.delegate.query(psc, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, pss, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, args, argTypes, rse);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, args, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    return this.delegate.query(sql, rse, args);
+  }
+
+  @Override
+  public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    this.delegate.query(psc, rch);
+  }
+
+  @Override
+  public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    this.delegate.query(sql, pss, rch);
+  }
+
+  @Override
+  public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    this.delegate.query(sql, args, argTypes, rch);
+  }
+
+  @Override
+  @Deprecated
+  public void query(String sql, Object[] args, RowCallbackHandler rch) {
+    this.delegate.query(sql, args, rch);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch, Object... args) {
+    this.delegate.query(sql, rch, args);
+  }
+
+  @Override
+  public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.delegate.query(psc, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.delegate.query(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.delegate.query(sql, args, argTypes, rowMapper);
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+    return this.delegate.query(sql, args, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.delegate.query(sql, rowMapper, args);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(psc, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.delegate.queryForStream(sql, rowMapper, args);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.delegate.queryForObject(sql, args, argTypes, rowMapper);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+    return this.delegate.queryForObject(sql, args, rowMapper);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.delegate.queryForObject(sql, rowMapper, args);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    return this.delegate.queryForObject(sql, args, argTypes, requiredType);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+    return this.delegate.queryForObject(sql, args, requiredType);
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+    return this.delegate.queryForObject(sql, requiredType, args);
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    return this.delegate.queryForList(sql, args, argTypes, elementType);
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+    return this.delegate.queryForList(sql, args, elementType);
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+    return this.delegate.queryForList(sql, elementType, args);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    return this.delegate.queryForRowSet(sql, args, argTypes);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object... args) {
+    return this.delegate.queryForRowSet(sql, args);
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc) {
+    return this.delegate.update(psc);
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    return this.delegate.update(psc, generatedKeyHolder);
+  }
+
+  @Override
+  public int update(String sql, PreparedStatementSetter pss) {
+    return this.delegate.update(sql, pss);
+  }
+
+  @Override
+  public int update(String sql, Object[] args, int[] argTypes) {
+    return this.delegate.update(sql, args, argTypes);
+  }
+
+  @Override
+  public int update(String sql, Object... args) {
+    return this.delegate.update(sql, args);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    return this.delegate.batchUpdate(sql, pss);
+  }
+
+  @Override
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    return this.delegate.batchUpdate(psc, pss, generatedKeyHolder);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+    return this.delegate.batchUpdate(sql, batchArgs);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    return this.delegate.batchUpdate(sql, batchArgs, argTypes);
+  }
+
+  @Override
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    return this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
+  }
+
+  @Override
+  public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    return this.delegate.execute(csc, action);
+  }
+
+  @Override
+  public <T> T execute(String callString, CallableStatementCallback<T> action) {
+    return this.delegate.execute(callString, action);
+  }
+
+  @Override
+  public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    return this.delegate.call(csc, declaredParameters);
+  }
+
+  // end of generated methods
+
+  private <R> R record(String operationName, String sql, CompactRowMapper rowMapper, Supplier<R> query) {
+    CompactRowsEvent event = new CompactRowsEvent();
+    event.begin();
+    R result = query.get();
+    event.end();
+    if (event.shouldCommit()) {
+      event.setOperationName(operationName);
+      event.setQuery(sql);
+      event.setRowCount(rowMapper.getRowCount());
+      long estimatedSize = rowMapper.getEstimatedSize();
+      event.setEstimatedSize(estimatedSize);
+      event.setEstimatedSavedSize(rowMapper.getColumnMapEstimatedSize() - estimatedSize);
+      event.commit();
+    }
+    return result;
+  }
+
+  @Label("Compact Rows")
+  @Description("Rows returned as compact maps instead of LinkedCaseInsensitiveMaps")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class CompactRowsEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Row Count")
+    @Description("The number of rows returned")
+    private long rowCount;
+
+    @Label("Estimated Size")
+    @Description("The estimated heap used by the rows, excluding the values")
+    @DataAmount
+    private long estimatedSize;
+
+    @Label("Estimated Saved Size")
+    @Description("The estimated heap saved compared to LinkedCaseInsensitiveMaps, excluding the values")
+    @DataAmount
+    private long estimatedSavedSize;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    long getEstimatedSize() {
+      return this.estimatedSize;
+    }
+
+    void setEstimatedSize(long estimatedSize) {
+      this.estimatedSize = estimatedSize;
+    }
+
+    long getEstimatedSavedSize() {
+      return this.estimatedSavedSize;
+    }
+
+    void setEstimatedSavedSize(long estimatedSavedSize) {
+      this.estimatedSavedSize = estimatedSavedSize;
+    }
+
+  }
+
+}
@@ -0,0 +1,304 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+
+/**
+ * A {@link RowMapper} that maps every row to a compact, case insensitive
+ * {@link Map}, a replacement for {@link ColumnMapRowMapper}.
+ *
+ * <p>All rows of a query share one immutable index from column name to
+ * position, every row only holds an {@code Object[]} with its values.
+ * Values of existing columns can be replaced, columns can not be added or
+ * removed. If the query returns several columns with the same name the last
+ * one wins.</p>
+ *
+ * <p>Instances are stateful, a new instance has to be used for every
+ * query.</p>
+ */
+final class CompactRowMapper implements RowMapper<Map<String, Object>> {
+
+  private ColumnIndex index;
+
+  private long rowCount;
+
+  @Override
+  public Map<String, Object> mapRow(ResultSet rs, int rowNum) throws SQLException {
+    if (this.index == null) {
+      this.index = new ColumnIndex(rs.getMetaData());
+    }
+    int[] resultSetColumns = this.index.resultSetColumns;
+    Object[] values = new Object[resultSetColumns.length];
+    for (int i = 0; i < resultSetColumns.length; i++) {
+      // same as ColumnMapRowMapper
+      values[i] = JdbcUtils.getResultSetValue(rs, resultSetColumns[i]);
+    }
+    this.rowCount += 1L;
+    return new CompactRow(this.index, values);
+  }
+
+  long getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Returns an estimate of the heap used by the rows, excluding the values.
+   *
+   * @return the estimated size in bytes
+   */
+  long getEstimatedSize() {
+    if (this.index == null) {
+      return 0L;
+    }
+    // row header and field, array header and references, shared index once
+    long rowSize = 16L + 16L + (4L * this.index.names.length);
+    return (this.rowCount * rowSize) + this.index.getEstimatedSize();
+  }
+
+  /**
+   * Returns an estimate of the heap {@link ColumnMapRowMapper} would have
+   * used for the rows, excluding the values.
+   *
+   * @return the estimated size in bytes
+   */
+  long getColumnMapEstimatedSize() {
+    if (this.index == null) {
+      return 0L;
+    }
+    int columns = this.index.names.length;
+    long tableSize = 16L + (4L * hashTableCapacity(columns));
+    // the map, a LinkedHashMap and a HashMap each with a table,
+    // per column a linked entry, an entry and a lower case key
+    long rowSize = 32L + 56L + 48L + (2L * tableSize) + (columns * (40L + 32L)) + this.index.getKeysEstimatedSize();
+    return this.rowCount * rowSize;
+  }
+
+  private static int hashTableCapacity(int size) {
+    // default initial capacity and load factor
+    int capacity = 16;
+    while (((capacity * 3) / 4) < size) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  static String normalize(String columnName) {
+    return columnName.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The column names of a query shared by all rows.
+   */
+  static final class ColumnIndex {
+
+    final String[] names;
+
+    /**
+     * The JDBC index of the column of every name.
+     */
+    final int[] resultSetColumns;
+
+    private final Map<String, Integer> positions;
+
+    ColumnIndex(ResultSetMetaData metaData) throws SQLException {
+      int columnCount = metaData.getColumnCount();
+      Map<String, Integer> positions = new HashMap<>();
+      List<String> names = new ArrayList<>(columnCount);
+      List<Integer> resultSetColumns = new ArrayList<>(columnCount);
+      for (int i = 1; i <= columnCount; i++) {
+        String name = JdbcUtils.lookupColumnName(metaData, i);
+        Integer position = positions.get(normalize(name));
+        if (position != null) {
+          // the last column wins, like ColumnMapRowMapper
+          names.set(position, name);
+          resultSetColumns.set(position, i);
+        } else {
+          positions.put(normalize(name), names.size());
+          names.add(name);
+          resultSetColumns.add(i);
+        }
+      }
+      this.names = names.toArray(new String[0]);
+      this.resultSetColumns = resultSetColumns.stream().mapToInt(Integer::intValue).toArray();
+      this.positions = positions;
+    }
+
+    int positionOf(Object key) {
+      if (!(key instanceof String)) {
+        return -1;
+      }
+      Integer position = this.positions.get(normalize((String) key));
+      return position != null ? position : -1;
+    }
+
+    long getEstimatedSize() {
+      return 64L + (this.names.length * 32L) + this.getKeysEstimatedSize();
+    }
+
+    long getKeysEstimatedSize() {
+      long size = 0L;
+      for (String name : this.names) {
+        size += 40L + name.length();
+      }
+      return size;
+    }
+
+  }
+
+  /**
+   * A row backed by an array of values.
+   */
+  static final class CompactRow extends AbstractMap<String, Object> {
+
+    private final ColumnIndex index;
+
+    private final Object[] values;
+
+    CompactRow(ColumnIndex index, Object[] values) {
+      this.index = index;
+      this.values = values;
+    }
+
+    @Override
+    public int size() {
+      return this.values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return this.index.positionOf(key) != -1;
+    }
+
+    @Override
+    public Object get(Object key) {
+      int position = this.index.positionOf(key);
+      return position != -1 ? this.values[position] : null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      int position = this.index.positionOf(key);
+      if (position == -1) {
+        throw new UnsupportedOperationException("columns can not be added");
+      }
+      Object previous = this.values[position];
+      this.values[position] = value;
+      return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+      throw new UnsupportedOperationException("columns can not be removed");
+    }
+
+    @Override
+    public void clear() {
+      throw new UnsupportedOperationException("columns can not be removed");
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return new EntrySet();
+    }
+
+    final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+      @Override
+      public int size() {
+        return CompactRow.this.values.length;
+      }
+
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+    }
+
+    final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+      private int position;
+
+      @Override
+      public boolean hasNext() {
+        return this.position < CompactRow.this.values.length;
+      }
+
+      @Override
+      public Entry<String, Object> next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return new RowEntry(this.position++);
+      }
+
+    }
+
+    final class RowEntry implements Entry<String, Object> {
+
+      private final int position;
+
+      RowEntry(int position) {
+        this.position = position;
+      }
+
+      @Override
+      public String getKey() {
+        return CompactRow.this.index.names[this.position];
+      }
+
+      @Override
+      public Object getValue() {
+        return CompactRow.this.values[this.position];
+      }
+
+      @Override
+      public Object setValue(Object value) {
+        Object previous = CompactRow.this.values[this.position];
+        CompactRow.this.values[this.position] = value;
+        return previous;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+        if (this == obj) {
+          return true;
+        }
+        if (!(obj instanceof Entry)) {
+          return false;
+        }
+        Entry<?, ?> other = (Entry<?, ?>) obj;
+        return this.getKey().equals(other.getKey()) && Objects.equals(this.getValue(), other.getValue());
+      }
+
+      @Override
+      public int hashCode() {
+        return this.getKey().hashCode() ^ Objects.hashCode(this.getValue());
+      }
+
+      @Override
+      public String toString() {
+        return this.getKey() + "=" + this.getValue();
+      }
+
+    }
+
+  }
+
+}
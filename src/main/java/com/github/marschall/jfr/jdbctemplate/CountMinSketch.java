@@ -0,0 +1,64 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe count-min sketch of fixed size.
+ *
+ * <p>Estimates are never lower than the actual count but may be higher
+ * because of hash collisions.</p>
+ */
+final class CountMinSketch {
+
+  private final int depth;
+
+  private final int mask;
+
+  private final AtomicLongArray counters;
+
+  /**
+   * Constructs a new {@link CountMinSketch}.
+   *
+   * @param depth the number of hash functions
+   * @param width the number of counters per hash function, must be a power
+   *              of two
+   */
+  CountMinSketch(int depth, int width) {
+    if (Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("width must be a power of two but was: " + width);
+    }
+    this.depth = depth;
+    this.mask = width - 1;
+    this.counters = new AtomicLongArray(depth * width);
+  }
+
+  /**
+   * Increments the count of a key.
+   *
+   * @param hash the 64bit hash of the key
+   * @return the estimated count of the key including this increment
+   */
+  long increment(long hash) {
+    // Kirsch-Mitzenmacher, derive all hash functions from two
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+    int width = this.mask + 1;
+    long estimate = Long.MAX_VALUE;
+    for (int i = 0; i < this.depth; i++) {
+      int combined = hash1 + (i * hash2);
+      int index = (i * width) + (combined & this.mask);
+      estimate = Math.min(estimate, this.counters.incrementAndGet(index));
+    }
+    return estimate;
+  }
+
+  /**
+   * Resets all counts to zero. Concurrent increments may be lost.
+   */
+  void clear() {
+    for (int i = 0; i < this.counters.length(); i++) {
+      this.counters.set(i, 0L);
+    }
+  }
+
+}
@@ -0,0 +1,122 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlProvider;
+
+/**
+ * Publishes the rows of queries of a {@link JdbcOperations} to
+ * {@link Subscriber}s with back pressure.
+ *
+ * <p>Every {@code queryForStream} method of {@link JdbcOperations} has a
+ * {@code queryForPublisher} version that returns a {@link Publisher}. Every
+ * subscription executes the query in a task on the given {@link Executor},
+ * on Java 21 and later usually
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}. The task fetches a
+ * row only once the subscriber requested it and blocks while there is no
+ * demand, holding the connection. The {@code Stream} and with it the JDBC
+ * resources are closed when all rows have been emitted, the subscription
+ * is cancelled or an error occurs. Cancellation is only noticed before
+ * the next row is fetched.</p>
+ *
+ * <p>The queries are not executed in the transaction of the caller.
+ * Arguments, including arrays, must not be modified until the subscription
+ * ends.</p>
+ *
+ * <p>Every subscription generates a "Publisher" event in the
+ * {@value JfrConstants#CATEGORY} category with the number of rows emitted,
+ * the number of times the rows had to wait for demand, the time spent
+ * waiting for the subscriber and the time spent in the database. Wrap the
+ * delegate in a {@link JfrJdbcOperations} in order to have events generated
+ * for the streams as well.</p>
+ */
+public final class FlowJdbcOperations {
+
+  private final JdbcOperations delegate;
+
+  private final Executor executor;
+
+  /**
+   * Constructs a new {@link FlowJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param executor the executor running the subscriptions, not {@code null}
+   */
+  public FlowJdbcOperations(JdbcOperations delegate, Executor executor) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(executor, "executor");
+    this.delegate = delegate;
+    this.executor = executor;
+  }
+
+  /**
+   * Publisher version of {@link JdbcOperations#queryForStream(String, RowMapper)}.
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute
+   * @param rowMapper the callback that will map one object per row
+   * @return the publisher of the rows
+   */
+  public <T> Publisher<T> queryForPublisher(String sql, RowMapper<T> rowMapper) {
+    return this.publisher(sql, () -> this.delegate.queryForStream(sql, rowMapper));
+  }
+
+  /**
+   * Publisher version of {@link JdbcOperations#queryForStream(PreparedStatementCreator, RowMapper)}.
+   *
+   * @param <T> the type of the rows
+   * @param psc the callback that creates a PreparedStatement given a Connection
+   * @param rowMapper the callback that will map one object per row
+   * @return the publisher of the rows
+   */
+  public <T> Publisher<T> queryForPublisher(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.publisher(getSql(psc), () -> this.delegate.queryForStream(psc, rowMapper));
+  }
+
+  /**
+   * Publisher version of {@link JdbcOperations#queryForStream(String, PreparedStatementSetter, RowMapper)}.
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute
+   * @param pss a callback that knows how to set values on the prepared statement
+   * @param rowMapper the callback that will map one object per row
+   * @return the publisher of the rows
+   */
+  public <T> Publisher<T> queryForPublisher(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.publisher(sql, () -> this.delegate.queryForStream(sql, pss, rowMapper));
+  }
+
+  /**
+   * Publisher version of {@link JdbcOperations#queryForStream(String, RowMapper, Object...)}.
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute
+   * @param rowMapper the callback that will map one object per row
+   * @param args arguments to bind to the query
+   * @return the publisher of the rows
+   */
+  public <T> Publisher<T> queryForPublisher(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.publisher(sql, () -> this.delegate.queryForStream(sql, rowMapper, args));
+  }
+
+  private <T> Publisher<T> publisher(String sql, Supplier<Stream<T>> source) {
+    return new RowPublisher<>("queryForPublisher", sql, source, this.executor);
+  }
+
+  private static String getSql(Object o) {
+    if (o instanceof SqlProvider) {
+      return ((SqlProvider) o).getSql();
+    }
+    return null;
+  }
+
+}
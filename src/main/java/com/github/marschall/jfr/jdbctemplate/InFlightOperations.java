@@ -0,0 +1,307 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Registry of the JDBC operations currently in progress.
+ *
+ * <p>Every thread claims a slot in a fixed size array the first time it
+ * executes a JDBC operation, after that entering and exiting an operation are
+ * only a few plain and volatile writes without any locking. Threads that do
+ * not find a free slot are not tracked. Slots of threads that are no longer
+ * alive are reclaimed when the periodic event is emitted, after that threads
+ * without a slot try to claim one again.</p>
+ *
+ * <p>Operations are only tracked while {@link LongRunningOperationEvent} is
+ * enabled.</p>
+ */
+final class InFlightOperations {
+
+  private static final int SLOT_COUNT = 256;
+
+  private static final int SLOT_MASK = SLOT_COUNT - 1;
+
+  private static final Slot[] SLOTS;
+
+  /**
+   * Incremented every time slots are reclaimed.
+   */
+  private static final AtomicLong RECLAIM_GENERATION = new AtomicLong();
+
+  private static final ThreadLocal<SlotClaim> CURRENT_CLAIM = ThreadLocal.withInitial(SlotClaim::new);
+
+  private static final EventType LONG_RUNNING_EVENT_TYPE;
+
+  static {
+    Slot[] slots = new Slot[SLOT_COUNT];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = new Slot();
+    }
+    SLOTS = slots;
+    LONG_RUNNING_EVENT_TYPE = EventType.getEventType(LongRunningOperationEvent.class);
+    FlightRecorder.addPeriodicEvent(LongRunningOperationEvent.class, InFlightOperations::emitLongRunningOperations);
+  }
+
+  private InFlightOperations() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Marks the start of a JDBC operation on the current thread.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string, may be {@code null}
+   * @return the slot to pass to {@link #exit(Slot)}, {@code null} if the
+   *         operation is not tracked
+   */
+  static Slot enter(String operationName, String query) {
+    if (!LONG_RUNNING_EVENT_TYPE.isEnabled()) {
+      return null;
+    }
+    SlotClaim claim = CURRENT_CLAIM.get();
+    Slot slot = claim.slot;
+    if (slot == null) {
+      // only retry after slots have been reclaimed
+      long generation = RECLAIM_GENERATION.get();
+      if (generation == claim.generation) {
+        return null;
+      }
+      claim.generation = generation;
+      slot = claimSlot();
+      if (slot == null) {
+        return null;
+      }
+      claim.slot = slot;
+    }
+    slot.enter(operationName, query);
+    return slot;
+  }
+
+  /**
+   * Marks the end of a JDBC operation.
+   *
+   * @param slot the slot returned by {@link #enter(String, String)},
+   *             may be {@code null}
+   */
+  static void exit(Slot slot) {
+    if (slot != null) {
+      slot.exit();
+    }
+  }
+
+  private static Slot claimSlot() {
+    Thread thread = Thread.currentThread();
+    WeakReference<Thread> owner = new WeakReference<>(thread);
+    int start = mix(thread.getId());
+    for (int i = 0; i < SLOT_COUNT; i++) {
+      Slot slot = SLOTS[(start + i) & SLOT_MASK];
+      if (slot.claim(owner)) {
+        return slot;
+      }
+    }
+    return null;
+  }
+
+  private static int mix(long threadId) {
+    // thread ids are mostly sequential, spread them
+    long h = threadId * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32);
+  }
+
+  private static void emitLongRunningOperations() {
+    long now = System.nanoTime();
+    boolean reclaimed = false;
+    for (Slot slot : SLOTS) {
+      WeakReference<Thread> owner = slot.owner;
+      if (owner == null) {
+        continue;
+      }
+      Thread thread = owner.get();
+      if ((thread == null) || !thread.isAlive()) {
+        slot.release(owner);
+        reclaimed = true;
+        continue;
+      }
+      long startNanos = slot.startNanos;
+      if (startNanos == 0L) {
+        continue;
+      }
+      String operationName = slot.operationName;
+      String query = slot.query;
+      // seqlock read, keep the plain reads from floating below the re-read
+      VarHandle.acquireFence();
+      if (slot.startNanos != startNanos) {
+        // the operation ended or a new one started while we were reading
+        continue;
+      }
+      LongRunningOperationEvent event = new LongRunningOperationEvent();
+      event.setThread(thread);
+      event.setOperationName(operationName);
+      event.setQuery(query);
+      event.setElapsed(now - startNanos);
+      event.commit();
+    }
+    if (reclaimed) {
+      RECLAIM_GENERATION.incrementAndGet();
+    }
+  }
+
+  /**
+   * The slot claimed by a thread.
+   */
+  static final class SlotClaim {
+
+    // only accessed by the owning thread
+    Slot slot;
+
+    // the reclaim generation of the last failed claim, -1 if never tried
+    long generation = -1L;
+
+  }
+
+  static final class Slot {
+
+    private static final VarHandle OWNER;
+
+    static {
+      try {
+        OWNER = MethodHandles.lookup().findVarHandle(Slot.class, "owner", WeakReference.class);
+      } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    volatile WeakReference<Thread> owner;
+
+    // written only by the owning thread, published by the write to startNanos
+    String operationName;
+
+    String query;
+
+    // 0 when idle
+    volatile long startNanos;
+
+    // only accessed by the owning thread
+    private int depth;
+
+    boolean claim(WeakReference<Thread> newOwner) {
+      return OWNER.compareAndSet(this, null, newOwner);
+    }
+
+    void release(WeakReference<Thread> oldOwner) {
+      this.operationName = null;
+      this.query = null;
+      this.startNanos = 0L;
+      this.depth = 0;
+      OWNER.compareAndSet(this, oldOwner, null);
+    }
+
+    void enter(String operationName, String query) {
+      // nested operations, eg. a JfrNamedParameterJdbcOperations on top of a
+      // JfrJdbcOperations, are reported as the outermost operation
+      if (this.depth++ == 0) {
+        this.operationName = operationName;
+        this.query = query;
+        long now = System.nanoTime();
+        // 0 means idle
+        this.startNanos = now != 0L ? now : 1L;
+      }
+    }
+
+    void exit() {
+      if (--this.depth == 0) {
+        this.startNanos = 0L;
+        // seqlock write, keep the writes of the next operation from floating
+        // above the write marking the slot as idle
+        VarHandle.storeStoreFence();
+        this.operationName = null;
+        this.query = null;
+      }
+    }
+
+  }
+
+  @Label("Long Running Operation")
+  @Description("A JDBC operation that has been running for longer than the minimum age")
+  @Category(JfrConstants.CATEGORY)
+  @Period("5 s")
+  @Enabled(false)
+  @StackTrace(false)
+  static class LongRunningOperationEvent extends Event {
+
+    @Label("Thread")
+    @Description("The thread executing the JDBC operation")
+    private Thread thread;
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Elapsed")
+    @Description("The time the JDBC operation has been running for")
+    @Timespan(Timespan.NANOSECONDS)
+    private long elapsed;
+
+    @Label("Minimum Age")
+    @Description("Operations running for less than this are not reported")
+    @Name("minimumAge")
+    @SettingDefinition
+    boolean minimumAge(MinimumAgeSetting minimumAge) {
+      return this.elapsed >= minimumAge.getMinimumAgeNanos();
+    }
+
+    Thread getThread() {
+      return this.thread;
+    }
+
+    void setThread(Thread thread) {
+      this.thread = thread;
+    }
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getElapsed() {
+      return this.elapsed;
+    }
+
+    void setElapsed(long elapsed) {
+      this.elapsed = elapsed;
+    }
+
+  }
+
+}
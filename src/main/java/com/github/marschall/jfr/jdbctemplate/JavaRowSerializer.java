@@ -0,0 +1,39 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * A {@link RowSerializer} using Java serialization, the rows have to be
+ * {@link java.io.Serializable}.
+ *
+ * <p>Every row is written as a separate object stream so rows can be read
+ * in any order.</p>
+ */
+final class JavaRowSerializer<T> implements RowSerializer<T> {
+
+  @Override
+  public void serialize(T row, DataOutputStream output) throws IOException {
+    ObjectOutputStream objectStream = new ObjectOutputStream(output);
+    objectStream.writeObject(row);
+    objectStream.flush();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T deserialize(DataInputStream input) throws IOException {
+    ObjectInputStream objectStream = new ObjectInputStream(input);
+    try {
+      return (T) objectStream.readObject();
+    } catch (ClassNotFoundException e) {
+      InvalidClassException exception = new InvalidClassException("class of row not found");
+      exception.initCause(e);
+      throw exception;
+    }
+  }
+
+}
@@ -0,0 +1,102 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+/**
+ * Business context that is added to the "Operation" and "Named Operation"
+ * events of the current thread, eg. the HTTP endpoint, the tenant or the id
+ * of a batch job.
+ *
+ * <p>Create a context once per request or job and bind it for its
+ * duration:</p>
+ * <pre><code>
+ * JdbcContext previous = JdbcContext.bind(new JdbcContext("GET /orders", tenant, null));
+ * try {
+ *   // JDBC operations
+ * } finally {
+ *   JdbcContext.bind(previous);
+ * }
+ * </code></pre>
+ *
+ * <p>Binding a context does not allocate once the thread has bound a
+ * context before. The context is only read when an event is actually
+ * recorded, from the thread that ends the operation.</p>
+ *
+ * <p>Instances of this class are immutable and thread safe.</p>
+ */
+public final class JdbcContext {
+
+  private static final ThreadLocal<JdbcContext> CURRENT = new ThreadLocal<>();
+
+  private final String endpoint;
+
+  private final String tenant;
+
+  private final String jobId;
+
+  /**
+   * Constructs a new {@link JdbcContext}.
+   *
+   * @param endpoint the HTTP endpoint or other entry point, may be {@code null}
+   * @param tenant the tenant, may be {@code null}
+   * @param jobId the id of the batch job, may be {@code null}
+   */
+  public JdbcContext(String endpoint, String tenant, String jobId) {
+    this.endpoint = endpoint;
+    this.tenant = tenant;
+    this.jobId = jobId;
+  }
+
+  /**
+   * Binds a context to the current thread.
+   *
+   * @param context the context to bind, {@code null} to unbind
+   * @return the context previously bound to the current thread, pass it to
+   *         this method again to restore it, may be {@code null}
+   */
+  public static JdbcContext bind(JdbcContext context) {
+    JdbcContext previous = CURRENT.get();
+    CURRENT.set(context);
+    return previous;
+  }
+
+  /**
+   * Returns the context bound to the current thread.
+   *
+   * @return the context bound to the current thread, {@code null} if none
+   */
+  public static JdbcContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Returns the HTTP endpoint or other entry point.
+   *
+   * @return the endpoint, may be {@code null}
+   */
+  public String getEndpoint() {
+    return this.endpoint;
+  }
+
+  /**
+   * Returns the tenant.
+   *
+   * @return the tenant, may be {@code null}
+   */
+  public String getTenant() {
+    return this.tenant;
+  }
+
+  /**
+   * Returns the id of the batch job.
+   *
+   * @return the job id, may be {@code null}
+   */
+  public String getJobId() {
+    return this.jobId;
+  }
+
+  @Override
+  public String toString() {
+    return "JdbcContext[endpoint=" + this.endpoint + ", tenant=" + this.tenant + ", jobId=" + this.jobId + ']';
+  }
+
+}
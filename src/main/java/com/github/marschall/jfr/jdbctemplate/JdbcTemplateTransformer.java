@@ -0,0 +1,338 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.asm.TypePath;
+
+/**
+ * Instruments the operations of {@code JdbcTemplate} and
+ * {@code NamedParameterJdbcTemplate} with calls to {@link JfrJdbcAgent}.
+ *
+ * <p>Every method of the class that implements a method of the operations
+ * interface calls {@code enter} at the start, {@code exit} before every
+ * return and {@code exitExceptionally} in a handler around the whole
+ * method body. The event is passed from {@code enter} to {@code exit} in
+ * a local variable so that it does not escape, like in the decorators. Only the bodies of existing methods change so already
+ * loaded classes can be retransformed. Uses the copy of ASM in Spring Core
+ * as the ClassFile API is not available in Java 17.</p>
+ */
+final class JdbcTemplateTransformer implements ClassFileTransformer {
+
+  private static final String JDBC_TEMPLATE = "org/springframework/jdbc/core/JdbcTemplate";
+
+  private static final String JDBC_OPERATIONS = "org/springframework/jdbc/core/JdbcOperations";
+
+  private static final String NAMED_PARAMETER_JDBC_TEMPLATE = "org/springframework/jdbc/core/namedparam/NamedParameterJdbcTemplate";
+
+  private static final String NAMED_PARAMETER_JDBC_OPERATIONS = "org/springframework/jdbc/core/namedparam/NamedParameterJdbcOperations";
+
+  private static final String AGENT = Type.getInternalName(JfrJdbcAgent.class);
+
+  /**
+   * Parameter types that hold the bind arguments of a read operation.
+   */
+  private static final Set<String> ARGUMENT_TYPES = Set.of(
+          "[Ljava/lang/Object;", "Ljava/util/Map;", "Lorg/springframework/jdbc/core/namedparam/SqlParameterSource;");
+
+  private static final String PREPARED_STATEMENT_SETTER = "Lorg/springframework/jdbc/core/PreparedStatementSetter;";
+
+  private static final String ROW_CALLBACK_HANDLER = "Lorg/springframework/jdbc/core/RowCallbackHandler;";
+
+  // row count of JfrJdbcOperations for operations that do not return one
+  private static final int NO_ROWS = -1;
+
+  static boolean isInstrumented(String className) {
+    return className.equals(JDBC_TEMPLATE.replace('/', '.'))
+            || className.equals(NAMED_PARAMETER_JDBC_TEMPLATE.replace('/', '.'));
+  }
+
+  @Override
+  public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+          ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+    if (JDBC_TEMPLATE.equals(className)) {
+      return instrument(classfileBuffer, readOperations(loader, JDBC_OPERATIONS), false);
+    }
+    if (NAMED_PARAMETER_JDBC_TEMPLATE.equals(className)) {
+      return instrument(classfileBuffer, readOperations(loader, NAMED_PARAMETER_JDBC_OPERATIONS), true);
+    }
+    return null;
+  }
+
+  /**
+   * Reads the names and descriptors of the methods of an interface from its
+   * class file so that it does not have to be loaded.
+   */
+  private static Set<String> readOperations(ClassLoader loader, String interfaceName) {
+    String resourceName = interfaceName + ".class";
+    Set<String> operations = new HashSet<>();
+    try (InputStream stream = loader != null ? loader.getResourceAsStream(resourceName) : ClassLoader.getSystemResourceAsStream(resourceName)) {
+      if (stream == null) {
+        throw new IllegalStateException("could not find: " + resourceName);
+      }
+      new ClassReader(stream).accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION) {
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+          if ((access & Opcodes.ACC_STATIC) == 0) {
+            operations.add(name + descriptor);
+          }
+          return null;
+        }
+
+      }, ClassReader.SKIP_CODE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("could not read: " + resourceName, e);
+    }
+    return operations;
+  }
+
+  static byte[] instrument(byte[] classfileBuffer, Set<String> operations, boolean named) {
+    ClassReader reader = new ClassReader(classfileBuffer);
+    ClassWriter writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+    reader.accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION, writer) {
+
+      private String owner;
+
+      @Override
+      public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        this.owner = name;
+        super.visit(version, access, name, signature, superName, interfaces);
+      }
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        MethodVisitor methodVisitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+        boolean operation = ((access & Opcodes.ACC_PUBLIC) != 0)
+                && ((access & (Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC)) == 0)
+                && operations.contains(name + descriptor)
+                && (Type.getArgumentTypes(descriptor).length > 0);
+        if (!operation) {
+          return methodVisitor;
+        }
+        return new OperationMethodVisitor(methodVisitor, this.owner, name, descriptor, named);
+      }
+
+    }, ClassReader.EXPAND_FRAMES);
+    return writer.toByteArray();
+  }
+
+  /**
+   * Adds the calls to {@link JfrJdbcAgent} to a single operation.
+   *
+   * <p>The event is kept in a new local variable right after the arguments
+   * like in the decorators, the local variables of the method move up by
+   * one. Requires expanded frames.</p>
+   */
+  static final class OperationMethodVisitor extends MethodVisitor {
+
+    private static final String ENTER_DESCRIPTOR = "(ZLjava/lang/String;Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final String owner;
+    private final String name;
+    private final Type[] argumentTypes;
+    private final Type returnType;
+    private final boolean named;
+    private final int eventLocal;
+    private final Label start;
+
+    OperationMethodVisitor(MethodVisitor methodVisitor, String owner, String name, String descriptor, boolean named) {
+      super(SpringAsmInfo.ASM_VERSION, methodVisitor);
+      this.owner = owner;
+      this.name = name;
+      this.argumentTypes = Type.getArgumentTypes(descriptor);
+      this.returnType = Type.getReturnType(descriptor);
+      this.named = named;
+      this.eventLocal = Type.getArgumentsAndReturnSizes(descriptor) >> 2;
+      this.start = new Label();
+    }
+
+    @Override
+    public void visitCode() {
+      super.visitCode();
+      super.visitInsn(this.named ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+      super.visitLdcInsn(this.name);
+      // the first argument is the SQL, a callback or a statement creator
+      if ((this.argumentTypes[0].getSort() == Type.OBJECT) || (this.argumentTypes[0].getSort() == Type.ARRAY)) {
+        super.visitVarInsn(Opcodes.ALOAD, 1);
+      } else {
+        super.visitInsn(Opcodes.ACONST_NULL);
+      }
+      int arguments = this.findArguments();
+      if (arguments != -1) {
+        super.visitVarInsn(Opcodes.ALOAD, arguments);
+        super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "enter", ENTER_DESCRIPTOR, false);
+      } else if (this.isQueryWithoutArguments()) {
+        super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "enterWithoutArguments", "(ZLjava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;", false);
+      } else {
+        super.visitInsn(Opcodes.ACONST_NULL);
+        super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "enter", ENTER_DESCRIPTOR, false);
+      }
+      super.visitVarInsn(Opcodes.ASTORE, this.eventLocal);
+      super.visitLabel(this.start);
+    }
+
+    /**
+     * Returns the local variable of the bind arguments of a read operation,
+     * {@code -1} if there is none.
+     */
+    private int findArguments() {
+      if (!this.name.startsWith("query")) {
+        return -1;
+      }
+      int local = 1;
+      for (Type argumentType : this.argumentTypes) {
+        if (ARGUMENT_TYPES.contains(argumentType.getDescriptor())) {
+          return local;
+        }
+        local += argumentType.getSize();
+      }
+      return -1;
+    }
+
+    private boolean isQueryWithoutArguments() {
+      return this.name.startsWith("query")
+              && this.argumentTypes[0].getDescriptor().equals("Ljava/lang/String;")
+              && !this.hasArgument(PREPARED_STATEMENT_SETTER);
+    }
+
+    private boolean hasArgument(String descriptor) {
+      for (Type argumentType : this.argumentTypes) {
+        if (argumentType.getDescriptor().equals(descriptor)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private int remap(int local) {
+      return local < this.eventLocal ? local : local + 1;
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int varIndex) {
+      super.visitVarInsn(opcode, this.remap(varIndex));
+    }
+
+    @Override
+    public void visitIincInsn(int varIndex, int increment) {
+      super.visitIincInsn(this.remap(varIndex), increment);
+    }
+
+    @Override
+    public void visitLocalVariable(String name, String descriptor, String signature, Label start, Label end, int index) {
+      super.visitLocalVariable(name, descriptor, signature, start, end, this.remap(index));
+    }
+
+    @Override
+    public AnnotationVisitor visitLocalVariableAnnotation(int typeRef, TypePath typePath, Label[] start, Label[] end,
+            int[] index, String descriptor, boolean visible) {
+      int[] remapped = new int[index.length];
+      for (int i = 0; i < index.length; i++) {
+        remapped[i] = this.remap(index[i]);
+      }
+      return super.visitLocalVariableAnnotation(typeRef, typePath, start, end, remapped, descriptor, visible);
+    }
+
+    @Override
+    public void visitFrame(int type, int numLocal, Object[] local, int numStack, Object[] stack) {
+      // frames list long and double values as one entry
+      int argumentEntries = this.argumentTypes.length + 1;
+      Object[] locals = new Object[Math.max(numLocal, argumentEntries) + 1];
+      for (int i = 0; i < argumentEntries; i++) {
+        locals[i] = i < numLocal ? local[i] : Opcodes.TOP;
+      }
+      locals[argumentEntries] = "java/lang/Object";
+      if (numLocal > argumentEntries) {
+        System.arraycopy(local, argumentEntries, locals, argumentEntries + 1, numLocal - argumentEntries);
+      }
+      super.visitFrame(type, locals.length, locals, numStack, stack);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      switch (opcode) {
+        case Opcodes.RETURN:
+          super.visitVarInsn(Opcodes.ALOAD, this.eventLocal);
+          // the rows passed to a RowCallbackHandler are not counted
+          super.visitLdcInsn(this.hasArgument(ROW_CALLBACK_HANDLER) ? Statement.SUCCESS_NO_INFO : NO_ROWS);
+          super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "exit", "(Ljava/lang/Object;I)V", false);
+          break;
+        case Opcodes.IRETURN:
+          super.visitInsn(Opcodes.DUP);
+          super.visitVarInsn(Opcodes.ALOAD, this.eventLocal);
+          super.visitInsn(Opcodes.SWAP);
+          super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "exit", "(Ljava/lang/Object;I)V", false);
+          break;
+        case Opcodes.ARETURN:
+          super.visitVarInsn(Opcodes.ALOAD, this.eventLocal);
+          super.visitInsn(Opcodes.SWAP);
+          super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "exit", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", false);
+          if (!this.returnType.getInternalName().equals("java/lang/Object")) {
+            super.visitTypeInsn(Opcodes.CHECKCAST, this.returnType.getInternalName());
+          }
+          break;
+        default:
+          break;
+      }
+      super.visitInsn(opcode);
+    }
+
+    @Override
+    public void visitMaxs(int maxStack, int maxLocals) {
+      Label end = new Label();
+      Label handler = new Label();
+      super.visitLabel(end);
+      // added last so that the handlers of the method itself take precedence
+      super.visitTryCatchBlock(this.start, end, handler, null);
+      super.visitLabel(handler);
+      Object[] locals = new Object[this.argumentTypes.length + 2];
+      locals[0] = this.owner;
+      for (int i = 0; i < this.argumentTypes.length; i++) {
+        locals[i + 1] = frameType(this.argumentTypes[i]);
+      }
+      locals[locals.length - 1] = "java/lang/Object";
+      super.visitFrame(Opcodes.F_NEW, locals.length, locals, 1, new Object[] {"java/lang/Throwable"});
+      super.visitVarInsn(Opcodes.ALOAD, this.eventLocal);
+      super.visitMethodInsn(Opcodes.INVOKESTATIC, AGENT, "exitExceptionally", "(Ljava/lang/Object;)V", false);
+      super.visitInsn(Opcodes.ATHROW);
+      super.visitMaxs(maxStack, maxLocals);
+    }
+
+    private static Object frameType(Type type) {
+      switch (type.getSort()) {
+        case Type.BOOLEAN:
+        case Type.CHAR:
+        case Type.BYTE:
+        case Type.SHORT:
+        case Type.INT:
+          return Opcodes.INTEGER;
+        case Type.FLOAT:
+          return Opcodes.FLOAT;
+        case Type.LONG:
+          return Opcodes.LONG;
+        case Type.DOUBLE:
+          return Opcodes.DOUBLE;
+        default:
+          return type.getInternalName();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,895 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Executes the operations of a {@link JdbcOperations} asynchronously.
+ *
+ * <p>Every method of {@link JdbcOperations} that is neither deprecated nor
+ * returns a {@code Stream} has an asynchronous version that returns a
+ * {@link CompletableFuture}. This allows to fan out independent queries.
+ * The operations are executed on the given {@link Executor}, on Java 21 and
+ * later usually {@code Executors.newVirtualThreadPerTaskExecutor()}. The
+ * number of operations executed concurrently is limited by a fair
+ * {@link Semaphore} so that the tasks don't exhaust the connection pool,
+ * the limit should not exceed the size of the pool. Tasks waiting for a
+ * permit block the thread they run on.</p>
+ *
+ * <p>The operations are not executed in the transaction of the caller.
+ * Arguments, including arrays, must not be modified until the future
+ * completes. Exceptions of the operations, eg. a
+ * {@link org.springframework.dao.DataAccessException}, complete the future
+ * exceptionally.</p>
+ *
+ * <p>Every operation generates an "Async JDBC Operation" event in the
+ * {@value JfrConstants#CATEGORY} category on the thread executing it. The
+ * duration of the event starts with the submission of the operation and
+ * includes the time queued in the executor, the time waiting for a permit
+ * and the execution time are reported separately. Wrap the delegate in a
+ * {@link JfrJdbcOperations} in order to have events generated for the
+ * operations as well.</p>
+ */
+public final class JfrAsyncJdbcOperations {
+
+  private final JdbcOperations delegate;
+
+  private final Executor executor;
+
+  private final Semaphore permits;
+
+  /**
+   * Constructs a new {@link JfrAsyncJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param executor the executor running the operations, not {@code null}
+   * @param maximumConcurrency the maximum number of operations executed
+   *                           concurrently, positive
+   */
+  public JfrAsyncJdbcOperations(JdbcOperations delegate, Executor executor, int maximumConcurrency) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(executor, "executor");
+    if (maximumConcurrency <= 0) {
+      throw new IllegalArgumentException("maximumConcurrency must be positive but was: " + maximumConcurrency);
+    }
+    this.delegate = delegate;
+    this.executor = executor;
+    this.permits = new Semaphore(maximumConcurrency, true);
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(ConnectionCallback)}.
+   *
+   * @param <T> the result type
+   * @param action the callback working with the connection
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> execute(ConnectionCallback<T> action) {
+    return this.submit("execute", null, () -> this.delegate.execute(action));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(StatementCallback)}.
+   *
+   * @param <T> the result type
+   * @param action the callback executing the statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> execute(StatementCallback<T> action) {
+    return this.submit("execute", getSql(action), () -> this.delegate.execute(action));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(String)}.
+   *
+   * @param sql the SQL query string
+   * @return a future completed once the operation is done
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Void> execute(String sql) {
+    return this.submit("execute", sql, () -> {
+      this.delegate.execute(sql);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, ResultSetExtractor)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param rse extracts the result from the result set
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> query(String sql, ResultSetExtractor<T> rse) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, rse));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, RowCallbackHandler)}.
+   *
+   * @param sql the SQL query string
+   * @param rch processes the rows
+   * @return a future completed once the operation is done
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Void> query(String sql, RowCallbackHandler rch) {
+    return this.submit("query", sql, () -> {
+      this.delegate.query(sql, rch);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, RowMapper)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param rowMapper maps the rows to objects
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> query(String sql, RowMapper<T> rowMapper) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, rowMapper));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForObject(String, RowMapper)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param rowMapper maps the rows to objects
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> queryForObject(String sql, RowMapper<T> rowMapper) {
+    return this.submit("queryForObject", sql, () -> this.delegate.queryForObject(sql, rowMapper));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForObject(String, Class)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param requiredType the type of the result
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> queryForObject(String sql, Class<T> requiredType) {
+    return this.submit("queryForObject", sql, () -> this.delegate.queryForObject(sql, requiredType));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForMap(String)}.
+   *
+   * @param sql the SQL query string
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Map<String, Object>> queryForMap(String sql) {
+    return this.submit("queryForMap", sql, () -> this.delegate.queryForMap(sql));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForList(String, Class)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param elementType the type of the elements of the result list
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> queryForList(String sql, Class<T> elementType) {
+    return this.submit("queryForList", sql, () -> this.delegate.queryForList(sql, elementType));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForList(String)}.
+   *
+   * @param sql the SQL query string
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<List<Map<String, Object>>> queryForList(String sql) {
+    return this.submit("queryForList", sql, () -> this.delegate.queryForList(sql));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForRowSet(String)}.
+   *
+   * @param sql the SQL query string
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<SqlRowSet> queryForRowSet(String sql) {
+    return this.submit("queryForRowSet", sql, () -> this.delegate.queryForRowSet(sql));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#update(String)}.
+   *
+   * @param sql the SQL query string
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Integer> update(String sql) {
+    return this.submit("update", sql, () -> this.delegate.update(sql));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#batchUpdate(String[])}.
+   *
+   * @param sql the SQL statements of the batch
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<int[]> batchUpdate(String... sql) {
+    return this.submit("batchUpdate", ((sql != null) && (sql.length > 0)) ? sql[0] : null, () -> this.delegate.batchUpdate(sql));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(PreparedStatementCreator, PreparedStatementCallback)}.
+   *
+   * @param <T> the result type
+   * @param psc creates the prepared statement
+   * @param action the callback executing the statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    return this.submit("execute", getSql(psc), () -> this.delegate.execute(psc, action));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(String, PreparedStatementCallback)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param action the callback executing the statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> execute(String sql, PreparedStatementCallback<T> action) {
+    return this.submit("execute", sql, () -> this.delegate.execute(sql, action));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(PreparedStatementCreator, ResultSetExtractor)}.
+   *
+   * @param <T> the result type
+   * @param psc creates the prepared statement
+   * @param rse extracts the result from the result set
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    return this.submit("query", getSql(psc), () -> this.delegate.query(psc, rse));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, PreparedStatementSetter, ResultSetExtractor)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param pss sets the arguments of the prepared statement
+   * @param rse extracts the result from the result set
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, pss, rse));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, Object[], int[], ResultSetExtractor)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @param rse extracts the result from the result set
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, args, argTypes, rse));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, ResultSetExtractor, Object[])}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param rse extracts the result from the result set
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, rse, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(PreparedStatementCreator, RowCallbackHandler)}.
+   *
+   * @param psc creates the prepared statement
+   * @param rch processes the rows
+   * @return a future completed once the operation is done
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Void> query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    return this.submit("query", getSql(psc), () -> {
+      this.delegate.query(psc, rch);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, PreparedStatementSetter, RowCallbackHandler)}.
+   *
+   * @param sql the SQL query string
+   * @param pss sets the arguments of the prepared statement
+   * @param rch processes the rows
+   * @return a future completed once the operation is done
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Void> query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    return this.submit("query", sql, () -> {
+      this.delegate.query(sql, pss, rch);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, Object[], int[], RowCallbackHandler)}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @param rch processes the rows
+   * @return a future completed once the operation is done
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Void> query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    return this.submit("query", sql, () -> {
+      this.delegate.query(sql, args, argTypes, rch);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, RowCallbackHandler, Object[])}.
+   *
+   * @param sql the SQL query string
+   * @param rch processes the rows
+   * @param args the arguments to bind to the query
+   * @return a future completed once the operation is done
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Void> query(String sql, RowCallbackHandler rch, Object... args) {
+    return this.submit("query", sql, () -> {
+      this.delegate.query(sql, rch, args);
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(PreparedStatementCreator, RowMapper)}.
+   *
+   * @param <T> the result type
+   * @param psc creates the prepared statement
+   * @param rowMapper maps the rows to objects
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.submit("query", getSql(psc), () -> this.delegate.query(psc, rowMapper));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, PreparedStatementSetter, RowMapper)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param pss sets the arguments of the prepared statement
+   * @param rowMapper maps the rows to objects
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, pss, rowMapper));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, Object[], int[], RowMapper)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @param rowMapper maps the rows to objects
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, args, argTypes, rowMapper));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#query(String, RowMapper, Object[])}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param rowMapper maps the rows to objects
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.submit("query", sql, () -> this.delegate.query(sql, rowMapper, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForObject(String, Object[], int[], RowMapper)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @param rowMapper maps the rows to objects
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.submit("queryForObject", sql, () -> this.delegate.queryForObject(sql, args, argTypes, rowMapper));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForObject(String, RowMapper, Object[])}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param rowMapper maps the rows to objects
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.submit("queryForObject", sql, () -> this.delegate.queryForObject(sql, rowMapper, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForObject(String, Object[], int[], Class)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @param requiredType the type of the result
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    return this.submit("queryForObject", sql, () -> this.delegate.queryForObject(sql, args, argTypes, requiredType));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForObject(String, Class, Object[])}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param requiredType the type of the result
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> queryForObject(String sql, Class<T> requiredType, Object... args) {
+    return this.submit("queryForObject", sql, () -> this.delegate.queryForObject(sql, requiredType, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForMap(String, Object[], int[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Map<String, Object>> queryForMap(String sql, Object[] args, int[] argTypes) {
+    return this.submit("queryForMap", sql, () -> this.delegate.queryForMap(sql, args, argTypes));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForMap(String, Object[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Map<String, Object>> queryForMap(String sql, Object... args) {
+    return this.submit("queryForMap", sql, () -> this.delegate.queryForMap(sql, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForList(String, Object[], int[], Class)}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @param elementType the type of the elements of the result list
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    return this.submit("queryForList", sql, () -> this.delegate.queryForList(sql, args, argTypes, elementType));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForList(String, Class, Object[])}.
+   *
+   * @param <T> the result type
+   * @param sql the SQL query string
+   * @param elementType the type of the elements of the result list
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<List<T>> queryForList(String sql, Class<T> elementType, Object... args) {
+    return this.submit("queryForList", sql, () -> this.delegate.queryForList(sql, elementType, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForList(String, Object[], int[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<List<Map<String, Object>>> queryForList(String sql, Object[] args, int[] argTypes) {
+    return this.submit("queryForList", sql, () -> this.delegate.queryForList(sql, args, argTypes));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForList(String, Object[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<List<Map<String, Object>>> queryForList(String sql, Object... args) {
+    return this.submit("queryForList", sql, () -> this.delegate.queryForList(sql, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForRowSet(String, Object[], int[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<SqlRowSet> queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    return this.submit("queryForRowSet", sql, () -> this.delegate.queryForRowSet(sql, args, argTypes));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#queryForRowSet(String, Object[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<SqlRowSet> queryForRowSet(String sql, Object... args) {
+    return this.submit("queryForRowSet", sql, () -> this.delegate.queryForRowSet(sql, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#update(PreparedStatementCreator)}.
+   *
+   * @param psc creates the prepared statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Integer> update(PreparedStatementCreator psc) {
+    return this.submit("update", getSql(psc), () -> this.delegate.update(psc));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#update(PreparedStatementCreator, KeyHolder)}.
+   *
+   * @param psc creates the prepared statement
+   * @param generatedKeyHolder receives the generated keys
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Integer> update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    return this.submit("update", getSql(psc), () -> this.delegate.update(psc, generatedKeyHolder));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#update(String, PreparedStatementSetter)}.
+   *
+   * @param sql the SQL query string
+   * @param pss sets the arguments of the prepared statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Integer> update(String sql, PreparedStatementSetter pss) {
+    return this.submit("update", sql, () -> this.delegate.update(sql, pss));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#update(String, Object[], int[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Integer> update(String sql, Object[] args, int[] argTypes) {
+    return this.submit("update", sql, () -> this.delegate.update(sql, args, argTypes));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#update(String, Object[])}.
+   *
+   * @param sql the SQL query string
+   * @param args the arguments to bind to the query
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Integer> update(String sql, Object... args) {
+    return this.submit("update", sql, () -> this.delegate.update(sql, args));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#batchUpdate(String, BatchPreparedStatementSetter)}.
+   *
+   * @param sql the SQL query string
+   * @param pss sets the arguments of each update of the batch
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<int[]> batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    return this.submit("batchUpdate", sql, () -> this.delegate.batchUpdate(sql, pss));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#batchUpdate(String, List)}.
+   *
+   * @param sql the SQL query string
+   * @param batchArgs the arguments of each update of the batch
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<int[]> batchUpdate(String sql, List<Object[]> batchArgs) {
+    return this.submit("batchUpdate", sql, () -> this.delegate.batchUpdate(sql, batchArgs));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#batchUpdate(String, List, int[])}.
+   *
+   * @param sql the SQL query string
+   * @param batchArgs the arguments of each update of the batch
+   * @param argTypes the SQL types of the arguments, constants from {@link java.sql.Types}
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<int[]> batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    return this.submit("batchUpdate", sql, () -> this.delegate.batchUpdate(sql, batchArgs, argTypes));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#batchUpdate(String, Collection, int, ParameterizedPreparedStatementSetter)}.
+   *
+   * @param <T> the type of the elements of the batch
+   * @param sql the SQL query string
+   * @param batchArgs the elements of the batch
+   * @param batchSize the number of updates per batch
+   * @param pss sets the arguments of each update from an element of the batch
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<int[][]> batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    return this.submit("batchUpdate", sql, () -> this.delegate.batchUpdate(sql, batchArgs, batchSize, pss));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#batchUpdate(PreparedStatementCreator, BatchPreparedStatementSetter, KeyHolder)}.
+   *
+   * @param psc creates the prepared statement
+   * @param pss sets the arguments of each update of the batch
+   * @param generatedKeyHolder receives the generated keys
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<int[]> batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    return this.submit("batchUpdate", getSql(psc), () -> this.delegate.batchUpdate(psc, pss, generatedKeyHolder));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(CallableStatementCreator, CallableStatementCallback)}.
+   *
+   * @param <T> the result type
+   * @param csc creates the callable statement
+   * @param action the callback executing the statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    return this.submit("execute", getSql(csc), () -> this.delegate.execute(csc, action));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#execute(String, CallableStatementCallback)}.
+   *
+   * @param <T> the result type
+   * @param callString the SQL call string
+   * @param action the callback executing the statement
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public <T> CompletableFuture<T> execute(String callString, CallableStatementCallback<T> action) {
+    return this.submit("execute", callString, () -> this.delegate.execute(callString, action));
+  }
+
+  /**
+   * Asynchronous version of {@link JdbcOperations#call(CallableStatementCreator, List)}.
+   *
+   * @param csc creates the callable statement
+   * @param declaredParameters the declared parameters of the call
+   * @return a future completed with the result of the operation
+   * @throws RejectedExecutionException if the executor does not accept the operation
+   */
+  public CompletableFuture<Map<String, Object>> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    return this.submit("call", getSql(csc), () -> this.delegate.call(csc, declaredParameters));
+  }
+
+  /**
+   * Executes an operation asynchronously once a permit is available.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string, may be {@code null}
+   * @param operation executes the operation
+   * @return the future result of the operation
+   */
+  <T> CompletableFuture<T> submit(String operationName, String query, Supplier<T> operation) {
+    AsyncJdbcEvent event = new AsyncJdbcEvent();
+    event.setOperationName(operationName);
+    event.setQuery(query);
+    // includes the time queued in the executor
+    event.begin();
+    return CompletableFuture.supplyAsync(() -> this.run(event, operation), this.executor);
+  }
+
+  private <T> T run(AsyncJdbcEvent event, Supplier<T> operation) {
+    long queuedNanos = System.nanoTime();
+    try {
+      this.permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+    long startNanos = System.nanoTime();
+    event.setPermitWaitTime(startNanos - queuedNanos);
+    try {
+      return operation.get();
+    } finally {
+      this.permits.release();
+      event.setExecutionTime(System.nanoTime() - startNanos);
+      event.end();
+      event.commit();
+    }
+  }
+
+  private static String getSql(Object o) {
+    if (o instanceof SqlProvider) {
+      return ((SqlProvider) o).getSql();
+    }
+    return null;
+  }
+
+  @Label("Async JDBC Operation")
+  @Description("An asynchronously executed JDBC operation")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class AsyncJdbcEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Permit Wait Time")
+    @Description("The time spent waiting for a permit to execute the JDBC operation")
+    @Timespan(Timespan.NANOSECONDS)
+    private long permitWaitTime;
+
+    @Label("Execution Time")
+    @Description("The time spent executing the JDBC operation")
+    @Timespan(Timespan.NANOSECONDS)
+    private long executionTime;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getPermitWaitTime() {
+      return this.permitWaitTime;
+    }
+
+    void setPermitWaitTime(long permitWaitTime) {
+      this.permitWaitTime = permitWaitTime;
+    }
+
+    long getExecutionTime() {
+      return this.executionTime;
+    }
+
+    void setExecutionTime(long executionTime) {
+      this.executionTime = executionTime;
+    }
+
+  }
+
+}
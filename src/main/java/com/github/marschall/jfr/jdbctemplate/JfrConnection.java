@@ -0,0 +1,434 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.ShardingKey;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrStatement.NestedStatementEvent;
+
+import jdk.jfr.EventType;
+
+/**
+ * A {@link Connection} handed to a {@link org.springframework.jdbc.core.ConnectionCallback}
+ * by {@link JfrJdbcOperations}.
+ *
+ * <p>All statements created by this connection generate a
+ * "Nested Statement" event for every execution. The events carry the id
+ * of the callback so they can be linked to the event of the
+ * {@code execute} operation. This is a hand written delegating wrapper
+ * instead of a {@link java.lang.reflect.Proxy} to keep the overhead
+ * low.</p>
+ *
+ * <p>Without a callback id statements are not wrapped, the connection only
+ * captures the SQL query string for the event of the operation.</p>
+ */
+final class JfrConnection implements Connection {
+
+  /**
+   * The callback id of a connection that only captures the SQL query string.
+   */
+  static final long NO_CALLBACK = 0L;
+
+  private static final AtomicLong CALLBACK_IDS = new AtomicLong();
+
+  private static final EventType NESTED_STATEMENT_EVENT_TYPE = EventType.getEventType(NestedStatementEvent.class);
+
+  private final Connection delegate;
+
+  private final long callbackId;
+
+  private final JdbcEvent operation;
+
+  JfrConnection(Connection delegate, long callbackId, JdbcEvent operation) {
+    Objects.requireNonNull(delegate, "delegate");
+    this.delegate = delegate;
+    this.callbackId = callbackId;
+    this.operation = operation;
+  }
+
+  /**
+   * Whether statements executed inside a connection callback should be
+   * recorded.
+   *
+   * @return {@code true} if the nested statement event is enabled
+   */
+  static boolean isEnabled() {
+    return NESTED_STATEMENT_EVENT_TYPE.isEnabled();
+  }
+
+  /**
+   * Returns a new, unique id for a connection callback.
+   *
+   * @return the new id, never {@link #NO_CALLBACK}
+   */
+  static long nextCallbackId() {
+    return CALLBACK_IDS.incrementAndGet();
+  }
+
+  long getCallbackId() {
+    return this.callbackId;
+  }
+
+  /**
+   * Sets the query of the operation unless it already has one.
+   *
+   * @param sql the SQL query string about to be executed
+   */
+  void captureQuery(String sql) {
+    if ((this.operation != null) && (this.operation.getQuery() == null)) {
+      this.operation.setQuery(sql);
+    }
+  }
+
+  private Statement wrap(Statement statement) {
+    if (this.callbackId == NO_CALLBACK) {
+      return statement;
+    }
+    return new JfrStatement<>(statement, this);
+  }
+
+  private PreparedStatement wrap(PreparedStatement statement, String sql) {
+    if (this.callbackId == NO_CALLBACK) {
+      return statement;
+    }
+    return new JfrPreparedStatement<>(statement, this, sql);
+  }
+
+  private CallableStatement wrap(CallableStatement statement, String sql) {
+    if (this.callbackId == NO_CALLBACK) {
+      return statement;
+    }
+    return new JfrCallableStatement(statement, this, sql);
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return this.delegate.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || this.delegate.isWrapperFor(iface);
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    return this.wrap(this.delegate.createStatement());
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareStatement(sql), sql);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareCall(sql), sql);
+  }
+
+  @Override
+  public String nativeSQL(String sql) throws SQLException {
+    return this.delegate.nativeSQL(sql);
+  }
+
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    this.delegate.setAutoCommit(autoCommit);
+  }
+
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    return this.delegate.getAutoCommit();
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    this.delegate.commit();
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    this.delegate.rollback();
+  }
+
+  @Override
+  public void close() throws SQLException {
+    this.delegate.close();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    return this.delegate.isClosed();
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    return this.delegate.getMetaData();
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    this.delegate.setReadOnly(readOnly);
+  }
+
+  @Override
+  public boolean isReadOnly() throws SQLException {
+    return this.delegate.isReadOnly();
+  }
+
+  @Override
+  public void setCatalog(String catalog) throws SQLException {
+    this.delegate.setCatalog(catalog);
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    return this.delegate.getCatalog();
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    this.delegate.setTransactionIsolation(level);
+  }
+
+  @Override
+  public int getTransactionIsolation() throws SQLException {
+    return this.delegate.getTransactionIsolation();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    return this.delegate.getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    this.delegate.clearWarnings();
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+    return this.wrap(this.delegate.createStatement(resultSetType, resultSetConcurrency));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareStatement(sql, resultSetType, resultSetConcurrency), sql);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareCall(sql, resultSetType, resultSetConcurrency), sql);
+  }
+
+  @Override
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    return this.delegate.getTypeMap();
+  }
+
+  @Override
+  public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    this.delegate.setTypeMap(map);
+  }
+
+  @Override
+  public void setHoldability(int holdability) throws SQLException {
+    this.delegate.setHoldability(holdability);
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    return this.delegate.getHoldability();
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    return this.delegate.setSavepoint();
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    return this.delegate.setSavepoint(name);
+  }
+
+  @Override
+  public void rollback(Savepoint savepoint) throws SQLException {
+    this.delegate.rollback(savepoint);
+  }
+
+  @Override
+  public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    this.delegate.releaseSavepoint(savepoint);
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    return this.wrap(this.delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql);
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareStatement(sql, autoGeneratedKeys), sql);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareStatement(sql, columnIndexes), sql);
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+    this.captureQuery(sql);
+    return this.wrap(this.delegate.prepareStatement(sql, columnNames), sql);
+  }
+
+  @Override
+  public Clob createClob() throws SQLException {
+    return this.delegate.createClob();
+  }
+
+  @Override
+  public Blob createBlob() throws SQLException {
+    return this.delegate.createBlob();
+  }
+
+  @Override
+  public NClob createNClob() throws SQLException {
+    return this.delegate.createNClob();
+  }
+
+  @Override
+  public SQLXML createSQLXML() throws SQLException {
+    return this.delegate.createSQLXML();
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    return this.delegate.isValid(timeout);
+  }
+
+  @Override
+  public void setClientInfo(String name, String value) throws SQLClientInfoException {
+    this.delegate.setClientInfo(name, value);
+  }
+
+  @Override
+  public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    this.delegate.setClientInfo(properties);
+  }
+
+  @Override
+  public String getClientInfo(String name) throws SQLException {
+    return this.delegate.getClientInfo(name);
+  }
+
+  @Override
+  public Properties getClientInfo() throws SQLException {
+    return this.delegate.getClientInfo();
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+    return this.delegate.createArrayOf(typeName, elements);
+  }
+
+  @Override
+  public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    return this.delegate.createStruct(typeName, attributes);
+  }
+
+  @Override
+  public void setSchema(String schema) throws SQLException {
+    this.delegate.setSchema(schema);
+  }
+
+  @Override
+  public String getSchema() throws SQLException {
+    return this.delegate.getSchema();
+  }
+
+  @Override
+  public void abort(Executor executor) throws SQLException {
+    this.delegate.abort(executor);
+  }
+
+  @Override
+  public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+    this.delegate.setNetworkTimeout(executor, milliseconds);
+  }
+
+  @Override
+  public int getNetworkTimeout() throws SQLException {
+    return this.delegate.getNetworkTimeout();
+  }
+
+  @Override
+  public void beginRequest() throws SQLException {
+    this.delegate.beginRequest();
+  }
+
+  @Override
+  public void endRequest() throws SQLException {
+    this.delegate.endRequest();
+  }
+
+  @Override
+  public boolean setShardingKeyIfValid(ShardingKey shardingKey, ShardingKey superShardingKey, int timeout) throws SQLException {
+    return this.delegate.setShardingKeyIfValid(shardingKey, superShardingKey, timeout);
+  }
+
+  @Override
+  public boolean setShardingKeyIfValid(ShardingKey shardingKey, int timeout) throws SQLException {
+    return this.delegate.setShardingKeyIfValid(shardingKey, timeout);
+  }
+
+  @Override
+  public void setShardingKey(ShardingKey shardingKey, ShardingKey superShardingKey) throws SQLException {
+    this.delegate.setShardingKey(shardingKey, superShardingKey);
+  }
+
+  @Override
+  public void setShardingKey(ShardingKey shardingKey) throws SQLException {
+    this.delegate.setShardingKey(shardingKey);
+  }
+}
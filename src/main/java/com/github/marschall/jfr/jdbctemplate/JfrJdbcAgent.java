@@ -0,0 +1,232 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrNamedParameterJdbcOperations.JdbcNamedEvent;
+
+/**
+ * A Java agent that instruments {@link JdbcTemplate} and
+ * {@link NamedParameterJdbcTemplate} when they are loaded so that they
+ * generate the same events as {@link JfrJdbcOperations} and
+ * {@link JfrNamedParameterJdbcOperations} without any change to the
+ * application.
+ *
+ * <pre><code>
+ * java -javaagent:jfr-jdbctemplate.jar -jar application.jar
+ * </code></pre>
+ *
+ * <p>The jar of this project and Spring JDBC have to be loaded by the same
+ * class loader, usually the application class path. When attached to a
+ * running JVM already loaded classes are instrumented as well.</p>
+ *
+ * <p>Only the outermost operation on a thread generates an event, the
+ * operations {@link JdbcTemplate} calls on itself and that
+ * {@link NamedParameterJdbcTemplate} calls on its {@link JdbcTemplate} are
+ * part of it. Compared to the decorators the SQL of callbacks that do not
+ * implement {@link org.springframework.jdbc.core.SqlProvider} is not
+ * captured and the rows of a
+ * {@link org.springframework.jdbc.core.RowCallbackHandler} are not
+ * counted. Do not combine the agent with the decorators or
+ * {@link JfrJdbcTemplate}, operations would generate two events.</p>
+ *
+ * <p>The public static {@code enter} and {@code exit} methods are called by
+ * the instrumented code and are not meant to be called directly.</p>
+ */
+public final class JfrJdbcAgent {
+
+  // whether the current thread is inside an instrumented operation, the
+  // event itself is kept in a local variable of the operation
+  private static final ThreadLocal<boolean[]> IN_OPERATION = ThreadLocal.withInitial(() -> new boolean[1]);
+
+  private JfrJdbcAgent() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Installs the agent when the JVM is started with {@code -javaagent}.
+   *
+   * @param agentArgs ignored
+   * @param instrumentation the instrumentation instance of the JVM
+   */
+  public static void premain(String agentArgs, Instrumentation instrumentation) {
+    install(instrumentation);
+  }
+
+  /**
+   * Installs the agent when it is attached to a running JVM.
+   *
+   * @param agentArgs ignored
+   * @param instrumentation the instrumentation instance of the JVM
+   */
+  public static void agentmain(String agentArgs, Instrumentation instrumentation) {
+    install(instrumentation);
+  }
+
+  private static void install(Instrumentation instrumentation) {
+    instrumentation.addTransformer(new JdbcTemplateTransformer(), true);
+    List<Class<?>> loaded = new ArrayList<>();
+    for (Class<?> loadedClass : instrumentation.getAllLoadedClasses()) {
+      if (JdbcTemplateTransformer.isInstrumented(loadedClass.getName())) {
+        loaded.add(loadedClass);
+      }
+    }
+    if (!loaded.isEmpty()) {
+      try {
+        instrumentation.retransformClasses(loaded.toArray(new Class<?>[0]));
+      } catch (UnmodifiableClassException e) {
+        throw new IllegalStateException("could not instrument already loaded classes", e);
+      }
+    }
+  }
+
+  /**
+   * Marks the start of an operation that has bind arguments or of an
+   * operation that is not a query.
+   *
+   * @param named whether the operation is on a {@link NamedParameterJdbcTemplate}
+   * @param operationName the name of the operation
+   * @param query the first argument of the operation
+   * @param arguments the bind arguments, {@code null} if unknown
+   * @return the event to pass to {@code exit}, {@code null} if the
+   *         operation is part of an other operation
+   */
+  public static Object enter(boolean named, String operationName, Object query, Object arguments) {
+    boolean[] inOperation = IN_OPERATION.get();
+    if (inOperation[0]) {
+      return null;
+    }
+    inOperation[0] = true;
+    if (named) {
+      JdbcNamedEvent event = new JdbcNamedEvent();
+      event.setOperationName(operationName);
+      event.setQuery(getSql(query));
+      event.setArguments(arguments);
+      JfrNamedParameterJdbcOperations.begin(event);
+      return event;
+    } else {
+      JdbcEvent event = new JdbcEvent();
+      event.setOperationName(operationName);
+      event.setQuery(getSql(query));
+      event.setArguments(arguments);
+      JfrJdbcOperations.begin(event);
+      return event;
+    }
+  }
+
+  /**
+   * Marks the start of a query without bind arguments.
+   *
+   * @param named whether the operation is on a {@link NamedParameterJdbcTemplate}
+   * @param operationName the name of the operation
+   * @param query the first argument of the operation
+   * @return the event to pass to {@code exit}, {@code null} if the
+   *         operation is part of an other operation
+   */
+  public static Object enterWithoutArguments(boolean named, String operationName, Object query) {
+    return enter(named, operationName, query, CacheCandidates.NO_ARGUMENTS);
+  }
+
+  /**
+   * Marks the end of an operation that returns nothing or an update count.
+   *
+   * @param event the event returned by {@code enter}
+   * @param rowCount the update count or the row count of an operation
+   *                 that returns nothing
+   */
+  public static void exit(Object event, int rowCount) {
+    if (event == null) {
+      return;
+    }
+    IN_OPERATION.get()[0] = false;
+    if (event instanceof JdbcNamedEvent) {
+      JdbcNamedEvent namedEvent = (JdbcNamedEvent) event;
+      namedEvent.setRowCount(rowCount);
+      JfrNamedParameterJdbcOperations.end(namedEvent);
+    } else {
+      JdbcEvent jdbcEvent = (JdbcEvent) event;
+      jdbcEvent.setRowCount(rowCount);
+      JfrJdbcOperations.end(jdbcEvent);
+    }
+  }
+
+  /**
+   * Marks the end of an operation that returns an object.
+   *
+   * @param event the event returned by {@code enter}
+   * @param result the result of the operation
+   * @return the result to return from the operation
+   */
+  public static Object exit(Object event, Object result) {
+    if (event == null) {
+      return result;
+    }
+    IN_OPERATION.get()[0] = false;
+    if (event instanceof JdbcNamedEvent) {
+      JdbcNamedEvent namedEvent = (JdbcNamedEvent) event;
+      if (result instanceof Stream) {
+        return JfrNamedParameterJdbcOperations.commitOnClose((Stream<?>) result, namedEvent);
+      }
+      if (result instanceof int[]) {
+        namedEvent.setRowCount(RowCountingUtil.countRows((int[]) result));
+      } else if (namedEvent.getOperationName().equals("queryForObject")) {
+        namedEvent.setRowCount(1L);
+      } else {
+        JfrNamedParameterJdbcOperations.setRowCount(namedEvent, result);
+      }
+      JfrNamedParameterJdbcOperations.end(namedEvent);
+    } else {
+      JdbcEvent jdbcEvent = (JdbcEvent) event;
+      if (result instanceof Stream) {
+        return JfrJdbcOperations.commitOnClose((Stream<?>) result, jdbcEvent);
+      }
+      if (result instanceof int[]) {
+        jdbcEvent.setRowCount(RowCountingUtil.countRows((int[]) result));
+      } else if (result instanceof int[][]) {
+        jdbcEvent.setRowCount(RowCountingUtil.countRows((int[][]) result));
+      } else if (jdbcEvent.getOperationName().equals("queryForObject")) {
+        jdbcEvent.setRowCount(1L);
+      } else {
+        JfrJdbcOperations.setRowCount(jdbcEvent, result);
+      }
+      JfrJdbcOperations.end(jdbcEvent);
+    }
+    return result;
+  }
+
+  /**
+   * Marks the end of an operation that threw an exception.
+   *
+   * @param event the event returned by {@code enter}
+   */
+  public static void exitExceptionally(Object event) {
+    if (event == null) {
+      return;
+    }
+    IN_OPERATION.get()[0] = false;
+    if (event instanceof JdbcNamedEvent) {
+      JfrNamedParameterJdbcOperations.end((JdbcNamedEvent) event);
+    } else {
+      JfrJdbcOperations.end((JdbcEvent) event);
+    }
+  }
+
+  private static String getSql(Object query) {
+    if (query instanceof String) {
+      return (String) query;
+    }
+    if (query instanceof String[]) {
+      String[] sql = (String[]) query;
+      return sql.length > 0 ? sql[0] : null;
+    }
+    return JfrJdbcOperations.getSql(query);
+  }
+
+}
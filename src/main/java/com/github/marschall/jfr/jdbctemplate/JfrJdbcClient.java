@@ -0,0 +1,496 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.CountingRowCallbackHandler;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * A {@link JdbcClient} that generates a "Client Operation" JFR event for every
+ * terminal operation of a statement.
+ *
+ * <p>The event records the name of the terminal operation, eg.
+ * {@code list}, {@code single}, {@code stream} or {@code update}, the SQL
+ * query string, the parameter style and the number of rows. The event of
+ * {@code stream} is committed when the stream is closed.</p>
+ *
+ * <p>Wrap a {@link JdbcClient} that is not built on {@link JfrJdbcOperations}
+ * or {@link JfrNamedParameterJdbcOperations}, otherwise every operation
+ * generates two events.</p>
+ *
+ * <p>Instances of this class are thread safe, the returned statement specs
+ * are not, just like the ones of the delegate.</p>
+ */
+public final class JfrJdbcClient implements JdbcClient {
+
+  private static final String NO_PARAMETERS = "none";
+
+  private static final String INDEXED_PARAMETERS = "indexed";
+
+  private static final String NAMED_PARAMETERS = "named";
+
+  private static final long NO_ROWS = -1L;
+
+  private final JdbcClient delegate;
+
+  /**
+   * Constructs a new {@link JfrJdbcClient}.
+   *
+   * @param delegate the actual {@link JdbcClient} implementation, not {@code null}
+   */
+  public JfrJdbcClient(JdbcClient delegate) {
+    Objects.requireNonNull(delegate, "delegate");
+    this.delegate = delegate;
+  }
+
+  @Override
+  public StatementSpec sql(String sql) {
+    return new JfrStatementSpec(this.delegate.sql(sql), sql);
+  }
+
+  static JdbcClientEvent begin(String operationName, JfrStatementSpec statement) {
+    JdbcClientEvent event = new JdbcClientEvent();
+    event.setOperationName(operationName);
+    event.setQuery(statement.sql);
+    event.setParameterStyle(statement.parameterStyle);
+    event.setRowCount(NO_ROWS);
+    event.begin();
+    return event;
+  }
+
+  static void end(JdbcClientEvent event) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.commit();
+    }
+  }
+
+  static final class JfrStatementSpec implements StatementSpec {
+
+    private StatementSpec delegate;
+
+    final String sql;
+
+    String parameterStyle;
+
+    JfrStatementSpec(StatementSpec delegate, String sql) {
+      this.delegate = delegate;
+      this.sql = sql;
+      this.parameterStyle = NO_PARAMETERS;
+    }
+
+    @Override
+    public StatementSpec withFetchSize(int fetchSize) {
+      this.delegate = this.delegate.withFetchSize(fetchSize);
+      return this;
+    }
+
+    @Override
+    public StatementSpec withMaxRows(int maxRows) {
+      this.delegate = this.delegate.withMaxRows(maxRows);
+      return this;
+    }
+
+    @Override
+    public StatementSpec withQueryTimeout(int queryTimeout) {
+      this.delegate = this.delegate.withQueryTimeout(queryTimeout);
+      return this;
+    }
+
+    @Override
+    public StatementSpec param(Object value) {
+      this.delegate = this.delegate.param(value);
+      this.parameterStyle = INDEXED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec param(int jdbcIndex, Object value) {
+      this.delegate = this.delegate.param(jdbcIndex, value);
+      this.parameterStyle = INDEXED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec param(int jdbcIndex, Object value, int sqlType) {
+      this.delegate = this.delegate.param(jdbcIndex, value, sqlType);
+      this.parameterStyle = INDEXED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec param(String name, Object value) {
+      this.delegate = this.delegate.param(name, value);
+      this.parameterStyle = NAMED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec param(String name, Object value, int sqlType) {
+      this.delegate = this.delegate.param(name, value, sqlType);
+      this.parameterStyle = NAMED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec params(Object... values) {
+      this.delegate = this.delegate.params(values);
+      this.parameterStyle = INDEXED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec params(List<?> values) {
+      this.delegate = this.delegate.params(values);
+      this.parameterStyle = INDEXED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec params(Map<String, ?> paramMap) {
+      this.delegate = this.delegate.params(paramMap);
+      this.parameterStyle = NAMED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec paramSource(Object namedParamObject) {
+      this.delegate = this.delegate.paramSource(namedParamObject);
+      this.parameterStyle = NAMED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public StatementSpec paramSource(SqlParameterSource namedParamSource) {
+      this.delegate = this.delegate.paramSource(namedParamSource);
+      this.parameterStyle = NAMED_PARAMETERS;
+      return this;
+    }
+
+    @Override
+    public ResultQuerySpec query() {
+      return new JfrResultQuerySpec(this.delegate.query(), this);
+    }
+
+    @Override
+    public <T> MappedQuerySpec<T> query(Class<T> mappedClass) {
+      return new JfrMappedQuerySpec<>(this.delegate.query(mappedClass), this);
+    }
+
+    @Override
+    public <T> MappedQuerySpec<T> query(RowMapper<T> rowMapper) {
+      return new JfrMappedQuerySpec<>(this.delegate.query(rowMapper), this);
+    }
+
+    @Override
+    public void query(RowCallbackHandler rch) {
+      CountingRowCallbackHandler countingRowCallbackHandler = new CountingRowCallbackHandler(rch);
+      JdbcClientEvent event = begin("query", this);
+      try {
+        this.delegate.query(countingRowCallbackHandler);
+        event.setRowCount(countingRowCallbackHandler.getRowCount());
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public <T> T query(ResultSetExtractor<T> rse) {
+      JdbcClientEvent event = begin("query", this);
+      try {
+        T result = this.delegate.query(rse);
+        event.setRowCount(RowCountingUtil.getSize(result));
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public int update() {
+      JdbcClientEvent event = begin("update", this);
+      try {
+        int updateCount = this.delegate.update();
+        event.setRowCount(updateCount);
+        return updateCount;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public int update(KeyHolder generatedKeyHolder) {
+      JdbcClientEvent event = begin("update", this);
+      try {
+        int updateCount = this.delegate.update(generatedKeyHolder);
+        event.setRowCount(updateCount);
+        return updateCount;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public int update(KeyHolder generatedKeyHolder, String... keyColumnNames) {
+      JdbcClientEvent event = begin("update", this);
+      try {
+        int updateCount = this.delegate.update(generatedKeyHolder, keyColumnNames);
+        event.setRowCount(updateCount);
+        return updateCount;
+      } finally {
+        end(event);
+      }
+    }
+
+  }
+
+  static final class JfrResultQuerySpec implements ResultQuerySpec {
+
+    private final ResultQuerySpec delegate;
+
+    private final JfrStatementSpec statement;
+
+    JfrResultQuerySpec(ResultQuerySpec delegate, JfrStatementSpec statement) {
+      this.delegate = delegate;
+      this.statement = statement;
+    }
+
+    @Override
+    public SqlRowSet rowSet() {
+      JdbcClientEvent event = begin("rowSet", this.statement);
+      try {
+        return this.delegate.rowSet();
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public List<Map<String, Object>> listOfRows() {
+      JdbcClientEvent event = begin("listOfRows", this.statement);
+      try {
+        List<Map<String, Object>> result = this.delegate.listOfRows();
+        event.setRowCount(result.size());
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public Map<String, Object> singleRow() {
+      JdbcClientEvent event = begin("singleRow", this.statement);
+      try {
+        Map<String, Object> result = this.delegate.singleRow();
+        event.setRowCount(1L);
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public List<Object> singleColumn() {
+      JdbcClientEvent event = begin("singleColumn", this.statement);
+      try {
+        List<Object> result = this.delegate.singleColumn();
+        event.setRowCount(result.size());
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public Object singleValue() {
+      JdbcClientEvent event = begin("singleValue", this.statement);
+      try {
+        Object result = this.delegate.singleValue();
+        event.setRowCount(1L);
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public Optional<Object> optionalValue() {
+      JdbcClientEvent event = begin("optionalValue", this.statement);
+      try {
+        Optional<Object> result = this.delegate.optionalValue();
+        event.setRowCount(result.isPresent() ? 1L : 0L);
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+  }
+
+  static final class JfrMappedQuerySpec<T> implements MappedQuerySpec<T> {
+
+    private final MappedQuerySpec<T> delegate;
+
+    private final JfrStatementSpec statement;
+
+    JfrMappedQuerySpec(MappedQuerySpec<T> delegate, JfrStatementSpec statement) {
+      this.delegate = delegate;
+      this.statement = statement;
+    }
+
+    @Override
+    public Stream<T> stream() {
+      JdbcClientEvent event = begin("stream", this.statement);
+      Stream<T> stream;
+      try {
+        stream = this.delegate.stream();
+      } catch (RuntimeException | Error e) {
+        // the stream will never be closed
+        end(event);
+        throw e;
+      }
+      RowCounter rowCounter = new RowCounter();
+      return stream.peek(rowCounter).onClose(() -> {
+        event.setRowCount(rowCounter.count);
+        end(event);
+      });
+    }
+
+    @Override
+    public List<T> list() {
+      JdbcClientEvent event = begin("list", this.statement);
+      try {
+        List<T> result = this.delegate.list();
+        event.setRowCount(result.size());
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public Set<T> set() {
+      JdbcClientEvent event = begin("set", this.statement);
+      try {
+        Set<T> result = this.delegate.set();
+        event.setRowCount(result.size());
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public T single() {
+      JdbcClientEvent event = begin("single", this.statement);
+      try {
+        T result = this.delegate.single();
+        event.setRowCount(1L);
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+    @Override
+    public Optional<T> optional() {
+      JdbcClientEvent event = begin("optional", this.statement);
+      try {
+        Optional<T> result = this.delegate.optional();
+        event.setRowCount(result.isPresent() ? 1L : 0L);
+        return result;
+      } finally {
+        end(event);
+      }
+    }
+
+  }
+
+  /**
+   * Counts the elements of a stream.
+   */
+  static final class RowCounter implements Consumer<Object> {
+
+    long count;
+
+    @Override
+    public void accept(Object row) {
+      this.count += 1L;
+    }
+
+  }
+
+  @Label("Client Operation")
+  @Description("A terminal operation of a JdbcClient statement")
+  @Category(JfrConstants.CATEGORY)
+  static class JdbcClientEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the terminal operation, eg. list or update")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Parameter Style")
+    @Description("How parameters were bound: none, indexed or named")
+    private String parameterStyle;
+
+    @Label("Row Count")
+    @Description("The number of rows returned or updated")
+    private long rowCount;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    String getParameterStyle() {
+      return this.parameterStyle;
+    }
+
+    void setParameterStyle(String parameterStyle) {
+      this.parameterStyle = parameterStyle;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+  }
+
+}
@@ -9,7 +9,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
 
-import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.CallableStatementCallback;
 import org.springframework.jdbc.core.CallableStatementCreator;
@@ -28,6 +27,11 @@ import org.springframework.jdbc.core.StatementCallback;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
+import com.github.marschall.jfr.jdbctemplate.InFlightOperations.Slot;
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+import com.github.marschall.jfr.jdbctemplate.StreamLeakDetector.OpenStream;
+import com.github.marschall.jfr.jdbctemplate.TailSampler.UnitOfWork;
+
 import jdk.jfr.Category;
 import jdk.jfr.Description;
 import jdk.jfr.Event;
@@ -55,19 +59,20 @@ public final class JfrJdbcOperations implements JdbcOperations {
     this.delegate = delegate;
   }
 
+  // generated by WrapperGenerator, do not edit
+
   @Override
   public <T> T execute(ConnectionCallback<T> action) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
     event.setQuery(getSql(action));
-    event.begin();
+    begin(event);
     try {
-      T result = this.delegate.execute(action);
+      T result = this.delegate.execute(QueryCapture.capture(action, event));
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -75,14 +80,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
   public <T> T execute(StatementCallback<T> action) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
-    event.begin();
+    event.setQuery(getSql(action));
+    begin(event);
     try {
-      T result = this.delegate.execute(action);
+      T result = this.delegate.execute(QueryCapture.capture(action, event));
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -91,13 +96,12 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       this.delegate.execute(sql);
       event.setRowCount(NO_ROWS);
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -106,14 +110,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       T result = this.delegate.query(sql, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -123,13 +127,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       this.delegate.query(sql, countingRowCallbackHandler);
       event.setRowCount(countingRowCallbackHandler.getRowCount());
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -138,30 +142,48 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    JdbcEvent event = new JdbcEvent();
+    event.setOperationName("queryForStream");
+    event.setQuery(sql);
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
+    Stream<T> stream;
+    try {
+      stream = this.delegate.queryForStream(sql, rowMapper);
+    } catch (RuntimeException | Error e) {
+      // the stream will never be closed
+      end(event);
+      throw e;
+    }
+    return commitOnClose(stream, event);
+  }
+
   @Override
   public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, rowMapper);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -170,14 +192,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, requiredType);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -186,14 +208,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForMap");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       Map<String, Object> result = this.delegate.queryForMap(sql);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -202,14 +224,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       List<T> result = this.delegate.queryForList(sql, elementType);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -218,14 +240,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       List<Map<String, Object>> result = this.delegate.queryForList(sql);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -234,14 +256,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForRowSet");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       SqlRowSet result = this.delegate.queryForRowSet(sql);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -250,14 +272,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -268,14 +289,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     if ((sql != null) && (sql.length > 0)) {
       event.setQuery(sql[0]);
     }
-    event.begin();
+    begin(event);
     try {
       int[] updateCount = this.delegate.batchUpdate(sql);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -284,14 +304,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
     event.setQuery(getSql(psc));
-    event.begin();
+    begin(event);
     try {
-      T result = this.delegate.execute(psc, action);
+      T result = this.delegate.execute(QueryCapture.capture(psc, event), action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -300,14 +319,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       T result = this.delegate.execute(sql, action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -316,14 +334,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(getSql(psc));
-    event.begin();
+    begin(event);
     try {
-      T result = this.delegate.query(psc, rse);
+      T result = this.delegate.query(QueryCapture.capture(psc, event), rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -332,14 +349,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       T result = this.delegate.query(sql, pss, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -348,14 +364,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.query(sql, args, argTypes, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -365,14 +381,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.query(sql, args, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -381,14 +397,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.query(sql, rse, args);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -398,13 +414,12 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(getSql(psc));
-    event.begin();
+    begin(event);
     try {
-      this.delegate.query(psc, countingRowCallbackHandler);
+      this.delegate.query(QueryCapture.capture(psc, event), countingRowCallbackHandler);
       event.setRowCount(countingRowCallbackHandler.getRowCount());
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -414,13 +429,12 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       this.delegate.query(sql, pss, countingRowCallbackHandler);
       event.setRowCount(countingRowCallbackHandler.getRowCount());
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -430,13 +444,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       this.delegate.query(sql, args, argTypes, countingRowCallbackHandler);
       event.setRowCount(countingRowCallbackHandler.getRowCount());
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -447,13 +461,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       this.delegate.query(sql, args, countingRowCallbackHandler);
       event.setRowCount(countingRowCallbackHandler.getRowCount());
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -463,13 +477,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       this.delegate.query(sql, countingRowCallbackHandler, args);
       event.setRowCount(countingRowCallbackHandler.getRowCount());
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -478,14 +492,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(getSql(psc));
-    event.begin();
+    begin(event);
     try {
-      List<T> result = this.delegate.query(psc, rowMapper);
+      List<T> result = this.delegate.query(QueryCapture.capture(psc, event), rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -494,14 +507,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, pss, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -510,14 +522,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, args, argTypes, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -527,14 +539,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, args, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -543,15 +555,67 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, rowMapper, args);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    JdbcEvent event = new JdbcEvent();
+    event.setOperationName("queryForStream");
+    event.setQuery(getSql(psc));
+    begin(event);
+    Stream<T> stream;
+    try {
+      stream = this.delegate.queryForStream(QueryCapture.capture(psc, event), rowMapper);
+    } catch (RuntimeException | Error e) {
+      // the stream will never be closed
+      end(event);
+      throw e;
     }
+    return commitOnClose(stream, event);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    JdbcEvent event = new JdbcEvent();
+    event.setOperationName("queryForStream");
+    event.setQuery(sql);
+    begin(event);
+    Stream<T> stream;
+    try {
+      stream = this.delegate.queryForStream(sql, pss, rowMapper);
+    } catch (RuntimeException | Error e) {
+      // the stream will never be closed
+      end(event);
+      throw e;
+    }
+    return commitOnClose(stream, event);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    JdbcEvent event = new JdbcEvent();
+    event.setOperationName("queryForStream");
+    event.setQuery(sql);
+    event.setArguments(args);
+    begin(event);
+    Stream<T> stream;
+    try {
+      stream = this.delegate.queryForStream(sql, rowMapper, args);
+    } catch (RuntimeException | Error e) {
+      // the stream will never be closed
+      end(event);
+      throw e;
+    }
+    return commitOnClose(stream, event);
   }
 
   @Override
@@ -559,14 +623,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, args, argTypes, rowMapper);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -576,14 +640,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, args, rowMapper);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -592,14 +656,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, rowMapper, args);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -608,14 +672,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, args, argTypes, requiredType);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -625,14 +689,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, args, requiredType);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -641,14 +705,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, requiredType, args);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -657,14 +721,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForMap");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       Map<String, Object> result = this.delegate.queryForMap(sql, args, argTypes);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -673,14 +737,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForMap");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       Map<String, Object> result = this.delegate.queryForMap(sql, args);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -689,14 +753,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<T> result = this.delegate.queryForList(sql, args, argTypes, elementType);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -706,14 +770,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<T> result = this.delegate.queryForList(sql, args, elementType);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -722,14 +786,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<T> result = this.delegate.queryForList(sql, elementType, args);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -738,14 +802,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<Map<String, Object>> result = this.delegate.queryForList(sql, args, argTypes);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -754,14 +818,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       List<Map<String, Object>> result = this.delegate.queryForList(sql, args);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -770,14 +834,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForRowSet");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       SqlRowSet result = this.delegate.queryForRowSet(sql, args, argTypes);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -786,82 +850,29 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("queryForRowSet");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(args);
+    begin(event);
     try {
       SqlRowSet result = this.delegate.queryForRowSet(sql, args);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
-  @Override
-  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
-    JdbcEvent event = new JdbcEvent();
-    event.setOperationName("queryForStream");
-    event.setQuery(sql);
-    event.begin();
-    return this.delegate.queryForStream(sql, rowMapper)
-            .onClose(() -> {
-              event.end();
-              event.commit();
-            });
-  }
-
-  @Override
-  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException {
-    JdbcEvent event = new JdbcEvent();
-    event.setOperationName("queryForStream");
-    event.setQuery(getSql(psc));
-    event.begin();
-    return this.delegate.queryForStream(psc, rowMapper)
-            .onClose(() -> {
-              event.end();
-              event.commit();
-            });
-  }
-
-  @Override
-  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) throws DataAccessException {
-    JdbcEvent event = new JdbcEvent();
-    event.setOperationName("queryForStream");
-    event.setQuery(sql);
-    event.begin();
-    return this.delegate.queryForStream(sql, pss, rowMapper)
-            .onClose(() -> {
-              event.end();
-              event.commit();
-            });
-  }
-
-  @Override
-  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) throws DataAccessException {
-    JdbcEvent event = new JdbcEvent();
-    event.setOperationName("queryForStream");
-    event.setQuery(sql);
-    event.begin();
-    return this.delegate.queryForStream(sql, rowMapper, args)
-            .onClose(() -> {
-              event.end();
-              event.commit();
-            });
-  }
-
   @Override
   public int update(PreparedStatementCreator psc) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("update");
     event.setQuery(getSql(psc));
-    event.begin();
+    begin(event);
     try {
-      int updateCount = this.delegate.update(psc);
+      int updateCount = this.delegate.update(QueryCapture.capture(psc, event));
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -869,15 +880,14 @@ public final class JfrJdbcOperations implements JdbcOperations {
   public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("update");
-    event.setQuery(getSql(generatedKeyHolder));
-    event.begin();
+    event.setQuery(getSql(psc));
+    begin(event);
     try {
-      int updateCount = this.delegate.update(psc, generatedKeyHolder);
+      int updateCount = this.delegate.update(QueryCapture.capture(psc, event), generatedKeyHolder);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -886,14 +896,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, pss);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -902,14 +911,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, args, argTypes);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -918,14 +926,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, args);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -934,78 +941,73 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int[] updateCount = this.delegate.batchUpdate(sql, pss);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
   @Override
-  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("batchUpdate");
-    event.setQuery(sql);
-    event.begin();
+    event.setQuery(getSql(psc));
+    begin(event);
     try {
-      int[] updateCount = this.delegate.batchUpdate(sql, batchArgs);
+      int[] updateCount = this.delegate.batchUpdate(QueryCapture.capture(psc, event), pss, generatedKeyHolder);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
   @Override
-  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
-      int[] updateCount = this.delegate.batchUpdate(sql, batchArgs, argTypes);
+      int[] updateCount = this.delegate.batchUpdate(sql, batchArgs);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
   @Override
-  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
-      int[][] updateCount = this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
+      int[] updateCount = this.delegate.batchUpdate(sql, batchArgs, argTypes);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
-  
+
   @Override
-  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("batchUpdate");
-    event.setQuery(getSql(psc));
-    event.begin();
+    event.setQuery(sql);
+    begin(event);
     try {
-      int[] updateCount = this.delegate.batchUpdate(psc, pss, generatedKeyHolder);
+      int[][] updateCount = this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -1014,14 +1016,13 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
     event.setQuery(getSql(csc));
-    event.begin();
+    begin(event);
     try {
-      T result = this.delegate.execute(csc, action);
+      T result = this.delegate.execute(QueryCapture.capture(csc, event), action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -1030,41 +1031,97 @@ public final class JfrJdbcOperations implements JdbcOperations {
     JdbcEvent event = new JdbcEvent();
     event.setOperationName("execute");
     event.setQuery(callString);
-    event.begin();
+    begin(event);
     try {
       T result = this.delegate.execute(callString, action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
   @Override
   public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
     JdbcEvent event = new JdbcEvent();
-    event.setOperationName("batchUpdate");
+    event.setOperationName("call");
     event.setQuery(getSql(csc));
-    event.begin();
+    begin(event);
     try {
-      Map<String, Object> result = this.delegate.call(csc, declaredParameters);
+      Map<String, Object> result = this.delegate.call(QueryCapture.capture(csc, event), declaredParameters);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
-  private static String getSql(Object o) {
+  // end of generated methods
+
+  static String getSql(Object o) {
     if (o instanceof SqlProvider) {
       return ((SqlProvider) o).getSql();
     }
     return null;
   }
 
-  private static void setRowCount(JdbcEvent event, Object o) {
+  static void begin(JdbcEvent event) {
+    event.begin();
+    event.setInFlight(InFlightOperations.enter(event.getOperationName(), event.getQuery()));
+    event.setTableStatisticsStart(TableStatistics.enter());
+    event.setLatencyBaselinesStart(LatencyBaselines.enter());
+    event.setCacheCandidatesStart(CacheCandidates.enter(event.getArguments()));
+    event.setUnitOfWork(TailSampler.enter());
+  }
+
+  static void end(JdbcEvent event) {
+    exit(event);
+    commit(event);
+  }
+
+  // has to be called on the thread that called #begin
+  private static void exit(JdbcEvent event) {
+    InFlightOperations.exit(event.getInFlight());
+    TableStatistics.exit(event.getTableStatisticsStart(), event.getQuery(), event.getRowCount());
+    LatencyBaselines.exit(event.getLatencyBaselinesStart(), event.getOperationName(), event.getQuery());
+    CacheCandidates.exit(event.getCacheCandidatesStart(), event.getQuery(), event.getArguments());
+    TailSampler.exit(event.getUnitOfWork(), event.getOperationName(), event.getQuery(), event.getRowCount());
+  }
+
+  private static void commit(JdbcEvent event) {
+    event.end();
+    if (event.shouldCommit()) {
+      // only classify queries that are actually recorded
+      Classification classification = SqlClassifier.classify(event.getQuery());
+      if (classification != null) {
+        event.setStatementType(classification.getStatementType());
+        event.setTables(classification.getTables());
+      }
+      event.setVirtualThread(VirtualThreads.isVirtual(Thread.currentThread()));
+      JdbcContext context = JdbcContext.current();
+      if (context != null) {
+        event.setEndpoint(context.getEndpoint());
+        event.setTenant(context.getTenant());
+        event.setJobId(context.getJobId());
+      }
+      event.commit();
+    }
+  }
+
+  static <T> Stream<T> commitOnClose(Stream<T> stream, JdbcEvent event) {
+    // the per thread bookkeeping only covers opening the stream, the stream
+    // may be closed much later, on a different thread or never
+    exit(event);
+    OpenStream openStream = StreamLeakDetector.open(event.getOperationName(), event.getQuery());
+    Stream<T> result = stream.onClose(() -> {
+      StreamLeakDetector.close(openStream);
+      commit(event);
+    });
+    StreamLeakDetector.register(result, openStream);
+    return result;
+  }
+
+  static void setRowCount(JdbcEvent event, Object o) {
     int size = RowCountingUtil.getSize(o);
     if (size != -1) {
       event.setRowCount(size);
@@ -1091,6 +1148,46 @@ public final class JfrJdbcOperations implements JdbcOperations {
     // long instead of int to avoid overflows for batch updates
     private long rowCount;
 
+    @Label("Statement Type")
+    @Description("The type of the SQL statement, eg. SELECT, INSERT or DDL")
+    private String statementType;
+
+    @Label("Tables")
+    @Description("The comma separated names of the tables referenced by the SQL query string")
+    private String tables;
+
+    @Label("Virtual Thread")
+    @Description("Whether the JDBC operation ended on a virtual thread")
+    private boolean virtualThread;
+
+    @Label("Endpoint")
+    @Description("The HTTP endpoint or other entry point of the bound JdbcContext")
+    private String endpoint;
+
+    @Label("Tenant")
+    @Description("The tenant of the bound JdbcContext")
+    private String tenant;
+
+    @Label("Job Id")
+    @Description("The id of the batch job of the bound JdbcContext")
+    private String jobId;
+
+    @Label("Callback Id")
+    @Description("The id of the connection callback, matches the callback id of the nested statements, 0 if none")
+    private long callbackId;
+
+    private transient Slot inFlight;
+
+    private transient long tableStatisticsStart;
+
+    private transient long latencyBaselinesStart;
+
+    private transient Object arguments;
+
+    private transient long cacheCandidatesStart;
+
+    private transient UnitOfWork unitOfWork;
+
     String getOperationName() {
       return this.operationName;
     }
@@ -1115,6 +1212,110 @@ public final class JfrJdbcOperations implements JdbcOperations {
       this.rowCount = resultSize;
     }
 
+    String getStatementType() {
+      return this.statementType;
+    }
+
+    void setStatementType(String statementType) {
+      this.statementType = statementType;
+    }
+
+    String getTables() {
+      return this.tables;
+    }
+
+    void setTables(String tables) {
+      this.tables = tables;
+    }
+
+    boolean isVirtualThread() {
+      return this.virtualThread;
+    }
+
+    void setVirtualThread(boolean virtualThread) {
+      this.virtualThread = virtualThread;
+    }
+
+    String getEndpoint() {
+      return this.endpoint;
+    }
+
+    void setEndpoint(String endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    String getTenant() {
+      return this.tenant;
+    }
+
+    void setTenant(String tenant) {
+      this.tenant = tenant;
+    }
+
+    String getJobId() {
+      return this.jobId;
+    }
+
+    void setJobId(String jobId) {
+      this.jobId = jobId;
+    }
+
+    long getCallbackId() {
+      return this.callbackId;
+    }
+
+    void setCallbackId(long callbackId) {
+      this.callbackId = callbackId;
+    }
+
+    Slot getInFlight() {
+      return this.inFlight;
+    }
+
+    void setInFlight(Slot inFlight) {
+      this.inFlight = inFlight;
+    }
+
+    long getTableStatisticsStart() {
+      return this.tableStatisticsStart;
+    }
+
+    void setTableStatisticsStart(long tableStatisticsStart) {
+      this.tableStatisticsStart = tableStatisticsStart;
+    }
+
+    long getLatencyBaselinesStart() {
+      return this.latencyBaselinesStart;
+    }
+
+    void setLatencyBaselinesStart(long latencyBaselinesStart) {
+      this.latencyBaselinesStart = latencyBaselinesStart;
+    }
+
+    Object getArguments() {
+      return this.arguments;
+    }
+
+    void setArguments(Object arguments) {
+      this.arguments = arguments;
+    }
+
+    long getCacheCandidatesStart() {
+      return this.cacheCandidatesStart;
+    }
+
+    void setCacheCandidatesStart(long cacheCandidatesStart) {
+      this.cacheCandidatesStart = cacheCandidatesStart;
+    }
+
+    UnitOfWork getUnitOfWork() {
+      return this.unitOfWork;
+    }
+
+    void setUnitOfWork(UnitOfWork unitOfWork) {
+      this.unitOfWork = unitOfWork;
+    }
+
   }
 
   static final class CountingRowCallbackHandler implements RowCallbackHandler {
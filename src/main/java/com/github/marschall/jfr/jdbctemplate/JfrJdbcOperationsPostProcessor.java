@@ -0,0 +1,256 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * A {@link BeanPostProcessor} that instruments every {@link JdbcOperations}
+ * and {@link NamedParameterJdbcOperations} bean.
+ *
+ * <p>Beans keep their type so that injection points and other beans that
+ * require the template classes continue to work:</p>
+ * <ul>
+ *   <li>A {@link JdbcTemplate} bean is replaced by a {@link JfrJdbcTemplate}
+ *   with the same {@link javax.sql.DataSource} and settings.</li>
+ *   <li>A {@link NamedParameterJdbcTemplate} bean on top of a plain
+ *   {@link JdbcTemplate} is replaced by a {@link NamedParameterJdbcTemplate}
+ *   on top of such a {@link JfrJdbcTemplate}, events report the expanded
+ *   query string with {@code ?} placeholders.</li>
+ *   <li>Subclasses of the template classes are left as they are, they can
+ *   not be replaced without losing their type. Use {@link JfrJdbcTemplate}
+ *   for them.</li>
+ *   <li>Other implementations are wrapped in a {@link JfrJdbcOperations} or
+ *   {@link JfrNamedParameterJdbcOperations} and only implement the
+ *   interface afterwards.</li>
+ * </ul>
+ *
+ * <p>Register it as a {@code static} bean method so it applies to all other
+ * beans:</p>
+ * <pre><code>
+ * &#64;Bean
+ * public static JfrJdbcOperationsPostProcessor jfrJdbcOperationsPostProcessor() {
+ *   return new JfrJdbcOperationsPostProcessor();
+ * }
+ * </code></pre>
+ *
+ * <p>A {@link NamedParameterJdbcOperations} bean is not wrapped if its
+ * {@link NamedParameterJdbcOperations#getJdbcOperations()} already generates
+ * events, as is the case when it is created from another, wrapped
+ * {@link JdbcOperations} bean. This avoids two events for every named
+ * operation. Beans that already generate events are never wrapped
+ * again.</p>
+ *
+ * <p>Beans can be excluded by name. {@link JfrJdbcTemplate} beans already
+ * generate events and are left as they are, {@link #setCompactRows(boolean)}
+ * and {@link #setStatementBudget(Duration)} do not apply to them.</p>
+ *
+ * <p>The properties follow the Java Beans conventions so they can be bound
+ * from external configuration. Event enablement and thresholds are
+ * configured in the JFR settings, not here. There is no sampling property,
+ * tail sampling is bound to units of work with a {@link TailSampler} rather
+ * than to beans.</p>
+ */
+public final class JfrJdbcOperationsPostProcessor implements BeanPostProcessor {
+
+  private boolean enabled;
+
+  private boolean namedParameterJdbcOperationsEnabled;
+
+  private boolean compactRows;
+
+  private Duration statementBudget;
+
+  private Set<String> excludedBeanNames;
+
+  /**
+   * Constructs a new {@link JfrJdbcOperationsPostProcessor} that wraps all
+   * beans without any additional features.
+   */
+  public JfrJdbcOperationsPostProcessor() {
+    this.enabled = true;
+    this.namedParameterJdbcOperationsEnabled = true;
+    this.compactRows = false;
+    this.statementBudget = null;
+    this.excludedBeanNames = Set.of();
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (!this.enabled || this.excludedBeanNames.contains(beanName)) {
+      return bean;
+    }
+    if (bean instanceof JdbcOperations) {
+      return this.wrap((JdbcOperations) bean);
+    }
+    if (this.namedParameterJdbcOperationsEnabled && (bean instanceof NamedParameterJdbcOperations)) {
+      return wrap((NamedParameterJdbcOperations) bean);
+    }
+    return bean;
+  }
+
+  private JdbcOperations wrap(JdbcOperations jdbcOperations) {
+    if (isInstrumented(jdbcOperations)) {
+      return jdbcOperations;
+    }
+    if (jdbcOperations.getClass() == JdbcTemplate.class) {
+      return this.copy((JdbcTemplate) jdbcOperations);
+    }
+    if (jdbcOperations instanceof JdbcTemplate) {
+      // replacing a subclass would change the type of the bean
+      return jdbcOperations;
+    }
+    return new JfrJdbcOperations(this.decorate(jdbcOperations));
+  }
+
+  private NamedParameterJdbcOperations wrap(NamedParameterJdbcOperations namedParameterJdbcOperations) {
+    JdbcOperations jdbcOperations = namedParameterJdbcOperations.getJdbcOperations();
+    if ((namedParameterJdbcOperations instanceof JfrNamedParameterJdbcOperations)
+            || isInstrumented(jdbcOperations)) {
+      return namedParameterJdbcOperations;
+    }
+    if (namedParameterJdbcOperations.getClass() == NamedParameterJdbcTemplate.class) {
+      if (jdbcOperations.getClass() != JdbcTemplate.class) {
+        // can not be instrumented without changing the type of the bean
+        return namedParameterJdbcOperations;
+      }
+      // shares the cache of parsed queries
+      return new NamedParameterJdbcTemplate((NamedParameterJdbcTemplate) namedParameterJdbcOperations,
+              this.copy((JdbcTemplate) jdbcOperations));
+    }
+    if (namedParameterJdbcOperations instanceof NamedParameterJdbcTemplate) {
+      // replacing a subclass would change the type of the bean
+      return namedParameterJdbcOperations;
+    }
+    return new JfrNamedParameterJdbcOperations(namedParameterJdbcOperations);
+  }
+
+  private JfrJdbcTemplate copy(JdbcTemplate jdbcTemplate) {
+    return new JfrJdbcTemplate(jdbcTemplate, this::decorate);
+  }
+
+  private JdbcOperations decorate(JdbcOperations jdbcOperations) {
+    JdbcOperations delegate = jdbcOperations;
+    if (this.statementBudget != null) {
+      delegate = new WatchdogJdbcOperations(delegate, new StatementBudgets(this.statementBudget));
+    }
+    if (this.compactRows) {
+      delegate = new CompactRowJdbcOperations(delegate);
+    }
+    return delegate;
+  }
+
+  static boolean isInstrumented(JdbcOperations jdbcOperations) {
+    return (jdbcOperations instanceof JfrJdbcOperations) || (jdbcOperations instanceof JfrJdbcTemplate);
+  }
+
+  /**
+   * Whether beans are wrapped at all, {@code true} by default.
+   *
+   * @return whether beans are wrapped
+   */
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Sets whether beans are wrapped at all.
+   *
+   * @param enabled whether beans are wrapped
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Whether {@link NamedParameterJdbcOperations} beans are wrapped,
+   * {@code true} by default.
+   *
+   * @return whether {@link NamedParameterJdbcOperations} beans are wrapped
+   */
+  public boolean isNamedParameterJdbcOperationsEnabled() {
+    return this.namedParameterJdbcOperationsEnabled;
+  }
+
+  /**
+   * Sets whether {@link NamedParameterJdbcOperations} beans are wrapped.
+   *
+   * @param namedParameterJdbcOperationsEnabled whether
+   *        {@link NamedParameterJdbcOperations} beans are wrapped
+   */
+  public void setNamedParameterJdbcOperationsEnabled(boolean namedParameterJdbcOperationsEnabled) {
+    this.namedParameterJdbcOperationsEnabled = namedParameterJdbcOperationsEnabled;
+  }
+
+  /**
+   * Whether {@link JdbcOperations} beans are additionally wrapped in a
+   * {@link CompactRowJdbcOperations}, {@code false} by default.
+   *
+   * @return whether compact rows are used
+   */
+  public boolean isCompactRows() {
+    return this.compactRows;
+  }
+
+  /**
+   * Sets whether {@link JdbcOperations} beans are additionally wrapped in a
+   * {@link CompactRowJdbcOperations}. Does not apply to
+   * {@link JfrJdbcTemplate} beans.
+   *
+   * @param compactRows whether compact rows are used
+   */
+  public void setCompactRows(boolean compactRows) {
+    this.compactRows = compactRows;
+  }
+
+  /**
+   * Returns the latency budget of every operation, {@code null} by default.
+   *
+   * @return the latency budget, {@code null} if statements are not cancelled
+   */
+  public Duration getStatementBudget() {
+    return this.statementBudget;
+  }
+
+  /**
+   * Sets the latency budget of every operation. If set {@link JdbcOperations}
+   * beans are additionally wrapped in a {@link WatchdogJdbcOperations}. Does
+   * not apply to {@link JfrJdbcTemplate} beans.
+   *
+   * @param statementBudget the latency budget, {@code null} to not cancel
+   *                        statements
+   */
+  public void setStatementBudget(Duration statementBudget) {
+    if ((statementBudget != null) && (statementBudget.isNegative() || statementBudget.isZero())) {
+      throw new IllegalArgumentException("statementBudget must be positive but was: " + statementBudget);
+    }
+    this.statementBudget = statementBudget;
+  }
+
+  /**
+   * Returns the names of the beans that are never wrapped, empty by default.
+   *
+   * @return the names of the beans that are never wrapped
+   */
+  public Set<String> getExcludedBeanNames() {
+    return this.excludedBeanNames;
+  }
+
+  /**
+   * Sets the names of the beans that are never wrapped.
+   *
+   * @param excludedBeanNames the names of the beans that are never wrapped,
+   *                          not {@code null}
+   */
+  public void setExcludedBeanNames(Set<String> excludedBeanNames) {
+    Objects.requireNonNull(excludedBeanNames, "excludedBeanNames");
+    this.excludedBeanNames = Set.copyOf(excludedBeanNames);
+  }
+
+}
@@ -0,0 +1,1313 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.JdbcAccessor;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+
+/**
+ * A {@link JdbcTemplate} that generates the same JFR events as
+ * {@link JfrJdbcOperations}.
+ *
+ * <p>Use this class instead of {@link JfrJdbcOperations} where a
+ * {@link JdbcTemplate} is required, for example for
+ * {@link org.springframework.jdbc.core.simple.SimpleJdbcInsert},
+ * {@link org.springframework.jdbc.core.simple.SimpleJdbcCall} or
+ * {@link org.springframework.jdbc.object.StoredProcedure}.</p>
+ *
+ * <p>{@link JdbcTemplate} implements most operations by calling other public
+ * operations. Only the outermost operation generates an event, operations
+ * invoked on the same instance on the same thread while an operation is
+ * running, including from callbacks, do not generate events of their
+ * own.</p>
+ */
+public class JfrJdbcTemplate extends JdbcTemplate {
+
+  private final JdbcOperations instrumented;
+
+  private final ThreadLocal<Boolean> active = new ThreadLocal<>();
+
+  /**
+   * Constructs a new {@link JfrJdbcTemplate}.
+   *
+   * @see JdbcTemplate#JdbcTemplate()
+   */
+  public JfrJdbcTemplate() {
+    super();
+    this.instrumented = new JfrJdbcOperations(new SuperOperations());
+  }
+
+  /**
+   * Constructs a new {@link JfrJdbcTemplate}.
+   *
+   * @param dataSource the JDBC DataSource to obtain connections from
+   * @see JdbcTemplate#JdbcTemplate(DataSource)
+   */
+  public JfrJdbcTemplate(DataSource dataSource) {
+    super(dataSource);
+    this.instrumented = new JfrJdbcOperations(new SuperOperations());
+  }
+
+  /**
+   * Constructs a new {@link JfrJdbcTemplate}.
+   *
+   * @param dataSource the JDBC DataSource to obtain connections from
+   * @param lazyInit whether to lazily initialize the SQLExceptionTranslator
+   * @see JdbcTemplate#JdbcTemplate(DataSource, boolean)
+   */
+  public JfrJdbcTemplate(DataSource dataSource, boolean lazyInit) {
+    super(dataSource, lazyInit);
+    this.instrumented = new JfrJdbcOperations(new SuperOperations());
+  }
+
+  /**
+   * Constructs a new {@link JfrJdbcTemplate} with the {@link DataSource} and
+   * settings of an existing template.
+   *
+   * @param original the accessor to copy the settings from
+   * @see JdbcTemplate#JdbcTemplate(JdbcAccessor)
+   */
+  public JfrJdbcTemplate(JdbcAccessor original) {
+    this(original, UnaryOperator.identity());
+  }
+
+  /**
+   * Constructs a new {@link JfrJdbcTemplate} with the {@link DataSource} and
+   * settings of an existing template.
+   *
+   * @param original the accessor to copy the settings from
+   * @param decorator decorates the {@link JdbcTemplate} implementation of
+   *                  the outermost operations, eg. with a
+   *                  {@link WatchdogJdbcOperations}
+   */
+  JfrJdbcTemplate(JdbcAccessor original, UnaryOperator<JdbcOperations> decorator) {
+    super(original);
+    this.instrumented = new JfrJdbcOperations(decorator.apply(new SuperOperations()));
+  }
+
+  private boolean isActive() {
+    return this.active.get() != null;
+  }
+
+  private void activate() {
+    this.active.set(Boolean.TRUE);
+  }
+
+  private void deactivate() {
+    this.active.remove();
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    if (this.isActive()) {
+      return super.query(psc, pss, rse);
+    }
+    this.activate();
+    JdbcEvent event = new JdbcEvent();
+    event.setOperationName("query");
+    event.setQuery(JfrJdbcOperations.getSql(psc));
+    JfrJdbcOperations.begin(event);
+    try {
+      T result = super.query(QueryCapture.capture(psc, event), pss, rse);
+      JfrJdbcOperations.setRowCount(event, result);
+      return result;
+    } finally {
+      JfrJdbcOperations.end(event);
+      this.deactivate();
+    }
+  }
+
+  // generated by WrapperGenerator, do not edit
+
+  @Override
+  public <T> T execute(ConnectionCallback<T> action) {
+    if (this.isActive()) {
+      return super.execute(action);
+    }
+    this.activate();
+    try {
+      return this.instrumented.execute(action);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T execute(StatementCallback<T> action) {
+    if (this.isActive()) {
+      return super.execute(action);
+    }
+    this.activate();
+    try {
+      return this.instrumented.execute(action);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public void execute(String sql) {
+    if (this.isActive()) {
+      super.execute(sql);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.execute(sql);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse) {
+    if (this.isActive()) {
+      return super.query(sql, rse);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, rse);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch) {
+    if (this.isActive()) {
+      super.query(sql, rch);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.query(sql, rch);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.query(sql, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.queryForStream(sql, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForStream(sql, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, requiredType);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, requiredType);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql) {
+    if (this.isActive()) {
+      return super.queryForMap(sql);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForMap(sql);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType) {
+    if (this.isActive()) {
+      return super.queryForList(sql, elementType);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql, elementType);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql) {
+    if (this.isActive()) {
+      return super.queryForList(sql);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql) {
+    if (this.isActive()) {
+      return super.queryForRowSet(sql);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForRowSet(sql);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int update(String sql) {
+    if (this.isActive()) {
+      return super.update(sql);
+    }
+    this.activate();
+    try {
+      return this.instrumented.update(sql);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String... sql) {
+    if (this.isActive()) {
+      return super.batchUpdate(sql);
+    }
+    this.activate();
+    try {
+      return this.instrumented.batchUpdate(sql);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    if (this.isActive()) {
+      return super.execute(psc, action);
+    }
+    this.activate();
+    try {
+      return this.instrumented.execute(psc, action);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+    if (this.isActive()) {
+      return super.execute(sql, action);
+    }
+    this.activate();
+    try {
+      return this.instrumented.execute(sql, action);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    if (this.isActive()) {
+      return super.query(psc, rse);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(psc, rse);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    if (this.isActive()) {
+      return super.query(sql, pss, rse);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, pss, rse);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    if (this.isActive()) {
+      return super.query(sql, args, argTypes, rse);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, args, argTypes, rse);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+    if (this.isActive()) {
+      return super.query(sql, args, rse);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, args, rse);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    if (this.isActive()) {
+      return super.query(sql, rse, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, rse, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    if (this.isActive()) {
+      super.query(psc, rch);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.query(psc, rch);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    if (this.isActive()) {
+      super.query(sql, pss, rch);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.query(sql, pss, rch);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    if (this.isActive()) {
+      super.query(sql, args, argTypes, rch);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.query(sql, args, argTypes, rch);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public void query(String sql, Object[] args, RowCallbackHandler rch) {
+    if (this.isActive()) {
+      super.query(sql, args, rch);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.query(sql, args, rch);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch, Object... args) {
+    if (this.isActive()) {
+      super.query(sql, rch, args);
+      return;
+    }
+    this.activate();
+    try {
+      this.instrumented.query(sql, rch, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.query(psc, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(psc, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.query(sql, pss, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, pss, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.query(sql, args, argTypes, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, args, argTypes, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.query(sql, args, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, args, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    if (this.isActive()) {
+      return super.query(sql, rowMapper, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.query(sql, rowMapper, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.queryForStream(psc, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForStream(psc, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.queryForStream(sql, pss, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForStream(sql, pss, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    if (this.isActive()) {
+      return super.queryForStream(sql, rowMapper, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForStream(sql, rowMapper, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, args, argTypes, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, args, argTypes, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, args, rowMapper);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, args, rowMapper);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, rowMapper, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, rowMapper, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, args, argTypes, requiredType);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, args, argTypes, requiredType);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, args, requiredType);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, args, requiredType);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+    if (this.isActive()) {
+      return super.queryForObject(sql, requiredType, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForObject(sql, requiredType, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+    if (this.isActive()) {
+      return super.queryForMap(sql, args, argTypes);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForMap(sql, args, argTypes);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object... args) {
+    if (this.isActive()) {
+      return super.queryForMap(sql, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForMap(sql, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    if (this.isActive()) {
+      return super.queryForList(sql, args, argTypes, elementType);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql, args, argTypes, elementType);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+    if (this.isActive()) {
+      return super.queryForList(sql, args, elementType);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql, args, elementType);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+    if (this.isActive()) {
+      return super.queryForList(sql, elementType, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql, elementType, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+    if (this.isActive()) {
+      return super.queryForList(sql, args, argTypes);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql, args, argTypes);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object... args) {
+    if (this.isActive()) {
+      return super.queryForList(sql, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForList(sql, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    if (this.isActive()) {
+      return super.queryForRowSet(sql, args, argTypes);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForRowSet(sql, args, argTypes);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object... args) {
+    if (this.isActive()) {
+      return super.queryForRowSet(sql, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.queryForRowSet(sql, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc) {
+    if (this.isActive()) {
+      return super.update(psc);
+    }
+    this.activate();
+    try {
+      return this.instrumented.update(psc);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    if (this.isActive()) {
+      return super.update(psc, generatedKeyHolder);
+    }
+    this.activate();
+    try {
+      return this.instrumented.update(psc, generatedKeyHolder);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int update(String sql, PreparedStatementSetter pss) {
+    if (this.isActive()) {
+      return super.update(sql, pss);
+    }
+    this.activate();
+    try {
+      return this.instrumented.update(sql, pss);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int update(String sql, Object[] args, int[] argTypes) {
+    if (this.isActive()) {
+      return super.update(sql, args, argTypes);
+    }
+    this.activate();
+    try {
+      return this.instrumented.update(sql, args, argTypes);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int update(String sql, Object... args) {
+    if (this.isActive()) {
+      return super.update(sql, args);
+    }
+    this.activate();
+    try {
+      return this.instrumented.update(sql, args);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    if (this.isActive()) {
+      return super.batchUpdate(sql, pss);
+    }
+    this.activate();
+    try {
+      return this.instrumented.batchUpdate(sql, pss);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    if (this.isActive()) {
+      return super.batchUpdate(psc, pss, generatedKeyHolder);
+    }
+    this.activate();
+    try {
+      return this.instrumented.batchUpdate(psc, pss, generatedKeyHolder);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+    if (this.isActive()) {
+      return super.batchUpdate(sql, batchArgs);
+    }
+    this.activate();
+    try {
+      return this.instrumented.batchUpdate(sql, batchArgs);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    if (this.isActive()) {
+      return super.batchUpdate(sql, batchArgs, argTypes);
+    }
+    this.activate();
+    try {
+      return this.instrumented.batchUpdate(sql, batchArgs, argTypes);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    if (this.isActive()) {
+      return super.batchUpdate(sql, batchArgs, batchSize, pss);
+    }
+    this.activate();
+    try {
+      return this.instrumented.batchUpdate(sql, batchArgs, batchSize, pss);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    if (this.isActive()) {
+      return super.execute(csc, action);
+    }
+    this.activate();
+    try {
+      return this.instrumented.execute(csc, action);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public <T> T execute(String callString, CallableStatementCallback<T> action) {
+    if (this.isActive()) {
+      return super.execute(callString, action);
+    }
+    this.activate();
+    try {
+      return this.instrumented.execute(callString, action);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  @Override
+  public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    if (this.isActive()) {
+      return super.call(csc, declaredParameters);
+    }
+    this.activate();
+    try {
+      return this.instrumented.call(csc, declaredParameters);
+    } finally {
+      this.deactivate();
+    }
+  }
+
+  // end of generated methods
+
+  /**
+   * Calls the {@link JdbcTemplate} implementations while this template is
+   * active.
+   */
+  final class SuperOperations implements JdbcOperations {
+
+    // generated by WrapperGenerator, do not edit
+
+    @Override
+    public <T> T execute(ConnectionCallback<T> action) {
+      return JfrJdbcTemplate.super.execute(action);
+    }
+
+    @Override
+    public <T> T execute(StatementCallback<T> action) {
+      return JfrJdbcTemplate.super.execute(action);
+    }
+
+    @Override
+    public void execute(String sql) {
+      JfrJdbcTemplate.super.execute(sql);
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) {
+      return JfrJdbcTemplate.super.query(sql, rse);
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch) {
+      JfrJdbcTemplate.super.query(sql, rch);
+    }
+
+    @Override
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.query(sql, rowMapper);
+    }
+
+    @Override
+    public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.queryForStream(sql, rowMapper);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.queryForObject(sql, rowMapper);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, Class<T> requiredType) {
+      return JfrJdbcTemplate.super.queryForObject(sql, requiredType);
+    }
+
+    @Override
+    public Map<String, Object> queryForMap(String sql) {
+      return JfrJdbcTemplate.super.queryForMap(sql);
+    }
+
+    @Override
+    public <T> List<T> queryForList(String sql, Class<T> elementType) {
+      return JfrJdbcTemplate.super.queryForList(sql, elementType);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql) {
+      return JfrJdbcTemplate.super.queryForList(sql);
+    }
+
+    @Override
+    public SqlRowSet queryForRowSet(String sql) {
+      return JfrJdbcTemplate.super.queryForRowSet(sql);
+    }
+
+    @Override
+    public int update(String sql) {
+      return JfrJdbcTemplate.super.update(sql);
+    }
+
+    @Override
+    public int[] batchUpdate(String... sql) {
+      return JfrJdbcTemplate.super.batchUpdate(sql);
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+      return JfrJdbcTemplate.super.execute(psc, action);
+    }
+
+    @Override
+    public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+      return JfrJdbcTemplate.super.execute(sql, action);
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+      return JfrJdbcTemplate.super.query(psc, rse);
+    }
+
+    @Override
+    public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+      return JfrJdbcTemplate.super.query(sql, pss, rse);
+    }
+
+    @Override
+    public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+      return JfrJdbcTemplate.super.query(sql, args, argTypes, rse);
+    }
+
+    @Override
+    @Deprecated
+    public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+      return JfrJdbcTemplate.super.query(sql, args, rse);
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+      return JfrJdbcTemplate.super.query(sql, rse, args);
+    }
+
+    @Override
+    public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+      JfrJdbcTemplate.super.query(psc, rch);
+    }
+
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+      JfrJdbcTemplate.super.query(sql, pss, rch);
+    }
+
+    @Override
+    public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+      JfrJdbcTemplate.super.query(sql, args, argTypes, rch);
+    }
+
+    @Override
+    @Deprecated
+    public void query(String sql, Object[] args, RowCallbackHandler rch) {
+      JfrJdbcTemplate.super.query(sql, args, rch);
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch, Object... args) {
+      JfrJdbcTemplate.super.query(sql, rch, args);
+    }
+
+    @Override
+    public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.query(psc, rowMapper);
+    }
+
+    @Override
+    public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.query(sql, pss, rowMapper);
+    }
+
+    @Override
+    public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.query(sql, args, argTypes, rowMapper);
+    }
+
+    @Override
+    @Deprecated
+    public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.query(sql, args, rowMapper);
+    }
+
+    @Override
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+      return JfrJdbcTemplate.super.query(sql, rowMapper, args);
+    }
+
+    @Override
+    public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.queryForStream(psc, rowMapper);
+    }
+
+    @Override
+    public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.queryForStream(sql, pss, rowMapper);
+    }
+
+    @Override
+    public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+      return JfrJdbcTemplate.super.queryForStream(sql, rowMapper, args);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.queryForObject(sql, args, argTypes, rowMapper);
+    }
+
+    @Override
+    @Deprecated
+    public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+      return JfrJdbcTemplate.super.queryForObject(sql, args, rowMapper);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+      return JfrJdbcTemplate.super.queryForObject(sql, rowMapper, args);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+      return JfrJdbcTemplate.super.queryForObject(sql, args, argTypes, requiredType);
+    }
+
+    @Override
+    @Deprecated
+    public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+      return JfrJdbcTemplate.super.queryForObject(sql, args, requiredType);
+    }
+
+    @Override
+    public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+      return JfrJdbcTemplate.super.queryForObject(sql, requiredType, args);
+    }
+
+    @Override
+    public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+      return JfrJdbcTemplate.super.queryForMap(sql, args, argTypes);
+    }
+
+    @Override
+    public Map<String, Object> queryForMap(String sql, Object... args) {
+      return JfrJdbcTemplate.super.queryForMap(sql, args);
+    }
+
+    @Override
+    public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+      return JfrJdbcTemplate.super.queryForList(sql, args, argTypes, elementType);
+    }
+
+    @Override
+    @Deprecated
+    public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+      return JfrJdbcTemplate.super.queryForList(sql, args, elementType);
+    }
+
+    @Override
+    public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+      return JfrJdbcTemplate.super.queryForList(sql, elementType, args);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+      return JfrJdbcTemplate.super.queryForList(sql, args, argTypes);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql, Object... args) {
+      return JfrJdbcTemplate.super.queryForList(sql, args);
+    }
+
+    @Override
+    public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+      return JfrJdbcTemplate.super.queryForRowSet(sql, args, argTypes);
+    }
+
+    @Override
+    public SqlRowSet queryForRowSet(String sql, Object... args) {
+      return JfrJdbcTemplate.super.queryForRowSet(sql, args);
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc) {
+      return JfrJdbcTemplate.super.update(psc);
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+      return JfrJdbcTemplate.super.update(psc, generatedKeyHolder);
+    }
+
+    @Override
+    public int update(String sql, PreparedStatementSetter pss) {
+      return JfrJdbcTemplate.super.update(sql, pss);
+    }
+
+    @Override
+    public int update(String sql, Object[] args, int[] argTypes) {
+      return JfrJdbcTemplate.super.update(sql, args, argTypes);
+    }
+
+    @Override
+    public int update(String sql, Object... args) {
+      return JfrJdbcTemplate.super.update(sql, args);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+      return JfrJdbcTemplate.super.batchUpdate(sql, pss);
+    }
+
+    @Override
+    public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+      return JfrJdbcTemplate.super.batchUpdate(psc, pss, generatedKeyHolder);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+      return JfrJdbcTemplate.super.batchUpdate(sql, batchArgs);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+      return JfrJdbcTemplate.super.batchUpdate(sql, batchArgs, argTypes);
+    }
+
+    @Override
+    public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+      return JfrJdbcTemplate.super.batchUpdate(sql, batchArgs, batchSize, pss);
+    }
+
+    @Override
+    public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+      return JfrJdbcTemplate.super.execute(csc, action);
+    }
+
+    @Override
+    public <T> T execute(String callString, CallableStatementCallback<T> action) {
+      return JfrJdbcTemplate.super.execute(callString, action);
+    }
+
+    @Override
+    public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+      return JfrJdbcTemplate.super.call(csc, declaredParameters);
+    }
+
+    // end of generated methods
+
+  }
+
+}
@@ -6,7 +6,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Stream;
 
-import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.ResultSetExtractor;
@@ -18,6 +17,11 @@ import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
+import com.github.marschall.jfr.jdbctemplate.InFlightOperations.Slot;
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+import com.github.marschall.jfr.jdbctemplate.StreamLeakDetector.OpenStream;
+import com.github.marschall.jfr.jdbctemplate.TailSampler.UnitOfWork;
+
 import jdk.jfr.Category;
 import jdk.jfr.Description;
 import jdk.jfr.Event;
@@ -45,6 +49,8 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     this.delegate = delegate;
   }
 
+  // generated by WrapperGenerator, do not edit
+
   @Override
   public JdbcOperations getJdbcOperations() {
     return this.delegate.getJdbcOperations();
@@ -55,14 +61,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("execute");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       T result = this.delegate.execute(sql, paramSource, action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -71,14 +76,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("execute");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       T result = this.delegate.execute(sql, paramMap, action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -87,14 +91,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("execute");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       T result = this.delegate.execute(sql, action);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -103,14 +106,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       T result = this.delegate.query(sql, paramSource, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -119,14 +122,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       T result = this.delegate.query(sql, paramMap, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -135,14 +138,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       T result = this.delegate.query(sql, rse);
       setRowCount(event, result);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -151,13 +154,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       this.delegate.query(sql, paramSource, rch);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -166,13 +169,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       this.delegate.query(sql, paramMap, rch);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -181,13 +184,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       this.delegate.query(sql, rch);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -196,14 +199,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, paramSource, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -212,14 +215,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, paramMap, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -228,15 +231,51 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("query");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(CacheCandidates.NO_ARGUMENTS);
+    begin(event);
     try {
       List<T> result = this.delegate.query(sql, rowMapper);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) {
+    JdbcNamedEvent event = new JdbcNamedEvent();
+    event.setOperationName("queryForStream");
+    event.setQuery(sql);
+    event.setArguments(paramSource);
+    begin(event);
+    Stream<T> stream;
+    try {
+      stream = this.delegate.queryForStream(sql, paramSource, rowMapper);
+    } catch (RuntimeException | Error e) {
+      // the stream will never be closed
+      end(event);
+      throw e;
     }
+    return commitOnClose(stream, event);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) {
+    JdbcNamedEvent event = new JdbcNamedEvent();
+    event.setOperationName("queryForStream");
+    event.setQuery(sql);
+    event.setArguments(paramMap);
+    begin(event);
+    Stream<T> stream;
+    try {
+      stream = this.delegate.queryForStream(sql, paramMap, rowMapper);
+    } catch (RuntimeException | Error e) {
+      // the stream will never be closed
+      end(event);
+      throw e;
+    }
+    return commitOnClose(stream, event);
   }
 
   @Override
@@ -244,14 +283,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, paramSource, rowMapper);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -260,14 +299,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, paramMap, rowMapper);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -276,14 +315,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, paramSource, requiredType);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -292,14 +331,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForObject");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       T result = this.delegate.queryForObject(sql, paramMap, requiredType);
       event.setRowCount(1L);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -308,14 +347,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForMap");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       Map<String, Object> result = this.delegate.queryForMap(sql, paramSource);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -324,14 +363,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForMap");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       Map<String, Object> result = this.delegate.queryForMap(sql, paramMap);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -340,14 +379,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       List<T> result = this.delegate.queryForList(sql, paramSource, elementType);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -356,14 +395,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       List<T> result = this.delegate.queryForList(sql, paramMap, elementType);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -372,14 +411,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       List<Map<String, Object>> result = this.delegate.queryForList(sql, paramSource);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -388,14 +427,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForList");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       List<Map<String, Object>> result = this.delegate.queryForList(sql, paramMap);
       event.setRowCount(result.size());
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -404,14 +443,14 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForRowSet");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramSource);
+    begin(event);
     try {
       SqlRowSet result = this.delegate.queryForRowSet(sql, paramSource);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -420,56 +459,29 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("queryForRowSet");
     event.setQuery(sql);
-    event.begin();
+    event.setArguments(paramMap);
+    begin(event);
     try {
       SqlRowSet result = this.delegate.queryForRowSet(sql, paramMap);
       event.setRowCount(Statement.SUCCESS_NO_INFO);
       return result;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
-  @Override
-  public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper) throws DataAccessException {
-    JdbcNamedEvent event = new JdbcNamedEvent();
-    event.setOperationName("queryForStream");
-    event.setQuery(sql);
-    event.begin();
-    return this.delegate.queryForStream(sql, paramMap, rowMapper)
-            .onClose(() -> {
-              event.end();
-              event.commit();
-            });
-  }
-
-  @Override
-  public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) throws DataAccessException {
-    JdbcNamedEvent event = new JdbcNamedEvent();
-    event.setOperationName("queryForStream");
-    event.setQuery(sql);
-    event.begin();
-    return this.delegate.queryForStream(sql, paramSource, rowMapper)
-            .onClose(() -> {
-              event.end();
-              event.commit();
-            });
-  }
-
   @Override
   public int update(String sql, SqlParameterSource paramSource) {
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, paramSource);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -478,14 +490,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, paramMap);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -494,14 +505,13 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, paramSource, generatedKeyHolder);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
@@ -510,82 +520,135 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("update");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int updateCount = this.delegate.update(sql, paramSource, generatedKeyHolder, keyColumnNames);
       event.setRowCount(updateCount);
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
   @Override
-  public int[] batchUpdate(String sql, Map<String, ?>[] batchValues) {
+  public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
-      int[] updateCount = this.delegate.batchUpdate(sql, batchValues);
+      int[] updateCount = this.delegate.batchUpdate(sql, batchArgs);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
 
   @Override
-  public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+  public int[] batchUpdate(String sql, Map<String, ?>[] batchValues) {
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
-      int[] updateCount = this.delegate.batchUpdate(sql, batchArgs);
+      int[] updateCount = this.delegate.batchUpdate(sql, batchValues);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
-  
+
   @Override
   public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs, KeyHolder generatedKeyHolder) {
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int[] updateCount = this.delegate.batchUpdate(sql, batchArgs, generatedKeyHolder);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
-      event.commit();
+      end(event);
     }
   }
-  
+
   @Override
   public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs, KeyHolder generatedKeyHolder, String[] keyColumnNames) {
     JdbcNamedEvent event = new JdbcNamedEvent();
     event.setOperationName("batchUpdate");
     event.setQuery(sql);
-    event.begin();
+    begin(event);
     try {
       int[] updateCount = this.delegate.batchUpdate(sql, batchArgs, generatedKeyHolder, keyColumnNames);
       event.setRowCount(RowCountingUtil.countRows(updateCount));
       return updateCount;
     } finally {
-      event.end();
+      end(event);
+    }
+  }
+
+  // end of generated methods
+
+  static void begin(JdbcNamedEvent event) {
+    event.begin();
+    event.setInFlight(InFlightOperations.enter(event.getOperationName(), event.getQuery()));
+    event.setTableStatisticsStart(TableStatistics.enter());
+    event.setLatencyBaselinesStart(LatencyBaselines.enter());
+    event.setCacheCandidatesStart(CacheCandidates.enter(event.getArguments()));
+    event.setUnitOfWork(TailSampler.enter());
+  }
+
+  static void end(JdbcNamedEvent event) {
+    exit(event);
+    commit(event);
+  }
+
+  // has to be called on the thread that called #begin
+  private static void exit(JdbcNamedEvent event) {
+    InFlightOperations.exit(event.getInFlight());
+    TableStatistics.exit(event.getTableStatisticsStart(), event.getQuery(), event.getRowCount());
+    LatencyBaselines.exit(event.getLatencyBaselinesStart(), event.getOperationName(), event.getQuery());
+    CacheCandidates.exit(event.getCacheCandidatesStart(), event.getQuery(), event.getArguments());
+    TailSampler.exit(event.getUnitOfWork(), event.getOperationName(), event.getQuery(), event.getRowCount());
+  }
+
+  private static void commit(JdbcNamedEvent event) {
+    event.end();
+    if (event.shouldCommit()) {
+      // only classify queries that are actually recorded
+      Classification classification = SqlClassifier.classify(event.getQuery());
+      if (classification != null) {
+        event.setStatementType(classification.getStatementType());
+        event.setTables(classification.getTables());
+      }
+      event.setVirtualThread(VirtualThreads.isVirtual(Thread.currentThread()));
+      JdbcContext context = JdbcContext.current();
+      if (context != null) {
+        event.setEndpoint(context.getEndpoint());
+        event.setTenant(context.getTenant());
+        event.setJobId(context.getJobId());
+      }
       event.commit();
     }
   }
 
-  private static void setRowCount(JdbcNamedEvent event, Object o) {
+  static <T> Stream<T> commitOnClose(Stream<T> stream, JdbcNamedEvent event) {
+    // the per thread bookkeeping only covers opening the stream, the stream
+    // may be closed much later, on a different thread or never
+    exit(event);
+    OpenStream openStream = StreamLeakDetector.open(event.getOperationName(), event.getQuery());
+    Stream<T> result = stream.onClose(() -> {
+      StreamLeakDetector.close(openStream);
+      commit(event);
+    });
+    StreamLeakDetector.register(result, openStream);
+    return result;
+  }
+
+  static void setRowCount(JdbcNamedEvent event, Object o) {
     int size = RowCountingUtil.getSize(o);
     if (size != -1) {
       event.setRowCount(size);
@@ -612,6 +675,42 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
     // long instead of int to avoid overflows for batch updates
     private long rowCount;
 
+    @Label("Statement Type")
+    @Description("The type of the SQL statement, eg. SELECT, INSERT or DDL")
+    private String statementType;
+
+    @Label("Tables")
+    @Description("The comma separated names of the tables referenced by the SQL query string")
+    private String tables;
+
+    @Label("Virtual Thread")
+    @Description("Whether the JDBC operation ended on a virtual thread")
+    private boolean virtualThread;
+
+    @Label("Endpoint")
+    @Description("The HTTP endpoint or other entry point of the bound JdbcContext")
+    private String endpoint;
+
+    @Label("Tenant")
+    @Description("The tenant of the bound JdbcContext")
+    private String tenant;
+
+    @Label("Job Id")
+    @Description("The id of the batch job of the bound JdbcContext")
+    private String jobId;
+
+    private transient Slot inFlight;
+
+    private transient long tableStatisticsStart;
+
+    private transient long latencyBaselinesStart;
+
+    private transient Object arguments;
+
+    private transient long cacheCandidatesStart;
+
+    private transient UnitOfWork unitOfWork;
+
     String getOperationName() {
       return this.operationName;
     }
@@ -636,6 +735,102 @@ public final class JfrNamedParameterJdbcOperations implements NamedParameterJdbc
       this.rowCount = resultSize;
     }
 
+    String getStatementType() {
+      return this.statementType;
+    }
+
+    void setStatementType(String statementType) {
+      this.statementType = statementType;
+    }
+
+    String getTables() {
+      return this.tables;
+    }
+
+    void setTables(String tables) {
+      this.tables = tables;
+    }
+
+    boolean isVirtualThread() {
+      return this.virtualThread;
+    }
+
+    void setVirtualThread(boolean virtualThread) {
+      this.virtualThread = virtualThread;
+    }
+
+    String getEndpoint() {
+      return this.endpoint;
+    }
+
+    void setEndpoint(String endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    String getTenant() {
+      return this.tenant;
+    }
+
+    void setTenant(String tenant) {
+      this.tenant = tenant;
+    }
+
+    String getJobId() {
+      return this.jobId;
+    }
+
+    void setJobId(String jobId) {
+      this.jobId = jobId;
+    }
+
+    Slot getInFlight() {
+      return this.inFlight;
+    }
+
+    void setInFlight(Slot inFlight) {
+      this.inFlight = inFlight;
+    }
+
+    long getTableStatisticsStart() {
+      return this.tableStatisticsStart;
+    }
+
+    void setTableStatisticsStart(long tableStatisticsStart) {
+      this.tableStatisticsStart = tableStatisticsStart;
+    }
+
+    long getLatencyBaselinesStart() {
+      return this.latencyBaselinesStart;
+    }
+
+    void setLatencyBaselinesStart(long latencyBaselinesStart) {
+      this.latencyBaselinesStart = latencyBaselinesStart;
+    }
+
+    Object getArguments() {
+      return this.arguments;
+    }
+
+    void setArguments(Object arguments) {
+      this.arguments = arguments;
+    }
+
+    long getCacheCandidatesStart() {
+      return this.cacheCandidatesStart;
+    }
+
+    void setCacheCandidatesStart(long cacheCandidatesStart) {
+      this.cacheCandidatesStart = cacheCandidatesStart;
+    }
+
+    UnitOfWork getUnitOfWork() {
+      return this.unitOfWork;
+    }
+
+    void setUnitOfWork(UnitOfWork unitOfWork) {
+      this.unitOfWork = unitOfWork;
+    }
+
   }
 
 }
@@ -0,0 +1,623 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * A {@link Statement} created by a {@link JfrConnection} that generates a
+ * "Nested Statement" event for every execution.
+ *
+ * <p>The SQL query string of the first execution is captured for the event
+ * of the operation if it has none.</p>
+ *
+ * <p>The event of {@code executeQuery} is committed once the
+ * {@link ResultSet} is exhausted or closed, the row count is the number of
+ * rows read with {@link ResultSet#next()}. The same applies to the event of
+ * an {@code execute} that returned a result set once it has been retrieved
+ * with {@link #getResultSet()}. Reading generated keys generates a separate
+ * "getGeneratedKeys" event.</p>
+ *
+ * @param <S> the type of the delegate
+ */
+class JfrStatement<S extends Statement> implements Statement {
+
+  static final long NO_ROWS = -1L;
+
+  final S delegate;
+
+  private final JfrConnection connection;
+
+  private JfrResultSet resultSet;
+
+  // the event of an execute that returned a result set not yet retrieved
+  private NestedStatementEvent pendingEvent;
+
+  private JfrResultSet generatedKeys;
+
+  private String query;
+
+  private List<String> batchQueries;
+
+  JfrStatement(S delegate, JfrConnection connection) {
+    Objects.requireNonNull(delegate, "delegate");
+    this.delegate = delegate;
+    this.connection = connection;
+  }
+
+  /**
+   * Begins the event for an execution. Executing a statement closes the
+   * current result set.
+   */
+  NestedStatementEvent begin(String operationName, String query) {
+    this.endResultSet();
+    this.endGeneratedKeys();
+    this.connection.captureQuery(query);
+    this.query = query;
+    return this.newEvent(operationName, query);
+  }
+
+  private NestedStatementEvent newEvent(String operationName, String query) {
+    NestedStatementEvent event = new NestedStatementEvent();
+    event.setCallbackId(this.connection.getCallbackId());
+    event.setOperationName(operationName);
+    event.setQuery(query);
+    event.setRowCount(NO_ROWS);
+    event.begin();
+    return event;
+  }
+
+  static void end(NestedStatementEvent event) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.commit();
+    }
+  }
+
+  ResultSet open(ResultSet resultSet, NestedStatementEvent event) {
+    this.resultSet = new JfrResultSet(resultSet, this, event);
+    return this.resultSet;
+  }
+
+  /**
+   * Completes an {@code execute}. If it returned a result set the event is
+   * kept open until the result set is retrieved and exhausted or closed.
+   */
+  boolean executed(boolean hasResultSet, NestedStatementEvent event) {
+    if (hasResultSet) {
+      this.pendingEvent = event;
+    } else {
+      end(event);
+    }
+    return hasResultSet;
+  }
+
+  private void endResultSet() {
+    if (this.resultSet != null) {
+      this.resultSet.endEvent();
+      this.resultSet = null;
+    }
+    if (this.pendingEvent != null) {
+      // the result set was never retrieved
+      end(this.pendingEvent);
+      this.pendingEvent = null;
+    }
+  }
+
+  private void endGeneratedKeys() {
+    if (this.generatedKeys != null) {
+      this.generatedKeys.endEvent();
+      this.generatedKeys = null;
+    }
+  }
+
+  /**
+   * Returns the query string reported for a batch.
+   *
+   * @return the query strings added since the last execution, separated by
+   *         {@code ;}
+   */
+  String getBatchQuery() {
+    if (this.batchQueries == null) {
+      return null;
+    }
+    return String.join(";\n", this.batchQueries);
+  }
+
+  private void clearBatchQueries() {
+    this.batchQueries = null;
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return this.delegate.unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || this.delegate.isWrapperFor(iface);
+  }
+
+  @Override
+  public ResultSet executeQuery(String sql) throws SQLException {
+    NestedStatementEvent event = this.begin("executeQuery", sql);
+    ResultSet resultSet;
+    try {
+      resultSet = this.delegate.executeQuery(sql);
+    } catch (SQLException | RuntimeException | Error e) {
+      end(event);
+      throw e;
+    }
+    return this.open(resultSet, event);
+  }
+
+  @Override
+  public int executeUpdate(String sql) throws SQLException {
+    NestedStatementEvent event = this.begin("executeUpdate", sql);
+    try {
+      int rowCount = this.delegate.executeUpdate(sql);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      this.delegate.close();
+    } finally {
+      this.endResultSet();
+      this.endGeneratedKeys();
+    }
+  }
+
+  @Override
+  public int getMaxFieldSize() throws SQLException {
+    return this.delegate.getMaxFieldSize();
+  }
+
+  @Override
+  public void setMaxFieldSize(int max) throws SQLException {
+    this.delegate.setMaxFieldSize(max);
+  }
+
+  @Override
+  public int getMaxRows() throws SQLException {
+    return this.delegate.getMaxRows();
+  }
+
+  @Override
+  public void setMaxRows(int max) throws SQLException {
+    this.delegate.setMaxRows(max);
+  }
+
+  @Override
+  public void setEscapeProcessing(boolean enable) throws SQLException {
+    this.delegate.setEscapeProcessing(enable);
+  }
+
+  @Override
+  public int getQueryTimeout() throws SQLException {
+    return this.delegate.getQueryTimeout();
+  }
+
+  @Override
+  public void setQueryTimeout(int seconds) throws SQLException {
+    this.delegate.setQueryTimeout(seconds);
+  }
+
+  @Override
+  public void cancel() throws SQLException {
+    this.delegate.cancel();
+  }
+
+  @Override
+  public SQLWarning getWarnings() throws SQLException {
+    return this.delegate.getWarnings();
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    this.delegate.clearWarnings();
+  }
+
+  @Override
+  public void setCursorName(String name) throws SQLException {
+    this.delegate.setCursorName(name);
+  }
+
+  @Override
+  public boolean execute(String sql) throws SQLException {
+    NestedStatementEvent event = this.begin("execute", sql);
+    boolean hasResultSet;
+    try {
+      hasResultSet = this.delegate.execute(sql);
+    } catch (SQLException | RuntimeException | Error e) {
+      end(event);
+      throw e;
+    }
+    return this.executed(hasResultSet, event);
+  }
+
+  @Override
+  public ResultSet getResultSet() throws SQLException {
+    ResultSet resultSet = this.delegate.getResultSet();
+    if (resultSet == null) {
+      return null;
+    }
+    if ((this.resultSet != null) && this.resultSet.wraps(resultSet)) {
+      // the result set may be retrieved more than once
+      return this.resultSet;
+    }
+    NestedStatementEvent event = this.pendingEvent;
+    this.pendingEvent = null;
+    return this.open(resultSet, event);
+  }
+
+  @Override
+  public int getUpdateCount() throws SQLException {
+    return this.delegate.getUpdateCount();
+  }
+
+  @Override
+  public boolean getMoreResults() throws SQLException {
+    this.endResultSet();
+    return this.delegate.getMoreResults();
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    this.delegate.setFetchDirection(direction);
+  }
+
+  @Override
+  public int getFetchDirection() throws SQLException {
+    return this.delegate.getFetchDirection();
+  }
+
+  @Override
+  public void setFetchSize(int rows) throws SQLException {
+    this.delegate.setFetchSize(rows);
+  }
+
+  @Override
+  public int getFetchSize() throws SQLException {
+    return this.delegate.getFetchSize();
+  }
+
+  @Override
+  public int getResultSetConcurrency() throws SQLException {
+    return this.delegate.getResultSetConcurrency();
+  }
+
+  @Override
+  public int getResultSetType() throws SQLException {
+    return this.delegate.getResultSetType();
+  }
+
+  @Override
+  public void addBatch(String sql) throws SQLException {
+    this.delegate.addBatch(sql);
+    if (this.batchQueries == null) {
+      this.batchQueries = new ArrayList<>();
+    }
+    this.batchQueries.add(sql);
+  }
+
+  @Override
+  public void clearBatch() throws SQLException {
+    this.delegate.clearBatch();
+    this.clearBatchQueries();
+  }
+
+  @Override
+  public int[] executeBatch() throws SQLException {
+    NestedStatementEvent event = this.begin("executeBatch", this.getBatchQuery());
+    try {
+      int[] rowCounts = this.delegate.executeBatch();
+      event.setRowCount(RowCountingUtil.countRows(rowCounts));
+      return rowCounts;
+    } finally {
+      this.clearBatchQueries();
+      end(event);
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return this.connection;
+  }
+
+  @Override
+  public boolean getMoreResults(int current) throws SQLException {
+    this.endResultSet();
+    return this.delegate.getMoreResults(current);
+  }
+
+  @Override
+  public ResultSet getGeneratedKeys() throws SQLException {
+    this.endGeneratedKeys();
+    NestedStatementEvent event = this.newEvent("getGeneratedKeys", this.query);
+    ResultSet generatedKeys;
+    try {
+      generatedKeys = this.delegate.getGeneratedKeys();
+    } catch (SQLException | RuntimeException | Error e) {
+      end(event);
+      throw e;
+    }
+    this.generatedKeys = new JfrResultSet(generatedKeys, this, event);
+    return this.generatedKeys;
+  }
+
+  @Override
+  public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    NestedStatementEvent event = this.begin("executeUpdate", sql);
+    try {
+      int rowCount = this.delegate.executeUpdate(sql, autoGeneratedKeys);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    NestedStatementEvent event = this.begin("executeUpdate", sql);
+    try {
+      int rowCount = this.delegate.executeUpdate(sql, columnIndexes);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+    NestedStatementEvent event = this.begin("executeUpdate", sql);
+    try {
+      int rowCount = this.delegate.executeUpdate(sql, columnNames);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+    NestedStatementEvent event = this.begin("execute", sql);
+    boolean hasResultSet;
+    try {
+      hasResultSet = this.delegate.execute(sql, autoGeneratedKeys);
+    } catch (SQLException | RuntimeException | Error e) {
+      end(event);
+      throw e;
+    }
+    return this.executed(hasResultSet, event);
+  }
+
+  @Override
+  public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+    NestedStatementEvent event = this.begin("execute", sql);
+    boolean hasResultSet;
+    try {
+      hasResultSet = this.delegate.execute(sql, columnIndexes);
+    } catch (SQLException | RuntimeException | Error e) {
+      end(event);
+      throw e;
+    }
+    return this.executed(hasResultSet, event);
+  }
+
+  @Override
+  public boolean execute(String sql, String[] columnNames) throws SQLException {
+    NestedStatementEvent event = this.begin("execute", sql);
+    boolean hasResultSet;
+    try {
+      hasResultSet = this.delegate.execute(sql, columnNames);
+    } catch (SQLException | RuntimeException | Error e) {
+      end(event);
+      throw e;
+    }
+    return this.executed(hasResultSet, event);
+  }
+
+  @Override
+  public int getResultSetHoldability() throws SQLException {
+    return this.delegate.getResultSetHoldability();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    return this.delegate.isClosed();
+  }
+
+  @Override
+  public void setPoolable(boolean poolable) throws SQLException {
+    this.delegate.setPoolable(poolable);
+  }
+
+  @Override
+  public boolean isPoolable() throws SQLException {
+    return this.delegate.isPoolable();
+  }
+
+  @Override
+  public void closeOnCompletion() throws SQLException {
+    this.delegate.closeOnCompletion();
+  }
+
+  @Override
+  public boolean isCloseOnCompletion() throws SQLException {
+    return this.delegate.isCloseOnCompletion();
+  }
+
+  @Override
+  public long getLargeUpdateCount() throws SQLException {
+    return this.delegate.getLargeUpdateCount();
+  }
+
+  @Override
+  public void setLargeMaxRows(long max) throws SQLException {
+    this.delegate.setLargeMaxRows(max);
+  }
+
+  @Override
+  public long getLargeMaxRows() throws SQLException {
+    return this.delegate.getLargeMaxRows();
+  }
+
+  @Override
+  public long[] executeLargeBatch() throws SQLException {
+    NestedStatementEvent event = this.begin("executeLargeBatch", this.getBatchQuery());
+    try {
+      long[] rowCounts = this.delegate.executeLargeBatch();
+      event.setRowCount(RowCountingUtil.countRows(rowCounts));
+      return rowCounts;
+    } finally {
+      this.clearBatchQueries();
+      end(event);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql) throws SQLException {
+    NestedStatementEvent event = this.begin("executeLargeUpdate", sql);
+    try {
+      long rowCount = this.delegate.executeLargeUpdate(sql);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    NestedStatementEvent event = this.begin("executeLargeUpdate", sql);
+    try {
+      long rowCount = this.delegate.executeLargeUpdate(sql, autoGeneratedKeys);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    NestedStatementEvent event = this.begin("executeLargeUpdate", sql);
+    try {
+      long rowCount = this.delegate.executeLargeUpdate(sql, columnIndexes);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+    NestedStatementEvent event = this.begin("executeLargeUpdate", sql);
+    try {
+      long rowCount = this.delegate.executeLargeUpdate(sql, columnNames);
+      event.setRowCount(rowCount);
+      return rowCount;
+    } finally {
+      end(event);
+    }
+  }
+
+  @Override
+  public String enquoteLiteral(String val) throws SQLException {
+    return this.delegate.enquoteLiteral(val);
+  }
+
+  @Override
+  public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+    return this.delegate.enquoteIdentifier(identifier, alwaysQuote);
+  }
+
+  @Override
+  public boolean isSimpleIdentifier(String identifier) throws SQLException {
+    return this.delegate.isSimpleIdentifier(identifier);
+  }
+
+  @Override
+  public String enquoteNCharLiteral(String val) throws SQLException {
+    return this.delegate.enquoteNCharLiteral(val);
+  }
+
+  @Label("Nested Statement")
+  @Description("A JDBC statement executed inside a connection callback")
+  @Category(JfrConstants.CATEGORY)
+  static class NestedStatementEvent extends Event {
+
+    @Label("Callback Id")
+    @Description("The id of the connection callback, matches the callback id of the operation")
+    private long callbackId;
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC method, eg. executeQuery")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Row Count")
+    @Description("The number of rows read or updated")
+    private long rowCount;
+
+    long getCallbackId() {
+      return this.callbackId;
+    }
+
+    void setCallbackId(long callbackId) {
+      this.callbackId = callbackId;
+    }
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a key range into partitions of equal size.
+ *
+ * <p>Every partition is an array of the inclusive lower bound and the
+ * exclusive upper bound. The partitions are contiguous and ordered by key.</p>
+ */
+final class KeyRanges {
+
+  private KeyRanges() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Splits a numeric key range.
+   *
+   * @param lowerBound the inclusive lower bound
+   * @param upperBound the exclusive upper bound, larger than the lower bound
+   * @param partitions the number of partitions, positive, capped to the
+   *                   number of keys
+   * @return the partitions
+   */
+  static List<Object[]> split(long lowerBound, long upperBound, int partitions) {
+    validate(lowerBound < upperBound, partitions);
+    long span = Math.subtractExact(upperBound, lowerBound);
+    int count = (int) Math.min(partitions, span);
+    long step = span / count;
+    long remainder = span % count;
+    List<Object[]> ranges = new ArrayList<>(count);
+    long lower = lowerBound;
+    for (int i = 0; i < count; i++) {
+      // the first partitions get one key more
+      long upper = lower + step + (i < remainder ? 1L : 0L);
+      ranges.add(new Object[] {lower, upper});
+      lower = upper;
+    }
+    return ranges;
+  }
+
+  /**
+   * Splits a date key range.
+   *
+   * @param lowerBound the inclusive lower bound, not {@code null}
+   * @param upperBound the exclusive upper bound, after the lower bound, not {@code null}
+   * @param partitions the number of partitions, positive
+   * @return the partitions
+   */
+  static List<Object[]> split(LocalDateTime lowerBound, LocalDateTime upperBound, int partitions) {
+    validate(lowerBound.isBefore(upperBound), partitions);
+    Duration step = Duration.between(lowerBound, upperBound).dividedBy(partitions);
+    List<Object[]> ranges = new ArrayList<>(partitions);
+    LocalDateTime lower = lowerBound;
+    for (int i = 1; i <= partitions; i++) {
+      LocalDateTime upper = i < partitions ? lowerBound.plus(step.multipliedBy(i)) : upperBound;
+      ranges.add(new Object[] {lower, upper});
+      lower = upper;
+    }
+    return ranges;
+  }
+
+  private static void validate(boolean ordered, int partitions) {
+    if (!ordered) {
+      throw new IllegalArgumentException("lowerBound must be smaller than upperBound");
+    }
+    if (partitions <= 0) {
+      throw new IllegalArgumentException("partitions must be positive but was: " + partitions);
+    }
+  }
+
+}
@@ -0,0 +1,299 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.SettingDefinition;
+import jdk.jfr.Timespan;
+
+/**
+ * Maintains a latency baseline per query shape and reports operations that
+ * exceed the baseline of their query by a configurable factor.
+ *
+ * <p>The baseline is the 95th percentile of a histogram with four buckets per
+ * power of two, so it is accurate to about 25%. Every query uses a fixed
+ * amount of memory and the counts are halved periodically so the baseline
+ * follows gradual changes. Queries that only differ in their literals share
+ * a baseline, see {@link Classification#getShape()}. Nested operations, eg. a
+ * {@link JfrNamedParameterJdbcOperations} on top of a
+ * {@link JfrJdbcOperations}, are only counted once.</p>
+ *
+ * <p>Operations are only measured while {@link LatencyOutlierEvent} is
+ * enabled.</p>
+ */
+final class LatencyBaselines {
+
+  private static final int MAX_QUERIES = 1024;
+
+  /**
+   * The number of executions of a query before outliers are reported.
+   */
+  private static final long MINIMUM_SAMPLES = 50L;
+
+  /**
+   * The number of executions of a query after which its counts are halved.
+   */
+  private static final long DECAY_INTERVAL = 1024L;
+
+  /**
+   * The number of executions of a query after which its baseline is
+   * recomputed.
+   */
+  private static final long UPDATE_INTERVAL = 16L;
+
+  private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+  private static final EventType LATENCY_OUTLIER_EVENT_TYPE = EventType.getEventType(LatencyOutlierEvent.class);
+
+  private LatencyBaselines() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Marks the start of a JDBC operation on the current thread.
+   *
+   * @return the start time to pass to {@link #exit(long, String, String)},
+   *         {@code 0} if the operation is not measured
+   */
+  static long enter() {
+    if (!LATENCY_OUTLIER_EVENT_TYPE.isEnabled()) {
+      return 0L;
+    }
+    DEPTH.get()[0] += 1;
+    long now = System.nanoTime();
+    // 0 means not measured
+    return now != 0L ? now : 1L;
+  }
+
+  /**
+   * Marks the end of a JDBC operation.
+   *
+   * @param startNanos the value returned by {@link #enter()}
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string, may be {@code null}
+   */
+  static void exit(long startNanos, String operationName, String query) {
+    if (startNanos == 0L) {
+      return;
+    }
+    int[] depth = DEPTH.get();
+    if (depth[0] > 0) {
+      depth[0] -= 1;
+    }
+    // the depth is only tracked while the event is enabled, an outer
+    // operation that started before that is not measured
+    if ((depth[0] > 0) || (query == null)) {
+      return;
+    }
+    long elapsedNanos = System.nanoTime() - startNanos;
+    LatencyHistogram histogram = getHistogram(SqlClassifier.classify(query).getShape());
+    if (histogram == null) {
+      return;
+    }
+    long baselineNanos = histogram.getBaseline();
+    histogram.record(elapsedNanos);
+    if ((baselineNanos == LatencyHistogram.NO_BASELINE) || (elapsedNanos <= baselineNanos)) {
+      // the factor is at least 1, avoid the allocation for the common case
+      return;
+    }
+    LatencyOutlierEvent event = new LatencyOutlierEvent();
+    event.setElapsed(elapsedNanos);
+    event.setBaseline(baselineNanos);
+    // evaluates the factor setting
+    if (event.shouldCommit()) {
+      event.setOperationName(operationName);
+      event.setQuery(query);
+      event.commit();
+    }
+  }
+
+  private static LatencyHistogram getHistogram(String shape) {
+    LatencyHistogram histogram = HISTOGRAMS.get(shape);
+    if (histogram != null) {
+      return histogram;
+    }
+    if (HISTOGRAMS.size() >= MAX_QUERIES) {
+      // likely generated queries, don't grow without limit
+      return null;
+    }
+    return HISTOGRAMS.computeIfAbsent(shape, key -> new LatencyHistogram());
+  }
+
+  /**
+   * A histogram of latencies with four buckets per power of two.
+   */
+  static final class LatencyHistogram {
+
+    static final long NO_BASELINE = -1L;
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts;
+
+    private final AtomicLong sampleCount;
+
+    private volatile long baseline;
+
+    LatencyHistogram() {
+      this.counts = new AtomicLongArray(BUCKET_COUNT);
+      this.sampleCount = new AtomicLong();
+      this.baseline = NO_BASELINE;
+    }
+
+    /**
+     * Returns the 95th percentile.
+     *
+     * @return the 95th percentile in nanoseconds, {@link #NO_BASELINE} if
+     *         there are not enough samples yet
+     */
+    long getBaseline() {
+      return this.baseline;
+    }
+
+    void record(long nanos) {
+      this.counts.incrementAndGet(bucketIndex(nanos));
+      long samples = this.sampleCount.incrementAndGet();
+      if (samples == DECAY_INTERVAL) {
+        this.decay();
+      } else if ((samples >= MINIMUM_SAMPLES) && ((samples % UPDATE_INTERVAL) == 0L)) {
+        this.baseline = this.computePercentile(0.95d);
+      }
+    }
+
+    private void decay() {
+      // racy with concurrent updates, good enough for an estimate
+      long removed = 0L;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        long count = this.counts.get(i);
+        if (count != 0L) {
+          long half = count / 2L;
+          this.counts.addAndGet(i, -half);
+          removed += half;
+        }
+      }
+      this.sampleCount.addAndGet(-removed);
+    }
+
+    long computePercentile(double percentile) {
+      long total = 0L;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        total += this.counts.get(i);
+      }
+      if (total == 0L) {
+        return NO_BASELINE;
+      }
+      long target = (long) Math.ceil(total * percentile);
+      long seen = 0L;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += this.counts.get(i);
+        if (seen >= target) {
+          return bucketUpperBound(i);
+        }
+      }
+      return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+    static int bucketIndex(long nanos) {
+      if (nanos < SUB_BUCKET_COUNT) {
+        return (int) Math.max(nanos, 0L);
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+      int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+      return ((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT) + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+      if (index < SUB_BUCKET_COUNT) {
+        return index;
+      }
+      int shift = (index / SUB_BUCKET_COUNT) - 1;
+      long lowerBound = (long) (SUB_BUCKET_COUNT + (index % SUB_BUCKET_COUNT)) << shift;
+      return lowerBound + (1L << shift) - 1L;
+    }
+
+  }
+
+  @Label("Latency Outlier")
+  @Description("A JDBC operation that exceeded the baseline of its query by the outlier factor")
+  @Category(JfrConstants.CATEGORY)
+  @Enabled(false)
+  static class LatencyOutlierEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Elapsed")
+    @Description("The time the JDBC operation took")
+    @Timespan(Timespan.NANOSECONDS)
+    private long elapsed;
+
+    @Label("Baseline")
+    @Description("The 95th percentile of the previous executions of queries with the same shape")
+    @Timespan(Timespan.NANOSECONDS)
+    private long baseline;
+
+    @Label("Outlier Factor")
+    @Description("Operations taking less than the baseline times this factor are not reported")
+    @Name("outlierFactor")
+    @SettingDefinition
+    boolean outlierFactor(OutlierFactorSetting outlierFactor) {
+      return this.elapsed > (this.baseline * outlierFactor.getFactor());
+    }
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getElapsed() {
+      return this.elapsed;
+    }
+
+    void setElapsed(long elapsed) {
+      this.elapsed = elapsed;
+    }
+
+    long getBaseline() {
+      return this.baseline;
+    }
+
+    void setBaseline(long baseline) {
+      this.baseline = baseline;
+    }
+
+  }
+
+}
@@ -0,0 +1,58 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Set;
+
+import jdk.jfr.SettingControl;
+
+/**
+ * A JFR setting for a minimum timespan, for example {@code "10 s"}.
+ *
+ * <p>When several recordings specify different values the smallest one is
+ * used.</p>
+ */
+final class MinimumAgeSetting extends SettingControl {
+
+  private static final String DEFAULT_VALUE = "10 s";
+
+  private volatile String value;
+
+  private volatile long minimumAgeNanos;
+
+  /**
+   * Constructor invoked by JFR.
+   */
+  MinimumAgeSetting() {
+    this.value = DEFAULT_VALUE;
+    this.minimumAgeNanos = TimespanParser.parseNanos(DEFAULT_VALUE);
+  }
+
+  long getMinimumAgeNanos() {
+    return this.minimumAgeNanos;
+  }
+
+  @Override
+  public String combine(Set<String> settingValues) {
+    String minimumValue = null;
+    long minimumNanos = Long.MAX_VALUE;
+    for (String settingValue : settingValues) {
+      long nanos = TimespanParser.parseNanos(settingValue);
+      if (nanos < minimumNanos) {
+        minimumNanos = nanos;
+        minimumValue = settingValue;
+      }
+    }
+    return minimumValue != null ? minimumValue : DEFAULT_VALUE;
+  }
+
+  @Override
+  public void setValue(String settingValue) {
+    this.minimumAgeNanos = TimespanParser.parseNanos(settingValue);
+    this.value = settingValue;
+  }
+
+  @Override
+  public String getValue() {
+    return this.value;
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Set;
+
+import jdk.jfr.SettingControl;
+
+/**
+ * A JFR setting for the factor by which an operation has to exceed the
+ * baseline of its query to be reported, for example {@code "3"} or
+ * {@code "2.5"}.
+ *
+ * <p>When several recordings specify different values the smallest one is
+ * used.</p>
+ */
+final class OutlierFactorSetting extends SettingControl {
+
+  private static final String DEFAULT_VALUE = "3";
+
+  private volatile String value;
+
+  private volatile double factor;
+
+  /**
+   * Constructor invoked by JFR.
+   */
+  OutlierFactorSetting() {
+    this.value = DEFAULT_VALUE;
+    this.factor = parseFactor(DEFAULT_VALUE);
+  }
+
+  double getFactor() {
+    return this.factor;
+  }
+
+  static double parseFactor(String factor) {
+    double parsed;
+    try {
+      parsed = Double.parseDouble(factor.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("not a factor: " + factor, e);
+    }
+    if (!(parsed >= 1.0d) || Double.isInfinite(parsed)) {
+      throw new IllegalArgumentException("factor must be at least 1 but was: " + factor);
+    }
+    return parsed;
+  }
+
+  @Override
+  public String combine(Set<String> settingValues) {
+    String minimumValue = null;
+    double minimumFactor = Double.MAX_VALUE;
+    for (String settingValue : settingValues) {
+      double factor = parseFactor(settingValue);
+      if (factor < minimumFactor) {
+        minimumFactor = factor;
+        minimumValue = settingValue;
+      }
+    }
+    return minimumValue != null ? minimumValue : DEFAULT_VALUE;
+  }
+
+  @Override
+  public void setValue(String settingValue) {
+    this.factor = parseFactor(settingValue);
+    this.value = settingValue;
+  }
+
+  @Override
+  public String getValue() {
+    return this.value;
+  }
+
+}
@@ -0,0 +1,404 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Executes a scan over a key range as several concurrent queries, one per
+ * partition of the key range.
+ *
+ * <p>The key range is split into partitions of equal size. The SQL query
+ * string has to end with two placeholders for the inclusive lower and
+ * exclusive upper bound of the key, eg.
+ * {@code SELECT ... WHERE region = ? AND id >= ? AND id < ?}. The bounds are
+ * bound after the other arguments. Partitions are queried concurrently on a
+ * {@link JfrAsyncJdbcOperations}, every partition in its own task and
+ * therefore on its own connection. The results are merged in key order.
+ * If a partition fails the exception is rethrown, the other partitions are
+ * not interrupted.</p>
+ *
+ * <p>Every scan generates a "Partitioned Scan" event in the
+ * {@value JfrConstants#CATEGORY} category and every partition a "Scan
+ * Partition" event with the key range and the number of rows, the scan id
+ * links the two. The scan event ends once all partitions have been queried.
+ * Partition skew shows up as partitions with more rows or a longer
+ * duration.</p>
+ */
+public final class PartitionedJdbcOperations {
+
+  private static final AtomicLong SCAN_ID = new AtomicLong();
+
+  private final JdbcOperations delegate;
+
+  private final JfrAsyncJdbcOperations asyncOperations;
+
+  /**
+   * Constructs a new {@link PartitionedJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param executor the executor running the partition queries, not {@code null}
+   * @param maximumConcurrency the maximum number of partitions queried
+   *                           concurrently, positive
+   */
+  public PartitionedJdbcOperations(JdbcOperations delegate, Executor executor, int maximumConcurrency) {
+    Objects.requireNonNull(delegate, "delegate");
+    this.delegate = delegate;
+    this.asyncOperations = new JfrAsyncJdbcOperations(delegate, executor, maximumConcurrency);
+  }
+
+  /**
+   * Scans a numeric key range and returns the rows in a list.
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute, ending with the placeholders for
+   *            the key bounds
+   * @param rowMapper the callback that will map one object per row
+   * @param lowerBound the inclusive lower bound of the key
+   * @param upperBound the exclusive upper bound of the key
+   * @param partitions the number of partitions
+   * @param args the arguments to bind before the key bounds
+   * @return the rows of all partitions in key order
+   */
+  public <T> List<T> queryForList(String sql, RowMapper<T> rowMapper, long lowerBound, long upperBound, int partitions, Object... args) {
+    return collect(this.scan("queryForList", sql, rowMapper, args, KeyRanges.split(lowerBound, upperBound, partitions), new AtomicBoolean()));
+  }
+
+  /**
+   * Scans a date key range and returns the rows in a list.
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute, ending with the placeholders for
+   *            the key bounds
+   * @param rowMapper the callback that will map one object per row
+   * @param lowerBound the inclusive lower bound of the key, not {@code null}
+   * @param upperBound the exclusive upper bound of the key, not {@code null}
+   * @param partitions the number of partitions
+   * @param args the arguments to bind before the key bounds
+   * @return the rows of all partitions in key order
+   */
+  public <T> List<T> queryForList(String sql, RowMapper<T> rowMapper, LocalDateTime lowerBound, LocalDateTime upperBound, int partitions, Object... args) {
+    return collect(this.scan("queryForList", sql, rowMapper, args, KeyRanges.split(lowerBound, upperBound, partitions), new AtomicBoolean()));
+  }
+
+  /**
+   * Scans a numeric key range and returns the rows as a stream.
+   *
+   * <p>The rows of a partition are available as soon as it and all previous
+   * partitions have been queried. Closing the stream skips the partitions
+   * that have not started yet but does not interrupt the ones being
+   * queried.</p>
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute, ending with the placeholders for
+   *            the key bounds
+   * @param rowMapper the callback that will map one object per row
+   * @param lowerBound the inclusive lower bound of the key
+   * @param upperBound the exclusive upper bound of the key
+   * @param partitions the number of partitions
+   * @param args the arguments to bind before the key bounds
+   * @return the rows of all partitions in key order
+   */
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, long lowerBound, long upperBound, int partitions, Object... args) {
+    AtomicBoolean closed = new AtomicBoolean();
+    return stream(this.scan("queryForStream", sql, rowMapper, args, KeyRanges.split(lowerBound, upperBound, partitions), closed), closed);
+  }
+
+  /**
+   * Scans a date key range and returns the rows as a stream.
+   *
+   * <p>The rows of a partition are available as soon as it and all previous
+   * partitions have been queried. Closing the stream skips the partitions
+   * that have not started yet but does not interrupt the ones being
+   * queried.</p>
+   *
+   * @param <T> the type of the rows
+   * @param sql the SQL query to execute, ending with the placeholders for
+   *            the key bounds
+   * @param rowMapper the callback that will map one object per row
+   * @param lowerBound the inclusive lower bound of the key, not {@code null}
+   * @param upperBound the exclusive upper bound of the key, not {@code null}
+   * @param partitions the number of partitions
+   * @param args the arguments to bind before the key bounds
+   * @return the rows of all partitions in key order
+   */
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, LocalDateTime lowerBound, LocalDateTime upperBound, int partitions, Object... args) {
+    AtomicBoolean closed = new AtomicBoolean();
+    return stream(this.scan("queryForStream", sql, rowMapper, args, KeyRanges.split(lowerBound, upperBound, partitions), closed), closed);
+  }
+
+  private <T> List<CompletableFuture<List<T>>> scan(String operationName, String sql, RowMapper<T> rowMapper, Object[] args, List<Object[]> ranges, AtomicBoolean closed) {
+    long scanId = SCAN_ID.incrementAndGet();
+    PartitionedScanEvent scanEvent = new PartitionedScanEvent();
+    scanEvent.setOperationName(operationName);
+    scanEvent.setQuery(sql);
+    scanEvent.setScanId(scanId);
+    scanEvent.setPartitions(ranges.size());
+    scanEvent.begin();
+
+    List<CompletableFuture<List<T>>> futures = new ArrayList<>(ranges.size());
+    for (int i = 0; i < ranges.size(); i++) {
+      Object[] range = ranges.get(i);
+      int partition = i;
+      Object[] partitionArgs = withBounds(args, range);
+      futures.add(this.asyncOperations.submit(operationName, sql, () -> closed.get() ? List.of() : this.queryPartition(scanId, partition, sql, rowMapper, partitionArgs)));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((result, failure) -> {
+      long rowCount = 0L;
+      long maximumPartitionRowCount = 0L;
+      for (CompletableFuture<List<T>> future : futures) {
+        if (!future.isCompletedExceptionally()) {
+          int partitionRowCount = future.join().size();
+          rowCount += partitionRowCount;
+          maximumPartitionRowCount = Math.max(maximumPartitionRowCount, partitionRowCount);
+        }
+      }
+      scanEvent.setRowCount(rowCount);
+      scanEvent.setMaximumPartitionRowCount(maximumPartitionRowCount);
+      scanEvent.end();
+      scanEvent.commit();
+    });
+    return futures;
+  }
+
+  private <T> List<T> queryPartition(long scanId, int partition, String sql, RowMapper<T> rowMapper, Object[] args) {
+    ScanPartitionEvent event = new ScanPartitionEvent();
+    event.setQuery(sql);
+    event.setScanId(scanId);
+    event.setPartition(partition);
+    event.setLowerBound(String.valueOf(args[args.length - 2]));
+    event.setUpperBound(String.valueOf(args[args.length - 1]));
+    event.begin();
+    try {
+      List<T> rows = this.delegate.query(sql, rowMapper, args);
+      event.setRowCount(rows.size());
+      return rows;
+    } finally {
+      event.end();
+      event.commit();
+    }
+  }
+
+  private static Object[] withBounds(Object[] args, Object[] range) {
+    Object[] arguments = args != null ? args : new Object[0];
+    Object[] withBounds = Arrays.copyOf(arguments, arguments.length + 2);
+    withBounds[arguments.length] = range[0];
+    withBounds[arguments.length + 1] = range[1];
+    return withBounds;
+  }
+
+  private static <T> List<T> collect(List<CompletableFuture<List<T>>> futures) {
+    List<List<T>> partitions = new ArrayList<>(futures.size());
+    int size = 0;
+    for (CompletableFuture<List<T>> future : futures) {
+      List<T> partition = join(future);
+      partitions.add(partition);
+      size += partition.size();
+    }
+    List<T> rows = new ArrayList<>(size);
+    for (List<T> partition : partitions) {
+      rows.addAll(partition);
+    }
+    return rows;
+  }
+
+  private static <T> Stream<T> stream(List<CompletableFuture<List<T>>> futures, AtomicBoolean closed) {
+    return futures.stream()
+            .flatMap(future -> join(future).stream())
+            .onClose(() -> closed.set(true));
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      // the exception of the partition
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  @Label("Partitioned Scan")
+  @Description("A scan over a key range executed as one query per partition")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class PartitionedScanEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Scan Id")
+    @Description("The id of the scan, identical for the scan and its partitions")
+    private long scanId;
+
+    @Label("Partitions")
+    @Description("The number of partitions")
+    private int partitions;
+
+    @Label("Row Count")
+    @Description("The number of rows returned by all partitions")
+    private long rowCount;
+
+    @Label("Maximum Partition Row Count")
+    @Description("The number of rows returned by the largest partition")
+    private long maximumPartitionRowCount;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getScanId() {
+      return this.scanId;
+    }
+
+    void setScanId(long scanId) {
+      this.scanId = scanId;
+    }
+
+    int getPartitions() {
+      return this.partitions;
+    }
+
+    void setPartitions(int partitions) {
+      this.partitions = partitions;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    long getMaximumPartitionRowCount() {
+      return this.maximumPartitionRowCount;
+    }
+
+    void setMaximumPartitionRowCount(long maximumPartitionRowCount) {
+      this.maximumPartitionRowCount = maximumPartitionRowCount;
+    }
+
+  }
+
+  @Label("Scan Partition")
+  @Description("The query of one partition of a partitioned scan")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class ScanPartitionEvent extends Event {
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Scan Id")
+    @Description("The id of the scan, identical for the scan and its partitions")
+    private long scanId;
+
+    @Label("Partition")
+    @Description("The index of the partition, starting with 0 for the lowest keys")
+    private int partition;
+
+    @Label("Lower Bound")
+    @Description("The inclusive lower bound of the key")
+    private String lowerBound;
+
+    @Label("Upper Bound")
+    @Description("The exclusive upper bound of the key")
+    private String upperBound;
+
+    @Label("Row Count")
+    @Description("The number of rows returned by the partition")
+    private long rowCount;
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getScanId() {
+      return this.scanId;
+    }
+
+    void setScanId(long scanId) {
+      this.scanId = scanId;
+    }
+
+    int getPartition() {
+      return this.partition;
+    }
+
+    void setPartition(int partition) {
+      this.partition = partition;
+    }
+
+    String getLowerBound() {
+      return this.lowerBound;
+    }
+
+    void setLowerBound(String lowerBound) {
+      this.lowerBound = lowerBound;
+    }
+
+    String getUpperBound() {
+      return this.upperBound;
+    }
+
+    void setUpperBound(String upperBound) {
+      this.upperBound = upperBound;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+  }
+
+}
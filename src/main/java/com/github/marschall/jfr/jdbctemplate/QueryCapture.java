@@ -0,0 +1,155 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+
+import jdk.jfr.EventType;
+
+/**
+ * Recovers the SQL query string of operations that do not provide one by
+ * wrapping the {@link Connection} or {@link java.sql.Statement} they use.
+ *
+ * <p>The first SQL query string passed to {@code prepareStatement},
+ * {@code prepareCall} or a {@code Statement#execute} method becomes the
+ * query of the event. Wrapping only happens while the event has no query and
+ * is enabled, or while the "Nested Statement" event is enabled. In the latter
+ * case the statements are wrapped as well and generate nested events.</p>
+ */
+final class QueryCapture {
+
+  private static final EventType JDBC_EVENT_TYPE = EventType.getEventType(JdbcEvent.class);
+
+  private QueryCapture() {
+    throw new AssertionError("not instantiable");
+  }
+
+  private static boolean needsCapture(JdbcEvent event) {
+    return (event.getQuery() == null) && JDBC_EVENT_TYPE.isEnabled();
+  }
+
+  static <T> ConnectionCallback<T> capture(ConnectionCallback<T> action, JdbcEvent event) {
+    if (JfrConnection.isEnabled()) {
+      long callbackId = JfrConnection.nextCallbackId();
+      event.setCallbackId(callbackId);
+      return connection -> action.doInConnection(new JfrConnection(connection, callbackId, event));
+    }
+    if (needsCapture(event)) {
+      return connection -> action.doInConnection(new JfrConnection(connection, JfrConnection.NO_CALLBACK, event));
+    }
+    return action;
+  }
+
+  static <T> StatementCallback<T> capture(StatementCallback<T> action, JdbcEvent event) {
+    long callbackId;
+    if (JfrConnection.isEnabled()) {
+      callbackId = JfrConnection.nextCallbackId();
+      event.setCallbackId(callbackId);
+    } else if (needsCapture(event)) {
+      callbackId = JfrConnection.NO_CALLBACK;
+    } else {
+      return action;
+    }
+    return statement -> {
+      JfrConnection connection = new JfrConnection(statement.getConnection(), callbackId, event);
+      return action.doInStatement(new JfrStatement<>(statement, connection));
+    };
+  }
+
+  static PreparedStatementCreator capture(PreparedStatementCreator psc, JdbcEvent event) {
+    if (needsCapture(event)) {
+      return new CapturingPreparedStatementCreator(psc, event);
+    }
+    return psc;
+  }
+
+  static CallableStatementCreator capture(CallableStatementCreator csc, JdbcEvent event) {
+    if (needsCapture(event)) {
+      return new CapturingCallableStatementCreator(csc, event);
+    }
+    return csc;
+  }
+
+  private static void cleanupParameters(Object creator) {
+    if (creator instanceof ParameterDisposer) {
+      ((ParameterDisposer) creator).cleanupParameters();
+    }
+  }
+
+  /**
+   * Captures the query of a {@link PreparedStatementCreator}, reports it
+   * to {@link org.springframework.jdbc.core.JdbcTemplate} for exception
+   * translation.
+   */
+  static final class CapturingPreparedStatementCreator implements PreparedStatementCreator, ParameterDisposer, SqlProvider {
+
+    private final PreparedStatementCreator delegate;
+
+    private final JdbcEvent event;
+
+    CapturingPreparedStatementCreator(PreparedStatementCreator delegate, JdbcEvent event) {
+      this.delegate = delegate;
+      this.event = event;
+    }
+
+    @Override
+    public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+      return this.delegate.createPreparedStatement(new JfrConnection(con, JfrConnection.NO_CALLBACK, this.event));
+    }
+
+    @Override
+    public void cleanupParameters() {
+      QueryCapture.cleanupParameters(this.delegate);
+    }
+
+    @Override
+    public String getSql() {
+      return this.event.getQuery();
+    }
+
+  }
+
+  /**
+   * Captures the query of a {@link CallableStatementCreator}, reports it
+   * to {@link org.springframework.jdbc.core.JdbcTemplate} for exception
+   * translation.
+   */
+  static final class CapturingCallableStatementCreator implements CallableStatementCreator, ParameterDisposer, SqlProvider {
+
+    private final CallableStatementCreator delegate;
+
+    private final JdbcEvent event;
+
+    CapturingCallableStatementCreator(CallableStatementCreator delegate, JdbcEvent event) {
+      this.delegate = delegate;
+      this.event = event;
+    }
+
+    @Override
+    public CallableStatement createCallableStatement(Connection con) throws SQLException {
+      return this.delegate.createCallableStatement(new JfrConnection(con, JfrConnection.NO_CALLBACK, this.event));
+    }
+
+    @Override
+    public void cleanupParameters() {
+      QueryCapture.cleanupParameters(this.delegate);
+    }
+
+    @Override
+    public String getSql() {
+      return this.event.getQuery();
+    }
+
+  }
+
+}
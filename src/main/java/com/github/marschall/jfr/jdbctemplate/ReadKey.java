@@ -0,0 +1,74 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Identifies a read, two reads with equal keys produce equal results as
+ * long as the data does not change.
+ */
+final class ReadKey {
+
+  private final String operationName;
+
+  private final String query;
+
+  private final Object resultType;
+
+  private final Object[] args;
+
+  private final int[] argTypes;
+
+  private final int hashCode;
+
+  /**
+   * Constructs a new {@link ReadKey}.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string
+   * @param resultType what the rows are converted into, eg. the required
+   *                   type or the row mapper, may be {@code null}
+   * @param args the arguments, may be {@code null}
+   * @param argTypes the argument types, may be {@code null}
+   */
+  ReadKey(String operationName, String query, Object resultType, Object[] args, int[] argTypes) {
+    this.operationName = operationName;
+    this.query = query;
+    this.resultType = resultType;
+    // protect against modifications by the caller
+    this.args = args != null ? args.clone() : null;
+    this.argTypes = argTypes != null ? argTypes.clone() : null;
+    this.hashCode = Objects.hash(operationName, query, resultType) * 31 + Arrays.deepHashCode(this.args);
+  }
+
+  String getOperationName() {
+    return this.operationName;
+  }
+
+  String getQuery() {
+    return this.query;
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof ReadKey)) {
+      return false;
+    }
+    ReadKey other = (ReadKey) obj;
+    return (this.hashCode == other.hashCode)
+            && this.operationName.equals(other.operationName)
+            && this.query.equals(other.query)
+            && Objects.equals(this.resultType, other.resultType)
+            && Arrays.deepEquals(this.args, other.args)
+            && Arrays.equals(this.argTypes, other.argTypes);
+  }
+
+}
@@ -0,0 +1,338 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * The store of a {@link CachingJdbcOperations}, a size bounded LRU map with
+ * a time to live.
+ *
+ * <p>Results are loaded outside of the lock, concurrent misses for the same
+ * key may load the result several times. A result that was loaded while an
+ * invalidation happened is not stored as it may be stale.</p>
+ */
+final class ResultCache {
+
+  private static final Object NULL_VALUE = new Object();
+
+  private static final Set<String> ALL_TABLES = Set.of();
+
+  private final CachedQueries cachedQueries;
+
+  // guarded by this
+  private final LinkedHashMap<ReadKey, CacheEntry> entries;
+
+  // guarded by this
+  private long invalidationCount;
+
+  ResultCache(CachedQueries cachedQueries) {
+    this.cachedQueries = cachedQueries;
+    // access order for LRU
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Looks up a result, loads and stores it if it is not cached.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string
+   * @param resultType what the rows are converted into, eg. the required
+   *                   type or the row mapper
+   * @param args the arguments, may be {@code null}
+   * @param argTypes the argument types, may be {@code null}
+   * @param loader loads the result from the database
+   * @return the result
+   */
+  <T> T get(String operationName, String query, Object resultType, Object[] args, int[] argTypes, Supplier<T> loader) {
+    if (!this.cachedQueries.isCached(query)) {
+      return loader.get();
+    }
+    ReadKey key = new ReadKey(operationName, query, resultType, args, argTypes);
+    long expectedInvalidationCount;
+    synchronized (this) {
+      CacheEntry entry = this.entries.get(key);
+      if (entry != null) {
+        if ((System.nanoTime() - entry.expiresAt) < 0L) {
+          ResultCacheHitEvent event = new ResultCacheHitEvent();
+          event.setOperationName(operationName);
+          event.setQuery(query);
+          event.commit();
+          return unwrap(entry.value);
+        }
+        this.entries.remove(key);
+        commitEviction(query, "expired");
+      }
+      expectedInvalidationCount = this.invalidationCount;
+    }
+
+    ResultCacheMissEvent event = new ResultCacheMissEvent();
+    event.setOperationName(operationName);
+    event.setQuery(query);
+    event.begin();
+    T value = loader.get();
+    event.end();
+    event.commit();
+
+    CacheEntry entry = new CacheEntry(wrap(value), System.nanoTime() + this.cachedQueries.getTimeToLiveNanos(), getTables(query));
+    synchronized (this) {
+      if (this.invalidationCount == expectedInvalidationCount) {
+        this.entries.put(key, entry);
+        this.evictLeastRecentlyUsed();
+      }
+    }
+    return value;
+  }
+
+  private void evictLeastRecentlyUsed() {
+    Iterator<ReadKey> iterator = this.entries.keySet().iterator();
+    while (this.entries.size() > this.cachedQueries.getMaximumSize()) {
+      ReadKey eldest = iterator.next();
+      iterator.remove();
+      commitEviction(eldest.getQuery(), "size");
+    }
+  }
+
+  private static void commitEviction(String query, String reason) {
+    ResultCacheEvictionEvent event = new ResultCacheEvictionEvent();
+    event.setQuery(query);
+    event.setReason(reason);
+    event.commit();
+  }
+
+  /**
+   * Invalidates the cached results that may be affected by a statement.
+   *
+   * @param query the SQL query string of the statement, {@code null} if
+   *              unknown in which case all results are invalidated
+   */
+  void invalidate(String query) {
+    Set<String> tables;
+    if (query != null) {
+      Classification classification = SqlClassifier.classify(query);
+      if (classification.getStatementType().equals(SqlClassifier.SELECT)) {
+        return;
+      }
+      tables = getTables(query);
+    } else {
+      tables = ALL_TABLES;
+    }
+    long invalidated = 0L;
+    synchronized (this) {
+      this.invalidationCount += 1L;
+      Iterator<CacheEntry> iterator = this.entries.values().iterator();
+      while (iterator.hasNext()) {
+        CacheEntry entry = iterator.next();
+        if (tables.isEmpty() || entry.tables.isEmpty() || !disjoint(tables, entry.tables)) {
+          iterator.remove();
+          invalidated += 1L;
+        }
+      }
+    }
+    ResultCacheInvalidationEvent event = new ResultCacheInvalidationEvent();
+    event.setQuery(query);
+    event.setTables(tables.isEmpty() ? null : String.join(",", tables));
+    event.setInvalidatedEntries(invalidated);
+    event.commit();
+  }
+
+  private static boolean disjoint(Set<String> a, Set<String> b) {
+    for (String element : a) {
+      if (b.contains(element)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the tables referenced by a query.
+   *
+   * @return the upper case table names, empty if not known
+   */
+  private static Set<String> getTables(String query) {
+    Classification classification = SqlClassifier.classify(query);
+    List<String> tableNames = classification.getTableNames();
+    return tableNames.stream()
+            .map(tableName -> tableName.toUpperCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
+  }
+
+  private static Object wrap(Object value) {
+    return value != null ? value : NULL_VALUE;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T unwrap(Object value) {
+    return value != NULL_VALUE ? (T) value : null;
+  }
+
+  static final class CacheEntry {
+
+    final Object value;
+
+    final long expiresAt;
+
+    final Set<String> tables;
+
+    CacheEntry(Object value, long expiresAt, Set<String> tables) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+      this.tables = tables;
+    }
+
+  }
+
+  @Label("Result Cache Hit")
+  @Description("A query result was served from the cache")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class ResultCacheHitEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+  }
+
+  @Label("Result Cache Miss")
+  @Description("A query result was not in the cache and had to be loaded from the database")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class ResultCacheMissEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+  }
+
+  @Label("Result Cache Eviction")
+  @Description("A query result was evicted from the cache")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class ResultCacheEvictionEvent extends Event {
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Reason")
+    @Description("Why the result was evicted, either \"size\" or \"expired\"")
+    private String reason;
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    String getReason() {
+      return this.reason;
+    }
+
+    void setReason(String reason) {
+      this.reason = reason;
+    }
+
+  }
+
+  @Label("Result Cache Invalidation")
+  @Description("Cached query results were invalidated by a statement")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class ResultCacheInvalidationEvent extends Event {
+
+    @Label("Query")
+    @Description("The SQL query string of the statement, missing if unknown")
+    private String query;
+
+    @Label("Tables")
+    @Description("The comma separated names of the invalidated tables, missing if all tables were invalidated")
+    private String tables;
+
+    @Label("Invalidated Entries")
+    @Description("The number of cached results that were invalidated")
+    private long invalidatedEntries;
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    String getTables() {
+      return this.tables;
+    }
+
+    void setTables(String tables) {
+      this.tables = tables;
+    }
+
+    long getInvalidatedEntries() {
+      return this.invalidatedEntries;
+    }
+
+    void setInvalidatedEntries(long invalidatedEntries) {
+      this.invalidatedEntries = invalidatedEntries;
+    }
+
+  }
+
+}
@@ -21,6 +21,9 @@ final class RowCountingUtil {
     if (o instanceof Map) {
       return ((Map<?, ?>) o).size();
     }
+    if (o instanceof ColumnarResult) {
+      return ((ColumnarResult) o).getRowCount();
+    }
     if (o.getClass().isArray()) {
       return Array.getLength(o);
     }
@@ -38,6 +41,17 @@ final class RowCountingUtil {
     return count;
   }
 
+  static long countRows(long[] updateCount) {
+    long count = 0L;
+    for (long i : updateCount) {
+      if (i == Statement.SUCCESS_NO_INFO) {
+        return Statement.SUCCESS_NO_INFO;
+      }
+      count += i;
+    }
+    return count;
+  }
+
   static long countRows(int[][] updateCounts) {
     long count = 0L;
     for (int[] updateCount : updateCounts) {
@@ -0,0 +1,328 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Publisher;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A {@link Publisher} of the rows of a query of a
+ * {@link FlowJdbcOperations}.
+ *
+ * <p>The publisher is cold, every subscription executes the query. The rows
+ * are pulled from a {@code Stream} in step with the demand of the subscriber
+ * by a task running on the executor. The task blocks while there is no
+ * demand.</p>
+ *
+ * @param <T> the type of the rows
+ */
+final class RowPublisher<T> implements Publisher<T> {
+
+  private final String operationName;
+
+  private final String query;
+
+  private final Supplier<Stream<T>> source;
+
+  private final Executor executor;
+
+  RowPublisher(String operationName, String query, Supplier<Stream<T>> source, Executor executor) {
+    this.operationName = operationName;
+    this.query = query;
+    this.source = source;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    RowSubscription<T> subscription = new RowSubscription<>(this, subscriber);
+    subscriber.onSubscribe(subscription);
+    try {
+      this.executor.execute(subscription);
+    } catch (RejectedExecutionException e) {
+      subscription.reject(e);
+    }
+  }
+
+  static final class RowSubscription<T> implements Subscription, Runnable {
+
+    private final RowPublisher<T> publisher;
+
+    private final Subscriber<? super T> subscriber;
+
+    private final ReentrantLock lock;
+
+    private final Condition signalled;
+
+    // guarded by lock
+    private long demand;
+
+    // guarded by lock
+    private boolean cancelled;
+
+    // guarded by lock
+    private IllegalArgumentException invalidRequest;
+
+    RowSubscription(RowPublisher<T> publisher, Subscriber<? super T> subscriber) {
+      this.publisher = publisher;
+      this.subscriber = subscriber;
+      // a lock instead of a monitor to not pin virtual threads
+      this.lock = new ReentrantLock();
+      this.signalled = this.lock.newCondition();
+    }
+
+    @Override
+    public void request(long n) {
+      this.lock.lock();
+      try {
+        if (n <= 0L) {
+          // rule 3.9
+          this.invalidRequest = new IllegalArgumentException("non-positive request: " + n);
+        } else {
+          long newDemand = this.demand + n;
+          // effectively unbounded, rule 3.17
+          this.demand = newDemand < 0L ? Long.MAX_VALUE : newDemand;
+        }
+        this.signalled.signal();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    @Override
+    public void cancel() {
+      this.lock.lock();
+      try {
+        this.cancelled = true;
+        this.signalled.signal();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    void reject(RejectedExecutionException e) {
+      if (!this.isCancelled()) {
+        this.subscriber.onError(e);
+      }
+    }
+
+    private boolean isCancelled() {
+      this.lock.lock();
+      try {
+        return this.cancelled;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    @Override
+    public void run() {
+      PublisherEvent event = new PublisherEvent();
+      event.setOperationName(this.publisher.operationName);
+      event.setQuery(this.publisher.query);
+      event.begin();
+      Throwable failure = null;
+      boolean completed = false;
+      // closes the resources on completion, cancellation and failure
+      try (Stream<T> stream = this.open(event)) {
+        completed = this.emit(stream.iterator(), event);
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      }
+      event.setCancelled(!completed && (failure == null));
+      event.end();
+      event.commit();
+
+      if (completed) {
+        this.subscriber.onComplete();
+      } else if ((failure != null) && !this.isCancelled()) {
+        this.subscriber.onError(failure);
+      }
+    }
+
+    private Stream<T> open(PublisherEvent event) {
+      long start = System.nanoTime();
+      try {
+        return this.publisher.source.get();
+      } finally {
+        event.setDatabaseTime(event.getDatabaseTime() + (System.nanoTime() - start));
+      }
+    }
+
+    /**
+     * Emits the rows as long as there is demand.
+     *
+     * @return {@code true} if all rows were emitted, {@code false} if the
+     *         subscription was cancelled
+     */
+    private boolean emit(Iterator<T> rows, PublisherEvent event) {
+      while (true) {
+        long waitStart = System.nanoTime();
+        boolean demanded = this.awaitDemand(event);
+        long fetchStart = System.nanoTime();
+        event.setSubscriberWaitTime(event.getSubscriberWaitTime() + (fetchStart - waitStart));
+        if (!demanded) {
+          return false;
+        }
+
+        boolean hasNext = rows.hasNext();
+        T row = hasNext ? rows.next() : null;
+        long emitStart = System.nanoTime();
+        event.setDatabaseTime(event.getDatabaseTime() + (emitStart - fetchStart));
+        if (!hasNext) {
+          return true;
+        }
+
+        event.setRowCount(event.getRowCount() + 1L);
+        this.subscriber.onNext(row);
+        event.setSubscriberWaitTime(event.getSubscriberWaitTime() + (System.nanoTime() - emitStart));
+      }
+    }
+
+    /**
+     * Waits until the subscriber requests a row.
+     *
+     * @return {@code true} if a row was requested, {@code false} if the
+     *         subscription was cancelled
+     * @throws IllegalArgumentException if the subscriber made an invalid request
+     */
+    private boolean awaitDemand(PublisherEvent event) {
+      this.lock.lock();
+      try {
+        if (this.isIdle()) {
+          event.setDemandStalls(event.getDemandStalls() + 1L);
+          do {
+            this.signalled.awaitUninterruptibly();
+          } while (this.isIdle());
+        }
+        if (this.invalidRequest != null) {
+          throw this.invalidRequest;
+        }
+        if (this.cancelled) {
+          return false;
+        }
+        if (this.demand != Long.MAX_VALUE) {
+          this.demand -= 1L;
+        }
+        return true;
+      } finally {
+        this.lock.unlock();
+      }
+    }
+
+    private boolean isIdle() {
+      return (this.demand == 0L) && !this.cancelled && (this.invalidRequest == null);
+    }
+
+  }
+
+  @Label("Publisher")
+  @Description("The rows of a JDBC operation published to a subscriber")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class PublisherEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Row Count")
+    @Description("The number of rows emitted to the subscriber")
+    private long rowCount;
+
+    @Label("Demand Stalls")
+    @Description("The number of times the rows had to wait for the subscriber to request more")
+    private long demandStalls;
+
+    @Label("Subscriber Wait Time")
+    @Description("The time spent waiting for demand and in the subscriber")
+    @Timespan(Timespan.NANOSECONDS)
+    private long subscriberWaitTime;
+
+    @Label("Database Time")
+    @Description("The time spent executing the query and fetching rows")
+    @Timespan(Timespan.NANOSECONDS)
+    private long databaseTime;
+
+    @Label("Cancelled")
+    @Description("Whether the subscriber cancelled the subscription before all rows were emitted")
+    private boolean cancelled;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    long getDemandStalls() {
+      return this.demandStalls;
+    }
+
+    void setDemandStalls(long demandStalls) {
+      this.demandStalls = demandStalls;
+    }
+
+    long getSubscriberWaitTime() {
+      return this.subscriberWaitTime;
+    }
+
+    void setSubscriberWaitTime(long subscriberWaitTime) {
+      this.subscriberWaitTime = subscriberWaitTime;
+    }
+
+    long getDatabaseTime() {
+      return this.databaseTime;
+    }
+
+    void setDatabaseTime(long databaseTime) {
+      this.databaseTime = databaseTime;
+    }
+
+    boolean isCancelled() {
+      return this.cancelled;
+    }
+
+    void setCancelled(boolean cancelled) {
+      this.cancelled = cancelled;
+    }
+
+  }
+
+}
@@ -0,0 +1,36 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes rows to and reads rows from a binary representation.
+ *
+ * <p>Used by {@link SpillingResultSetExtractor} to spill rows to disk.
+ * Every row is read from its own stream so implementations can read ahead.
+ * Implementations have to be thread safe.</p>
+ *
+ * @param <T> the type of the rows
+ */
+public interface RowSerializer<T> {
+
+  /**
+   * Writes a row.
+   *
+   * @param row the row to write
+   * @param output where to write the row to, not {@code null}
+   * @throws IOException if the row can not be written
+   */
+  void serialize(T row, DataOutputStream output) throws IOException;
+
+  /**
+   * Reads a row written by {@link #serialize(Object, DataOutputStream)}.
+   *
+   * @param input where to read the row from, not {@code null}
+   * @return the row
+   * @throws IOException if the row can not be read
+   */
+  T deserialize(DataInputStream input) throws IOException;
+
+}
@@ -0,0 +1,33 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility methods for results that are handed to several callers, eg. by
+ * {@link CachingJdbcOperations} or {@link SingleFlightJdbcOperations}.
+ */
+final class SharedResults {
+
+  private SharedResults() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Makes the rows of a result unmodifiable so one caller can not modify
+   * the rows seen by another caller.
+   *
+   * @param rows the rows, not {@code null}
+   * @return an unmodifiable list of unmodifiable rows
+   */
+  static List<Map<String, Object>> unmodifiableMaps(List<Map<String, Object>> rows) {
+    List<Map<String, Object>> unmodifiable = new ArrayList<>(rows.size());
+    for (Map<String, Object> row : rows) {
+      unmodifiable.add(Collections.unmodifiableMap(row));
+    }
+    return Collections.unmodifiableList(unmodifiable);
+  }
+
+}
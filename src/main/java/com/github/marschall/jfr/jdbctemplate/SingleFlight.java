@@ -0,0 +1,186 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Collapses concurrent identical reads of a {@link SingleFlightJdbcOperations}
+ * into a single execution.
+ *
+ * <p>The first caller, the leader, executes the read, every caller that
+ * arrives while the read is in progress waits for and shares the result.
+ * Reads are registered in a {@link ConcurrentHashMap}, joining a read in
+ * progress is a compare and set.</p>
+ */
+final class SingleFlight {
+
+  /**
+   * Value of {@link Flight#callers} once the result is being published,
+   * no more callers can join.
+   */
+  private static final int LANDED = -1;
+
+  private final Set<String> queries;
+
+  private final ConcurrentMap<ReadKey, Flight> flights;
+
+  SingleFlight(Set<String> queries) {
+    this.queries = queries;
+    this.flights = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Executes a read or joins an identical one in progress.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string
+   * @param resultType what the rows are converted into, eg. the required
+   *                   type or the row mapper
+   * @param args the arguments, may be {@code null}
+   * @param argTypes the argument types, may be {@code null}
+   * @param loader executes the read
+   * @return the result
+   */
+  <T> T execute(String operationName, String query, Object resultType, Object[] args, int[] argTypes, Supplier<T> loader) {
+    if (!this.queries.contains(query)) {
+      return loader.get();
+    }
+    ReadKey key = new ReadKey(operationName, query, resultType, args, argTypes);
+    while (true) {
+      Flight flight = new Flight();
+      Flight existing = this.flights.putIfAbsent(key, flight);
+      if (existing == null) {
+        return this.lead(key, flight, loader);
+      }
+      if (existing.join()) {
+        return existing.await();
+      }
+      // landed in the meantime, remove it in case the leader has not yet
+      this.flights.remove(key, existing);
+    }
+  }
+
+  private <T> T lead(ReadKey key, Flight flight, Supplier<T> loader) {
+    SingleFlightEvent event = new SingleFlightEvent();
+    event.setOperationName(key.getOperationName());
+    event.setQuery(key.getQuery());
+    event.begin();
+    T result;
+    try {
+      result = loader.get();
+    } catch (RuntimeException | Error e) {
+      event.end();
+      event.setCallersServed(this.land(key, flight));
+      event.commit();
+      flight.result.completeExceptionally(e);
+      throw e;
+    }
+    event.end();
+    event.setCallersServed(this.land(key, flight));
+    event.commit();
+    flight.result.complete(result);
+    return result;
+  }
+
+  private long land(ReadKey key, Flight flight) {
+    // later callers have to start a new flight, they may depend on writes
+    // that happened after this one started
+    this.flights.remove(key, flight);
+    return flight.callers.getAndSet(LANDED);
+  }
+
+  static final class Flight {
+
+    /**
+     * The number of callers including the leader.
+     */
+    final AtomicInteger callers = new AtomicInteger(1);
+
+    final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    boolean join() {
+      int current = this.callers.get();
+      while (current != LANDED) {
+        if (this.callers.compareAndSet(current, current + 1)) {
+          return true;
+        }
+        current = this.callers.get();
+      }
+      return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T await() {
+      try {
+        return (T) this.result.join();
+      } catch (CompletionException e) {
+        // the exception of the leader
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw e;
+      }
+    }
+
+  }
+
+  @Label("Single Flight")
+  @Description("A read executed once on behalf of several concurrent identical callers")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class SingleFlightEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Callers Served")
+    @Description("The number of callers that received the result, including the one that executed the read")
+    private long callersServed;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getCallersServed() {
+      return this.callersServed;
+    }
+
+    void setCallersServed(long callersServed) {
+      this.callersServed = callersServed;
+    }
+
+  }
+
+}
@@ -0,0 +1,397 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * An implementation of {@link JdbcOperations} that collapses concurrent
+ * identical reads into a single database execution.
+ *
+ * <p>When a read is in progress, identical reads issued by other threads do
+ * not hit the database but wait for and share its result. This protects the
+ * database from cache miss storms. Only the results of {@code query}
+ * methods with a {@link RowMapper} and of {@code queryForObject},
+ * {@code queryForList} and {@code queryForMap} methods that take their
+ * arguments as objects are shared, and only if the SQL query string is
+ * allowlisted. Reads are identical if they have the same operation, SQL query
+ * string, arguments and required type or {@link RowMapper}. Row mappers are
+ * usually compared by identity so only shared row mappers, eg. non-capturing
+ * lambdas, are collapsed. Shared lists and maps are unmodifiable. If the read
+ * fails all waiting callers get the same exception.</p>
+ *
+ * <p>A caller may receive the result of a read executed in the transaction
+ * of a different thread, only allowlist queries for which this is
+ * acceptable.</p>
+ *
+ * <p>Every execution of an allowlisted read generates a "Single Flight"
+ * event in the {@value JfrConstants#CATEGORY} category with the number of
+ * callers served. Wrap this class in a {@link JfrJdbcOperations} in order to
+ * have events generated for the operations as well.</p>
+ */
+public final class SingleFlightJdbcOperations implements JdbcOperations {
+
+  private final JdbcOperations delegate;
+
+  private final SingleFlight flights;
+
+  /**
+   * Constructs a new {@link SingleFlightJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param queries the SQL query strings of the reads to collapse, not {@code null}
+   */
+  public SingleFlightJdbcOperations(JdbcOperations delegate, Collection<String> queries) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(queries, "queries");
+    this.delegate = delegate;
+    this.flights = new SingleFlight(Set.copyOf(queries));
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+    return this.flights.execute("query", sql, rowMapper, null, null, () -> Collections.unmodifiableList(this.delegate.query(sql, rowMapper)));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+    return this.flights.execute("queryForObject", sql, rowMapper, null, null, () -> this.delegate.queryForObject(sql, rowMapper));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType) {
+    return this.flights.execute("queryForObject", sql, requiredType, null, null, () -> this.delegate.queryForObject(sql, requiredType));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql) {
+    return this.flights.execute("queryForMap", sql, null, null, null, () -> Collections.unmodifiableMap(this.delegate.queryForMap(sql)));
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType) {
+    return this.flights.execute("queryForList", sql, elementType, null, null, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, elementType)));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql) {
+    return this.flights.execute("queryForList", sql, null, null, null, () -> SharedResults.unmodifiableMaps(this.delegate.queryForList(sql)));
+  }
+
+  @Override
+  public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.flights.execute("query", sql, rowMapper, args, argTypes, () -> Collections.unmodifiableList(this.delegate.query(sql, args, argTypes, rowMapper)));
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+    return this.flights.execute("query", sql, rowMapper, args, null, () -> Collections.unmodifiableList(this.delegate.query(sql, args, rowMapper)));
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.flights.execute("query", sql, rowMapper, args, null, () -> Collections.unmodifiableList(this.delegate.query(sql, rowMapper, args)));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    return this.flights.execute("queryForObject", sql, rowMapper, args, argTypes, () -> this.delegate.queryForObject(sql, args, argTypes, rowMapper));
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+    return this.flights.execute("queryForObject", sql, rowMapper, args, null, () -> this.delegate.queryForObject(sql, args, rowMapper));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.flights.execute("queryForObject", sql, rowMapper, args, null, () -> this.delegate.queryForObject(sql, rowMapper, args));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    return this.flights.execute("queryForObject", sql, requiredType, args, argTypes, () -> this.delegate.queryForObject(sql, args, argTypes, requiredType));
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+    return this.flights.execute("queryForObject", sql, requiredType, args, null, () -> this.delegate.queryForObject(sql, args, requiredType));
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+    return this.flights.execute("queryForObject", sql, requiredType, args, null, () -> this.delegate.queryForObject(sql, requiredType, args));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+    return this.flights.execute("queryForMap", sql, null, args, argTypes, () -> Collections.unmodifiableMap(this.delegate.queryForMap(sql, args, argTypes)));
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object... args) {
+    return this.flights.execute("queryForMap", sql, null, args, null, () -> Collections.unmodifiableMap(this.delegate.queryForMap(sql, args)));
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    return this.flights.execute("queryForList", sql, elementType, args, argTypes, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, args, argTypes, elementType)));
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+    return this.flights.execute("queryForList", sql, elementType, args, null, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, args, elementType)));
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+    return this.flights.execute("queryForList", sql, elementType, args, null, () -> Collections.unmodifiableList(this.delegate.queryForList(sql, elementType, args)));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+    return this.flights.execute("queryForList", sql, null, args, argTypes, () -> SharedResults.unmodifiableMaps(this.delegate.queryForList(sql, args, argTypes)));
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object... args) {
+    return this.flights.execute("queryForList", sql, null, args, null, () -> SharedResults.unmodifiableMaps(this.delegate.queryForList(sql, args)));
+  }
+
+  // generated by WrapperGenerator, do not edit
+
+  @Override
+  public <T> T execute(ConnectionCallback<T> action) {
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public <T> T execute(StatementCallback<T> action) {
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public void execute(String sql) {
+    this.delegate.execute(sql);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, rse);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch) {
+    this.delegate.query(sql, rch);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(sql, rowMapper);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql) {
+    return this.delegate.queryForRowSet(sql);
+  }
+
+  @Override
+  public int update(String sql) {
+    return this.delegate.update(sql);
+  }
+
+  @Override
+  public int[] batchUpdate(String... sql) {
+    return this.delegate.batchUpdate(sql);
+  }
+
+  @Override
+  public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    return this.delegate.execute(psc, action);
+  }
+
+  @Override
+  public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+    return this.delegate.execute(sql, action);
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    return this.delegate.query(psc, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, pss, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, args, argTypes, rse);
+  }
+
+  @Override
+  @Deprecated
+  public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+    return this.delegate.query(sql, args, rse);
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    return this.delegate.query(sql, rse, args);
+  }
+
+  @Override
+  public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    this.delegate.query(psc, rch);
+  }
+
+  @Override
+  public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    this.delegate.query(sql, pss, rch);
+  }
+
+  @Override
+  public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    this.delegate.query(sql, args, argTypes, rch);
+  }
+
+  @Override
+  @Deprecated
+  public void query(String sql, Object[] args, RowCallbackHandler rch) {
+    this.delegate.query(sql, args, rch);
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch, Object... args) {
+    this.delegate.query(sql, rch, args);
+  }
+
+  @Override
+  public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.delegate.query(psc, rowMapper);
+  }
+
+  @Override
+  public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.delegate.query(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(psc, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    return this.delegate.queryForStream(sql, pss, rowMapper);
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    return this.delegate.queryForStream(sql, rowMapper, args);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    return this.delegate.queryForRowSet(sql, args, argTypes);
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object... args) {
+    return this.delegate.queryForRowSet(sql, args);
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc) {
+    return this.delegate.update(psc);
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    return this.delegate.update(psc, generatedKeyHolder);
+  }
+
+  @Override
+  public int update(String sql, PreparedStatementSetter pss) {
+    return this.delegate.update(sql, pss);
+  }
+
+  @Override
+  public int update(String sql, Object[] args, int[] argTypes) {
+    return this.delegate.update(sql, args, argTypes);
+  }
+
+  @Override
+  public int update(String sql, Object... args) {
+    return this.delegate.update(sql, args);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    return this.delegate.batchUpdate(sql, pss);
+  }
+
+  @Override
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    return this.delegate.batchUpdate(psc, pss, generatedKeyHolder);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+    return this.delegate.batchUpdate(sql, batchArgs);
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    return this.delegate.batchUpdate(sql, batchArgs, argTypes);
+  }
+
+  @Override
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    return this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
+  }
+
+  @Override
+  public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    return this.delegate.execute(csc, action);
+  }
+
+  @Override
+  public <T> T execute(String callString, CallableStatementCallback<T> action) {
+    return this.delegate.execute(callString, action);
+  }
+
+  @Override
+  public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    return this.delegate.call(csc, declaredParameters);
+  }
+
+  // end of generated methods
+
+}
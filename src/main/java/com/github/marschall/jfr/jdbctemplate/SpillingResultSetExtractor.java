@@ -0,0 +1,408 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * A {@link ResultSetExtractor} that keeps a limited number of rows on the
+ * heap and spills all further rows to a memory mapped temporary file.
+ *
+ * <p>Use instead of a {@link RowMapper} for queries that occasionally return
+ * very large results, for example
+ * {@code jdbcOperations.query(sql, new SpillingResultSetExtractor<>(rowMapper, 100_000))}.
+ * If the result fits into memory an ordinary {@link ArrayList} is returned.
+ * Otherwise a read only {@link List} is returned that keeps the first rows on
+ * the heap and deserializes the remaining rows every time they are
+ * accessed, so accessing them is slower. The temporary file is deleted as
+ * soon as it is mapped, the memory is released once the list is garbage
+ * collected.</p>
+ *
+ * <p>Whenever rows are spilled a "Result Spill" event in the
+ * {@value JfrConstants#CATEGORY} category is generated with the number of
+ * rows and bytes spilled.</p>
+ *
+ * <p>Instances of this class are thread safe if the {@link RowMapper} and
+ * {@link RowSerializer} are.</p>
+ *
+ * @param <T> the type of the rows
+ */
+public final class SpillingResultSetExtractor<T> implements ResultSetExtractor<List<T>> {
+
+  /**
+   * The maximum size of a single mapping, rows never cross mappings.
+   */
+  private static final long MAXIMUM_SEGMENT_SIZE = 1L << 30;
+
+  private final RowMapper<T> rowMapper;
+
+  private final int maximumInMemoryRows;
+
+  private final RowSerializer<T> serializer;
+
+  private final Path directory;
+
+  /**
+   * Constructs a new {@link SpillingResultSetExtractor} that spills rows
+   * using Java serialization to the default temporary directory.
+   *
+   * @param rowMapper the mapper for the rows, not {@code null},
+   *                  the rows have to be {@link java.io.Serializable}
+   * @param maximumInMemoryRows the number of rows to keep on the heap,
+   *                            not negative
+   */
+  public SpillingResultSetExtractor(RowMapper<T> rowMapper, int maximumInMemoryRows) {
+    this(rowMapper, maximumInMemoryRows, new JavaRowSerializer<>());
+  }
+
+  /**
+   * Constructs a new {@link SpillingResultSetExtractor} that spills rows
+   * to the default temporary directory.
+   *
+   * @param rowMapper the mapper for the rows, not {@code null}
+   * @param maximumInMemoryRows the number of rows to keep on the heap,
+   *                            not negative
+   * @param serializer the serializer for the spilled rows, not {@code null}
+   */
+  public SpillingResultSetExtractor(RowMapper<T> rowMapper, int maximumInMemoryRows, RowSerializer<T> serializer) {
+    this(rowMapper, maximumInMemoryRows, serializer, null);
+  }
+
+  /**
+   * Constructs a new {@link SpillingResultSetExtractor}.
+   *
+   * @param rowMapper the mapper for the rows, not {@code null}
+   * @param maximumInMemoryRows the number of rows to keep on the heap,
+   *                            not negative
+   * @param serializer the serializer for the spilled rows, not {@code null}
+   * @param directory the directory for the temporary files,
+   *                  {@code null} for the default temporary directory
+   */
+  public SpillingResultSetExtractor(RowMapper<T> rowMapper, int maximumInMemoryRows, RowSerializer<T> serializer, Path directory) {
+    Objects.requireNonNull(rowMapper, "rowMapper");
+    Objects.requireNonNull(serializer, "serializer");
+    if (maximumInMemoryRows < 0) {
+      throw new IllegalArgumentException("maximumInMemoryRows must not be negative but was: " + maximumInMemoryRows);
+    }
+    this.rowMapper = rowMapper;
+    this.maximumInMemoryRows = maximumInMemoryRows;
+    this.serializer = serializer;
+    this.directory = directory;
+  }
+
+  @Override
+  public List<T> extractData(ResultSet rs) throws SQLException {
+    ResultSpillEvent event = new ResultSpillEvent();
+    event.begin();
+    List<T> inMemoryRows = new ArrayList<>();
+    int rowNum = 0;
+    while ((rowNum < this.maximumInMemoryRows) && rs.next()) {
+      inMemoryRows.add(this.rowMapper.mapRow(rs, rowNum++));
+    }
+    if ((rowNum < this.maximumInMemoryRows) || !rs.next()) {
+      return inMemoryRows;
+    }
+
+    SpilledList<T> result = this.spill(rs, inMemoryRows);
+    event.end();
+    if (event.shouldCommit()) {
+      event.setRowCount(result.size());
+      event.setSpilledRowCount(result.getSpilledRowCount());
+      event.setSpilledBytes(result.getSpilledBytes());
+      event.commit();
+    }
+    return result;
+  }
+
+  /**
+   * Writes the current and all following rows to a temporary file.
+   */
+  private SpilledList<T> spill(ResultSet rs, List<T> inMemoryRows) throws SQLException {
+    Path file;
+    try {
+      file = this.directory != null
+              ? Files.createTempFile(this.directory, "jfr-jdbctemplate-", ".spill")
+              : Files.createTempFile("jfr-jdbctemplate-", ".spill");
+    } catch (IOException e) {
+      throw new DataAccessResourceFailureException("could not create spill file", e);
+    }
+    try {
+      long[] offsets = this.writeRows(rs, inMemoryRows.size(), file);
+      return new SpilledList<>(inMemoryRows, offsets, map(file, offsets), this.serializer);
+    } catch (IOException e) {
+      throw new DataAccessResourceFailureException("could not spill rows to: " + file, e);
+    } finally {
+      delete(file);
+    }
+  }
+
+  /**
+   * Writes the rows and returns the offsets in the file, the last element is
+   * the size of the file.
+   */
+  private long[] writeRows(ResultSet rs, int firstRowNum, Path file) throws SQLException, IOException {
+    long[] offsets = new long[ColumnarResult.newCapacity(0)];
+    int spilledRowCount = 0;
+    long offset = 0L;
+    ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+    DataOutputStream rowOutput = new DataOutputStream(rowBuffer);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+         OutputStream fileOutput = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+      int rowNum = firstRowNum;
+      do {
+        T row = this.rowMapper.mapRow(rs, rowNum++);
+        rowBuffer.reset();
+        this.serializer.serialize(row, rowOutput);
+        rowOutput.flush();
+        rowBuffer.writeTo(fileOutput);
+        if ((spilledRowCount + 1) == offsets.length) {
+          offsets = Arrays.copyOf(offsets, ColumnarResult.newCapacity(offsets.length));
+        }
+        offsets[spilledRowCount++] = offset;
+        offset += rowBuffer.size();
+      } while (rs.next());
+    }
+    offsets[spilledRowCount] = offset;
+    return Arrays.copyOf(offsets, spilledRowCount + 1);
+  }
+
+  private static Segment[] map(Path file, long[] offsets) throws IOException {
+    int spilledRowCount = offsets.length - 1;
+    List<Segment> segments = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int firstRow = 0;
+      while (firstRow < spilledRowCount) {
+        long start = offsets[firstRow];
+        int endRow = firstRow + 1;
+        while ((endRow < spilledRowCount) && ((offsets[endRow + 1] - start) <= MAXIMUM_SEGMENT_SIZE)) {
+          endRow += 1;
+        }
+        long size = offsets[endRow] - start;
+        if (size > Integer.MAX_VALUE) {
+          throw new IOException("row " + firstRow + " too large to be mapped: " + size + " bytes");
+        }
+        segments.add(new Segment(firstRow, start, channel.map(MapMode.READ_ONLY, start, size)));
+        firstRow = endRow;
+      }
+    }
+    return segments.toArray(new Segment[0]);
+  }
+
+  private static void delete(Path file) {
+    try {
+      // the mappings stay valid on POSIX
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // mapped files can not be deleted on Windows
+      file.toFile().deleteOnExit();
+    }
+  }
+
+  /**
+   * A mapped region of the spill file.
+   */
+  static final class Segment {
+
+    final int firstRow;
+
+    final long start;
+
+    final ByteBuffer buffer;
+
+    Segment(int firstRow, long start, ByteBuffer buffer) {
+      this.firstRow = firstRow;
+      this.start = start;
+      this.buffer = buffer;
+    }
+
+  }
+
+  /**
+   * A read only list of rows of which the first ones are on the heap and the
+   * remaining ones in mapped memory.
+   */
+  static final class SpilledList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> inMemoryRows;
+
+    private final long[] offsets;
+
+    private final Segment[] segments;
+
+    private final int[] segmentFirstRows;
+
+    private final RowSerializer<T> serializer;
+
+    SpilledList(List<T> inMemoryRows, long[] offsets, Segment[] segments, RowSerializer<T> serializer) {
+      this.inMemoryRows = inMemoryRows;
+      this.offsets = offsets;
+      this.segments = segments;
+      this.segmentFirstRows = new int[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        this.segmentFirstRows[i] = segments[i].firstRow;
+      }
+      this.serializer = serializer;
+    }
+
+    @Override
+    public int size() {
+      return this.inMemoryRows.size() + this.getSpilledRowCount();
+    }
+
+    int getSpilledRowCount() {
+      return this.offsets.length - 1;
+    }
+
+    long getSpilledBytes() {
+      return this.offsets[this.offsets.length - 1];
+    }
+
+    @Override
+    public T get(int index) {
+      int inMemoryRowCount = this.inMemoryRows.size();
+      if (index < inMemoryRowCount) {
+        return this.inMemoryRows.get(index);
+      }
+      int spilledRow = index - inMemoryRowCount;
+      if (spilledRow >= this.getSpilledRowCount()) {
+        throw new IndexOutOfBoundsException("index " + index + " out of bounds for " + this.size() + " rows");
+      }
+      return this.readSpilledRow(spilledRow);
+    }
+
+    private T readSpilledRow(int spilledRow) {
+      int segmentIndex = Arrays.binarySearch(this.segmentFirstRows, spilledRow);
+      if (segmentIndex < 0) {
+        segmentIndex = -segmentIndex - 2;
+      }
+      Segment segment = this.segments[segmentIndex];
+      int position = (int) (this.offsets[spilledRow] - segment.start);
+      int length = (int) (this.offsets[spilledRow + 1] - this.offsets[spilledRow]);
+      // a slice per access, the list is read concurrently
+      ByteBuffer row = segment.buffer.slice(position, length);
+      try {
+        return this.serializer.deserialize(new DataInputStream(new ByteBufferInputStream(row)));
+      } catch (IOException e) {
+        throw new UncheckedIOException("could not read spilled row: " + spilledRow, e);
+      }
+    }
+
+  }
+
+  /**
+   * An {@link InputStream} reading from a {@link ByteBuffer}.
+   */
+  static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      if (!this.buffer.hasRemaining()) {
+        return -1;
+      }
+      return this.buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      Objects.checkFromIndexSize(off, len, b.length);
+      if (len == 0) {
+        return 0;
+      }
+      if (!this.buffer.hasRemaining()) {
+        return -1;
+      }
+      int read = Math.min(len, this.buffer.remaining());
+      this.buffer.get(b, off, read);
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return this.buffer.remaining();
+    }
+
+  }
+
+  @Label("Result Spill")
+  @Description("Rows of a query spilled to disk")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(true)
+  static class ResultSpillEvent extends Event {
+
+    @Label("Row Count")
+    @Description("The total number of rows read")
+    private long rowCount;
+
+    @Label("Spilled Row Count")
+    @Description("The number of rows spilled to disk")
+    private long spilledRowCount;
+
+    @Label("Spilled Bytes")
+    @Description("The size of the rows spilled to disk")
+    @DataAmount
+    private long spilledBytes;
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+    long getSpilledRowCount() {
+      return this.spilledRowCount;
+    }
+
+    void setSpilledRowCount(long spilledRowCount) {
+      this.spilledRowCount = spilledRowCount;
+    }
+
+    long getSpilledBytes() {
+      return this.spilledBytes;
+    }
+
+    void setSpilledBytes(long spilledBytes) {
+      this.spilledBytes = spilledBytes;
+    }
+
+  }
+
+}
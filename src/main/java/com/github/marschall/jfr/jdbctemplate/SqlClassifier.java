@@ -0,0 +1,504 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Extracts the statement type, the referenced tables and the shape from a SQL
+ * query string.
+ *
+ * <p>This is not a SQL parser, the query string is split into tokens and
+ * table names are taken from the tokens following {@code FROM},
+ * {@code JOIN}, {@code INTO}, {@code USING}, {@code TABLE} and the
+ * {@code UPDATE} of an update statement. Names of common table expressions
+ * and table functions are ignored. Unquoted names are reported as written,
+ * quoted names without the quotes.</p>
+ *
+ * <p>The shape is the query string with comments removed, whitespace
+ * collapsed and string and numeric literals replaced by {@code ?}, so that
+ * queries that only differ in their literals have the same shape.</p>
+ *
+ * <p>Results are cached per query string. The cache is bounded, once it is
+ * full it is cleared so that applications generating SQL with literals can
+ * not make it grow without limit.</p>
+ */
+final class SqlClassifier {
+
+  static final String SELECT = "SELECT";
+
+  static final String INSERT = "INSERT";
+
+  static final String UPDATE = "UPDATE";
+
+  static final String DELETE = "DELETE";
+
+  static final String MERGE = "MERGE";
+
+  static final String DDL = "DDL";
+
+  static final String CALL = "CALL";
+
+  static final String OTHER = "OTHER";
+
+  private static final int MAX_CACHE_SIZE = 1024;
+
+  private static final ConcurrentMap<String, Classification> CACHE = new ConcurrentHashMap<>();
+
+  /**
+   * Keywords that can not be the alias of a table.
+   */
+  private static final Set<String> NOT_AN_ALIAS = Set.of(
+          "WHERE", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "CROSS", "NATURAL", "OUTER",
+          "ON", "USING", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH", "UNION",
+          "INTERSECT", "EXCEPT", "MINUS", "FOR", "SET", "VALUES", "WINDOW", "SELECT",
+          "WHEN", "RETURNING", "DEFAULT", "CONNECT", "START", "QUALIFY", "SAMPLE");
+
+  private SqlClassifier() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Classifies a SQL query string.
+   *
+   * @param sql the SQL query string, may be {@code null}
+   * @return the classification, {@code null} if {@code sql} is {@code null}
+   */
+  static Classification classify(String sql) {
+    if (sql == null) {
+      return null;
+    }
+    Classification classification = CACHE.get(sql);
+    if (classification == null) {
+      classification = computeClassification(sql);
+      if (CACHE.size() >= MAX_CACHE_SIZE) {
+        CACHE.clear();
+      }
+      CACHE.putIfAbsent(sql, classification);
+    }
+    return classification;
+  }
+
+  static Classification computeClassification(String sql) {
+    List<Token> tokens = tokenize(sql);
+    int start = 0;
+    // JDBC escape syntax {? = call procedure(?)}
+    while ((start < tokens.size()) && isSymbol(tokens.get(start), "{?=")) {
+      start += 1;
+    }
+    Set<String> commonTableExpressions = new LinkedHashSet<>();
+    int verbIndex = findVerb(tokens, start, commonTableExpressions);
+    String statementType = verbIndex < tokens.size() ? getStatementType(tokens.get(verbIndex)) : OTHER;
+    Set<String> tables = new LinkedHashSet<>();
+    if (statementType.equals(UPDATE)) {
+      readTableReference(tokens, verbIndex + 1, tables);
+    }
+    collectTables(tokens, start, tables);
+    tables.removeAll(commonTableExpressions);
+    return new Classification(statementType, List.copyOf(tables), computeShape(sql));
+  }
+
+  static String computeShape(String sql) {
+    StringBuilder shape = new StringBuilder(sql.length());
+    int length = sql.length();
+    boolean space = false;
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      int end;
+      if (Character.isWhitespace(c)) {
+        space = true;
+        i += 1;
+        continue;
+      } else if ((c == '-') && (i + 1 < length) && (sql.charAt(i + 1) == '-')) {
+        // line comment
+        int lineEnd = sql.indexOf('\n', i);
+        space = true;
+        i = lineEnd != -1 ? lineEnd + 1 : length;
+        continue;
+      } else if ((c == '/') && (i + 1 < length) && (sql.charAt(i + 1) == '*')) {
+        // block comment
+        int commentEnd = sql.indexOf("*/", i + 2);
+        space = true;
+        i = commentEnd != -1 ? commentEnd + 2 : length;
+        continue;
+      }
+      if ((shape.length() > 0) && space) {
+        shape.append(' ');
+      }
+      space = false;
+      if (c == '\'') {
+        // string literal
+        shape.append('?');
+        end = skipQuoted(sql, i, '\'');
+      } else if ((c == '"') || (c == '`') || (c == '[')) {
+        // quoted name
+        end = skipQuoted(sql, i, c == '[' ? ']' : c);
+        shape.append(sql, i, end);
+      } else if (isWordPart(c)) {
+        end = i;
+        while ((end < length) && isWordPart(sql.charAt(end))) {
+          end += 1;
+        }
+        if (Character.isDigit(c)) {
+          // numeric literal
+          shape.append('?');
+        } else {
+          shape.append(sql, i, end);
+        }
+      } else {
+        shape.append(c);
+        end = i + 1;
+      }
+      i = end;
+    }
+    return shape.toString();
+  }
+
+  private static int findVerb(List<Token> tokens, int start, Set<String> commonTableExpressions) {
+    if ((start >= tokens.size()) || !tokens.get(start).isKeyword("WITH")) {
+      return start;
+    }
+    // WITH [RECURSIVE] name [(columns)] AS (query) [, name ...] verb
+    int i = start + 1;
+    if ((i < tokens.size()) && tokens.get(i).isKeyword("RECURSIVE")) {
+      i += 1;
+    }
+    while (i < tokens.size()) {
+      Token token = tokens.get(i);
+      if (token.isWord()) {
+        if (!getStatementType(token).equals(OTHER)) {
+          return i;
+        }
+        if (token.isKeyword("AS")) {
+          i += 1;
+          continue;
+        }
+        if (i + 1 < tokens.size() && (tokens.get(i + 1).isKeyword("AS") || isSymbol(tokens.get(i + 1), "("))) {
+          commonTableExpressions.add(token.text);
+          i += 1;
+          continue;
+        }
+        return i;
+      } else if (isSymbol(token, "(")) {
+        i = skipParentheses(tokens, i);
+      } else {
+        i += 1;
+      }
+    }
+    return i;
+  }
+
+  private static int skipParentheses(List<Token> tokens, int open) {
+    int depth = 0;
+    for (int i = open; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (isSymbol(token, "(")) {
+        depth += 1;
+      } else if (isSymbol(token, ")")) {
+        depth -= 1;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+    }
+    return tokens.size();
+  }
+
+  private static String getStatementType(Token verb) {
+    if (!verb.isWord() || verb.quoted) {
+      return OTHER;
+    }
+    switch (verb.text.toUpperCase(Locale.ROOT)) {
+      case "SELECT":
+      case "VALUES":
+      case "TABLE":
+        return SELECT;
+      case "INSERT":
+      case "REPLACE":
+      case "UPSERT":
+        return INSERT;
+      case "UPDATE":
+        return UPDATE;
+      case "DELETE":
+        return DELETE;
+      case "MERGE":
+        return MERGE;
+      case "CREATE":
+      case "ALTER":
+      case "DROP":
+      case "TRUNCATE":
+      case "RENAME":
+      case "COMMENT":
+      case "GRANT":
+      case "REVOKE":
+        return DDL;
+      case "CALL":
+      case "EXEC":
+      case "EXECUTE":
+        return CALL;
+      default:
+        return OTHER;
+    }
+  }
+
+  private static void collectTables(List<Token> tokens, int start, Set<String> tables) {
+    // whether the parentheses at each level contain a query, FROM inside a
+    // function call like EXTRACT(YEAR FROM x) does not reference a table
+    BitSet queryLevels = new BitSet();
+    queryLevels.set(0);
+    int depth = 0;
+    for (int i = start; i < tokens.size(); i++) {
+      Token token = tokens.get(i);
+      if (isSymbol(token, "(")) {
+        depth += 1;
+        Token next = i + 1 < tokens.size() ? tokens.get(i + 1) : null;
+        queryLevels.set(depth, (next != null) && (next.isKeyword("SELECT") || next.isKeyword("WITH")));
+      } else if (isSymbol(token, ")")) {
+        depth = Math.max(depth - 1, 0);
+      } else if (token.isWord() && !token.quoted && queryLevels.get(depth)) {
+        String keyword = token.text.toUpperCase(Locale.ROOT);
+        switch (keyword) {
+          case "FROM":
+            readTableList(tokens, i + 1, tables);
+            break;
+          case "JOIN":
+          case "INTO":
+          case "USING":
+            readTableReference(tokens, i + 1, tables);
+            break;
+          case "TABLE":
+            readTableReference(tokens, skipIfExists(tokens, i + 1), tables);
+            break;
+          default:
+            break;
+        }
+      }
+    }
+  }
+
+  private static int skipIfExists(List<Token> tokens, int i) {
+    // IF [NOT] EXISTS
+    if ((i < tokens.size()) && tokens.get(i).isKeyword("IF")) {
+      int next = i + 1;
+      if ((next < tokens.size()) && tokens.get(next).isKeyword("NOT")) {
+        next += 1;
+      }
+      if ((next < tokens.size()) && tokens.get(next).isKeyword("EXISTS")) {
+        return next + 1;
+      }
+    }
+    return i;
+  }
+
+  private static void readTableList(List<Token> tokens, int start, Set<String> tables) {
+    int i = readTableReference(tokens, start, tables);
+    while (i < tokens.size()) {
+      Token token = tokens.get(i);
+      if (isSymbol(token, ",")) {
+        i = readTableReference(tokens, i + 1, tables);
+      } else if (token.isKeyword("AS")) {
+        i += 2;
+      } else if (token.isWord() && (token.quoted || !NOT_AN_ALIAS.contains(token.text.toUpperCase(Locale.ROOT)))) {
+        // alias
+        i += 1;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Reads a possibly qualified table name.
+   *
+   * @return the index of the first token after the table name
+   */
+  private static int readTableReference(List<Token> tokens, int start, Set<String> tables) {
+    if ((start >= tokens.size()) || !tokens.get(start).isWord()) {
+      // subquery or end of input
+      return start;
+    }
+    if (tokens.get(start).isKeyword("ONLY") || tokens.get(start).isKeyword("LATERAL")) {
+      return readTableReference(tokens, start + 1, tables);
+    }
+    StringBuilder name = new StringBuilder(tokens.get(start).text);
+    int i = start + 1;
+    while ((i + 1 < tokens.size()) && isSymbol(tokens.get(i), ".") && tokens.get(i + 1).isWord()) {
+      name.append('.').append(tokens.get(i + 1).text);
+      i += 2;
+    }
+    if ((i < tokens.size()) && isSymbol(tokens.get(i), "(")) {
+      // table function like SYSTEM_RANGE(1, 10) or a column list
+      Token previous = tokens.get(start - 1);
+      if (!previous.isKeyword("INTO") && !previous.isKeyword("TABLE") && !previous.isKeyword("EXISTS")) {
+        return i;
+      }
+    }
+    tables.add(name.toString());
+    return i;
+  }
+
+  private static boolean isSymbol(Token token, String symbols) {
+    return !token.isWord() && (symbols.indexOf(token.text.charAt(0)) != -1);
+  }
+
+  static List<Token> tokenize(String sql) {
+    List<Token> tokens = new ArrayList<>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i += 1;
+      } else if ((c == '-') && (i + 1 < length) && (sql.charAt(i + 1) == '-')) {
+        // line comment
+        int end = sql.indexOf('\n', i);
+        i = end != -1 ? end + 1 : length;
+      } else if ((c == '/') && (i + 1 < length) && (sql.charAt(i + 1) == '*')) {
+        // block comment
+        int end = sql.indexOf("*/", i + 2);
+        i = end != -1 ? end + 2 : length;
+      } else if (c == '\'') {
+        // string literal, '' is an escaped quote
+        i = skipQuoted(sql, i, '\'');
+      } else if ((c == '"') || (c == '`') || (c == '[')) {
+        char close = c == '[' ? ']' : c;
+        int end = skipQuoted(sql, i, close);
+        int textEnd = Math.min(end - 1, length);
+        tokens.add(new Token(sql.substring(i + 1, Math.max(textEnd, i + 1)), true, true));
+        i = end;
+      } else if (Character.isLetterOrDigit(c) || (c == '_') || (c == '$') || (c == '#')) {
+        int start = i;
+        while ((i < length) && isWordPart(sql.charAt(i))) {
+          i += 1;
+        }
+        tokens.add(new Token(sql.substring(start, i), true, false));
+      } else {
+        tokens.add(new Token(String.valueOf(c), false, false));
+        i += 1;
+      }
+    }
+    return tokens;
+  }
+
+  private static boolean isWordPart(char c) {
+    return Character.isLetterOrDigit(c) || (c == '_') || (c == '$') || (c == '#');
+  }
+
+  private static int skipQuoted(String sql, int start, char close) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == close) {
+        if ((i + 1 < sql.length()) && (sql.charAt(i + 1) == close) && (close != ']')) {
+          // escaped quote
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i += 1;
+    }
+    return sql.length();
+  }
+
+  static final class Token {
+
+    final String text;
+
+    private final boolean word;
+
+    final boolean quoted;
+
+    Token(String text, boolean word, boolean quoted) {
+      this.text = text;
+      this.word = word;
+      this.quoted = quoted;
+    }
+
+    boolean isWord() {
+      return this.word;
+    }
+
+    boolean isKeyword(String keyword) {
+      return this.word && !this.quoted && this.text.equalsIgnoreCase(keyword);
+    }
+
+    @Override
+    public String toString() {
+      return this.text;
+    }
+
+  }
+
+  /**
+   * The statement type, referenced tables and shape of a query string.
+   */
+  static final class Classification {
+
+    private final String statementType;
+
+    private final List<String> tableNames;
+
+    private final String tables;
+
+    private final String shape;
+
+    Classification(String statementType, List<String> tableNames, String shape) {
+      this.statementType = statementType;
+      this.tableNames = tableNames;
+      this.tables = tableNames.isEmpty() ? null : String.join(",", tableNames);
+      this.shape = shape;
+    }
+
+    /**
+     * Returns the statement type.
+     *
+     * @return one of {@code SELECT}, {@code INSERT}, {@code UPDATE},
+     *         {@code DELETE}, {@code MERGE}, {@code DDL}, {@code CALL}
+     *         or {@code OTHER}
+     */
+    String getStatementType() {
+      return this.statementType;
+    }
+
+    /**
+     * Returns the referenced tables in order of appearance.
+     *
+     * @return the referenced tables, may be empty
+     */
+    List<String> getTableNames() {
+      return this.tableNames;
+    }
+
+    /**
+     * Returns the referenced tables as a comma separated string.
+     *
+     * @return the referenced tables, {@code null} if there are none
+     */
+    String getTables() {
+      return this.tables;
+    }
+
+    /**
+     * Returns the query string with comments removed, whitespace collapsed
+     * and literals replaced by {@code ?}.
+     *
+     * @return the shape of the query string
+     */
+    String getShape() {
+      return this.shape;
+    }
+
+    @Override
+    public String toString() {
+      return this.statementType + " " + this.tableNames;
+    }
+
+  }
+
+}
@@ -0,0 +1,99 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+/**
+ * The latency budgets enforced by a {@link WatchdogJdbcOperations}.
+ *
+ * <p>A budget is looked up first by the SQL query string, then by the
+ * operation name, eg. {@code "queryForObject"}, and finally the default
+ * budget is used. Operations without a budget are not watched.</p>
+ *
+ * <p>Instances of this class are immutable and thread safe.</p>
+ */
+public final class StatementBudgets {
+
+  private static final long NO_BUDGET = -1L;
+
+  private final long defaultBudgetNanos;
+
+  private final Map<String, Long> operationBudgets;
+
+  private final Map<String, Long> queryBudgets;
+
+  /**
+   * Constructs a new {@link StatementBudgets} with only a default budget.
+   *
+   * @param defaultBudget the budget for all operations, not {@code null}
+   */
+  public StatementBudgets(Duration defaultBudget) {
+    this(Objects.requireNonNull(defaultBudget, "defaultBudget"), Map.of(), Map.of());
+  }
+
+  /**
+   * Constructs a new {@link StatementBudgets}.
+   *
+   * @param defaultBudget the budget for operations that have neither a query
+   *                      nor an operation budget, {@code null} for no budget
+   * @param operationBudgets the budgets by operation name, for example
+   *                         {@code "queryForObject"}, not {@code null}
+   * @param queryBudgets the budgets by SQL query string, not {@code null}
+   */
+  public StatementBudgets(Duration defaultBudget, Map<String, Duration> operationBudgets, Map<String, Duration> queryBudgets) {
+    Objects.requireNonNull(operationBudgets, "operationBudgets");
+    Objects.requireNonNull(queryBudgets, "queryBudgets");
+    this.defaultBudgetNanos = defaultBudget != null ? toNanos(defaultBudget) : NO_BUDGET;
+    this.operationBudgets = toNanos(operationBudgets);
+    this.queryBudgets = toNanos(queryBudgets);
+  }
+
+  private static Map<String, Long> toNanos(Map<String, Duration> budgets) {
+    Map<String, Long> nanos = new HashMap<>(budgets.size());
+    for (Entry<String, Duration> entry : budgets.entrySet()) {
+      nanos.put(Objects.requireNonNull(entry.getKey(), "key"), toNanos(entry.getValue()));
+    }
+    return Map.copyOf(nanos);
+  }
+
+  private static long toNanos(Duration budget) {
+    Objects.requireNonNull(budget, "budget");
+    if (budget.isNegative() || budget.isZero()) {
+      throw new IllegalArgumentException("budget must be positive but was: " + budget);
+    }
+    return budget.toNanos();
+  }
+
+  /**
+   * Starts watching an operation.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string, may be {@code null}
+   * @return the watch, {@code null} if the operation has no budget
+   */
+  StatementWatch startWatch(String operationName, String query) {
+    long budgetNanos = this.getBudgetNanos(operationName, query);
+    if (budgetNanos == NO_BUDGET) {
+      return null;
+    }
+    return new StatementWatch(operationName, query, budgetNanos);
+  }
+
+  private long getBudgetNanos(String operationName, String query) {
+    if (query != null) {
+      Long queryBudget = this.queryBudgets.get(query);
+      if (queryBudget != null) {
+        return queryBudget;
+      }
+    }
+    Long operationBudget = this.operationBudgets.get(operationName);
+    if (operationBudget != null) {
+      return operationBudget;
+    }
+    return this.defaultBudgetNanos;
+  }
+
+}
@@ -0,0 +1,233 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Watches the statements of a single JDBC operation and cancels them once the
+ * operation exceeds its budget.
+ *
+ * <p>All watches share a single daemon scheduler thread. The scheduler thread
+ * hands the calls to {@link Statement#cancel()}, which may need a network
+ * round trip, off to a pool of at most {@value #MAX_CANCELLERS} daemon
+ * threads so that a slow cancellation does not delay other watches. Further
+ * cancellations are queued.</p>
+ */
+final class StatementWatch implements Runnable {
+
+  private static final int MAX_CANCELLERS = 4;
+
+  private static final ScheduledThreadPoolExecutor SCHEDULER;
+
+  private static final Executor CANCELLERS;
+
+  static {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "jfr-jdbctemplate-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // most watches finish within their budget, don't keep them in the queue
+    scheduler.setRemoveOnCancelPolicy(true);
+    SCHEDULER = scheduler;
+
+    ThreadPoolExecutor cancellers = new ThreadPoolExecutor(MAX_CANCELLERS, MAX_CANCELLERS,
+            1L, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+              Thread thread = new Thread(runnable, "jfr-jdbctemplate-canceller");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // cancellations are rare, don't keep idle threads around
+    cancellers.allowCoreThreadTimeOut(true);
+    CANCELLERS = cancellers;
+  }
+
+  private final String operationName;
+
+  private final String query;
+
+  private final long budgetNanos;
+
+  private final long startNanos;
+
+  // guarded by this
+  private Statement statement;
+
+  // guarded by this
+  private ScheduledFuture<?> timeout;
+
+  // guarded by this
+  private boolean finished;
+
+  // guarded by this, a cancellation is scheduled or running
+  private boolean cancelling;
+
+  StatementWatch(String operationName, String query, long budgetNanos) {
+    this.operationName = operationName;
+    this.query = query;
+    this.budgetNanos = budgetNanos;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Starts watching a statement created by the operation, the budget is
+   * measured from the start of the operation.
+   *
+   * @param statement the statement to cancel when the budget is exceeded
+   */
+  synchronized void watch(Statement statement) {
+    if (this.finished) {
+      return;
+    }
+    this.statement = statement;
+    if (this.timeout == null) {
+      long remaining = this.budgetNanos - (System.nanoTime() - this.startNanos);
+      this.timeout = SCHEDULER.schedule(this, Math.max(remaining, 0L), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Marks the end of the operation, no statements will be cancelled after
+   * this method returns. Waits for a cancellation that is already running.
+   */
+  void finish() {
+    ScheduledFuture<?> toCancel;
+    boolean interrupted = false;
+    synchronized (this) {
+      this.finished = true;
+      this.statement = null;
+      toCancel = this.timeout;
+      while (this.cancelling) {
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (toCancel != null) {
+      toCancel.cancel(false);
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    synchronized (this) {
+      if (this.finished) {
+        return;
+      }
+      this.cancelling = true;
+    }
+    CANCELLERS.execute(this::cancel);
+  }
+
+  private void cancel() {
+    Statement toCancel;
+    synchronized (this) {
+      if (this.finished) {
+        this.cancelled();
+        return;
+      }
+      toCancel = this.statement;
+    }
+    // don't hold the lock during a potential network round trip, finish()
+    // waits until the statement has been cancelled
+    try {
+      toCancel.cancel();
+    } catch (SQLException e) {
+      // the statement has been closed in the meantime
+      return;
+    } finally {
+      synchronized (this) {
+        this.cancelled();
+      }
+    }
+    StatementCancellationEvent event = new StatementCancellationEvent();
+    event.setOperationName(this.operationName);
+    event.setQuery(this.query);
+    event.setBudget(this.budgetNanos);
+    event.setElapsed(System.nanoTime() - this.startNanos);
+    event.commit();
+  }
+
+  // has to be called while holding the lock
+  private void cancelled() {
+    this.cancelling = false;
+    this.notifyAll();
+  }
+
+  @Label("Statement Cancellation")
+  @Description("A statement was cancelled because the JDBC operation exceeded its budget")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class StatementCancellationEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Budget")
+    @Description("The maximum time the JDBC operation was allowed to take")
+    @Timespan(Timespan.NANOSECONDS)
+    private long budget;
+
+    @Label("Elapsed")
+    @Description("The time the JDBC operation had been running for when it was cancelled")
+    @Timespan(Timespan.NANOSECONDS)
+    private long elapsed;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getBudget() {
+      return this.budget;
+    }
+
+    void setBudget(long budget) {
+      this.budget = budget;
+    }
+
+    long getElapsed() {
+      return this.elapsed;
+    }
+
+    void setElapsed(long elapsed) {
+      this.elapsed = elapsed;
+    }
+
+  }
+
+}
@@ -0,0 +1,197 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.lang.StackWalker.StackFrame;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.util.stream.Stream;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Detects {@link Stream}s returned from {@code #queryForStream} methods that
+ * become unreachable without having been closed.
+ *
+ * <p>Detection is only active when {@link StreamLeakEvent} is enabled, which
+ * is not the case by default. The only overhead is a {@link Cleaner}
+ * registration and a stack walk per stream, there is no per element
+ * overhead.</p>
+ */
+final class StreamLeakDetector {
+
+  private static final Cleaner CLEANER = Cleaner.create();
+
+  private static final EventType LEAK_EVENT_TYPE = EventType.getEventType(StreamLeakEvent.class);
+
+  private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+  private static final String[] INTERNAL_CLASS_NAMES = {
+      StreamLeakDetector.class.getName(),
+      JfrJdbcOperations.class.getName(),
+      JfrNamedParameterJdbcOperations.class.getName()
+  };
+
+  private static final String SPRING_JDBC_PACKAGE_PREFIX = "org.springframework.jdbc.";
+
+  private StreamLeakDetector() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Starts tracking a stream.
+   *
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string, may be {@code null}
+   * @return the tracking state, {@code null} if leak detection is disabled
+   */
+  static OpenStream open(String operationName, String query) {
+    if (!LEAK_EVENT_TYPE.isEnabled()) {
+      return null;
+    }
+    return new OpenStream(operationName, query, System.nanoTime(), getCallSite());
+  }
+
+  static void register(Stream<?> stream, OpenStream openStream) {
+    if (openStream != null) {
+      openStream.cleanable = CLEANER.register(stream, openStream);
+    }
+  }
+
+  static void close(OpenStream openStream) {
+    if (openStream != null) {
+      openStream.close();
+    }
+  }
+
+  private static String getCallSite() {
+    return STACK_WALKER.walk(frames -> frames
+            .filter(frame -> !isInternal(frame))
+            .findFirst()
+            .map(StackFrame::toString)
+            .orElse(null));
+  }
+
+  private static boolean isInternal(StackFrame frame) {
+    String className = frame.getClassName();
+    if (className.startsWith(SPRING_JDBC_PACKAGE_PREFIX)) {
+      return true;
+    }
+    for (String internalClassName : INTERNAL_CLASS_NAMES) {
+      // also matches nested classes and lambdas
+      if (className.startsWith(internalClassName)
+              && ((className.length() == internalClassName.length()) || (className.charAt(internalClassName.length()) == '$'))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The state of a tracked stream, must not reference the stream itself.
+   */
+  static final class OpenStream implements Runnable {
+
+    private final String operationName;
+
+    private final String query;
+
+    private final long openedNanos;
+
+    private final String callSite;
+
+    private volatile boolean closed;
+
+    Cleanable cleanable;
+
+    OpenStream(String operationName, String query, long openedNanos, String callSite) {
+      this.operationName = operationName;
+      this.query = query;
+      this.openedNanos = openedNanos;
+      this.callSite = callSite;
+    }
+
+    void close() {
+      this.closed = true;
+      // deregisters from the cleaner, #run() will be a no-op
+      this.cleanable.clean();
+    }
+
+    @Override
+    public void run() {
+      if (!this.closed) {
+        StreamLeakEvent event = new StreamLeakEvent();
+        event.setOperationName(this.operationName);
+        event.setQuery(this.query);
+        event.setOpenDuration(System.nanoTime() - this.openedNanos);
+        event.setCallSite(this.callSite);
+        event.commit();
+      }
+    }
+
+  }
+
+  @Label("Stream Leak")
+  @Description("A Stream returned by queryForStream became unreachable without being closed")
+  @Category(JfrConstants.CATEGORY)
+  @Enabled(false)
+  @StackTrace(false)
+  static class StreamLeakEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Open Duration")
+    @Description("The time between opening the stream and detecting the leak")
+    @Timespan(Timespan.NANOSECONDS)
+    private long openDuration;
+
+    @Label("Call Site")
+    @Description("The method that opened the stream")
+    private String callSite;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getOpenDuration() {
+      return this.openDuration;
+    }
+
+    void setOpenDuration(long openDuration) {
+      this.openDuration = openDuration;
+    }
+
+    String getCallSite() {
+      return this.callSite;
+    }
+
+    void setCallSite(String callSite) {
+      this.callSite = callSite;
+    }
+
+  }
+
+}
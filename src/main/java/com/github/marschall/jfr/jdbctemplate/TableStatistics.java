@@ -0,0 +1,207 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Aggregates the time spent in and the rows processed by JDBC operations
+ * per table.
+ *
+ * <p>The time and rows of an operation are attributed in full to every table
+ * the query references. Nested operations, eg. a
+ * {@link JfrNamedParameterJdbcOperations} on top of a
+ * {@link JfrJdbcOperations}, are only counted once. Every periodic event
+ * reports the values since the previous one, if several recordings are
+ * running they share the same counters.</p>
+ *
+ * <p>Operations are only aggregated while {@link TableStatisticsEvent} is
+ * enabled.</p>
+ */
+final class TableStatistics {
+
+  private static final int MAX_TABLES = 1024;
+
+  private static final ConcurrentMap<String, TableCounters> COUNTERS = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+  private static final EventType TABLE_STATISTICS_EVENT_TYPE;
+
+  static {
+    TABLE_STATISTICS_EVENT_TYPE = EventType.getEventType(TableStatisticsEvent.class);
+    FlightRecorder.addPeriodicEvent(TableStatisticsEvent.class, TableStatistics::emitTableStatistics);
+  }
+
+  private TableStatistics() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Marks the start of a JDBC operation on the current thread.
+   *
+   * @return the start time to pass to {@link #exit(long, String, long)},
+   *         {@code 0} if the operation is not aggregated
+   */
+  static long enter() {
+    if (!TABLE_STATISTICS_EVENT_TYPE.isEnabled()) {
+      return 0L;
+    }
+    DEPTH.get()[0] += 1;
+    long now = System.nanoTime();
+    // 0 means not aggregated
+    return now != 0L ? now : 1L;
+  }
+
+  /**
+   * Marks the end of a JDBC operation.
+   *
+   * @param startNanos the value returned by {@link #enter()}
+   * @param query the SQL query string, may be {@code null}
+   * @param rowCount the number of rows returned or updated, negative if
+   *                 unknown
+   */
+  static void exit(long startNanos, String query, long rowCount) {
+    if (startNanos == 0L) {
+      return;
+    }
+    int[] depth = DEPTH.get();
+    depth[0] -= 1;
+    if (depth[0] > 0) {
+      return;
+    }
+    Classification classification = SqlClassifier.classify(query);
+    if (classification == null) {
+      return;
+    }
+    long durationNanos = System.nanoTime() - startNanos;
+    for (String table : classification.getTableNames()) {
+      TableCounters counters = getCounters(table);
+      if (counters != null) {
+        counters.record(durationNanos, rowCount);
+      }
+    }
+  }
+
+  private static TableCounters getCounters(String table) {
+    TableCounters counters = COUNTERS.get(table);
+    if (counters != null) {
+      return counters;
+    }
+    if (COUNTERS.size() >= MAX_TABLES) {
+      // likely generated table names, don't grow without limit
+      return null;
+    }
+    return COUNTERS.computeIfAbsent(table, key -> new TableCounters());
+  }
+
+  private static void emitTableStatistics() {
+    for (Entry<String, TableCounters> entry : COUNTERS.entrySet()) {
+      TableCounters counters = entry.getValue();
+      long operationCount = counters.operationCount.sumThenReset();
+      long totalDuration = counters.totalDuration.sumThenReset();
+      long rowCount = counters.rowCount.sumThenReset();
+      if (operationCount == 0L) {
+        continue;
+      }
+      TableStatisticsEvent event = new TableStatisticsEvent();
+      event.setTable(entry.getKey());
+      event.setOperationCount(operationCount);
+      event.setTotalDuration(totalDuration);
+      event.setRowCount(rowCount);
+      event.commit();
+    }
+  }
+
+  static final class TableCounters {
+
+    final LongAdder operationCount = new LongAdder();
+
+    final LongAdder totalDuration = new LongAdder();
+
+    final LongAdder rowCount = new LongAdder();
+
+    void record(long durationNanos, long rows) {
+      this.operationCount.increment();
+      this.totalDuration.add(durationNanos);
+      if (rows > 0L) {
+        this.rowCount.add(rows);
+      }
+    }
+
+  }
+
+  @Label("Table Statistics")
+  @Description("The time spent in and the rows processed by JDBC operations referencing a table")
+  @Category(JfrConstants.CATEGORY)
+  @Period("60 s")
+  @Enabled(false)
+  @StackTrace(false)
+  static class TableStatisticsEvent extends Event {
+
+    @Label("Table")
+    @Description("The name of the table")
+    private String table;
+
+    @Label("Operation Count")
+    @Description("The number of JDBC operations referencing the table")
+    private long operationCount;
+
+    @Label("Total Duration")
+    @Description("The total time spent in JDBC operations referencing the table")
+    @Timespan(Timespan.NANOSECONDS)
+    private long totalDuration;
+
+    @Label("Row Count")
+    @Description("The total number of rows returned or updated by JDBC operations referencing the table")
+    private long rowCount;
+
+    String getTable() {
+      return this.table;
+    }
+
+    void setTable(String table) {
+      this.table = table;
+    }
+
+    long getOperationCount() {
+      return this.operationCount;
+    }
+
+    void setOperationCount(long operationCount) {
+      this.operationCount = operationCount;
+    }
+
+    long getTotalDuration() {
+      return this.totalDuration;
+    }
+
+    void setTotalDuration(long totalDuration) {
+      this.totalDuration = totalDuration;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+  }
+
+}
@@ -0,0 +1,371 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Records the JDBC operations of a unit of work, eg. an HTTP request or a
+ * batch job step, but only commits them if the unit of work was slow.
+ *
+ * <p>While a unit of work is bound to the current thread every outermost
+ * operation of a {@link JfrJdbcOperations}, {@link JfrNamedParameterJdbcOperations}
+ * or {@link JfrJdbcTemplate} is buffered as a "Sampled Operation" event.
+ * When the unit of work ends the buffered events and a "Slow Unit Of Work"
+ * event are committed if either the unit of work took longer than the request
+ * threshold or the operations took longer than the database threshold in
+ * total, otherwise they are discarded. At most a fixed number of operations
+ * is buffered per unit of work, further operations are only counted. For
+ * streams only opening the stream is buffered and counted as database time,
+ * operations executed while the stream is open are buffered separately.</p>
+ *
+ * <pre><code>
+ * UnitOfWork unitOfWork = tailSampler.begin();
+ * try {
+ *   // JDBC operations
+ * } finally {
+ *   unitOfWork.end();
+ * }
+ * </code></pre>
+ *
+ * <p>This allows disabling or raising the threshold of the "Operation" event
+ * while still getting every operation of slow requests. Operations are only
+ * buffered while the "Sampled Operation" event is enabled.</p>
+ *
+ * <p>Instances of this class are immutable and thread safe, units of work
+ * have to be ended on the thread that began them.</p>
+ */
+public final class TailSampler {
+
+  private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+  private static final AtomicLong UNIT_OF_WORK_IDS = new AtomicLong();
+
+  private static final EventType SAMPLED_OPERATION_EVENT_TYPE = EventType.getEventType(SampledOperationEvent.class);
+
+  private final long requestThresholdNanos;
+
+  private final long databaseThresholdNanos;
+
+  private final int maximumOperations;
+
+  /**
+   * Constructs a new {@link TailSampler}.
+   *
+   * @param requestThreshold the duration of a unit of work above which its
+   *                         operations are committed, not {@code null}
+   * @param databaseThreshold the total duration of the operations of a unit
+   *                          of work above which they are committed, not
+   *                          {@code null}
+   * @param maximumOperations the maximum number of operations buffered per
+   *                          unit of work, must be positive
+   */
+  public TailSampler(Duration requestThreshold, Duration databaseThreshold, int maximumOperations) {
+    Objects.requireNonNull(requestThreshold, "requestThreshold");
+    Objects.requireNonNull(databaseThreshold, "databaseThreshold");
+    if (requestThreshold.isNegative() || requestThreshold.isZero()) {
+      throw new IllegalArgumentException("requestThreshold must be positive but was: " + requestThreshold);
+    }
+    if (databaseThreshold.isNegative() || databaseThreshold.isZero()) {
+      throw new IllegalArgumentException("databaseThreshold must be positive but was: " + databaseThreshold);
+    }
+    if (maximumOperations <= 0) {
+      throw new IllegalArgumentException("maximumOperations must be positive but was: " + maximumOperations);
+    }
+    this.requestThresholdNanos = requestThreshold.toNanos();
+    this.databaseThresholdNanos = databaseThreshold.toNanos();
+    this.maximumOperations = maximumOperations;
+  }
+
+  /**
+   * Begins a unit of work on the current thread.
+   *
+   * @return the unit of work, {@link UnitOfWork#end()} has to be called on
+   *         the current thread
+   */
+  public UnitOfWork begin() {
+    UnitOfWork unitOfWork = new UnitOfWork(this, CURRENT.get());
+    CURRENT.set(unitOfWork);
+    return unitOfWork;
+  }
+
+  /**
+   * Marks the start of a JDBC operation on the current thread.
+   *
+   * @return the unit of work to pass to
+   *         {@link #exit(UnitOfWork, String, String, long)}, {@code null} if
+   *         the operation is not buffered
+   */
+  static UnitOfWork enter() {
+    if (!SAMPLED_OPERATION_EVENT_TYPE.isEnabled()) {
+      return null;
+    }
+    UnitOfWork unitOfWork = CURRENT.get();
+    if ((unitOfWork == null) || unitOfWork.ended) {
+      return null;
+    }
+    unitOfWork.enter();
+    return unitOfWork;
+  }
+
+  /**
+   * Marks the end of a JDBC operation.
+   *
+   * @param unitOfWork the value returned by {@link #enter()}, may be {@code null}
+   * @param operationName the name of the JDBC operation
+   * @param query the SQL query string, may be {@code null}
+   * @param rowCount the number of rows returned or updated, negative if
+   *                 unknown
+   */
+  static void exit(UnitOfWork unitOfWork, String operationName, String query, long rowCount) {
+    if (unitOfWork != null) {
+      unitOfWork.exit(operationName, query, rowCount);
+    }
+  }
+
+  /**
+   * The JDBC operations executed on a thread between {@link TailSampler#begin()}
+   * and {@link #end()}.
+   */
+  public static final class UnitOfWork {
+
+    private final TailSampler sampler;
+
+    private final UnitOfWork previous;
+
+    private final long id;
+
+    private final long startNanos;
+
+    private final SlowUnitOfWorkEvent event;
+
+    private SampledOperationEvent[] operations;
+
+    private int operationCount;
+
+    private long droppedOperationCount;
+
+    private long databaseNanos;
+
+    // nested operations, eg. a JfrNamedParameterJdbcOperations on top of a
+    // JfrJdbcOperations, are buffered only once
+    private int depth;
+
+    private long operationStartNanos;
+
+    private SampledOperationEvent current;
+
+    private boolean ended;
+
+    UnitOfWork(TailSampler sampler, UnitOfWork previous) {
+      this.sampler = sampler;
+      this.previous = previous;
+      this.id = UNIT_OF_WORK_IDS.incrementAndGet();
+      this.event = new SlowUnitOfWorkEvent();
+      this.event.begin();
+      this.startNanos = System.nanoTime();
+    }
+
+    void enter() {
+      if (this.depth++ > 0) {
+        return;
+      }
+      this.operationStartNanos = System.nanoTime();
+      if (this.operationCount < this.sampler.maximumOperations) {
+        this.current = new SampledOperationEvent();
+        this.current.begin();
+      } else {
+        this.droppedOperationCount += 1L;
+      }
+    }
+
+    void exit(String operationName, String query, long rowCount) {
+      if (--this.depth > 0) {
+        return;
+      }
+      this.databaseNanos += System.nanoTime() - this.operationStartNanos;
+      SampledOperationEvent operation = this.current;
+      if ((operation == null) || this.ended) {
+        // an operation that outlived its unit of work, eg. the unit of work
+        // was ended in a callback of the operation
+        this.current = null;
+        return;
+      }
+      this.current = null;
+      operation.end();
+      operation.setUnitOfWorkId(this.id);
+      operation.setOperationName(operationName);
+      operation.setQuery(query);
+      operation.setRowCount(rowCount);
+      if (this.operations == null) {
+        this.operations = new SampledOperationEvent[Math.min(this.sampler.maximumOperations, 16)];
+      } else if (this.operationCount == this.operations.length) {
+        int newLength = (int) Math.min((long) this.operations.length * 2L, this.sampler.maximumOperations);
+        SampledOperationEvent[] newOperations = new SampledOperationEvent[newLength];
+        System.arraycopy(this.operations, 0, newOperations, 0, this.operationCount);
+        this.operations = newOperations;
+      }
+      this.operations[this.operationCount++] = operation;
+    }
+
+    /**
+     * Ends this unit of work and commits its operations if it was slow.
+     * Has to be called on the thread that began this unit of work.
+     */
+    public void end() {
+      if (this.ended) {
+        return;
+      }
+      this.ended = true;
+      if (CURRENT.get() == this) {
+        // units of work ended out of order must not be bound again
+        UnitOfWork restored = this.previous;
+        while ((restored != null) && restored.ended) {
+          restored = restored.previous;
+        }
+        CURRENT.set(restored);
+      }
+      long elapsedNanos = System.nanoTime() - this.startNanos;
+      this.event.end();
+      if ((elapsedNanos >= this.sampler.requestThresholdNanos)
+              || (this.databaseNanos >= this.sampler.databaseThresholdNanos)) {
+        for (int i = 0; i < this.operationCount; i++) {
+          SampledOperationEvent operation = this.operations[i];
+          if (operation.shouldCommit()) {
+            operation.commit();
+          }
+        }
+        if (this.event.shouldCommit()) {
+          this.event.setUnitOfWorkId(this.id);
+          this.event.setDatabaseTime(this.databaseNanos);
+          this.event.setOperationCount(this.operationCount + this.droppedOperationCount);
+          this.event.setDroppedOperationCount(this.droppedOperationCount);
+          this.event.commit();
+        }
+      }
+      this.operations = null;
+    }
+
+  }
+
+  @Label("Sampled Operation")
+  @Description("A JDBC operation of a slow unit of work")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class SampledOperationEvent extends Event {
+
+    @Label("Unit Of Work Id")
+    @Description("The id of the unit of work, matches the id of the slow unit of work event")
+    private long unitOfWorkId;
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Row Count")
+    @Description("The number of rows returned or updated")
+    private long rowCount;
+
+    long getUnitOfWorkId() {
+      return this.unitOfWorkId;
+    }
+
+    void setUnitOfWorkId(long unitOfWorkId) {
+      this.unitOfWorkId = unitOfWorkId;
+    }
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+  }
+
+  @Label("Slow Unit Of Work")
+  @Description("A unit of work that exceeded the request or database threshold")
+  @Category(JfrConstants.CATEGORY)
+  static class SlowUnitOfWorkEvent extends Event {
+
+    @Label("Unit Of Work Id")
+    @Description("The id of the unit of work, matches the id of the sampled operation events")
+    private long unitOfWorkId;
+
+    @Label("Database Time")
+    @Description("The total time spent in JDBC operations")
+    @Timespan(Timespan.NANOSECONDS)
+    private long databaseTime;
+
+    @Label("Operation Count")
+    @Description("The number of JDBC operations, including dropped ones")
+    private long operationCount;
+
+    @Label("Dropped Operation Count")
+    @Description("The number of JDBC operations that exceeded the maximum and were not recorded")
+    private long droppedOperationCount;
+
+    long getUnitOfWorkId() {
+      return this.unitOfWorkId;
+    }
+
+    void setUnitOfWorkId(long unitOfWorkId) {
+      this.unitOfWorkId = unitOfWorkId;
+    }
+
+    long getDatabaseTime() {
+      return this.databaseTime;
+    }
+
+    void setDatabaseTime(long databaseTime) {
+      this.databaseTime = databaseTime;
+    }
+
+    long getOperationCount() {
+      return this.operationCount;
+    }
+
+    void setOperationCount(long operationCount) {
+      this.operationCount = operationCount;
+    }
+
+    long getDroppedOperationCount() {
+      return this.droppedOperationCount;
+    }
+
+    void setDroppedOperationCount(long droppedOperationCount) {
+      this.droppedOperationCount = droppedOperationCount;
+    }
+
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses timespans in the JFR settings format, for example {@code "20 ms"}.
+ */
+final class TimespanParser {
+
+  private TimespanParser() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Parses a timespan.
+   *
+   * @param timespan the timespan, for example {@code "10 s"}, {@code "0"}
+   * @return the number of nanoseconds
+   * @throws IllegalArgumentException if the timespan can not be parsed
+   */
+  static long parseNanos(String timespan) {
+    String trimmed = timespan.trim();
+    int unitStart = 0;
+    while ((unitStart < trimmed.length()) && Character.isDigit(trimmed.charAt(unitStart))) {
+      unitStart += 1;
+    }
+    if (unitStart == 0) {
+      throw new IllegalArgumentException("not a timespan: " + timespan);
+    }
+    long amount = Long.parseLong(trimmed.substring(0, unitStart));
+    String unit = trimmed.substring(unitStart).trim();
+    switch (unit) {
+      case "":
+        if (amount == 0L) {
+          return 0L;
+        }
+        throw new IllegalArgumentException("missing unit: " + timespan);
+      case "ns":
+        return amount;
+      case "us":
+        return TimeUnit.MICROSECONDS.toNanos(amount);
+      case "ms":
+        return TimeUnit.MILLISECONDS.toNanos(amount);
+      case "s":
+        return TimeUnit.SECONDS.toNanos(amount);
+      case "m":
+        return TimeUnit.MINUTES.toNanos(amount);
+      case "h":
+        return TimeUnit.HOURS.toNanos(amount);
+      case "d":
+        return TimeUnit.DAYS.toNanos(amount);
+      default:
+        throw new IllegalArgumentException("unknown unit: " + timespan);
+    }
+  }
+
+}
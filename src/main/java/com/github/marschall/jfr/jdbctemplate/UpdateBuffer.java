@@ -0,0 +1,209 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * The updates buffered by a {@link BatchingJdbcOperations} in the current
+ * transaction.
+ *
+ * <p>Bound to the transaction as a resource, instances are only accessed by
+ * the thread executing the transaction.</p>
+ */
+final class UpdateBuffer implements TransactionSynchronization {
+
+  static final String TRIGGER_STATEMENT = "statement";
+
+  static final String TRIGGER_SIZE = "size";
+
+  static final String TRIGGER_COMMIT = "commit";
+
+  static final String TRIGGER_SUSPEND = "suspend";
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final JdbcOperations delegate;
+
+  private final Object resourceKey;
+
+  private final int maximumBatchSize;
+
+  private String sql;
+
+  private List<Object[]> batchArgs;
+
+  UpdateBuffer(JdbcOperations delegate, Object resourceKey, int maximumBatchSize) {
+    this.delegate = delegate;
+    this.resourceKey = resourceKey;
+    this.maximumBatchSize = maximumBatchSize;
+    this.batchArgs = new ArrayList<>();
+  }
+
+  /**
+   * Adds an update to the buffer.
+   *
+   * @param updateSql the SQL query string of the update
+   * @param args the arguments of the update, may be {@code null}
+   * @return the update count if the update caused the buffer to be flushed,
+   *         {@link Statement#SUCCESS_NO_INFO} otherwise
+   */
+  int add(String updateSql, Object[] args) {
+    if ((this.sql != null) && !this.sql.equals(updateSql)) {
+      this.flush(TRIGGER_STATEMENT);
+    }
+    this.sql = updateSql;
+    // the caller may reuse the array
+    this.batchArgs.add(args != null ? args.clone() : NO_ARGUMENTS);
+    if (this.batchArgs.size() >= this.maximumBatchSize) {
+      int[] updateCounts = this.flush(TRIGGER_SIZE);
+      return updateCounts.length > 0 ? updateCounts[updateCounts.length - 1] : Statement.SUCCESS_NO_INFO;
+    }
+    return Statement.SUCCESS_NO_INFO;
+  }
+
+  /**
+   * Executes the buffered updates as a single batch update.
+   *
+   * @param trigger why the buffer is flushed
+   * @return the update counts, empty if the buffer was empty
+   */
+  int[] flush(String trigger) {
+    if (this.batchArgs.isEmpty()) {
+      return new int[0];
+    }
+    String flushSql = this.sql;
+    List<Object[]> flushArgs = this.batchArgs;
+    // don't execute the updates again if the batch fails
+    this.sql = null;
+    this.batchArgs = new ArrayList<>();
+
+    CoalescedBatchEvent event = new CoalescedBatchEvent();
+    event.setQuery(flushSql);
+    event.setTrigger(trigger);
+    event.setCoalescedCalls(flushArgs.size());
+    event.setSavedRoundTrips(flushArgs.size() - 1L);
+    event.begin();
+    try {
+      int[] updateCounts = this.delegate.batchUpdate(flushSql, flushArgs);
+      event.setRowCount(sum(updateCounts));
+      return updateCounts;
+    } finally {
+      event.end();
+      event.commit();
+    }
+  }
+
+  private static long sum(int[] updateCounts) {
+    long sum = 0L;
+    for (int updateCount : updateCounts) {
+      if (updateCount < 0) {
+        return Statement.SUCCESS_NO_INFO;
+      }
+      sum += updateCount;
+    }
+    return sum;
+  }
+
+  @Override
+  public void suspend() {
+    // the connection of the suspended transaction is still bound
+    this.flush(TRIGGER_SUSPEND);
+    TransactionSynchronizationManager.unbindResource(this.resourceKey);
+  }
+
+  @Override
+  public void resume() {
+    TransactionSynchronizationManager.bindResource(this.resourceKey, this);
+  }
+
+  @Override
+  public void beforeCommit(boolean readOnly) {
+    this.flush(TRIGGER_COMMIT);
+  }
+
+  @Override
+  public void afterCompletion(int status) {
+    // discard updates buffered after a failed flush or on rollback
+    this.sql = null;
+    this.batchArgs = new ArrayList<>();
+    TransactionSynchronizationManager.unbindResourceIfPossible(this.resourceKey);
+  }
+
+  @Label("Coalesced Batch")
+  @Description("Consecutive updates that were coalesced into a single batch update")
+  @Category(JfrConstants.CATEGORY)
+  static class CoalescedBatchEvent extends Event {
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Trigger")
+    @Description("Why the batch was flushed, one of \"statement\", \"size\", \"commit\" or \"suspend\"")
+    private String trigger;
+
+    @Label("Coalesced Calls")
+    @Description("The number of update calls coalesced into the batch")
+    private long coalescedCalls;
+
+    @Label("Saved Round Trips")
+    @Description("The number of database round trips saved by the batch")
+    private long savedRoundTrips;
+
+    @Label("Row Count")
+    @Description("The number of rows updated by the batch")
+    private long rowCount;
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    String getTrigger() {
+      return this.trigger;
+    }
+
+    void setTrigger(String trigger) {
+      this.trigger = trigger;
+    }
+
+    long getCoalescedCalls() {
+      return this.coalescedCalls;
+    }
+
+    void setCoalescedCalls(long coalescedCalls) {
+      this.coalescedCalls = coalescedCalls;
+    }
+
+    long getSavedRoundTrips() {
+      return this.savedRoundTrips;
+    }
+
+    void setSavedRoundTrips(long savedRoundTrips) {
+      this.savedRoundTrips = savedRoundTrips;
+    }
+
+    long getRowCount() {
+      return this.rowCount;
+    }
+
+    void setRowCount(long rowCount) {
+      this.rowCount = rowCount;
+    }
+
+  }
+
+}
@@ -0,0 +1,282 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrNamedParameterJdbcOperations.JdbcNamedEvent;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Attributes {@code jdk.VirtualThreadPinned} events to the JDBC operation
+ * during which the virtual thread was pinned.
+ *
+ * <p>JDBC drivers that block while holding a monitor pin the carrier thread
+ * of a virtual thread. While open, this class consumes the pinned events and
+ * the {@link JfrJdbcOperations} and {@link JfrNamedParameterJdbcOperations}
+ * events in a {@link RecordingStream}. For every JDBC operation during which
+ * its thread was pinned a "JDBC Virtual Thread Pinning" event in the
+ * {@value JfrConstants#CATEGORY} category is generated with the number of
+ * times and the total time the thread was pinned. The events are generated
+ * by the thread of the stream and are delayed by about a second. Pinned
+ * events are attributed to the innermost JDBC operation.</p>
+ *
+ * <p>Only pinned events and JDBC operations longer than the threshold are
+ * considered, this enables the JDBC events with this threshold in all
+ * recordings. On Java versions without virtual threads no events are
+ * generated.</p>
+ */
+public final class VirtualThreadPinningCorrelator implements AutoCloseable {
+
+  static final String PINNED_EVENT_NAME = "jdk.VirtualThreadPinned";
+
+  private static final int MAX_THREADS = 4096;
+
+  private static final int MAX_PINNED_PER_THREAD = 256;
+
+  private final RecordingStream stream;
+
+  // only accessed by the thread of the stream
+  private final Map<Long, ArrayDeque<PinnedInterval>> pinned;
+
+  /**
+   * Constructs a new {@link VirtualThreadPinningCorrelator}.
+   *
+   * @param threshold the minimum duration of a pinned event, not {@code null}
+   */
+  public VirtualThreadPinningCorrelator(Duration threshold) {
+    Objects.requireNonNull(threshold, "threshold");
+    // threads that were pinned outside of a JDBC operation are never removed
+    this.pinned = new BoundedMap<>(MAX_THREADS);
+    this.stream = new RecordingStream();
+    this.stream.enable(PINNED_EVENT_NAME).withThreshold(threshold);
+    // an operation that contains a pinned event is at least as long
+    this.stream.enable(JdbcEvent.class).withThreshold(threshold);
+    this.stream.enable(JdbcNamedEvent.class).withThreshold(threshold);
+    this.stream.onEvent(PINNED_EVENT_NAME, this::onPinned);
+    this.stream.onEvent(JdbcEvent.class.getName(), this::onOperation);
+    this.stream.onEvent(JdbcNamedEvent.class.getName(), this::onOperation);
+  }
+
+  /**
+   * Starts consuming events in a background thread.
+   */
+  public void start() {
+    this.stream.startAsync();
+  }
+
+  /**
+   * Stops consuming events.
+   */
+  @Override
+  public void close() {
+    this.stream.close();
+  }
+
+  private void onPinned(RecordedEvent event) {
+    RecordedThread thread = event.getThread();
+    if (thread != null) {
+      this.recordPinned(thread.getJavaThreadId(), toNanos(event.getStartTime()), toNanos(event.getEndTime()));
+    }
+  }
+
+  private void onOperation(RecordedEvent event) {
+    RecordedThread thread = event.getThread();
+    if (thread == null) {
+      return;
+    }
+    Pinning pinning = this.correlate(thread.getJavaThreadId(), toNanos(event.getStartTime()), toNanos(event.getEndTime()));
+    if (pinning != null) {
+      JdbcPinningEvent pinningEvent = new JdbcPinningEvent();
+      pinningEvent.setOperationName(event.getString("operationName"));
+      pinningEvent.setQuery(event.getString("query"));
+      pinningEvent.setJavaThreadId(thread.getJavaThreadId());
+      pinningEvent.setPinnedCount(pinning.count);
+      pinningEvent.setPinnedTime(pinning.totalNanos);
+      pinningEvent.commit();
+    }
+  }
+
+  private static long toNanos(Instant instant) {
+    return (instant.getEpochSecond() * 1_000_000_000L) + instant.getNano();
+  }
+
+  /**
+   * Records that a thread was pinned.
+   *
+   * @param javaThreadId the id of the pinned thread
+   * @param startNanos the start of the pinned event in epoch nanoseconds
+   * @param endNanos the end of the pinned event in epoch nanoseconds
+   */
+  void recordPinned(long javaThreadId, long startNanos, long endNanos) {
+    ArrayDeque<PinnedInterval> intervals = this.pinned.computeIfAbsent(javaThreadId, id -> new ArrayDeque<>());
+    if (intervals.size() >= MAX_PINNED_PER_THREAD) {
+      intervals.removeFirst();
+    }
+    intervals.addLast(new PinnedInterval(startNanos, endNanos));
+  }
+
+  /**
+   * Removes and sums the pinned events of a thread that happened during a
+   * JDBC operation.
+   *
+   * <p>Pinned events that ended before the operation started are discarded,
+   * events are processed in the order in which they end so they can't belong
+   * to a later operation.</p>
+   *
+   * @param javaThreadId the id of the thread that executed the operation
+   * @param startNanos the start of the operation in epoch nanoseconds
+   * @param endNanos the end of the operation in epoch nanoseconds
+   * @return the pinned events during the operation, {@code null} if none
+   */
+  Pinning correlate(long javaThreadId, long startNanos, long endNanos) {
+    ArrayDeque<PinnedInterval> intervals = this.pinned.get(javaThreadId);
+    if (intervals == null) {
+      return null;
+    }
+    long count = 0L;
+    long totalNanos = 0L;
+    Iterator<PinnedInterval> iterator = intervals.iterator();
+    while (iterator.hasNext()) {
+      PinnedInterval interval = iterator.next();
+      if (interval.endNanos < startNanos) {
+        iterator.remove();
+      } else if ((interval.startNanos >= startNanos) && (interval.endNanos <= endNanos)) {
+        count += 1L;
+        totalNanos += interval.endNanos - interval.startNanos;
+        iterator.remove();
+      }
+    }
+    if (intervals.isEmpty()) {
+      this.pinned.remove(javaThreadId);
+    }
+    return count > 0L ? new Pinning(count, totalNanos) : null;
+  }
+
+  static final class PinnedInterval {
+
+    final long startNanos;
+
+    final long endNanos;
+
+    PinnedInterval(long startNanos, long endNanos) {
+      this.startNanos = startNanos;
+      this.endNanos = endNanos;
+    }
+
+  }
+
+  static final class Pinning {
+
+    final long count;
+
+    final long totalNanos;
+
+    Pinning(long count, long totalNanos) {
+      this.count = count;
+      this.totalNanos = totalNanos;
+    }
+
+  }
+
+  static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maximumSize;
+
+    BoundedMap(int maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return this.size() > this.maximumSize;
+    }
+
+  }
+
+  @Label("JDBC Virtual Thread Pinning")
+  @Description("A virtual thread was pinned to its carrier thread during a JDBC operation")
+  @Category(JfrConstants.CATEGORY)
+  @StackTrace(false)
+  static class JdbcPinningEvent extends Event {
+
+    @Label("Operation Name")
+    @Description("The name of the JDBC operation")
+    private String operationName;
+
+    @Label("Query")
+    @Description("The SQL query string")
+    private String query;
+
+    @Label("Java Thread Id")
+    @Description("The id of the virtual thread that executed the JDBC operation")
+    private long javaThreadId;
+
+    @Label("Pinned Count")
+    @Description("The number of times the virtual thread was pinned during the JDBC operation")
+    private long pinnedCount;
+
+    @Label("Pinned Time")
+    @Description("The total time the virtual thread was pinned during the JDBC operation")
+    @Timespan(Timespan.NANOSECONDS)
+    private long pinnedTime;
+
+    String getOperationName() {
+      return this.operationName;
+    }
+
+    void setOperationName(String operationName) {
+      this.operationName = operationName;
+    }
+
+    String getQuery() {
+      return this.query;
+    }
+
+    void setQuery(String query) {
+      this.query = query;
+    }
+
+    long getJavaThreadId() {
+      return this.javaThreadId;
+    }
+
+    void setJavaThreadId(long javaThreadId) {
+      this.javaThreadId = javaThreadId;
+    }
+
+    long getPinnedCount() {
+      return this.pinnedCount;
+    }
+
+    void setPinnedCount(long pinnedCount) {
+      this.pinnedCount = pinnedCount;
+    }
+
+    long getPinnedTime() {
+      return this.pinnedTime;
+    }
+
+    void setPinnedTime(long pinnedTime) {
+      this.pinnedTime = pinnedTime;
+    }
+
+  }
+
+}
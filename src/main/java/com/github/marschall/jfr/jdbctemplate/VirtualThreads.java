@@ -0,0 +1,42 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Detects virtual threads without requiring a Java version that has them.
+ *
+ * <p>{@code Thread#isVirtual()} is looked up once, on Java versions without
+ * virtual threads no thread is virtual.</p>
+ */
+final class VirtualThreads {
+
+  private static final MethodHandle IS_VIRTUAL;
+
+  static {
+    MethodHandle isVirtual;
+    try {
+      isVirtual = MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      isVirtual = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, false), 0, Thread.class);
+    }
+    IS_VIRTUAL = isVirtual;
+  }
+
+  private VirtualThreads() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static boolean isVirtual(Thread thread) {
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact(thread);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      // isVirtual() does not throw checked exceptions
+      throw new AssertionError("unexpected exception", e);
+    }
+  }
+
+}
@@ -0,0 +1,1244 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ArgumentTypePreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.InterruptibleBatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * An implementation of {@link JdbcOperations} that cancels statements of
+ * operations that exceed their latency budget.
+ *
+ * <p>The budget of an operation is determined by {@link StatementBudgets}.
+ * Shared daemon threads call {@link Statement#cancel()} on the
+ * statement of an operation that exceeds its budget and generate a
+ * "Statement Cancellation" event in the {@value JfrConstants#CATEGORY}
+ * category. The driver then aborts the statement, usually with an exception
+ * that is translated into a {@link DataAccessException}.</p>
+ *
+ * <p>In order to get hold of the statement the SQL query string methods are
+ * implemented using the {@link PreparedStatementSetter} methods of the
+ * delegate, the same way {@code JdbcTemplate} implements them. As a
+ * consequence methods without arguments use a {@link PreparedStatement}
+ * instead of a {@link Statement}. Operations without a budget are passed
+ * to the delegate unchanged. {@link #execute(ConnectionCallback)} and
+ * {@link #batchUpdate(String...)} are never watched.</p>
+ *
+ * <p>Wrap this class in a {@link JfrJdbcOperations} in order to have events
+ * generated for the operations as well.</p>
+ */
+public final class WatchdogJdbcOperations implements JdbcOperations {
+
+  private static final int[] NO_ARG_TYPES = new int[0];
+
+  private final JdbcOperations delegate;
+
+  private final StatementBudgets budgets;
+
+  /**
+   * Constructs a new {@link WatchdogJdbcOperations}.
+   *
+   * @param delegate the actual {@link JdbcOperations} implementation, not {@code null}
+   * @param budgets the budgets to enforce, not {@code null}
+   */
+  public WatchdogJdbcOperations(JdbcOperations delegate, StatementBudgets budgets) {
+    Objects.requireNonNull(delegate, "delegate");
+    Objects.requireNonNull(budgets, "budgets");
+    this.delegate = delegate;
+    this.budgets = budgets;
+  }
+
+  @Override
+  public <T> T execute(StatementCallback<T> action) {
+    StatementWatch watch = this.budgets.startWatch("execute", getSql(action));
+    if (watch == null) {
+      return this.delegate.execute(action);
+    }
+    try {
+      return this.delegate.execute(new WatchingStatementCallback<>(action, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public void execute(String sql) {
+    StatementWatch watch = this.budgets.startWatch("execute", sql);
+    if (watch == null) {
+      this.delegate.execute(sql);
+      return;
+    }
+    try {
+      this.delegate.execute(new ExecuteStatementCallback(sql, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, rse);
+    }
+    try {
+      return this.delegate.query(sql, noArgumentSetter(watch), rse);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      this.delegate.query(sql, rch);
+      return;
+    }
+    try {
+      this.delegate.query(sql, noArgumentSetter(watch), rch);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, rowMapper);
+    }
+    try {
+      return this.delegate.query(sql, noArgumentSetter(watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, rowMapper);
+    }
+    try {
+      return this.querySingleObject(sql, noArgumentSetter(watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, requiredType);
+    }
+    try {
+      return this.querySingleObject(sql, noArgumentSetter(watch), new SingleColumnRowMapper<>(requiredType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql) {
+    StatementWatch watch = this.budgets.startWatch("queryForMap", sql);
+    if (watch == null) {
+      return this.delegate.queryForMap(sql);
+    }
+    try {
+      return this.querySingleMap(sql, noArgumentSetter(watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql, elementType);
+    }
+    try {
+      return this.delegate.query(sql, noArgumentSetter(watch), new SingleColumnRowMapper<>(elementType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql);
+    }
+    try {
+      return this.delegate.query(sql, noArgumentSetter(watch), new ColumnMapRowMapper());
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql) {
+    StatementWatch watch = this.budgets.startWatch("queryForRowSet", sql);
+    if (watch == null) {
+      return this.delegate.queryForRowSet(sql);
+    }
+    try {
+      return this.delegate.query(sql, noArgumentSetter(watch), new SqlRowSetResultSetExtractor());
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int update(String sql) {
+    StatementWatch watch = this.budgets.startWatch("update", sql);
+    if (watch == null) {
+      return this.delegate.update(sql);
+    }
+    try {
+      return this.delegate.update(sql, noArgumentSetter(watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) {
+    StatementWatch watch = this.budgets.startWatch("execute", getSql(psc));
+    if (watch == null) {
+      return this.delegate.execute(psc, action);
+    }
+    try {
+      return this.delegate.execute(psc, new WatchingPreparedStatementCallback<>(action, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T execute(String sql, PreparedStatementCallback<T> action) {
+    StatementWatch watch = this.budgets.startWatch("execute", sql);
+    if (watch == null) {
+      return this.delegate.execute(sql, action);
+    }
+    try {
+      return this.delegate.execute(sql, new WatchingPreparedStatementCallback<>(action, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T query(PreparedStatementCreator psc, ResultSetExtractor<T> rse) {
+    StatementWatch watch = this.budgets.startWatch("query", getSql(psc));
+    if (watch == null) {
+      return this.delegate.query(psc, rse);
+    }
+    try {
+      return this.delegate.query(new WatchingPreparedStatementCreator(psc, watch), rse);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, PreparedStatementSetter pss, ResultSetExtractor<T> rse) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, pss, rse);
+    }
+    try {
+      return this.delegate.query(sql, new WatchingPreparedStatementSetter(pss, watch), rse);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, Object[] args, int[] argTypes, ResultSetExtractor<T> rse) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, args, argTypes, rse);
+    }
+    try {
+      return this.delegate.query(sql, argumentTypeSetter(args, argTypes, watch), rse);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, args, rse);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), rse);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T query(String sql, ResultSetExtractor<T> rse, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, rse, args);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), rse);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+    StatementWatch watch = this.budgets.startWatch("query", getSql(psc));
+    if (watch == null) {
+      this.delegate.query(psc, rch);
+      return;
+    }
+    try {
+      this.delegate.query(new WatchingPreparedStatementCreator(psc, watch), rch);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      this.delegate.query(sql, pss, rch);
+      return;
+    }
+    try {
+      this.delegate.query(sql, new WatchingPreparedStatementSetter(pss, watch), rch);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public void query(String sql, Object[] args, int[] argTypes, RowCallbackHandler rch) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      this.delegate.query(sql, args, argTypes, rch);
+      return;
+    }
+    try {
+      this.delegate.query(sql, argumentTypeSetter(args, argTypes, watch), rch);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public void query(String sql, Object[] args, RowCallbackHandler rch) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      this.delegate.query(sql, args, rch);
+      return;
+    }
+    try {
+      this.delegate.query(sql, argumentSetter(args, watch), rch);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public void query(String sql, RowCallbackHandler rch, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      this.delegate.query(sql, rch, args);
+      return;
+    }
+    try {
+      this.delegate.query(sql, argumentSetter(args, watch), rch);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("query", getSql(psc));
+    if (watch == null) {
+      return this.delegate.query(psc, rowMapper);
+    }
+    try {
+      return this.delegate.query(new WatchingPreparedStatementCreator(psc, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, pss, rowMapper);
+    }
+    try {
+      return this.delegate.query(sql, new WatchingPreparedStatementSetter(pss, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, args, argTypes, rowMapper);
+    }
+    try {
+      return this.delegate.query(sql, argumentTypeSetter(args, argTypes, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, args, rowMapper);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("query", sql);
+    if (watch == null) {
+      return this.delegate.query(sql, rowMapper, args);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, args, argTypes, rowMapper);
+    }
+    try {
+      return this.querySingleObject(sql, argumentTypeSetter(args, argTypes, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, args, rowMapper);
+    }
+    try {
+      return this.querySingleObject(sql, argumentSetter(args, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, RowMapper<T> rowMapper, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, rowMapper, args);
+    }
+    try {
+      return this.querySingleObject(sql, argumentSetter(args, watch), rowMapper);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Object[] args, int[] argTypes, Class<T> requiredType) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, args, argTypes, requiredType);
+    }
+    try {
+      return this.querySingleObject(sql, argumentTypeSetter(args, argTypes, watch), new SingleColumnRowMapper<>(requiredType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> T queryForObject(String sql, Object[] args, Class<T> requiredType) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, args, requiredType);
+    }
+    try {
+      return this.querySingleObject(sql, argumentSetter(args, watch), new SingleColumnRowMapper<>(requiredType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForObject", sql);
+    if (watch == null) {
+      return this.delegate.queryForObject(sql, requiredType, args);
+    }
+    try {
+      return this.querySingleObject(sql, argumentSetter(args, watch), new SingleColumnRowMapper<>(requiredType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object[] args, int[] argTypes) {
+    StatementWatch watch = this.budgets.startWatch("queryForMap", sql);
+    if (watch == null) {
+      return this.delegate.queryForMap(sql, args, argTypes);
+    }
+    try {
+      return this.querySingleMap(sql, argumentTypeSetter(args, argTypes, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public Map<String, Object> queryForMap(String sql, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForMap", sql);
+    if (watch == null) {
+      return this.delegate.queryForMap(sql, args);
+    }
+    try {
+      return this.querySingleMap(sql, argumentSetter(args, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Object[] args, int[] argTypes, Class<T> elementType) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql, args, argTypes, elementType);
+    }
+    try {
+      return this.delegate.query(sql, argumentTypeSetter(args, argTypes, watch), new SingleColumnRowMapper<>(elementType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  @Deprecated
+  public <T> List<T> queryForList(String sql, Object[] args, Class<T> elementType) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql, args, elementType);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), new SingleColumnRowMapper<>(elementType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql, elementType, args);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), new SingleColumnRowMapper<>(elementType));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object[] args, int[] argTypes) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql, args, argTypes);
+    }
+    try {
+      return this.delegate.query(sql, argumentTypeSetter(args, argTypes, watch), new ColumnMapRowMapper());
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public List<Map<String, Object>> queryForList(String sql, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForList", sql);
+    if (watch == null) {
+      return this.delegate.queryForList(sql, args);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), new ColumnMapRowMapper());
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object[] args, int[] argTypes) {
+    StatementWatch watch = this.budgets.startWatch("queryForRowSet", sql);
+    if (watch == null) {
+      return this.delegate.queryForRowSet(sql, args, argTypes);
+    }
+    try {
+      return this.delegate.query(sql, argumentTypeSetter(args, argTypes, watch), new SqlRowSetResultSetExtractor());
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public SqlRowSet queryForRowSet(String sql, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForRowSet", sql);
+    if (watch == null) {
+      return this.delegate.queryForRowSet(sql, args);
+    }
+    try {
+      return this.delegate.query(sql, argumentSetter(args, watch), new SqlRowSetResultSetExtractor());
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("queryForStream", sql);
+    if (watch == null) {
+      return this.delegate.queryForStream(sql, rowMapper);
+    }
+    boolean success = false;
+    try {
+      Stream<T> stream = this.delegate.queryForStream(sql, noArgumentSetter(watch), rowMapper).onClose(watch::finish);
+      success = true;
+      return stream;
+    } finally {
+      if (!success) {
+        watch.finish();
+      }
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("queryForStream", getSql(psc));
+    if (watch == null) {
+      return this.delegate.queryForStream(psc, rowMapper);
+    }
+    boolean success = false;
+    try {
+      Stream<T> stream = this.delegate.queryForStream(new WatchingPreparedStatementCreator(psc, watch), rowMapper).onClose(watch::finish);
+      success = true;
+      return stream;
+    } finally {
+      if (!success) {
+        watch.finish();
+      }
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    StatementWatch watch = this.budgets.startWatch("queryForStream", sql);
+    if (watch == null) {
+      return this.delegate.queryForStream(sql, pss, rowMapper);
+    }
+    boolean success = false;
+    try {
+      Stream<T> stream = this.delegate.queryForStream(sql, new WatchingPreparedStatementSetter(pss, watch), rowMapper).onClose(watch::finish);
+      success = true;
+      return stream;
+    } finally {
+      if (!success) {
+        watch.finish();
+      }
+    }
+  }
+
+  @Override
+  public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("queryForStream", sql);
+    if (watch == null) {
+      return this.delegate.queryForStream(sql, rowMapper, args);
+    }
+    boolean success = false;
+    try {
+      Stream<T> stream = this.delegate.queryForStream(sql, argumentSetter(args, watch), rowMapper).onClose(watch::finish);
+      success = true;
+      return stream;
+    } finally {
+      if (!success) {
+        watch.finish();
+      }
+    }
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc) {
+    StatementWatch watch = this.budgets.startWatch("update", getSql(psc));
+    if (watch == null) {
+      return this.delegate.update(psc);
+    }
+    try {
+      return this.delegate.update(new WatchingPreparedStatementCreator(psc, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) {
+    StatementWatch watch = this.budgets.startWatch("update", getSql(psc));
+    if (watch == null) {
+      return this.delegate.update(psc, generatedKeyHolder);
+    }
+    try {
+      return this.delegate.update(new WatchingPreparedStatementCreator(psc, watch), generatedKeyHolder);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int update(String sql, PreparedStatementSetter pss) {
+    StatementWatch watch = this.budgets.startWatch("update", sql);
+    if (watch == null) {
+      return this.delegate.update(sql, pss);
+    }
+    try {
+      return this.delegate.update(sql, new WatchingPreparedStatementSetter(pss, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int update(String sql, Object[] args, int[] argTypes) {
+    StatementWatch watch = this.budgets.startWatch("update", sql);
+    if (watch == null) {
+      return this.delegate.update(sql, args, argTypes);
+    }
+    try {
+      return this.delegate.update(sql, argumentTypeSetter(args, argTypes, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int update(String sql, Object... args) {
+    StatementWatch watch = this.budgets.startWatch("update", sql);
+    if (watch == null) {
+      return this.delegate.update(sql, args);
+    }
+    try {
+      return this.delegate.update(sql, argumentSetter(args, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) {
+    StatementWatch watch = this.budgets.startWatch("batchUpdate", sql);
+    if (watch == null) {
+      return this.delegate.batchUpdate(sql, pss);
+    }
+    try {
+      return this.delegate.batchUpdate(sql, new WatchingBatchPreparedStatementSetter(pss, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+    if (batchArgs.isEmpty()) {
+      return new int[0];
+    }
+    StatementWatch watch = this.budgets.startWatch("batchUpdate", sql);
+    if (watch == null) {
+      return this.delegate.batchUpdate(sql, batchArgs);
+    }
+    try {
+      return this.delegate.batchUpdate(sql, new WatchingBatchPreparedStatementSetter(new ArgumentsBatchPreparedStatementSetter(batchArgs, NO_ARG_TYPES), watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+    if (batchArgs.isEmpty()) {
+      return new int[0];
+    }
+    StatementWatch watch = this.budgets.startWatch("batchUpdate", sql);
+    if (watch == null) {
+      return this.delegate.batchUpdate(sql, batchArgs, argTypes);
+    }
+    try {
+      return this.delegate.batchUpdate(sql, new WatchingBatchPreparedStatementSetter(new ArgumentsBatchPreparedStatementSetter(batchArgs, argTypes), watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize, ParameterizedPreparedStatementSetter<T> pss) {
+    StatementWatch watch = this.budgets.startWatch("batchUpdate", sql);
+    if (watch == null) {
+      return this.delegate.batchUpdate(sql, batchArgs, batchSize, pss);
+    }
+    try {
+      return this.delegate.batchUpdate(sql, batchArgs, batchSize, new WatchingParameterizedPreparedStatementSetter<>(pss, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss, KeyHolder generatedKeyHolder) {
+    StatementWatch watch = this.budgets.startWatch("batchUpdate", getSql(psc));
+    if (watch == null) {
+      return this.delegate.batchUpdate(psc, pss, generatedKeyHolder);
+    }
+    try {
+      return this.delegate.batchUpdate(new WatchingPreparedStatementCreator(psc, watch), pss, generatedKeyHolder);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T execute(CallableStatementCreator csc, CallableStatementCallback<T> action) {
+    StatementWatch watch = this.budgets.startWatch("execute", getSql(csc));
+    if (watch == null) {
+      return this.delegate.execute(csc, action);
+    }
+    try {
+      return this.delegate.execute(csc, new WatchingCallableStatementCallback<>(action, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public <T> T execute(String callString, CallableStatementCallback<T> action) {
+    StatementWatch watch = this.budgets.startWatch("execute", callString);
+    if (watch == null) {
+      return this.delegate.execute(callString, action);
+    }
+    try {
+      return this.delegate.execute(callString, new WatchingCallableStatementCallback<>(action, watch));
+    } finally {
+      watch.finish();
+    }
+  }
+
+  @Override
+  public Map<String, Object> call(CallableStatementCreator csc, List<SqlParameter> declaredParameters) {
+    StatementWatch watch = this.budgets.startWatch("call", getSql(csc));
+    if (watch == null) {
+      return this.delegate.call(csc, declaredParameters);
+    }
+    try {
+      return this.delegate.call(new WatchingCallableStatementCreator(csc, watch), declaredParameters);
+    } finally {
+      watch.finish();
+    }
+  }
+
+  // generated by WrapperGenerator, do not edit
+
+  @Override
+  public <T> T execute(ConnectionCallback<T> action) {
+    return this.delegate.execute(action);
+  }
+
+  @Override
+  public int[] batchUpdate(String... sql) {
+    return this.delegate.batchUpdate(sql);
+  }
+
+  // end of generated methods
+
+  private <T> T querySingleObject(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+    List<T> results = this.delegate.query(sql, pss, new RowMapperResultSetExtractor<>(rowMapper, 1));
+    return DataAccessUtils.nullableSingleResult(results);
+  }
+
+  private Map<String, Object> querySingleMap(String sql, PreparedStatementSetter pss) {
+    Map<String, Object> result = this.querySingleObject(sql, pss, new ColumnMapRowMapper());
+    if (result == null) {
+      throw new IllegalStateException("No result");
+    }
+    return result;
+  }
+
+  private static PreparedStatementSetter noArgumentSetter(StatementWatch watch) {
+    return new WatchingPreparedStatementSetter(null, watch);
+  }
+
+  private static PreparedStatementSetter argumentSetter(Object[] args, StatementWatch watch) {
+    return new WatchingPreparedStatementSetter(new ArgumentPreparedStatementSetter(args), watch);
+  }
+
+  private static PreparedStatementSetter argumentTypeSetter(Object[] args, int[] argTypes, StatementWatch watch) {
+    return new WatchingPreparedStatementSetter(new ArgumentTypePreparedStatementSetter(args, argTypes), watch);
+  }
+
+  private static String getSql(Object o) {
+    if (o instanceof SqlProvider) {
+      return ((SqlProvider) o).getSql();
+    }
+    return null;
+  }
+
+  private static void cleanupParameters(Object o) {
+    if (o instanceof ParameterDisposer) {
+      ((ParameterDisposer) o).cleanupParameters();
+    }
+  }
+
+  static final class WatchingStatementCallback<T> implements StatementCallback<T>, SqlProvider {
+
+    private final StatementCallback<T> delegate;
+
+    private final StatementWatch watch;
+
+    WatchingStatementCallback(StatementCallback<T> delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public T doInStatement(Statement stmt) throws SQLException, DataAccessException {
+      this.watch.watch(stmt);
+      return this.delegate.doInStatement(stmt);
+    }
+
+    @Override
+    public String getSql() {
+      return WatchdogJdbcOperations.getSql(this.delegate);
+    }
+
+  }
+
+  static final class ExecuteStatementCallback implements StatementCallback<Object>, SqlProvider {
+
+    private final String sql;
+
+    private final StatementWatch watch;
+
+    ExecuteStatementCallback(String sql, StatementWatch watch) {
+      this.sql = sql;
+      this.watch = watch;
+    }
+
+    @Override
+    public Object doInStatement(Statement stmt) throws SQLException {
+      this.watch.watch(stmt);
+      stmt.execute(this.sql);
+      return null;
+    }
+
+    @Override
+    public String getSql() {
+      return this.sql;
+    }
+
+  }
+
+  static final class WatchingPreparedStatementCallback<T> implements PreparedStatementCallback<T> {
+
+    private final PreparedStatementCallback<T> delegate;
+
+    private final StatementWatch watch;
+
+    WatchingPreparedStatementCallback(PreparedStatementCallback<T> delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public T doInPreparedStatement(PreparedStatement ps) throws SQLException, DataAccessException {
+      this.watch.watch(ps);
+      return this.delegate.doInPreparedStatement(ps);
+    }
+
+  }
+
+  static final class WatchingCallableStatementCallback<T> implements CallableStatementCallback<T> {
+
+    private final CallableStatementCallback<T> delegate;
+
+    private final StatementWatch watch;
+
+    WatchingCallableStatementCallback(CallableStatementCallback<T> delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public T doInCallableStatement(CallableStatement cs) throws SQLException, DataAccessException {
+      this.watch.watch(cs);
+      return this.delegate.doInCallableStatement(cs);
+    }
+
+  }
+
+  static final class WatchingPreparedStatementCreator implements PreparedStatementCreator, SqlProvider, ParameterDisposer {
+
+    private final PreparedStatementCreator delegate;
+
+    private final StatementWatch watch;
+
+    WatchingPreparedStatementCreator(PreparedStatementCreator delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+      PreparedStatement ps = this.delegate.createPreparedStatement(con);
+      this.watch.watch(ps);
+      return ps;
+    }
+
+    @Override
+    public String getSql() {
+      return WatchdogJdbcOperations.getSql(this.delegate);
+    }
+
+    @Override
+    public void cleanupParameters() {
+      WatchdogJdbcOperations.cleanupParameters(this.delegate);
+    }
+
+  }
+
+  static final class WatchingCallableStatementCreator implements CallableStatementCreator, SqlProvider, ParameterDisposer {
+
+    private final CallableStatementCreator delegate;
+
+    private final StatementWatch watch;
+
+    WatchingCallableStatementCreator(CallableStatementCreator delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public CallableStatement createCallableStatement(Connection con) throws SQLException {
+      CallableStatement cs = this.delegate.createCallableStatement(con);
+      this.watch.watch(cs);
+      return cs;
+    }
+
+    @Override
+    public String getSql() {
+      return WatchdogJdbcOperations.getSql(this.delegate);
+    }
+
+    @Override
+    public void cleanupParameters() {
+      WatchdogJdbcOperations.cleanupParameters(this.delegate);
+    }
+
+  }
+
+  static final class WatchingPreparedStatementSetter implements PreparedStatementSetter, ParameterDisposer {
+
+    // null for statements without arguments
+    private final PreparedStatementSetter delegate;
+
+    private final StatementWatch watch;
+
+    WatchingPreparedStatementSetter(PreparedStatementSetter delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps) throws SQLException {
+      this.watch.watch(ps);
+      if (this.delegate != null) {
+        this.delegate.setValues(ps);
+      }
+    }
+
+    @Override
+    public void cleanupParameters() {
+      WatchdogJdbcOperations.cleanupParameters(this.delegate);
+    }
+
+  }
+
+  static final class WatchingBatchPreparedStatementSetter implements InterruptibleBatchPreparedStatementSetter, ParameterDisposer {
+
+    private final BatchPreparedStatementSetter delegate;
+
+    private final StatementWatch watch;
+
+    WatchingBatchPreparedStatementSetter(BatchPreparedStatementSetter delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+      this.watch.watch(ps);
+      this.delegate.setValues(ps, i);
+    }
+
+    @Override
+    public int getBatchSize() {
+      return this.delegate.getBatchSize();
+    }
+
+    @Override
+    public boolean isBatchExhausted(int i) {
+      if (this.delegate instanceof InterruptibleBatchPreparedStatementSetter) {
+        return ((InterruptibleBatchPreparedStatementSetter) this.delegate).isBatchExhausted(i);
+      }
+      return false;
+    }
+
+    @Override
+    public void cleanupParameters() {
+      WatchdogJdbcOperations.cleanupParameters(this.delegate);
+    }
+
+  }
+
+  static final class WatchingParameterizedPreparedStatementSetter<T> implements ParameterizedPreparedStatementSetter<T> {
+
+    private final ParameterizedPreparedStatementSetter<T> delegate;
+
+    private final StatementWatch watch;
+
+    WatchingParameterizedPreparedStatementSetter(ParameterizedPreparedStatementSetter<T> delegate, StatementWatch watch) {
+      this.delegate = delegate;
+      this.watch = watch;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, T argument) throws SQLException {
+      this.watch.watch(ps);
+      this.delegate.setValues(ps, argument);
+    }
+
+  }
+
+  /**
+   * Sets the values of a batch the same way {@code JdbcTemplate} does.
+   */
+  static final class ArgumentsBatchPreparedStatementSetter implements BatchPreparedStatementSetter {
+
+    private final List<Object[]> batchArgs;
+
+    private final int[] argTypes;
+
+    ArgumentsBatchPreparedStatementSetter(List<Object[]> batchArgs, int[] argTypes) {
+      this.batchArgs = batchArgs;
+      this.argTypes = argTypes;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+      Object[] values = this.batchArgs.get(i);
+      int colIndex = 0;
+      for (Object value : values) {
+        colIndex++;
+        if (value instanceof SqlParameterValue) {
+          SqlParameterValue paramValue = (SqlParameterValue) value;
+          StatementCreatorUtils.setParameterValue(ps, colIndex, paramValue, paramValue.getValue());
+        } else {
+          int colType;
+          if (this.argTypes.length < colIndex) {
+            colType = SqlTypeValue.TYPE_UNKNOWN;
+          } else {
+            colType = this.argTypes[colIndex - 1];
+          }
+          StatementCreatorUtils.setParameterValue(ps, colIndex, colType, value);
+        }
+      }
+    }
+
+    @Override
+    public int getBatchSize() {
+      return this.batchArgs.size();
+    }
+
+  }
+
+}
@@ -1,10 +1,13 @@
 module com.github.marschall.jfr.jdbctemplate {
 
+  // only for JfrJdbcAgent
+  requires static java.instrument;
   requires java.sql;
 
   requires jdk.jfr;
 
-  requires spring.beans; // required for tests
+  // only for JfrJdbcOperationsPostProcessor, spring.jdbc needs it anyway
+  requires static spring.beans;
   requires spring.core;
   requires spring.tx;
   requires transitive spring.jdbc;
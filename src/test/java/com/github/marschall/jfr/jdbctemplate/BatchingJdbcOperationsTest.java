@@ -0,0 +1,112 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.marschall.jfr.jdbctemplate.UpdateBuffer.CoalescedBatchEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class BatchingJdbcOperationsTest {
+
+  private static final String INSERT = "INSERT INTO t1(c1) VALUES (?)";
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+  private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new BatchingJdbcOperations(new JdbcTemplate(this.dataSource), 3);
+    this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(this.dataSource));
+    this.jdbcOperations.execute("CREATE TABLE t1 (c1 int)");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void outsideTransaction() {
+    assertEquals(1, this.jdbcOperations.update(INSERT, 1));
+  }
+
+  @Test
+  void nullArguments() {
+    this.transactionTemplate.executeWithoutResult(status -> {
+      assertEquals(Statement.SUCCESS_NO_INFO, this.jdbcOperations.update("INSERT INTO t1(c1) VALUES (1)", (Object[]) null));
+    });
+    assertEquals(Integer.valueOf(1), this.jdbcOperations.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+  }
+
+  @Test
+  void coalesceUpdates() throws Exception {
+    Path recordingLocation = Path.of("target", "BatchingJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(CoalescedBatchEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.transactionTemplate.executeWithoutResult(status -> {
+        assertEquals(Statement.SUCCESS_NO_INFO, this.jdbcOperations.update(INSERT, 1));
+        assertEquals(Statement.SUCCESS_NO_INFO, this.jdbcOperations.update(INSERT, 2));
+        // fills the batch
+        assertEquals(1, this.jdbcOperations.update(INSERT, 3));
+        assertEquals(Statement.SUCCESS_NO_INFO, this.jdbcOperations.update(INSERT, 4));
+        // a read flushes
+        assertEquals(Integer.valueOf(4), this.jdbcOperations.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+        assertEquals(Statement.SUCCESS_NO_INFO, this.jdbcOperations.update(INSERT, 5));
+      });
+    }
+    // flushed before commit
+    assertEquals(Integer.valueOf(5), this.jdbcOperations.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(CoalescedBatchEvent.class.getName()))
+            .collect(Collectors.toList());
+    assertEquals(List.of("size 3", "statement 1", "commit 1"), events.stream()
+            .map(event -> event.getString("trigger") + " " + event.getLong("coalescedCalls"))
+            .collect(Collectors.toList()));
+    assertEquals(2L, events.get(0).getLong("savedRoundTrips"));
+    assertEquals(3L, events.get(0).getLong("rowCount"));
+  }
+
+  @Test
+  void notVisibleToOtherOperations() {
+    JdbcOperations other = new JdbcTemplate(this.dataSource);
+    this.transactionTemplate.executeWithoutResult(status -> {
+      this.jdbcOperations.update(INSERT, 1);
+      // only operations through the same instance flush the buffer
+      assertEquals(Integer.valueOf(0), other.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+      assertEquals(Integer.valueOf(1), this.jdbcOperations.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+      assertEquals(Integer.valueOf(1), other.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+    });
+  }
+
+  @Test
+  void rollback() {
+    this.transactionTemplate.executeWithoutResult(status -> {
+      this.jdbcOperations.update(INSERT, 1);
+      status.setRollbackOnly();
+    });
+    assertEquals(Integer.valueOf(0), this.jdbcOperations.queryForObject("SELECT COUNT(*) FROM t1", Integer.class));
+  }
+
+}
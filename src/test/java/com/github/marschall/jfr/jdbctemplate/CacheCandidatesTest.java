@@ -0,0 +1,84 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.CacheCandidates.CacheCandidateEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class CacheCandidatesTest {
+
+  private static final String QUERY = "SELECT X FROM SYSTEM_RANGE(1, 10) WHERE X = ?";
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jfrJdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jfrJdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void repeatedReads() throws Exception {
+    Path recordingLocation = Path.of("target", "CacheCandidatesTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(CacheCandidateEvent.class).with("period", "endChunk");
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      for (int i = 0; i < 5; i++) {
+        this.jfrJdbcOperations.queryForObject(QUERY, Integer.class, 1);
+      }
+      this.jfrJdbcOperations.queryForObject(QUERY, Integer.class, 2);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(CacheCandidateEvent.class.getName()))
+            .collect(Collectors.toList());
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals(QUERY, event.getString("query"));
+    assertEquals(5L, event.getLong("executionCount"));
+    assertEquals(0.8d, event.getDouble("estimatedHitRate"), 0.001d);
+  }
+
+  @Test
+  void hashArguments() {
+    assertEquals(CacheCandidates.hashArguments(new Object[] {1, "a"}), CacheCandidates.hashArguments(new Object[] {1, "a"}));
+    assertNotEquals(CacheCandidates.hashArguments(new Object[] {1, "a"}), CacheCandidates.hashArguments(new Object[] {"a", 1}));
+    assertEquals(CacheCandidates.hashArguments(Map.of("a", 1, "b", 2)),
+            CacheCandidates.hashArguments(new MapSqlParameterSource("b", 2).addValue("a", 1)));
+    assertEquals(0L, CacheCandidates.hashArguments(null));
+  }
+
+  @Test
+  void hashNullKey() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put(null, 1);
+    assertNotEquals(0L, CacheCandidates.hashArguments(arguments));
+  }
+
+}
@@ -0,0 +1,89 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.ResultCache.ResultCacheEvictionEvent;
+import com.github.marschall.jfr.jdbctemplate.ResultCache.ResultCacheHitEvent;
+import com.github.marschall.jfr.jdbctemplate.ResultCache.ResultCacheInvalidationEvent;
+import com.github.marschall.jfr.jdbctemplate.ResultCache.ResultCacheMissEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class CachingJdbcOperationsTest {
+
+  private static final String SELECT_BY_ID = "SELECT c2 FROM t1 WHERE c1 = ?";
+
+  private static final String SELECT_ALL = "SELECT c1 FROM t1 ORDER BY c1";
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    CachedQueries cachedQueries = new CachedQueries(List.of(SELECT_BY_ID, SELECT_ALL), 2, Duration.ofMinutes(1L));
+    this.jdbcOperations = new CachingJdbcOperations(new JdbcTemplate(this.dataSource), cachedQueries);
+    this.jdbcOperations.execute("CREATE TABLE t1 (c1 int, c2 int)");
+    this.jdbcOperations.update("INSERT INTO t1(c1, c2) VALUES (1, 10), (2, 20), (3, 30)");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void cacheAndInvalidate() throws Exception {
+    Path recordingLocation = Path.of("target", "CachingJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(ResultCacheHitEvent.class);
+      recording.enable(ResultCacheMissEvent.class);
+      recording.enable(ResultCacheInvalidationEvent.class);
+      recording.enable(ResultCacheEvictionEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      assertEquals(Integer.valueOf(10), this.jdbcOperations.queryForObject(SELECT_BY_ID, Integer.class, 1));
+      assertEquals(Integer.valueOf(10), this.jdbcOperations.queryForObject(SELECT_BY_ID, Integer.class, 1));
+
+      this.jdbcOperations.update("UPDATE t1 SET c2 = ? WHERE c1 = ?", 11, 1);
+      // invalidated
+      assertEquals(Integer.valueOf(11), this.jdbcOperations.queryForObject(SELECT_BY_ID, Integer.class, 1));
+
+      // evicts the least recently used
+      this.jdbcOperations.queryForObject(SELECT_BY_ID, Integer.class, 2);
+      List<Integer> all = this.jdbcOperations.queryForList(SELECT_ALL, Integer.class);
+      assertEquals(List.of(1, 2, 3), all);
+      assertThrows(UnsupportedOperationException.class, () -> all.add(4));
+    }
+
+    Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+    assertEquals(1, events.get(ResultCacheHitEvent.class.getName()).size());
+    assertEquals(4, events.get(ResultCacheMissEvent.class.getName()).size());
+    List<RecordedEvent> invalidations = events.get(ResultCacheInvalidationEvent.class.getName());
+    assertEquals(1, invalidations.size());
+    assertEquals("T1", invalidations.get(0).getString("tables"));
+    assertEquals(1L, invalidations.get(0).getLong("invalidatedEntries"));
+    List<RecordedEvent> evictions = events.get(ResultCacheEvictionEvent.class.getName());
+    assertEquals(1, evictions.size());
+    assertEquals("size", evictions.get(0).getString("reason"));
+  }
+
+}
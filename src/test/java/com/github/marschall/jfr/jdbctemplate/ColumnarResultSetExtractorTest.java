@@ -0,0 +1,106 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.ColumnarResultSetExtractor.ColumnarResultEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class ColumnarResultSetExtractorTest {
+
+  private static final String SELECT_ALL = "SELECT c_int, c_bigint, c_double, c_varchar, c_decimal FROM t1 ORDER BY c_int";
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    this.jdbcOperations.execute("CREATE TABLE t1 (c_int int, c_bigint bigint, c_double double precision, c_varchar varchar(10), c_decimal decimal(10, 2))");
+    this.jdbcOperations.update("INSERT INTO t1 SELECT x, x * 10000000000, x / 2.0, CASE WHEN MOD(x, 2) = 0 THEN 'even' ELSE 'odd' END, x FROM SYSTEM_RANGE(1, 100)");
+    this.jdbcOperations.update("INSERT INTO t1 VALUES (101, NULL, NULL, NULL, NULL)");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void extract() throws Exception {
+    Path recordingLocation = Path.of("target", "ColumnarResultSetExtractorTest.jfr");
+    ColumnarResult result;
+    try (Recording recording = new Recording()) {
+      recording.enable(ColumnarResultEvent.class);
+      recording.enable(JdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      result = this.jdbcOperations.query(SELECT_ALL, new ColumnarResultSetExtractor());
+    }
+
+    assertEquals(101, result.getRowCount());
+    assertEquals(5, result.getColumnCount());
+    assertEquals(1, result.getColumnIndex("c_bigint"));
+    assertEquals("C_BIGINT", result.getColumnName(1));
+
+    assertEquals(2, result.getInt(1, 0));
+    assertEquals(2L, result.getLong(1, 0));
+    assertEquals(20000000000L, result.getLong(1, 1));
+    assertEquals(1.0d, result.getDouble(1, 2));
+    assertEquals("even", result.getString(1, 3));
+    assertEquals("odd", result.getString(2, 3));
+    assertEquals(new BigDecimal("2.00"), result.getObject(1, 4));
+    assertFalse(result.isNull(1, 1));
+
+    // NULL values
+    for (int column = 1; column < 5; column++) {
+      assertTrue(result.isNull(100, column));
+      assertNull(result.getObject(100, column));
+    }
+    assertEquals(0L, result.getLong(100, 1));
+    assertNull(result.getString(100, 3));
+
+    assertThrows(IllegalStateException.class, () -> result.getInt(0, 1));
+    assertThrows(IllegalStateException.class, () -> result.getString(0, 0));
+    assertThrows(IndexOutOfBoundsException.class, () -> result.getInt(101, 0));
+
+    Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+    RecordedEvent columnarEvent = events.get(ColumnarResultEvent.class.getName()).get(0);
+    assertEquals(101L, columnarEvent.getLong("rowCount"));
+    assertEquals(5, columnarEvent.getInt("columnCount"));
+    assertEquals(result.getEstimatedSize(), columnarEvent.getLong("estimatedSize"));
+    RecordedEvent jdbcEvent = events.get(JdbcEvent.class.getName()).get(0);
+    assertEquals(101L, jdbcEvent.getLong("rowCount"));
+  }
+
+  @Test
+  void dictionaryEncoding() {
+    ColumnarResult result = this.jdbcOperations.query(SELECT_ALL, new ColumnarResultSetExtractor());
+    // two distinct strings for 101 rows, smaller than the boxed values
+    assertTrue(result.getEstimatedSize() < (101L * 5L * 16L));
+  }
+
+}
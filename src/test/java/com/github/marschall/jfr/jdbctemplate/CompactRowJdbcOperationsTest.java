@@ -0,0 +1,94 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.CompactRowJdbcOperations.CompactRowsEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class CompactRowJdbcOperationsTest {
+
+  private static final String SELECT_ALL = "SELECT c1, c2 FROM t1 ORDER BY c1";
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+  private JdbcOperations jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+    this.jdbcOperations = new CompactRowJdbcOperations(this.jdbcTemplate);
+    this.jdbcOperations.execute("CREATE TABLE t1 (c1 int, c2 varchar(10))");
+    this.jdbcOperations.update("INSERT INTO t1(c1, c2) VALUES (1, 'one'), (2, NULL), (3, 'three')");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void sameContentAsJdbcTemplate() {
+    List<Map<String, Object>> expected = this.jdbcTemplate.queryForList(SELECT_ALL);
+    List<Map<String, Object>> rows = this.jdbcOperations.queryForList(SELECT_ALL);
+    assertEquals(expected, rows);
+    assertEquals(expected.toString(), rows.toString());
+    assertEquals(expected.get(0).hashCode(), rows.get(0).hashCode());
+    assertEquals(this.jdbcTemplate.queryForMap("SELECT c1, c2 FROM t1 WHERE c1 = ?", 2),
+            this.jdbcOperations.queryForMap("SELECT c1, c2 FROM t1 WHERE c1 = ?", 2));
+  }
+
+  @Test
+  void caseInsensitive() {
+    Map<String, Object> row = this.jdbcOperations.queryForList(SELECT_ALL).get(0);
+    assertEquals(1, row.get("c1"));
+    assertEquals(1, row.get("C1"));
+    assertTrue(row.containsKey("c2"));
+    assertEquals(List.of("C1", "C2"), List.copyOf(row.keySet()));
+
+    assertEquals(1, row.put("c1", 4));
+    assertEquals(4, row.get("C1"));
+    assertThrows(UnsupportedOperationException.class, () -> row.put("c3", 1));
+    assertThrows(UnsupportedOperationException.class, () -> row.remove("c1"));
+    assertEquals(row, new LinkedHashMap<>(row));
+  }
+
+  @Test
+  void event() throws Exception {
+    Path recordingLocation = Path.of("target", "CompactRowJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(CompactRowsEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.jdbcOperations.queryForList(SELECT_ALL);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("queryForList", event.getString("operationName"));
+    assertEquals(SELECT_ALL, event.getString("query"));
+    assertEquals(3L, event.getLong("rowCount"));
+    assertTrue(event.getLong("estimatedSize") > 0L);
+    assertTrue(event.getLong("estimatedSavedSize") > 0L);
+  }
+
+}
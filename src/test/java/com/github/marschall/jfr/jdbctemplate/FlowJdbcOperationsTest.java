@@ -0,0 +1,156 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.RowPublisher.PublisherEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class FlowJdbcOperationsTest {
+
+  private static final String SELECT_ALL = "SELECT c1 FROM t1 WHERE c1 > ? ORDER BY c1";
+
+  private JdbcOperations setup;
+  private volatile Thread executorThread;
+  private FlowJdbcOperations flowOperations;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:flow;DB_CLOSE_DELAY=-1");
+    this.setup = new JdbcTemplate(dataSource);
+    this.setup.execute("CREATE TABLE t1 (c1 int)");
+    this.setup.update("INSERT INTO t1(c1) VALUES (1), (2), (3), (4), (5)");
+    // a thread per subscription like a virtual thread executor
+    Executor executor = runnable -> {
+      Thread thread = new Thread(runnable);
+      this.executorThread = thread;
+      thread.start();
+    };
+    this.flowOperations = new FlowJdbcOperations(new JdbcTemplate(dataSource), executor);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.setup.execute("DROP ALL OBJECTS");
+  }
+
+  @Test
+  void publish() throws Exception {
+    Path recordingLocation = Path.of("target", "FlowJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(PublisherEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      // request one row at a time, always requested before the next row is fetched
+      CollectingSubscriber all = new CollectingSubscriber(1L, 1L, Long.MAX_VALUE);
+      this.flowOperations.queryForPublisher(SELECT_ALL, new SingleColumnRowMapper<>(Integer.class), 0).subscribe(all);
+      assertTrue(all.done.get(10L, TimeUnit.SECONDS));
+      assertEquals(List.of(1, 2, 3, 4, 5), all.rows);
+
+      // request only once the publisher waits for demand
+      CollectingSubscriber two = new CollectingSubscriber(0L, 2L, 2L);
+      this.flowOperations.queryForPublisher(SELECT_ALL, new SingleColumnRowMapper<>(Integer.class), 0).subscribe(two);
+      while (this.executorThread.getState() != Thread.State.WAITING) {
+        Thread.sleep(1L);
+      }
+      two.subscription.request(2L);
+      assertFalse(two.done.get(10L, TimeUnit.SECONDS));
+      assertEquals(List.of(1, 2), two.rows);
+
+      // wait for the cancellation to be noticed
+      this.executorThread.join();
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation);
+    assertEquals(2, events.size());
+    RecordedEvent completed = events.get(0);
+    assertEquals(SELECT_ALL, completed.getString("query"));
+    assertEquals(5L, completed.getLong("rowCount"));
+    assertFalse(completed.getBoolean("cancelled"));
+    assertEquals(0L, completed.getLong("demandStalls"));
+    RecordedEvent cancelled = events.get(1);
+    assertEquals(2L, cancelled.getLong("rowCount"));
+    assertTrue(cancelled.getBoolean("cancelled"));
+    assertEquals(1L, cancelled.getLong("demandStalls"));
+  }
+
+  /**
+   * Requests rows in batches and cancels after a number of rows.
+   */
+  static final class CollectingSubscriber implements Subscriber<Integer> {
+
+    final List<Integer> rows = new CopyOnWriteArrayList<>();
+
+    /**
+     * Completes with {@code true} on completion and {@code false} on cancellation.
+     */
+    final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+    private final long initialRequest;
+
+    private final long batchSize;
+
+    private final long limit;
+
+    volatile Subscription subscription;
+
+    CollectingSubscriber(long initialRequest, long batchSize, long limit) {
+      this.initialRequest = initialRequest;
+      this.batchSize = batchSize;
+      this.limit = limit;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+      if (this.initialRequest > 0L) {
+        subscription.request(this.initialRequest);
+      }
+    }
+
+    @Override
+    public void onNext(Integer item) {
+      this.rows.add(item);
+      if (this.rows.size() == this.limit) {
+        this.subscription.cancel();
+        this.done.complete(false);
+      } else if ((this.rows.size() % this.batchSize) == 0) {
+        this.subscription.request(this.batchSize);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      this.done.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      this.done.complete(true);
+    }
+
+  }
+
+}
@@ -0,0 +1,137 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.InFlightOperations.LongRunningOperationEvent;
+import com.github.marschall.jfr.jdbctemplate.InFlightOperations.Slot;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class InFlightOperationsTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jfrJdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jfrJdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void longRunningOperation() throws Exception {
+    Path recordingLocation = Path.of("target", "InFlightOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(LongRunningOperationEvent.class)
+        .withPeriod(Duration.ofMillis(50L))
+        .with("minimumAge", "100 ms");
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.jfrJdbcOperations.query("SELECT X FROM SYSTEM_RANGE(1, 5)", (RowCallbackHandler) rs -> sleep(Duration.ofMillis(100L)));
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(LongRunningOperationEvent.class.getName()))
+            .collect(Collectors.toList());
+    assertFalse(events.isEmpty());
+    for (RecordedEvent event : events) {
+      assertTrue(event.getString("query").startsWith("SELECT X FROM SYSTEM_RANGE"));
+      assertTrue(event.getDuration("elapsed").compareTo(Duration.ofMillis(100L)) >= 0);
+    }
+  }
+
+  @Test
+  void reclaimSlots() throws Exception {
+    ExecutorService retryingThread = Executors.newSingleThreadExecutor();
+    CountDownLatch release = new CountDownLatch(1);
+    List<Thread> hogs = new ArrayList<>();
+    try (Recording recording = new Recording()) {
+      recording.enable(LongRunningOperationEvent.class)
+        .withPeriod(Duration.ofMillis(20L));
+      recording.start();
+
+      // claim all free slots with threads that stay alive
+      AtomicBoolean claimed = new AtomicBoolean(true);
+      while (claimed.get()) {
+        CountDownLatch entered = new CountDownLatch(1);
+        Thread hog = new Thread(() -> {
+          Slot slot = InFlightOperations.enter("execute", "SELECT 1 FROM dual");
+          InFlightOperations.exit(slot);
+          claimed.set(slot != null);
+          entered.countDown();
+          awaitUninterruptibly(release);
+        });
+        hog.start();
+        hogs.add(hog);
+        entered.await();
+      }
+      assertNull(retryingThread.submit(() -> InFlightOperations.enter("execute", "SELECT 1 FROM dual")).get());
+
+      release.countDown();
+      for (Thread hog : hogs) {
+        hog.join();
+      }
+      // wait for the periodic event to reclaim the slots
+      Slot slot = null;
+      for (int i = 0; (i < 500) && (slot == null); i++) {
+        Thread.sleep(10L);
+        slot = retryingThread.submit(() -> {
+          Slot entered = InFlightOperations.enter("execute", "SELECT 1 FROM dual");
+          InFlightOperations.exit(entered);
+          return entered;
+        }).get();
+      }
+      assertNotNull(slot);
+    } finally {
+      release.countDown();
+      retryingThread.shutdown();
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep(Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted", e);
+    }
+  }
+
+}
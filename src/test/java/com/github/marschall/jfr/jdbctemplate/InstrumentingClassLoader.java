@@ -0,0 +1,59 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Loads a second copy of Spring JDBC that is instrumented by
+ * {@link JdbcTemplateTransformer}, like with {@code -javaagent}, without
+ * instrumenting the classes the other tests use.
+ */
+final class InstrumentingClassLoader extends ClassLoader {
+
+  private static final String PACKAGE = "org.springframework.jdbc.";
+
+  private final JdbcTemplateTransformer transformer;
+
+  InstrumentingClassLoader(ClassLoader parent) {
+    super(parent);
+    this.transformer = new JdbcTemplateTransformer();
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    if (!name.startsWith(PACKAGE)) {
+      return super.loadClass(name, resolve);
+    }
+    synchronized (this.getClassLoadingLock(name)) {
+      Class<?> loaded = this.findLoadedClass(name);
+      if (loaded == null) {
+        loaded = this.findClass(name);
+      }
+      if (resolve) {
+        this.resolveClass(loaded);
+      }
+      return loaded;
+    }
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    String internalName = name.replace('.', '/');
+    byte[] classfileBuffer;
+    try (InputStream stream = this.getParent().getResourceAsStream(internalName + ".class")) {
+      if (stream == null) {
+        throw new ClassNotFoundException(name);
+      }
+      classfileBuffer = stream.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException("could not read: " + name, e);
+    }
+    byte[] transformed = this.transformer.transform(this, internalName, null, null, classfileBuffer);
+    if (transformed != null) {
+      classfileBuffer = transformed;
+    }
+    return this.defineClass(name, classfileBuffer, 0, classfileBuffer.length);
+  }
+
+}
@@ -0,0 +1,101 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrNamedParameterJdbcOperations.JdbcNamedEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JdbcContextTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+  private NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+    this.jdbcOperations = new JfrJdbcOperations(jdbcTemplate);
+    this.namedParameterJdbcOperations = new JfrNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(jdbcTemplate));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void bindAndRestore() {
+    JdbcContext outer = new JdbcContext("GET /orders", "acme", null);
+    JdbcContext inner = new JdbcContext(null, null, "job-1");
+    assertNull(JdbcContext.bind(outer));
+    try {
+      assertSame(outer, JdbcContext.bind(inner));
+      assertSame(inner, JdbcContext.bind(outer));
+      assertSame(outer, JdbcContext.current());
+    } finally {
+      JdbcContext.bind(null);
+    }
+    assertNull(JdbcContext.current());
+  }
+
+  @Test
+  void contextOnEvents() throws Exception {
+    Path recordingLocation = Path.of("target", "JdbcContextTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.enable(JdbcNamedEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      JdbcContext previous = JdbcContext.bind(new JdbcContext("GET /orders", "acme", "job-1"));
+      try {
+        assertEquals(Integer.valueOf(1), this.jdbcOperations.queryForObject("SELECT 1 FROM dual", Integer.class));
+        assertEquals(Integer.valueOf(2), this.namedParameterJdbcOperations.queryForObject("SELECT 2 FROM dual WHERE 1 < :arg", Map.of("arg", 2), Integer.class));
+      } finally {
+        JdbcContext.bind(previous);
+      }
+      assertEquals(Integer.valueOf(3), this.jdbcOperations.queryForObject("SELECT 3 FROM dual", Integer.class));
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(JdbcEvent.class.getName())
+                    || event.getEventType().getName().equals(JdbcNamedEvent.class.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+    assertEquals(3, events.size());
+
+    for (RecordedEvent event : events.subList(0, 2)) {
+      assertEquals("GET /orders", event.getString("endpoint"));
+      assertEquals("acme", event.getString("tenant"));
+      assertEquals("job-1", event.getString("jobId"));
+    }
+
+    RecordedEvent unbound = events.get(2);
+    assertEquals("SELECT 3 FROM dual", unbound.getString("query"));
+    assertNull(unbound.getString("endpoint"));
+    assertNull(unbound.getString("tenant"));
+    assertNull(unbound.getString("jobId"));
+  }
+
+}
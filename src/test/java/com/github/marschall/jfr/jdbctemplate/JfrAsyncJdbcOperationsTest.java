@@ -0,0 +1,103 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrAsyncJdbcOperations.AsyncJdbcEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrAsyncJdbcOperationsTest {
+
+  private static final String SELECT_BY_ID = "SELECT c2 FROM t1 WHERE c1 = ?";
+
+  private JdbcOperations setup;
+  private ExecutorService executor;
+  private JfrAsyncJdbcOperations asyncOperations;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:async;DB_CLOSE_DELAY=-1");
+    this.setup = new JdbcTemplate(dataSource);
+    this.setup.execute("CREATE TABLE t1 (c1 int, c2 int)");
+    this.setup.update("INSERT INTO t1(c1, c2) VALUES (1, 10), (2, 20), (3, 30)");
+    this.executor = Executors.newFixedThreadPool(3);
+    this.asyncOperations = new JfrAsyncJdbcOperations(new JdbcTemplate(dataSource), this.executor, 1);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.executor.shutdownNow();
+    this.setup.execute("DROP ALL OBJECTS");
+  }
+
+  @Test
+  void fanOut() throws Exception {
+    AtomicInteger concurrent = new AtomicInteger();
+    AtomicInteger maximumConcurrent = new AtomicInteger();
+    RowMapper<Integer> rowMapper = (rs, i) -> {
+      maximumConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(10L);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        concurrent.decrementAndGet();
+      }
+      return rs.getInt(1);
+    };
+
+    Path recordingLocation = Path.of("target", "JfrAsyncJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(AsyncJdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      List<CompletableFuture<Integer>> futures = new ArrayList<>();
+      for (int i = 1; i <= 3; i++) {
+        futures.add(this.asyncOperations.queryForObject(SELECT_BY_ID, rowMapper, i));
+      }
+      CompletableFuture<Void> update = this.asyncOperations.execute("UPDATE t1 SET c2 = c2");
+
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+      update.join();
+      assertEquals(Integer.valueOf(10), futures.get(0).join());
+      assertEquals(Integer.valueOf(20), futures.get(1).join());
+      assertEquals(Integer.valueOf(30), futures.get(2).join());
+    }
+    // limited by the semaphore, not the executor
+    assertEquals(1, maximumConcurrent.get());
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation);
+    assertEquals(4, events.size());
+    long queryEvents = 0L;
+    for (RecordedEvent event : events) {
+      if (event.getString("operationName").equals("queryForObject")) {
+        assertEquals(SELECT_BY_ID, event.getString("query"));
+        queryEvents += 1L;
+      }
+      assertTrue(event.getLong("permitWaitTime") >= 0L);
+      assertTrue(event.getLong("executionTime") > 0L);
+    }
+    assertEquals(3L, queryEvents);
+  }
+
+}
@@ -0,0 +1,181 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrStatement.NestedStatementEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrConnectionTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    this.jdbcOperations.execute("CREATE TABLE t1 (id int, name varchar(10))");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void nestedStatements() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrConnectionTest.jfr");
+    long count;
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.enable(NestedStatementEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      count = this.jdbcOperations.execute((ConnectionCallback<Long>) connection -> {
+        try (Statement statement = connection.createStatement()) {
+          assertSame(connection, statement.getConnection());
+          statement.executeUpdate("INSERT INTO t1 VALUES (1, 'one')");
+          statement.addBatch("INSERT INTO t1 VALUES (2, 'two')");
+          statement.addBatch("INSERT INTO t1 VALUES (3, 'three')");
+          statement.executeBatch();
+        }
+        long rows = 0L;
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM t1 WHERE id > ?")) {
+          statement.setInt(1, 1);
+          try (ResultSet resultSet = statement.executeQuery()) {
+            assertSame(statement, resultSet.getStatement());
+            while (resultSet.next()) {
+              rows += 1L;
+            }
+          }
+        }
+        return rows;
+      });
+    }
+    assertEquals(2L, count);
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation);
+    List<RecordedEvent> executeEvents = events.stream()
+            .filter(event -> event.getEventType().getName().equals(JdbcEvent.class.getName()))
+            .filter(event -> event.getString("operationName").equals("execute"))
+            .filter(event -> event.getLong("callbackId") != 0L)
+            .collect(Collectors.toList());
+    assertEquals(1, executeEvents.size());
+    long callbackId = executeEvents.get(0).getLong("callbackId");
+
+    List<RecordedEvent> nestedEvents = events.stream()
+            .filter(event -> event.getEventType().getName().equals(NestedStatementEvent.class.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+    assertEquals(3, nestedEvents.size());
+    for (RecordedEvent nestedEvent : nestedEvents) {
+      assertEquals(callbackId, nestedEvent.getLong("callbackId"));
+    }
+
+    RecordedEvent update = nestedEvents.get(0);
+    assertEquals("executeUpdate", update.getString("operationName"));
+    assertEquals("INSERT INTO t1 VALUES (1, 'one')", update.getString("query"));
+    assertEquals(1L, update.getLong("rowCount"));
+
+    RecordedEvent batch = nestedEvents.get(1);
+    assertEquals("executeBatch", batch.getString("operationName"));
+    assertEquals("INSERT INTO t1 VALUES (2, 'two');\nINSERT INTO t1 VALUES (3, 'three')", batch.getString("query"));
+    assertEquals(2L, batch.getLong("rowCount"));
+
+    RecordedEvent query = nestedEvents.get(2);
+    assertEquals("executeQuery", query.getString("operationName"));
+    assertEquals("SELECT name FROM t1 WHERE id > ?", query.getString("query"));
+    assertEquals(2L, query.getLong("rowCount"));
+  }
+
+  @Test
+  void executeResultSets() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrConnectionTest-execute.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(NestedStatementEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.jdbcOperations.execute((ConnectionCallback<Void>) connection -> {
+        try (Statement statement = connection.createStatement()) {
+          statement.executeUpdate("INSERT INTO t1 VALUES (1, 'one'), (2, 'two')", Statement.RETURN_GENERATED_KEYS);
+          try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            assertSame(statement, generatedKeys.getStatement());
+          }
+          assertTrue(statement.execute("SELECT name FROM t1"));
+          ResultSet resultSet = statement.getResultSet();
+          assertSame(resultSet, statement.getResultSet());
+          assertSame(statement, resultSet.getStatement());
+          while (resultSet.next()) {
+            // count the rows
+          }
+          resultSet.close();
+        }
+        return null;
+      });
+    }
+
+    List<RecordedEvent> nestedEvents = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(NestedStatementEvent.class.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+    assertEquals(3, nestedEvents.size());
+
+    RecordedEvent generatedKeys = nestedEvents.get(1);
+    assertEquals("getGeneratedKeys", generatedKeys.getString("operationName"));
+    assertEquals("INSERT INTO t1 VALUES (1, 'one'), (2, 'two')", generatedKeys.getString("query"));
+
+    RecordedEvent execute = nestedEvents.get(2);
+    assertEquals("execute", execute.getString("operationName"));
+    assertEquals("SELECT name FROM t1", execute.getString("query"));
+    assertEquals(2L, execute.getLong("rowCount"));
+  }
+
+  @Test
+  void unwrap() {
+    try (Recording recording = new Recording()) {
+      recording.enable(NestedStatementEvent.class);
+      recording.start();
+
+      this.jdbcOperations.execute((ConnectionCallback<Void>) connection -> {
+        assertTrue(connection.isWrapperFor(JfrConnection.class));
+        assertTrue(connection.isWrapperFor(JdbcConnection.class));
+        connection.unwrap(JdbcConnection.class);
+        return null;
+      });
+    }
+  }
+
+  @Test
+  void notWrappedWhenDisabled() {
+    this.jdbcOperations.execute((ConnectionCallback<Void>) connection -> {
+      assertFalse(connection.isWrapperFor(JfrConnection.class));
+      return null;
+    });
+  }
+
+}
@@ -0,0 +1,192 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+
+import jdk.jfr.Recording;
+
+/**
+ * Compares the time per operation of a plain {@link JdbcTemplate} with a
+ * {@link JfrJdbcOperations} and a {@link JdbcTemplate} instrumented by
+ * {@link JfrJdbcAgent}, once without a recording and once with the event
+ * enabled without a threshold.
+ *
+ * <p>Not run as part of the build, run it with
+ * {@code mvn test -Dtest=JfrJdbcAgentBenchmark}. The instrumented
+ * {@link JdbcTemplate} comes from an other class loader so all variants
+ * are called through a method handle. All variants are warmed up first,
+ * then their iterations are interleaved so that they are measured under
+ * the same conditions. Every measurement is the median of the iterations of
+ * a variant, the absolute numbers are dominated by H2.</p>
+ */
+class JfrJdbcAgentBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+
+  private static final int MEASUREMENT_ITERATIONS = 10;
+
+  private static final int OPERATIONS_PER_ITERATION = 20_000;
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcTemplate plainTemplate;
+  private JfrJdbcOperations decorator;
+  private Object instrumentedTemplate;
+
+  // consumes the results so they can't be optimized away
+  private long sink;
+
+  @BeforeEach
+  void setUp() throws ReflectiveOperationException {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.plainTemplate = new JdbcTemplate(this.dataSource);
+    this.decorator = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    this.instrumentedTemplate = new InstrumentingClassLoader(JfrJdbcAgentBenchmark.class.getClassLoader())
+            .loadClass("org.springframework.jdbc.core.JdbcTemplate")
+            .getConstructor(DataSource.class)
+            .newInstance(this.dataSource);
+    this.plainTemplate.execute("CREATE TABLE t1 (id int PRIMARY KEY, name varchar(10))");
+    for (int i = 0; i < 10; i++) {
+      this.plainTemplate.update("INSERT INTO t1 VALUES (?, ?)", i, "name" + i);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void compare() throws Throwable {
+    List<String> results = new ArrayList<>();
+    for (Operation operation : Operation.values()) {
+      MethodHandle plain = operation.bind(this.plainTemplate);
+      MethodHandle decorated = operation.bind(this.decorator);
+      MethodHandle instrumented = operation.bind(this.instrumentedTemplate);
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+        this.iteration(operation, plain);
+        this.iteration(operation, decorated);
+        this.iteration(operation, instrumented);
+        this.recordedIteration(operation, decorated);
+        this.recordedIteration(operation, instrumented);
+      }
+      double[] plainNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] decoratorDisabledNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] agentDisabledNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] decoratorEnabledNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] agentEnabledNanos = new double[MEASUREMENT_ITERATIONS];
+      for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+        plainNanos[i] = this.iteration(operation, plain);
+        decoratorDisabledNanos[i] = this.iteration(operation, decorated);
+        agentDisabledNanos[i] = this.iteration(operation, instrumented);
+        decoratorEnabledNanos[i] = this.recordedIteration(operation, decorated);
+        agentEnabledNanos[i] = this.recordedIteration(operation, instrumented);
+      }
+      double plainMedian = median(plainNanos);
+      double decoratorDisabled = median(decoratorDisabledNanos);
+      double agentDisabled = median(agentDisabledNanos);
+      double decoratorEnabled = median(decoratorEnabledNanos);
+      double agentEnabled = median(agentEnabledNanos);
+      results.add(String.format(Locale.ROOT, "%-6s plain %,7.0f ns/op, disabled decorator %,7.0f ns/op (%+6.1f%%) agent %,7.0f ns/op (%+6.1f%%), enabled decorator %,7.0f ns/op (%+6.1f%%) agent %,7.0f ns/op (%+6.1f%%)",
+              operation.name().toLowerCase(Locale.ROOT), plainMedian,
+              decoratorDisabled, percent(plainMedian, decoratorDisabled), agentDisabled, percent(plainMedian, agentDisabled),
+              decoratorEnabled, percent(plainMedian, decoratorEnabled), agentEnabled, percent(plainMedian, agentEnabled)));
+    }
+    results.forEach(System.out::println);
+    assertTrue(this.sink != 0L);
+  }
+
+  private double recordedIteration(Operation operation, MethodHandle target) throws Throwable {
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class).withoutThreshold();
+      recording.start();
+      return this.iteration(operation, target);
+    }
+  }
+
+  private double iteration(Operation operation, MethodHandle target) throws Throwable {
+    long start = System.nanoTime();
+    for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+      this.sink += operation.run(target);
+    }
+    return (double) (System.nanoTime() - start) / OPERATIONS_PER_ITERATION;
+  }
+
+  private static double median(double[] values) {
+    Arrays.sort(values);
+    return values[values.length / 2];
+  }
+
+  private static double percent(double baseline, double value) {
+    return ((value - baseline) / baseline) * 100.0d;
+  }
+
+  enum Operation {
+
+    LIST("queryForList", MethodType.methodType(List.class, String.class, Class.class, Object[].class)) {
+
+      @Override
+      long run(MethodHandle target) throws Throwable {
+        return ((List<?>) target.invokeExact("SELECT name FROM t1 WHERE id < ?", (Class<?>) String.class, new Object[] {5})).size();
+      }
+
+    },
+
+    SINGLE("queryForObject", MethodType.methodType(Object.class, String.class, Class.class, Object[].class)) {
+
+      @Override
+      long run(MethodHandle target) throws Throwable {
+        return ((String) (Object) target.invokeExact("SELECT name FROM t1 WHERE id = ?", (Class<?>) String.class, new Object[] {3})).length();
+      }
+
+    },
+
+    UPDATE("update", MethodType.methodType(int.class, String.class, Object[].class)) {
+
+      @Override
+      long run(MethodHandle target) throws Throwable {
+        return (int) target.invokeExact("UPDATE t1 SET name = ? WHERE id = ?", new Object[] {"name3", 3});
+      }
+
+    };
+
+    private final String methodName;
+
+    private final MethodType methodType;
+
+    Operation(String methodName, MethodType methodType) {
+      this.methodName = methodName;
+      this.methodType = methodType;
+    }
+
+    /**
+     * Looks up the operation on the class of the target, the same way for
+     * all variants.
+     */
+    MethodHandle bind(Object target) throws ReflectiveOperationException {
+      return MethodHandles.publicLookup()
+              .findVirtual(target.getClass(), this.methodName, this.methodType)
+              .bindTo(target);
+    }
+
+    abstract long run(MethodHandle target) throws Throwable;
+
+  }
+
+}
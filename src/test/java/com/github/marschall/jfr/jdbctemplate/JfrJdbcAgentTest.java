@@ -0,0 +1,178 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrNamedParameterJdbcOperations.JdbcNamedEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrJdbcAgentTest {
+
+  private SingleConnectionDataSource dataSource;
+  // instrumented classes from an other class loader, only usable through reflection
+  private ClassLoader classLoader;
+  private Object jdbcTemplate;
+  private Object namedParameterJdbcTemplate;
+
+  @BeforeEach
+  void setUp() throws ReflectiveOperationException {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.classLoader = new InstrumentingClassLoader(JfrJdbcAgentTest.class.getClassLoader());
+    this.jdbcTemplate = this.classLoader.loadClass("org.springframework.jdbc.core.JdbcTemplate")
+            .getConstructor(DataSource.class)
+            .newInstance(this.dataSource);
+    this.namedParameterJdbcTemplate = this.classLoader.loadClass("org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate")
+            .getConstructor(DataSource.class)
+            .newInstance(this.dataSource);
+    invoke(this.jdbcTemplate, "execute", new Class<?>[] {String.class}, "CREATE TABLE t1 (id int, name varchar(10))");
+    invoke(this.jdbcTemplate, "execute", new Class<?>[] {String.class}, "INSERT INTO t1 VALUES (1, 'one')");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  private static Object invoke(Object target, String name, Class<?>[] parameterTypes, Object... arguments) throws ReflectiveOperationException {
+    Method method = target.getClass().getMethod(name, parameterTypes);
+    try {
+      return method.invoke(target, arguments);
+    } catch (InvocationTargetException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw e;
+    }
+  }
+
+  private static List<RecordedEvent> readEvents(Path recordingLocation, Class<?> eventClass) throws Exception {
+    return RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(eventClass.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+  }
+
+  private static Recording startRecording(Path recordingLocation) throws IOException {
+    Recording recording = new Recording();
+    recording.enable(JdbcEvent.class);
+    recording.enable(JdbcNamedEvent.class);
+    recording.setDestination(recordingLocation);
+    recording.start();
+    return recording;
+  }
+
+  @Test
+  void onlyOutermostOperation() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcAgentTest-onlyOutermostOperation.jfr");
+    try (Recording recording = startRecording(recordingLocation)) {
+      assertEquals(List.of("one"), invoke(this.jdbcTemplate, "queryForList", new Class<?>[] {String.class, Class.class, Object[].class},
+              "SELECT name FROM t1 WHERE id = ?", String.class, new Object[] {1}));
+    }
+
+    List<RecordedEvent> events = readEvents(recordingLocation, JdbcEvent.class);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("queryForList", event.getString("operationName"));
+    assertEquals("SELECT name FROM t1 WHERE id = ?", event.getString("query"));
+    assertEquals(1L, event.getLong("rowCount"));
+  }
+
+  @Test
+  void rowCounts() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcAgentTest-rowCounts.jfr");
+    try (Recording recording = startRecording(recordingLocation)) {
+      assertEquals(1, invoke(this.jdbcTemplate, "update", new Class<?>[] {String.class, Object[].class},
+              "UPDATE t1 SET name = ? WHERE id = ?", new Object[] {"uno", 1}));
+      assertEquals("uno", invoke(this.jdbcTemplate, "queryForObject", new Class<?>[] {String.class, Class.class},
+              "SELECT name FROM t1", String.class));
+      invoke(this.jdbcTemplate, "execute", new Class<?>[] {String.class}, "UPDATE t1 SET name = 'one'");
+    }
+
+    List<RecordedEvent> events = readEvents(recordingLocation, JdbcEvent.class);
+    assertEquals(3, events.size());
+    assertEquals("update", events.get(0).getString("operationName"));
+    assertEquals(1L, events.get(0).getLong("rowCount"));
+    assertEquals("queryForObject", events.get(1).getString("operationName"));
+    assertEquals(1L, events.get(1).getLong("rowCount"));
+    assertEquals("execute", events.get(2).getString("operationName"));
+    assertEquals(-1L, events.get(2).getLong("rowCount"));
+  }
+
+  @Test
+  void failedOperation() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcAgentTest-failedOperation.jfr");
+    try (Recording recording = startRecording(recordingLocation)) {
+      assertThrows(RuntimeException.class, () -> invoke(this.jdbcTemplate, "queryForList", new Class<?>[] {String.class},
+              "SELECT name FROM t2"));
+      // the thread is not left inside the failed operation
+      assertEquals(List.of("one"), invoke(this.jdbcTemplate, "queryForList", new Class<?>[] {String.class, Class.class},
+              "SELECT name FROM t1", String.class));
+    }
+
+    List<RecordedEvent> events = readEvents(recordingLocation, JdbcEvent.class);
+    assertEquals(2, events.size());
+    assertEquals("SELECT name FROM t2", events.get(0).getString("query"));
+    assertEquals("SELECT name FROM t1", events.get(1).getString("query"));
+    assertEquals(1L, events.get(1).getLong("rowCount"));
+  }
+
+  @Test
+  void stream() throws Exception {
+    Class<?> rowMapperClass = this.classLoader.loadClass("org.springframework.jdbc.core.RowMapper");
+    Object rowMapper = this.classLoader.loadClass("org.springframework.jdbc.core.SingleColumnRowMapper").getConstructor().newInstance();
+    Path recordingLocation = Path.of("target", "JfrJdbcAgentTest-stream.jfr");
+    try (Recording recording = startRecording(recordingLocation)) {
+      try (Stream<?> stream = (Stream<?>) invoke(this.jdbcTemplate, "queryForStream", new Class<?>[] {String.class, rowMapperClass},
+              "SELECT name FROM t1", rowMapper)) {
+        assertEquals(1L, stream.count());
+        // operations while the stream is open generate their own events
+        invoke(this.jdbcTemplate, "execute", new Class<?>[] {String.class}, "UPDATE t1 SET name = 'one'");
+      }
+    }
+
+    List<RecordedEvent> events = readEvents(recordingLocation, JdbcEvent.class);
+    assertEquals(2, events.size());
+    assertEquals("queryForStream", events.get(0).getString("operationName"));
+    assertEquals("execute", events.get(1).getString("operationName"));
+  }
+
+  @Test
+  void namedOperation() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcAgentTest-namedOperation.jfr");
+    try (Recording recording = startRecording(recordingLocation)) {
+      assertEquals("one", invoke(this.namedParameterJdbcTemplate, "queryForObject", new Class<?>[] {String.class, Map.class, Class.class},
+              "SELECT name FROM t1 WHERE id = :id", Map.of("id", 1), String.class));
+    }
+
+    List<RecordedEvent> events = readEvents(recordingLocation, JdbcNamedEvent.class);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("queryForObject", event.getString("operationName"));
+    assertEquals("SELECT name FROM t1 WHERE id = :id", event.getString("query"));
+    assertEquals(1L, event.getLong("rowCount"));
+    // the operation on the JdbcTemplate is part of the named operation
+    assertEquals(List.of(), readEvents(recordingLocation, JdbcEvent.class));
+  }
+
+}
@@ -0,0 +1,150 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcClient.JdbcClientEvent;
+
+import jdk.jfr.EventSettings;
+import jdk.jfr.Recording;
+
+/**
+ * Compares the time per operation of a plain {@link JdbcClient} with a
+ * {@link JfrJdbcClient}, once without a recording and once with the event
+ * enabled without a threshold, with and without stack traces.
+ *
+ * <p>Not run as part of the build, run it with
+ * {@code mvn test -Dtest=JfrJdbcClientBenchmark}. All variants are warmed
+ * up first, then their iterations are interleaved so that they are measured
+ * under the same conditions. Every measurement is the median of the
+ * iterations of a variant, the absolute numbers are dominated by H2.</p>
+ */
+class JfrJdbcClientBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+
+  private static final int MEASUREMENT_ITERATIONS = 10;
+
+  private static final int OPERATIONS_PER_ITERATION = 20_000;
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcClient plainClient;
+  private JdbcClient jfrClient;
+
+  // consumes the results so they can't be optimized away
+  private long sink;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.plainClient = JdbcClient.create(this.dataSource);
+    this.jfrClient = new JfrJdbcClient(JdbcClient.create(this.dataSource));
+    this.plainClient.sql("CREATE TABLE t1 (id int PRIMARY KEY, name varchar(10))").update();
+    for (int i = 0; i < 10; i++) {
+      this.plainClient.sql("INSERT INTO t1 VALUES (?, ?)").params(i, "name" + i).update();
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void compare() {
+    List<String> results = new ArrayList<>();
+    for (Operation operation : Operation.values()) {
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+        this.iteration(operation.run, this.plainClient);
+        this.iteration(operation.run, this.jfrClient);
+        this.recordedIteration(operation.run, true);
+        this.recordedIteration(operation.run, false);
+      }
+      double[] plainNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] disabledNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] enabledNanos = new double[MEASUREMENT_ITERATIONS];
+      double[] noStackTraceNanos = new double[MEASUREMENT_ITERATIONS];
+      for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+        plainNanos[i] = this.iteration(operation.run, this.plainClient);
+        disabledNanos[i] = this.iteration(operation.run, this.jfrClient);
+        enabledNanos[i] = this.recordedIteration(operation.run, true);
+        noStackTraceNanos[i] = this.recordedIteration(operation.run, false);
+      }
+      double plain = median(plainNanos);
+      double disabled = median(disabledNanos);
+      double enabled = median(enabledNanos);
+      double noStackTrace = median(noStackTraceNanos);
+      results.add(String.format(Locale.ROOT, "%-6s plain %,7.0f ns/op, disabled %,7.0f ns/op (%+6.1f%%), enabled %,7.0f ns/op (%+6.1f%%), without stack trace %,7.0f ns/op (%+6.1f%%)",
+              operation.name().toLowerCase(Locale.ROOT),
+              plain, disabled, percent(plain, disabled), enabled, percent(plain, enabled), noStackTrace, percent(plain, noStackTrace)));
+    }
+    results.forEach(System.out::println);
+    assertTrue(this.sink != 0L);
+  }
+
+  private double recordedIteration(ToLongFunction<JdbcClient> operation, boolean stackTrace) {
+    try (Recording recording = new Recording()) {
+      EventSettings settings = recording.enable(JdbcClientEvent.class).withoutThreshold();
+      if (!stackTrace) {
+        settings.withoutStackTrace();
+      }
+      recording.start();
+      return this.iteration(operation, this.jfrClient);
+    }
+  }
+
+  private double iteration(ToLongFunction<JdbcClient> operation, JdbcClient client) {
+    long start = System.nanoTime();
+    for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+      this.sink += operation.applyAsLong(client);
+    }
+    return (double) (System.nanoTime() - start) / OPERATIONS_PER_ITERATION;
+  }
+
+  private static double median(double[] values) {
+    Arrays.sort(values);
+    return values[values.length / 2];
+  }
+
+  private static double percent(double baseline, double value) {
+    return ((value - baseline) / baseline) * 100.0d;
+  }
+
+  enum Operation {
+
+    LIST(client -> client.sql("SELECT name FROM t1 WHERE id < ?")
+            .param(5)
+            .query(String.class)
+            .list()
+            .size()),
+
+    SINGLE(client -> client.sql("SELECT name FROM t1 WHERE id = :id")
+            .param("id", 3)
+            .query(String.class)
+            .single()
+            .length()),
+
+    UPDATE(client -> client.sql("UPDATE t1 SET name = ? WHERE id = ?")
+            .params("name3", 3)
+            .update());
+
+    final ToLongFunction<JdbcClient> run;
+
+    Operation(ToLongFunction<JdbcClient> run) {
+      this.run = run;
+    }
+
+  }
+
+}
@@ -0,0 +1,122 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcClient.JdbcClientEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrJdbcClientTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcClient jdbcClient;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcClient = new JfrJdbcClient(JdbcClient.create(this.dataSource));
+    this.jdbcClient.sql("CREATE TABLE t1 (id int, name varchar(10))").update();
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  private static List<RecordedEvent> readClientEvents(Path recordingLocation) throws Exception {
+    return RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(JdbcClientEvent.class.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+  }
+
+  @Test
+  void terminalOperations() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcClientTest-terminalOperations.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcClientEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      assertEquals(1, this.jdbcClient.sql("INSERT INTO t1 VALUES (?, ?)").params(1, "one").update());
+      assertEquals(1, this.jdbcClient.sql("INSERT INTO t1 VALUES (:id, :name)")
+              .param("id", 2)
+              .param("name", "two")
+              .update());
+      assertEquals(List.of("one", "two"), this.jdbcClient.sql("SELECT name FROM t1 ORDER BY id")
+              .query(String.class)
+              .list());
+      assertEquals("two", this.jdbcClient.sql("SELECT name FROM t1 WHERE id = ?")
+              .param(2)
+              .query(String.class)
+              .single());
+      assertEquals(0L, this.jdbcClient.sql("SELECT count(*) FROM t1 WHERE id > :id")
+              .param("id", 5)
+              .query()
+              .singleValue());
+    }
+
+    List<RecordedEvent> events = readClientEvents(recordingLocation);
+    assertEquals(5, events.size());
+
+    RecordedEvent indexedUpdate = events.get(0);
+    assertEquals("update", indexedUpdate.getString("operationName"));
+    assertEquals("INSERT INTO t1 VALUES (?, ?)", indexedUpdate.getString("query"));
+    assertEquals("indexed", indexedUpdate.getString("parameterStyle"));
+    assertEquals(1L, indexedUpdate.getLong("rowCount"));
+
+    RecordedEvent namedUpdate = events.get(1);
+    assertEquals("update", namedUpdate.getString("operationName"));
+    assertEquals("named", namedUpdate.getString("parameterStyle"));
+
+    RecordedEvent list = events.get(2);
+    assertEquals("list", list.getString("operationName"));
+    assertEquals("none", list.getString("parameterStyle"));
+    assertEquals(2L, list.getLong("rowCount"));
+
+    RecordedEvent single = events.get(3);
+    assertEquals("single", single.getString("operationName"));
+    assertEquals("indexed", single.getString("parameterStyle"));
+    assertEquals(1L, single.getLong("rowCount"));
+
+    RecordedEvent singleValue = events.get(4);
+    assertEquals("singleValue", singleValue.getString("operationName"));
+    assertEquals("named", singleValue.getString("parameterStyle"));
+  }
+
+  @Test
+  void stream() throws Exception {
+    this.jdbcClient.sql("INSERT INTO t1 VALUES (1, 'one'), (2, 'two'), (3, 'three')").update();
+    Path recordingLocation = Path.of("target", "JfrJdbcClientTest-stream.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcClientEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      try (Stream<Integer> ids = this.jdbcClient.sql("SELECT id FROM t1").query(Integer.class).stream()) {
+        assertEquals(6, ids.mapToInt(Integer::intValue).sum());
+      }
+    }
+
+    List<RecordedEvent> events = readClientEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("stream", event.getString("operationName"));
+    assertEquals("SELECT id FROM t1", event.getString("query"));
+    assertEquals(3L, event.getLong("rowCount"));
+  }
+
+}
@@ -0,0 +1,146 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+class JfrJdbcOperationsPostProcessorTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JfrJdbcOperationsPostProcessor postProcessor;
+  private DefaultListableBeanFactory beanFactory;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.postProcessor = new JfrJdbcOperationsPostProcessor();
+    this.beanFactory = new DefaultListableBeanFactory();
+    this.beanFactory.addBeanPostProcessor(this.postProcessor);
+    this.beanFactory.registerSingleton("dataSource", this.dataSource);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.beanFactory.destroySingletons();
+    this.dataSource.destroy();
+  }
+
+  private void registerJdbcTemplate(String beanName) {
+    this.beanFactory.registerBeanDefinition(beanName, new RootBeanDefinition(JdbcTemplate.class,
+            () -> new JdbcTemplate(this.beanFactory.getBean(DataSource.class))));
+  }
+
+  @Test
+  void replaceJdbcTemplate() {
+    this.beanFactory.registerBeanDefinition("jdbcTemplate", new RootBeanDefinition(JdbcTemplate.class, () -> {
+      JdbcTemplate jdbcTemplate = new JdbcTemplate(this.beanFactory.getBean(DataSource.class));
+      jdbcTemplate.setFetchSize(100);
+      jdbcTemplate.setQueryTimeout(10);
+      return jdbcTemplate;
+    }));
+
+    // injection points of type JdbcTemplate keep working
+    JdbcTemplate bean = this.beanFactory.getBean("jdbcTemplate", JdbcTemplate.class);
+    assertTrue(bean instanceof JfrJdbcTemplate);
+    assertSame(this.dataSource, bean.getDataSource());
+    assertEquals(100, bean.getFetchSize());
+    assertEquals(10, bean.getQueryTimeout());
+  }
+
+  @Test
+  void replaceNamedParameterJdbcTemplate() {
+    this.beanFactory.registerBeanDefinition("namedParameterJdbcTemplate", new RootBeanDefinition(NamedParameterJdbcTemplate.class,
+            () -> new NamedParameterJdbcTemplate(this.beanFactory.getBean(DataSource.class))));
+
+    NamedParameterJdbcTemplate bean = this.beanFactory.getBean("namedParameterJdbcTemplate", NamedParameterJdbcTemplate.class);
+    assertTrue(bean.getJdbcTemplate() instanceof JfrJdbcTemplate);
+    assertEquals(Integer.valueOf(1), bean.queryForObject("SELECT :x", Map.of("x", 1), Integer.class));
+  }
+
+  @Test
+  void doNotReplaceSubclasses() {
+    this.beanFactory.registerBeanDefinition("jdbcTemplate", new RootBeanDefinition(JdbcTemplate.class,
+            () -> new JdbcTemplate(this.beanFactory.getBean(DataSource.class)) { }));
+
+    Object bean = this.beanFactory.getBean("jdbcTemplate");
+    assertFalse(bean instanceof JfrJdbcTemplate);
+  }
+
+  @Test
+  void wrapOtherJdbcOperations() {
+    this.beanFactory.registerBeanDefinition("jdbcOperations", new RootBeanDefinition(JdbcOperations.class,
+            () -> new CompactRowJdbcOperations(new JdbcTemplate(this.beanFactory.getBean(DataSource.class)))));
+
+    Object bean = this.beanFactory.getBean("jdbcOperations");
+    assertTrue(bean instanceof JfrJdbcOperations);
+  }
+
+  @Test
+  void doNotWrapNestedNamedParameterJdbcOperations() {
+    this.registerJdbcTemplate("jdbcTemplate");
+    this.beanFactory.registerBeanDefinition("namedParameterJdbcTemplate", new RootBeanDefinition(NamedParameterJdbcTemplate.class,
+            () -> new NamedParameterJdbcTemplate(this.beanFactory.getBean("jdbcTemplate", JdbcTemplate.class))));
+
+    // as created by Spring Boot from the JdbcTemplate bean
+    NamedParameterJdbcTemplate bean = this.beanFactory.getBean("namedParameterJdbcTemplate", NamedParameterJdbcTemplate.class);
+    assertSame(this.beanFactory.getBean("jdbcTemplate"), bean.getJdbcOperations());
+  }
+
+  @Test
+  void doNotWrapTwice() {
+    JfrJdbcOperations jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    assertSame(jdbcOperations, this.postProcessor.postProcessAfterInitialization(jdbcOperations, "jdbcOperations"));
+  }
+
+  @Test
+  void excludedBeanNames() {
+    this.postProcessor.setExcludedBeanNames(Set.of("jdbcTemplate"));
+    this.registerJdbcTemplate("jdbcTemplate");
+
+    assertFalse(this.beanFactory.getBean("jdbcTemplate") instanceof JfrJdbcTemplate);
+  }
+
+  @Test
+  void disabled() {
+    this.postProcessor.setEnabled(false);
+    this.registerJdbcTemplate("jdbcTemplate");
+
+    assertFalse(this.beanFactory.getBean("jdbcTemplate") instanceof JfrJdbcTemplate);
+  }
+
+  @Test
+  void features() {
+    this.postProcessor.setCompactRows(true);
+    this.postProcessor.setStatementBudget(Duration.ofSeconds(5L));
+    this.registerJdbcTemplate("jdbcTemplate");
+
+    JdbcTemplate jdbcTemplate = this.beanFactory.getBean("jdbcTemplate", JdbcTemplate.class);
+    assertTrue(jdbcTemplate instanceof JfrJdbcTemplate);
+    assertTrue(jdbcTemplate.queryForList("SELECT 1 AS x").get(0) instanceof CompactRowMapper.CompactRow);
+  }
+
+  @Test
+  void invalidStatementBudget() {
+    assertThrows(IllegalArgumentException.class, () -> this.postProcessor.setStatementBudget(Duration.ZERO));
+  }
+
+}
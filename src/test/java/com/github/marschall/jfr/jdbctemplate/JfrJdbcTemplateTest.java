@@ -0,0 +1,157 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.simple.SimpleJdbcCall;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.object.MappingSqlQuery;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrJdbcTemplateTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JfrJdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcTemplate = new JfrJdbcTemplate(this.dataSource);
+    this.jdbcTemplate.execute("CREATE TABLE t1 (id int, name varchar(10))");
+    this.jdbcTemplate.execute("CREATE ALIAS times_two FOR 'java.lang.Math.multiplyExact(int, int)'");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  private static List<RecordedEvent> readJdbcEvents(Path recordingLocation) throws Exception {
+    return RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(JdbcEvent.class.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+  }
+
+  @Test
+  void onlyOutermostOperation() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcTemplateTest-onlyOutermostOperation.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      assertEquals(List.of(), this.jdbcTemplate.queryForList("SELECT name FROM t1 WHERE id = ?", String.class, 1));
+    }
+
+    List<RecordedEvent> events = readJdbcEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("queryForList", event.getString("operationName"));
+    assertEquals("SELECT name FROM t1 WHERE id = ?", event.getString("query"));
+    assertEquals(0L, event.getLong("rowCount"));
+  }
+
+  @Test
+  void simpleJdbcInsert() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcTemplateTest-simpleJdbcInsert.jfr");
+    SimpleJdbcInsert insert = new SimpleJdbcInsert(this.jdbcTemplate)
+            .withTableName("T1")
+            .usingColumns("ID", "NAME");
+    insert.compile();
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      insert.executeBatch(Map.of("id", 1, "name", "one"), Map.of("id", 2, "name", "two"));
+    }
+
+    List<RecordedEvent> events = readJdbcEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("batchUpdate", event.getString("operationName"));
+    assertEquals("INSERT INTO T1 (ID, NAME) VALUES(?, ?)", event.getString("query"));
+    assertEquals(2L, event.getLong("rowCount"));
+  }
+
+  @Test
+  void simpleJdbcCall() throws Exception {
+    Path recordingLocation = Path.of("target", "JfrJdbcTemplateTest-simpleJdbcCall.jfr");
+    SimpleJdbcCall call = new SimpleJdbcCall(this.jdbcTemplate)
+            .withProcedureName("TIMES_TWO")
+            .withoutProcedureColumnMetaDataAccess()
+            .declareParameters(
+                    new SqlParameter("A", Types.INTEGER),
+                    new SqlParameter("B", Types.INTEGER));
+    call.compile();
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      call.execute(Map.of("A", 2, "B", 2));
+    }
+
+    List<RecordedEvent> events = readJdbcEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("call", event.getString("operationName"));
+    assertEquals("{call TIMES_TWO(?, ?)}", event.getString("query"));
+  }
+
+  @Test
+  void mappingSqlQuery() throws Exception {
+    this.jdbcTemplate.update("INSERT INTO t1 VALUES (1, 'one')");
+    Path recordingLocation = Path.of("target", "JfrJdbcTemplateTest-mappingSqlQuery.jfr");
+    NameQuery query = new NameQuery(this.jdbcTemplate);
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      assertEquals(List.of("one"), query.execute(1));
+    }
+
+    List<RecordedEvent> events = readJdbcEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("query", event.getString("operationName"));
+    assertEquals("SELECT name FROM t1 WHERE id = ?", event.getString("query"));
+    assertEquals(1L, event.getLong("rowCount"));
+  }
+
+  static final class NameQuery extends MappingSqlQuery<String> {
+
+    NameQuery(JfrJdbcTemplate jdbcTemplate) {
+      setJdbcTemplate(jdbcTemplate);
+      setSql("SELECT name FROM t1 WHERE id = ?");
+      declareParameter(new SqlParameter(Types.INTEGER));
+      compile();
+    }
+
+    @Override
+    protected String mapRow(ResultSet rs, int rowNum) throws SQLException {
+      return rs.getString(1);
+    }
+
+  }
+
+}
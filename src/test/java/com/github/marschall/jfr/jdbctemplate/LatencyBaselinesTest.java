@@ -0,0 +1,125 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.LatencyBaselines.LatencyHistogram;
+import com.github.marschall.jfr.jdbctemplate.LatencyBaselines.LatencyOutlierEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class LatencyBaselinesTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    this.jdbcOperations.execute("CREATE ALIAS sleep FOR 'java.lang.Thread.sleep(long)'");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void bucketBounds() {
+    for (long nanos : new long[] {0L, 1L, 3L, 4L, 7L, 8L, 9L, 1_000L, 123_456_789L, Long.MAX_VALUE}) {
+      int index = LatencyHistogram.bucketIndex(nanos);
+      assertTrue(LatencyHistogram.bucketUpperBound(index) >= nanos);
+      if (index > 0) {
+        assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < nanos);
+      }
+    }
+  }
+
+  @Test
+  void percentile() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 95; i++) {
+      histogram.record(1_000L);
+    }
+    for (int i = 0; i < 5; i++) {
+      histogram.record(1_000_000L);
+    }
+    long percentile = histogram.computePercentile(0.95d);
+    assertTrue(percentile >= 1_000L);
+    assertTrue(percentile < 1_300L);
+    assertEquals(percentile, histogram.getBaseline());
+  }
+
+  @Test
+  void outlier() throws Exception {
+    Path recordingLocation = Path.of("target", "LatencyBaselinesTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(LatencyOutlierEvent.class)
+        .with("outlierFactor", "3");
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      for (int i = 0; i < 100; i++) {
+        this.jdbcOperations.update("CALL sleep(?)", 0L);
+      }
+      this.jdbcOperations.update("CALL sleep(?)", 200L);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(LatencyOutlierEvent.class.getName()))
+            .filter(event -> event.getDuration("elapsed").compareTo(Duration.ofMillis(200L)) >= 0)
+            .collect(Collectors.toList());
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("update", event.getString("operationName"));
+    assertEquals("CALL sleep(?)", event.getString("query"));
+    assertTrue(event.getDuration("baseline").compareTo(Duration.ofMillis(50L)) < 0);
+  }
+
+  @Test
+  void literalsShareBaseline() throws Exception {
+    Path recordingLocation = Path.of("target", "LatencyBaselinesTest-literals.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(LatencyOutlierEvent.class)
+        .with("outlierFactor", "3");
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      for (int i = 0; i < 100; i++) {
+        this.jdbcOperations.update("CALL sleep(0) -- " + i);
+      }
+      this.jdbcOperations.update("CALL sleep(200)");
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(LatencyOutlierEvent.class.getName()))
+            .filter(event -> event.getDuration("elapsed").compareTo(Duration.ofMillis(200L)) >= 0)
+            .collect(Collectors.toList());
+    assertEquals(1, events.size());
+    assertEquals("CALL sleep(200)", events.get(0).getString("query"));
+  }
+
+  @Test
+  void invalidFactor() {
+    assertThrows(IllegalArgumentException.class, () -> OutlierFactorSetting.parseFactor("0.5"));
+    assertThrows(IllegalArgumentException.class, () -> OutlierFactorSetting.parseFactor("fast"));
+    assertEquals(2.5d, OutlierFactorSetting.parseFactor("2.5"));
+  }
+
+}
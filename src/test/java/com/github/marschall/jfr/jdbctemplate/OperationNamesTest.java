@@ -0,0 +1,111 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.JfrNamedParameterJdbcOperations.JdbcNamedEvent;
+
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Invokes every method of the hand written wrappers and verifies each one
+ * reports its own name as the operation name.
+ */
+class OperationNamesTest {
+
+  @Test
+  void jdbcOperations() throws Exception {
+    JdbcOperations jdbcOperations = new JfrJdbcOperations(stub(JdbcOperations.class));
+    verifyOperationNames(JdbcOperations.class, jdbcOperations, JdbcEvent.class, Set.of());
+  }
+
+  @Test
+  void namedParameterJdbcOperations() throws Exception {
+    NamedParameterJdbcOperations namedParameterJdbcOperations = new JfrNamedParameterJdbcOperations(stub(NamedParameterJdbcOperations.class));
+    verifyOperationNames(NamedParameterJdbcOperations.class, namedParameterJdbcOperations, JdbcNamedEvent.class, Set.of("getJdbcOperations"));
+  }
+
+  private static <T> void verifyOperationNames(Class<T> operationsInterface, T operations,
+          Class<? extends Event> eventClass, Set<String> notInstrumented) throws Exception {
+    Path recordingLocation = Path.of("target", "OperationNamesTest-" + operationsInterface.getSimpleName() + ".jfr");
+    List<String> expected = new ArrayList<>();
+    try (Recording recording = new Recording()) {
+      recording.enable(eventClass);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      for (Method method : operationsInterface.getMethods()) {
+        if (Modifier.isStatic(method.getModifiers()) || notInstrumented.contains(method.getName())) {
+          continue;
+        }
+        Object result = method.invoke(operations, defaultArguments(method));
+        if (result instanceof Stream) {
+          ((Stream<?>) result).close();
+        }
+        expected.add(method.getName());
+      }
+    }
+
+    List<String> actual = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(eventClass.getName()))
+            .map(event -> event.getString("operationName"))
+            .sorted()
+            .collect(Collectors.toList());
+    expected.sort(null);
+    assertEquals(expected, actual);
+  }
+
+  private static Object[] defaultArguments(Method method) {
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    Object[] arguments = new Object[parameterTypes.length];
+    for (int i = 0; i < parameterTypes.length; i++) {
+      arguments[i] = defaultValue(parameterTypes[i]);
+    }
+    return arguments;
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else if (type == boolean.class) {
+      return false;
+    } else if (type == int[].class) {
+      return new int[0];
+    } else if (type == int[][].class) {
+      return new int[0][];
+    } else if (type == List.class) {
+      return List.of();
+    } else if (type == Map.class) {
+      return Map.of();
+    } else if (type == Stream.class) {
+      return Stream.empty();
+    }
+    return null;
+  }
+
+  private static <T> T stub(Class<T> type) {
+    InvocationHandler handler = (proxy, method, arguments) -> defaultValue(method.getReturnType());
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler));
+  }
+
+}
@@ -0,0 +1,116 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.PartitionedJdbcOperations.PartitionedScanEvent;
+import com.github.marschall.jfr.jdbctemplate.PartitionedJdbcOperations.ScanPartitionEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class PartitionedJdbcOperationsTest {
+
+  private static final String SELECT_RANGE = "SELECT c1 FROM t1 WHERE c2 = ? AND c1 >= ? AND c1 < ? ORDER BY c1";
+
+  private JdbcOperations setup;
+  private ExecutorService executor;
+  private PartitionedJdbcOperations partitionedOperations;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:partitioned;DB_CLOSE_DELAY=-1");
+    this.setup = new JdbcTemplate(dataSource);
+    this.setup.execute("CREATE TABLE t1 (c1 int, c2 int)");
+    this.setup.update("INSERT INTO t1(c1, c2) SELECT x, 1 FROM SYSTEM_RANGE(1, 100)");
+    this.executor = Executors.newFixedThreadPool(4);
+    this.partitionedOperations = new PartitionedJdbcOperations(new JdbcTemplate(dataSource), this.executor, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.executor.shutdownNow();
+    this.setup.execute("DROP ALL OBJECTS");
+  }
+
+  @Test
+  void splitNumeric() {
+    List<Object[]> ranges = KeyRanges.split(0L, 10L, 3);
+    assertEquals(3, ranges.size());
+    assertArrayEquals(new Object[] {0L, 4L}, ranges.get(0));
+    assertArrayEquals(new Object[] {4L, 7L}, ranges.get(1));
+    assertArrayEquals(new Object[] {7L, 10L}, ranges.get(2));
+
+    // capped to the number of keys
+    assertEquals(2, KeyRanges.split(0L, 2L, 8).size());
+  }
+
+  @Test
+  void splitDate() {
+    LocalDateTime lower = LocalDateTime.of(2020, 1, 1, 0, 0);
+    LocalDateTime upper = LocalDateTime.of(2020, 1, 4, 0, 0);
+    List<Object[]> ranges = KeyRanges.split(lower, upper, 3);
+    assertEquals(3, ranges.size());
+    assertArrayEquals(new Object[] {lower, LocalDateTime.of(2020, 1, 2, 0, 0)}, ranges.get(0));
+    assertArrayEquals(new Object[] {LocalDateTime.of(2020, 1, 3, 0, 0), upper}, ranges.get(2));
+  }
+
+  @Test
+  void scan() throws Exception {
+    List<Integer> expected = IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toList());
+    Path recordingLocation = Path.of("target", "PartitionedJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(PartitionedScanEvent.class);
+      recording.enable(ScanPartitionEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      assertEquals(expected, this.partitionedOperations.queryForList(SELECT_RANGE, new SingleColumnRowMapper<>(Integer.class), 1L, 101L, 4, 1));
+      try (Stream<Integer> stream = this.partitionedOperations.queryForStream(SELECT_RANGE, new SingleColumnRowMapper<>(Integer.class), 1L, 101L, 3, 1)) {
+        assertEquals(expected, stream.collect(Collectors.toList()));
+      }
+      // the scan events are committed by the thread that completes the last partition
+      this.executor.shutdown();
+      assertTrue(this.executor.awaitTermination(10L, TimeUnit.SECONDS));
+    }
+
+    Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+    List<RecordedEvent> scans = events.get(PartitionedScanEvent.class.getName());
+    assertEquals(2, scans.size());
+    List<RecordedEvent> partitions = events.get(ScanPartitionEvent.class.getName());
+    assertEquals(7, partitions.size());
+    for (RecordedEvent scan : scans) {
+      assertEquals(SELECT_RANGE, scan.getString("query"));
+      assertEquals(100L, scan.getLong("rowCount"));
+      long scanId = scan.getLong("scanId");
+      List<RecordedEvent> scanPartitions = partitions.stream()
+              .filter(partition -> partition.getLong("scanId") == scanId)
+              .collect(Collectors.toList());
+      assertEquals(scan.getInt("partitions"), scanPartitions.size());
+      assertEquals(100L, scanPartitions.stream().mapToLong(partition -> partition.getLong("rowCount")).sum());
+    }
+  }
+
+}
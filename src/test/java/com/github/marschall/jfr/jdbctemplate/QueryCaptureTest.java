@@ -0,0 +1,100 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class QueryCaptureTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    this.jdbcOperations.execute("CREATE TABLE t1 (id int)");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void captureQueries() throws Exception {
+    Path recordingLocation = Path.of("target", "QueryCaptureTest.jfr");
+    DisposingCreator creator = new DisposingCreator();
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.jdbcOperations.execute((StatementCallback<Integer>) statement -> statement.executeUpdate("INSERT INTO t1 VALUES (1)"));
+      List<Integer> ids = this.jdbcOperations.query(creator, (rs, i) -> rs.getInt(1));
+      assertEquals(List.of(1), ids);
+      this.jdbcOperations.update(connection -> connection.prepareStatement("DELETE FROM t1"));
+    }
+    assertTrue(creator.disposed);
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(JdbcEvent.class.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+    assertEquals(3, events.size());
+
+    RecordedEvent execute = events.get(0);
+    assertEquals("execute", execute.getString("operationName"));
+    assertEquals("INSERT INTO t1 VALUES (1)", execute.getString("query"));
+    assertEquals("INSERT", execute.getString("statementType"));
+
+    RecordedEvent query = events.get(1);
+    assertEquals("query", query.getString("operationName"));
+    assertEquals("SELECT id FROM t1", query.getString("query"));
+    assertEquals(1L, query.getLong("rowCount"));
+
+    RecordedEvent update = events.get(2);
+    assertEquals("update", update.getString("operationName"));
+    assertEquals("DELETE FROM t1", update.getString("query"));
+    assertEquals(1L, update.getLong("rowCount"));
+  }
+
+  static final class DisposingCreator implements PreparedStatementCreator, ParameterDisposer {
+
+    boolean disposed;
+
+    @Override
+    public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+      return con.prepareStatement("SELECT id FROM t1");
+    }
+
+    @Override
+    public void cleanupParameters() {
+      this.disposed = true;
+    }
+
+  }
+
+}
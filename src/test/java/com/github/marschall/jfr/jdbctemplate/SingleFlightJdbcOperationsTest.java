@@ -0,0 +1,129 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.SingleFlight.SingleFlightEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class SingleFlightJdbcOperationsTest {
+
+  private static final String SELECT_ALL = "SELECT c1 FROM t1 ORDER BY c1";
+
+  private static final int CALLERS = 4;
+
+  private JdbcOperations setup;
+  private JdbcOperations jdbcOperations;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:singleflight;DB_CLOSE_DELAY=-1");
+    this.setup = new JdbcTemplate(dataSource);
+    this.jdbcOperations = new SingleFlightJdbcOperations(new JdbcTemplate(dataSource), List.of(SELECT_ALL));
+    this.setup.execute("CREATE TABLE t1 (c1 int)");
+    this.setup.update("INSERT INTO t1(c1) VALUES (1)");
+    this.executor = Executors.newFixedThreadPool(CALLERS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.executor.shutdownNow();
+    this.setup.execute("DROP ALL OBJECTS");
+  }
+
+  @Test
+  void collapseConcurrentReads() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger executions = new AtomicInteger();
+    List<Thread> callers = new ArrayList<>();
+    RowMapper<Integer> rowMapper = (rs, i) -> {
+      executions.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return rs.getInt(1);
+    };
+
+    Path recordingLocation = Path.of("target", "SingleFlightJdbcOperationsTest.jfr");
+    List<Future<List<Integer>>> results = new ArrayList<>();
+    try (Recording recording = new Recording()) {
+      recording.enable(SingleFlightEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      for (int i = 0; i < CALLERS; i++) {
+        results.add(this.executor.submit(() -> {
+          synchronized (callers) {
+            callers.add(Thread.currentThread());
+          }
+          return this.jdbcOperations.query(SELECT_ALL, rowMapper);
+        }));
+      }
+      // the leader waits for the latch, the followers for the leader
+      awaitWaiting(callers);
+      release.countDown();
+
+      for (Future<List<Integer>> result : results) {
+        List<Integer> rows = result.get();
+        assertEquals(List.of(1), rows);
+        assertThrows(UnsupportedOperationException.class, () -> rows.add(2));
+      }
+    }
+    assertEquals(1, executions.get());
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation);
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("query", event.getString("operationName"));
+    assertEquals(SELECT_ALL, event.getString("query"));
+    assertEquals(CALLERS, event.getLong("callersServed"));
+  }
+
+  @Test
+  void notAllowlisted() {
+    AtomicInteger executions = new AtomicInteger();
+    RowMapper<Integer> rowMapper = (rs, i) -> {
+      executions.incrementAndGet();
+      return rs.getInt(1);
+    };
+    String query = "SELECT c1 FROM t1";
+    this.jdbcOperations.query(query, rowMapper);
+    this.jdbcOperations.query(query, rowMapper);
+    assertEquals(2, executions.get());
+  }
+
+  private static void awaitWaiting(List<Thread> callers) throws InterruptedException {
+    while (true) {
+      synchronized (callers) {
+        if (callers.size() == CALLERS && callers.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+          return;
+        }
+      }
+      Thread.sleep(1L);
+    }
+  }
+
+}
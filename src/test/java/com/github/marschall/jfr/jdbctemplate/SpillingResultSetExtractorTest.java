@@ -0,0 +1,141 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.SpillingResultSetExtractor.ResultSpillEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class SpillingResultSetExtractorTest {
+
+  private static final String SELECT_ALL = "SELECT x, 'row ' || x FROM SYSTEM_RANGE(1, 1000) ORDER BY x";
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void spill(@TempDir Path directory) throws IOException {
+    Path recordingLocation = Path.of("target", "SpillingResultSetExtractorTest.jfr");
+    List<String> result;
+    try (Recording recording = new Recording()) {
+      recording.enable(ResultSpillEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      result = this.jdbcOperations.query(SELECT_ALL,
+              new SpillingResultSetExtractor<>((rs, i) -> rs.getString(2), 100, new StringSerializer(), directory));
+    }
+
+    assertEquals(1000, result.size());
+    assertEquals("row 1", result.get(0));
+    assertEquals("row 100", result.get(99));
+    assertEquals("row 101", result.get(100));
+    assertEquals("row 1000", result.get(999));
+    List<String> expected = new ArrayList<>();
+    for (int i = 1; i <= 1000; i++) {
+      expected.add("row " + i);
+    }
+    assertEquals(expected, result);
+    assertThrows(UnsupportedOperationException.class, () -> result.add("row 1001"));
+    assertThrows(IndexOutOfBoundsException.class, () -> result.get(1000));
+
+    // the file is deleted once mapped
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(0L, files.count());
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(ResultSpillEvent.class.getName()))
+            .collect(Collectors.toList());
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals(1000L, event.getLong("rowCount"));
+    assertEquals(900L, event.getLong("spilledRowCount"));
+    assertTrue(event.getLong("spilledBytes") > 900L * 2L);
+  }
+
+  @Test
+  void javaSerialization() {
+    List<Long> result = this.jdbcOperations.query(SELECT_ALL,
+            new SpillingResultSetExtractor<>((rs, i) -> rs.getLong(1), 0));
+
+    assertEquals(1000, result.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i + 1L, result.get(i));
+    }
+  }
+
+  @Test
+  void noSpill() throws IOException {
+    Path recordingLocation = Path.of("target", "SpillingResultSetExtractorTest-noSpill.jfr");
+    List<Long> result;
+    try (Recording recording = new Recording()) {
+      recording.enable(ResultSpillEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      result = this.jdbcOperations.query(SELECT_ALL,
+              new SpillingResultSetExtractor<>((rs, i) -> rs.getLong(1), 1000));
+    }
+
+    assertEquals(1000, result.size());
+    assertTrue(result instanceof ArrayList);
+
+    assertFalse(RecordingFile.readAllEvents(recordingLocation).stream()
+            .anyMatch(event -> event.getEventType().getName().equals(ResultSpillEvent.class.getName())));
+  }
+
+  @Test
+  void negativeMaximum() {
+    assertThrows(IllegalArgumentException.class, () -> new SpillingResultSetExtractor<>((rs, i) -> rs.getLong(1), -1));
+  }
+
+  static final class StringSerializer implements RowSerializer<String> {
+
+    @Override
+    public void serialize(String row, DataOutputStream output) throws IOException {
+      output.writeUTF(row);
+    }
+
+    @Override
+    public String deserialize(DataInputStream input) throws IOException {
+      return input.readUTF();
+    }
+
+  }
+
+}
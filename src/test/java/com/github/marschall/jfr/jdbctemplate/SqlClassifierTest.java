@@ -0,0 +1,77 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.jfr.jdbctemplate.SqlClassifier.Classification;
+
+class SqlClassifierTest {
+
+  @Test
+  void select() {
+    assertClassification("SELECT", List.of("t1"), "SELECT c1 FROM t1 WHERE c2 < ?");
+    assertClassification("SELECT", List.of("t1", "t2", "t3"), "select * from t1 a, t2 as b join t3 c on b.id = c.id");
+    assertClassification("SELECT", List.of("s.t1", "t2"), "SELECT * FROM s.t1 LEFT OUTER JOIN \"t2\" USING (id)");
+    assertClassification("SELECT", List.of("t1", "t2"), "SELECT * FROM t1 WHERE id IN (SELECT id FROM t2)");
+  }
+
+  @Test
+  void ignoresFunctions() {
+    assertClassification("SELECT", List.of(), "SELECT X FROM SYSTEM_RANGE(1, 3)");
+    assertClassification("SELECT", List.of("t1"), "SELECT EXTRACT(YEAR FROM d) FROM t1");
+  }
+
+  @Test
+  void ignoresCommentsAndLiterals() {
+    assertClassification("SELECT", List.of("t1"), "-- FROM t2\nSELECT 'FROM t3' /* FROM t4 */ FROM t1");
+  }
+
+  @Test
+  void commonTableExpressions() {
+    assertClassification("SELECT", List.of("t1"), "WITH x AS (SELECT * FROM t1) SELECT * FROM x");
+    assertClassification("INSERT", List.of("t1", "t2"), "WITH x(a) AS (SELECT c1 FROM t1) INSERT INTO t2 SELECT a FROM x");
+  }
+
+  @Test
+  void dml() {
+    assertClassification("INSERT", List.of("t1"), "INSERT INTO t1(c1, c2) values (?, ?)");
+    assertClassification("UPDATE", List.of("t1"), "UPDATE t1 SET c1 = ? WHERE c2 = ?");
+    assertClassification("DELETE", List.of("t1"), "DELETE FROM t1 WHERE c1 = ?");
+    assertClassification("MERGE", List.of("t1", "t2"), "MERGE INTO t1 USING t2 ON (t1.id = t2.id) WHEN MATCHED THEN UPDATE SET c1 = t2.c1");
+  }
+
+  @Test
+  void ddl() {
+    assertClassification("DDL", List.of("t1"), "CREATE TABLE t1 (c1 int, c2 int)");
+    assertClassification("DDL", List.of("t1"), "DROP TABLE IF EXISTS t1");
+  }
+
+  @Test
+  void call() {
+    assertClassification("CALL", List.of(), "{? = call f(?)}");
+    assertClassification("CALL", List.of(), "CALL p(?)");
+  }
+
+  @Test
+  void shape() {
+    assertEquals("SELECT c1 FROM t1 WHERE c2 = ? AND c3 = ?", SqlClassifier.classify("SELECT c1 FROM t1 WHERE c2 = 'it''s' AND c3 = 42").getShape());
+    assertEquals("SELECT c1 FROM t1 WHERE c2 = ?", SqlClassifier.classify("SELECT c1\n  FROM t1 -- comment\n WHERE /* 1 */ c2 = ?").getShape());
+    assertEquals("SELECT \"c 1\" FROM t1", SqlClassifier.classify("SELECT \"c 1\"  FROM t1").getShape());
+  }
+
+  @Test
+  void nullQuery() {
+    assertNull(SqlClassifier.classify(null));
+  }
+
+  private static void assertClassification(String statementType, List<String> tables, String sql) {
+    Classification classification = SqlClassifier.classify(sql);
+    assertEquals(statementType, classification.getStatementType(), sql);
+    assertEquals(tables, classification.getTableNames(), sql);
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.StreamLeakDetector.StreamLeakEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class StreamLeakDetectorTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jfrJdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jfrJdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void leakedStream() throws Exception {
+    Path recordingLocation = Path.of("target", "StreamLeakDetectorTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(StreamLeakEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      try (Stream<Integer> stream = this.jfrJdbcOperations.queryForStream("SELECT X FROM SYSTEM_RANGE(1, 5)", (rs, i) -> rs.getInt(1))) {
+        assertEquals(5L, stream.count());
+      }
+      this.leakStream();
+      for (int i = 0; i < 10; i++) {
+        System.gc();
+        Thread.sleep(100L);
+      }
+    }
+
+    List<RecordedEvent> leaks = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(StreamLeakEvent.class.getName()))
+            .collect(Collectors.toList());
+    assertEquals(1, leaks.size());
+    RecordedEvent leak = leaks.get(0);
+    assertEquals("SELECT X FROM SYSTEM_RANGE(1, 10)", leak.getString("query"));
+    String callSite = leak.getString("callSite");
+    assertNotNull(callSite);
+    assertTrue(callSite.contains("leakStream"), callSite);
+  }
+
+  private void leakStream() {
+    Stream<Integer> stream = this.jfrJdbcOperations.queryForStream("SELECT X FROM SYSTEM_RANGE(1, 10)", (rs, i) -> rs.getInt(1));
+    assertEquals(Integer.valueOf(1), stream.iterator().next());
+  }
+
+}
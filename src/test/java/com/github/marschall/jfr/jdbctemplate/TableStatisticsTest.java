@@ -0,0 +1,96 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.JfrJdbcOperations.JdbcEvent;
+import com.github.marschall.jfr.jdbctemplate.TableStatistics.TableStatisticsEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class TableStatisticsTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jfrJdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jfrJdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void tableStatistics() throws Exception {
+    Path recordingLocation = Path.of("target", "TableStatisticsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(JdbcEvent.class);
+      recording.enable(TableStatisticsEvent.class).with("period", "endChunk");
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.jfrJdbcOperations.execute("CREATE TABLE t1 (c1 int)");
+      this.jfrJdbcOperations.update("INSERT INTO t1(c1) VALUES (1), (2), (3)");
+      this.jfrJdbcOperations.queryForList("SELECT c1 FROM t1", Integer.class);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation);
+    List<RecordedEvent> tableEvents = events.stream()
+            .filter(event -> event.getEventType().getName().equals(TableStatisticsEvent.class.getName()))
+            .collect(Collectors.toList());
+    // emitted at the end of the recording
+    assertEquals(1, tableEvents.size());
+    RecordedEvent tableEvent = tableEvents.get(0);
+    assertEquals("t1", tableEvent.getString("table"));
+    assertEquals(3L, tableEvent.getLong("operationCount"));
+    assertEquals(6L, tableEvent.getLong("rowCount"));
+
+    List<String> statementTypes = events.stream()
+            .filter(event -> event.getEventType().getName().equals(JdbcEvent.class.getName()))
+            .map(event -> event.getString("statementType") + " " + event.getString("tables"))
+            .collect(Collectors.toList());
+    assertEquals(List.of("DDL t1", "INSERT t1", "SELECT t1"), statementTypes);
+  }
+
+  @Test
+  void queryWhileStreamOpen() throws Exception {
+    Path recordingLocation = Path.of("target", "TableStatisticsTest-stream.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(TableStatisticsEvent.class).with("period", "endChunk");
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      this.jfrJdbcOperations.execute("CREATE TABLE t2 (c1 int)");
+      try (Stream<Integer> stream = this.jfrJdbcOperations.queryForStream("SELECT c1 FROM t2", (rs, i) -> rs.getInt(1))) {
+        // not nested in the stream, the stream is open but no operation is running
+        this.jfrJdbcOperations.queryForList("SELECT c1 FROM t2", Integer.class);
+        assertEquals(0L, stream.count());
+      }
+    }
+
+    List<RecordedEvent> tableEvents = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(TableStatisticsEvent.class.getName()))
+            .filter(event -> event.getString("table").equals("t2"))
+            .collect(Collectors.toList());
+    assertEquals(1, tableEvents.size());
+    assertEquals(3L, tableEvents.get(0).getLong("operationCount"));
+  }
+
+}
@@ -0,0 +1,177 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.TailSampler.SampledOperationEvent;
+import com.github.marschall.jfr.jdbctemplate.TailSampler.SlowUnitOfWorkEvent;
+import com.github.marschall.jfr.jdbctemplate.TailSampler.UnitOfWork;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class TailSamplerTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+  private NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    this.jdbcOperations = new JfrJdbcOperations(new JdbcTemplate(this.dataSource));
+    this.namedParameterJdbcOperations = new JfrNamedParameterJdbcOperations(new NamedParameterJdbcTemplate(this.jdbcOperations));
+    this.jdbcOperations.execute("CREATE ALIAS sleep FOR 'java.lang.Thread.sleep(long)'");
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  private static List<RecordedEvent> readEvents(Path recordingLocation, Class<?> eventClass) throws Exception {
+    return RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(eventClass.getName()))
+            .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+            .collect(Collectors.toList());
+  }
+
+  @Test
+  void onlySlowUnitsOfWork() throws Exception {
+    TailSampler sampler = new TailSampler(Duration.ofHours(1L), Duration.ofMillis(50L), 2);
+    // warm up so the fast unit of work is below the threshold
+    this.jdbcOperations.queryForObject("SELECT 1 FROM dual", Integer.class);
+    this.namedParameterJdbcOperations.queryForObject("SELECT 2 FROM dual WHERE 1 < :arg", Map.of("arg", 2), Integer.class);
+    Path recordingLocation = Path.of("target", "TailSamplerTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(SampledOperationEvent.class);
+      recording.enable(SlowUnitOfWorkEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      UnitOfWork fast = sampler.begin();
+      try {
+        assertEquals(Integer.valueOf(1), this.jdbcOperations.queryForObject("SELECT 1 FROM dual", Integer.class));
+      } finally {
+        fast.end();
+      }
+
+      UnitOfWork slow = sampler.begin();
+      try {
+        assertEquals(Integer.valueOf(2), this.namedParameterJdbcOperations.queryForObject("SELECT 2 FROM dual WHERE 1 < :arg", Map.of("arg", 2), Integer.class));
+        this.jdbcOperations.execute("CALL sleep(100)");
+        this.jdbcOperations.execute("CALL sleep(1)");
+      } finally {
+        slow.end();
+      }
+    }
+
+    List<RecordedEvent> operations = readEvents(recordingLocation, SampledOperationEvent.class);
+    assertEquals(2, operations.size());
+    assertEquals("queryForObject", operations.get(0).getString("operationName"));
+    assertEquals("SELECT 2 FROM dual WHERE 1 < :arg", operations.get(0).getString("query"));
+    assertEquals(1L, operations.get(0).getLong("rowCount"));
+    assertEquals("execute", operations.get(1).getString("operationName"));
+    assertEquals("CALL sleep(100)", operations.get(1).getString("query"));
+    // committed later but with the time of the operation
+    assertTrue(operations.get(1).getDuration().toMillis() >= 100L);
+
+    List<RecordedEvent> unitsOfWork = readEvents(recordingLocation, SlowUnitOfWorkEvent.class);
+    assertEquals(1, unitsOfWork.size());
+    RecordedEvent unitOfWork = unitsOfWork.get(0);
+    assertEquals(operations.get(0).getLong("unitOfWorkId"), unitOfWork.getLong("unitOfWorkId"));
+    assertEquals(3L, unitOfWork.getLong("operationCount"));
+    assertEquals(1L, unitOfWork.getLong("droppedOperationCount"));
+  }
+
+  @Test
+  void operationsWhileStreamOpen() throws Exception {
+    TailSampler sampler = new TailSampler(Duration.ofHours(1L), Duration.ofMillis(50L), 10);
+    Path recordingLocation = Path.of("target", "TailSamplerTest-stream.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(SampledOperationEvent.class);
+      recording.enable(SlowUnitOfWorkEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      UnitOfWork unitOfWork = sampler.begin();
+      try (Stream<Integer> stream = this.jdbcOperations.queryForStream("SELECT X FROM SYSTEM_RANGE(1, 3)", (rs, i) -> rs.getInt(1))) {
+        this.jdbcOperations.execute("CALL sleep(100)");
+        assertEquals(3L, stream.count());
+      } finally {
+        unitOfWork.end();
+      }
+    }
+
+    List<String> queries = readEvents(recordingLocation, SampledOperationEvent.class).stream()
+            .map(event -> event.getString("query"))
+            .collect(Collectors.toList());
+    assertEquals(List.of("SELECT X FROM SYSTEM_RANGE(1, 3)", "CALL sleep(100)"), queries);
+    List<RecordedEvent> unitsOfWork = readEvents(recordingLocation, SlowUnitOfWorkEvent.class);
+    assertEquals(1, unitsOfWork.size());
+    assertEquals(2L, unitsOfWork.get(0).getLong("operationCount"));
+    assertTrue(unitsOfWork.get(0).getDuration("databaseTime").toMillis() >= 100L);
+  }
+
+  @Test
+  void nestedUnitsOfWork() throws Exception {
+    TailSampler sampler = new TailSampler(Duration.ofHours(1L), Duration.ofNanos(1L), 10);
+    Path recordingLocation = Path.of("target", "TailSamplerTest-nested.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(SampledOperationEvent.class);
+      recording.enable(SlowUnitOfWorkEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      UnitOfWork outer = sampler.begin();
+      UnitOfWork inner = sampler.begin();
+      this.jdbcOperations.queryForObject("SELECT 1 FROM dual", Integer.class);
+      // ended out of order
+      outer.end();
+      this.jdbcOperations.queryForObject("SELECT 2 FROM dual", Integer.class);
+      inner.end();
+      inner.end();
+      // neither unit of work is bound anymore
+      this.jdbcOperations.queryForObject("SELECT 3 FROM dual", Integer.class);
+      assertNull(TailSampler.enter());
+
+      UnitOfWork next = sampler.begin();
+      this.jdbcOperations.queryForObject("SELECT 4 FROM dual", Integer.class);
+      next.end();
+    }
+
+    List<String> queries = readEvents(recordingLocation, SampledOperationEvent.class).stream()
+            .map(event -> event.getString("query"))
+            .collect(Collectors.toList());
+    assertEquals(List.of("SELECT 1 FROM dual", "SELECT 2 FROM dual", "SELECT 4 FROM dual"), queries);
+    // the outer unit of work had no operations and is not slow
+    assertEquals(2, readEvents(recordingLocation, SlowUnitOfWorkEvent.class).size());
+  }
+
+  @Test
+  void invalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new TailSampler(Duration.ZERO, Duration.ofSeconds(1L), 10));
+    assertThrows(IllegalArgumentException.class, () -> new TailSampler(Duration.ofSeconds(1L), Duration.ofSeconds(-1L), 10));
+    assertThrows(IllegalArgumentException.class, () -> new TailSampler(Duration.ofSeconds(1L), Duration.ofSeconds(1L), 0));
+  }
+
+}
@@ -0,0 +1,49 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.jfr.jdbctemplate.VirtualThreadPinningCorrelator.Pinning;
+
+class VirtualThreadPinningCorrelatorTest {
+
+  @Test
+  void correlate() {
+    try (VirtualThreadPinningCorrelator correlator = new VirtualThreadPinningCorrelator(Duration.ofMillis(20L))) {
+      // before the operation
+      correlator.recordPinned(1L, 100L, 200L);
+      correlator.recordPinned(1L, 1_100L, 1_200L);
+      correlator.recordPinned(1L, 1_500L, 1_800L);
+      // different thread
+      correlator.recordPinned(2L, 1_100L, 1_200L);
+
+      Pinning pinning = correlator.correlate(1L, 1_000L, 2_000L);
+      assertNotNull(pinning);
+      assertEquals(2L, pinning.count);
+      assertEquals(400L, pinning.totalNanos);
+
+      // already attributed
+      assertNull(correlator.correlate(1L, 1_000L, 2_000L));
+      assertNull(correlator.correlate(3L, 1_000L, 2_000L));
+    }
+  }
+
+  @Test
+  void startAndClose() {
+    try (VirtualThreadPinningCorrelator correlator = new VirtualThreadPinningCorrelator(Duration.ofMillis(20L))) {
+      correlator.start();
+    }
+  }
+
+  @Test
+  void platformThread() {
+    assertFalse(VirtualThreads.isVirtual(Thread.currentThread()));
+  }
+
+}
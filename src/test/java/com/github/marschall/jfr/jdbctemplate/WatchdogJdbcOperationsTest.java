@@ -0,0 +1,131 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.github.marschall.jfr.jdbctemplate.StatementWatch.StatementCancellationEvent;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class WatchdogJdbcOperationsTest {
+
+  private SingleConnectionDataSource dataSource;
+  private JdbcOperations jdbcOperations;
+
+  @BeforeEach
+  void setUp() {
+    this.dataSource = new SingleConnectionDataSource("jdbc:h2:mem:", true);
+    StatementBudgets budgets = new StatementBudgets(null, Map.of("execute", Duration.ofMillis(200L)), Map.of());
+    this.jdbcOperations = new JfrJdbcOperations(new WatchdogJdbcOperations(new JdbcTemplate(this.dataSource), budgets));
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.dataSource.destroy();
+  }
+
+  @Test
+  void withinBudget() {
+    assertEquals(Integer.valueOf(1), this.jdbcOperations.queryForObject("SELECT 1 FROM dual", Integer.class));
+    assertEquals(List.of(1, 2, 3), this.jdbcOperations.queryForList("SELECT X FROM SYSTEM_RANGE(1, 3) WHERE X > ?", Integer.class, 0));
+  }
+
+  @Test
+  void withoutBudget() {
+    AtomicInteger rowCount = new AtomicInteger();
+    this.jdbcOperations.query("SELECT X FROM SYSTEM_RANGE(1, 3)", (RowCallbackHandler) rs -> rowCount.incrementAndGet());
+    assertEquals(3, rowCount.get());
+  }
+
+  @Test
+  void exceedsBudget() throws Exception {
+    Path recordingLocation = Path.of("target", "WatchdogJdbcOperationsTest.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(StatementCancellationEvent.class);
+      recording.setDestination(recordingLocation);
+      recording.start();
+
+      // H2 does not reliably abort running queries, simulate a slow statement instead
+      this.jdbcOperations.execute((StatementCallback<Void>) statement -> {
+        sleep(Duration.ofMillis(500L));
+        return null;
+      });
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingLocation).stream()
+            .filter(event -> event.getEventType().getName().equals(StatementCancellationEvent.class.getName()))
+            .collect(Collectors.toList());
+    assertEquals(1, events.size());
+    RecordedEvent event = events.get(0);
+    assertEquals("execute", event.getString("operationName"));
+    assertEquals(Duration.ofMillis(200L), event.getDuration("budget"));
+    assertTrue(event.getDuration("elapsed").compareTo(Duration.ofMillis(200L)) >= 0);
+  }
+
+  @Test
+  void finishWaitsForCancellation() throws Exception {
+    CountDownLatch cancelStarted = new CountDownLatch(1);
+    CountDownLatch releaseCancel = new CountDownLatch(1);
+    AtomicBoolean cancelReturned = new AtomicBoolean();
+    Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {Statement.class},
+        (proxy, method, args) -> {
+          if (method.getName().equals("cancel")) {
+            cancelStarted.countDown();
+            releaseCancel.await();
+            cancelReturned.set(true);
+            return null;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+
+    StatementWatch watch = new StatementWatch("execute", "CALL slow()", Duration.ofMillis(1L).toNanos());
+    watch.watch(statement);
+    assertTrue(cancelStarted.await(10L, TimeUnit.SECONDS));
+
+    Thread finisher = new Thread(watch::finish);
+    finisher.start();
+    finisher.join(200L);
+    // the statement must not be cancelled once finish() has returned
+    assertTrue(finisher.isAlive());
+    assertFalse(cancelReturned.get());
+
+    releaseCancel.countDown();
+    finisher.join(10_000L);
+    assertFalse(finisher.isAlive());
+    assertTrue(cancelReturned.get());
+  }
+
+  private static void sleep(Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted", e);
+    }
+  }
+
+}
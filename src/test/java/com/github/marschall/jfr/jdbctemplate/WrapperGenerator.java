@@ -0,0 +1,629 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import java.io.IOException;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.jdbc.core.CallableStatementCreator;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * Generates the methods of the {@link JdbcOperations} and
+ * {@link NamedParameterJdbcOperations} wrappers from the Spring interfaces.
+ *
+ * <p>How a method is implemented is described by the {@link Style} of the
+ * wrapper:</p>
+ * <dl>
+ *   <dt>{@link Style#INSTRUMENTED}</dt>
+ *   <dd>Create the event, set the operation name, the query and the
+ *   arguments, call {@code begin(event)}, delegate and set the row count
+ *   depending on the return type, and finally call {@code end(event)}.
+ *   Everything that is not specific to a method, like the other
+ *   instrumentations, belongs into {@code begin} and {@code end} of the
+ *   wrapper, not here.</dd>
+ *   <dt>{@link Style#DELEGATING}</dt>
+ *   <dd>Delegate, optionally after a fixed statement. Methods that are
+ *   implemented outside of the generated methods are skipped, so a decorator
+ *   only implements the methods it actually decorates.</dd>
+ *   <dt>{@link Style#TEMPLATE}</dt>
+ *   <dd>Dispatch to the instrumented {@link JfrJdbcOperations} unless the
+ *   {@link JfrJdbcTemplate} is already active on the current thread.</dd>
+ *   <dt>{@link Style#SUPER}</dt>
+ *   <dd>Call the {@link org.springframework.jdbc.core.JdbcTemplate}
+ *   implementation of the enclosing {@link JfrJdbcTemplate}.</dd>
+ * </dl>
+ *
+ * <p>The methods are generated between the {@value #BEGIN_MARKER} and
+ * {@value #END_MARKER} lines of the wrapper, a source may contain several
+ * such regions. {@code WrapperGeneratorTest} verifies that the checked in
+ * sources are up to date, run {@link #main(String[])} from the project
+ * directory to update them.</p>
+ */
+final class WrapperGenerator {
+
+  static final String BEGIN_MARKER = "// generated by WrapperGenerator, do not edit";
+
+  static final String END_MARKER = "// end of generated methods";
+
+  static final WrapperPolicy JDBC_OPERATIONS = WrapperPolicy.instrumented(JdbcOperations.class, JfrJdbcOperations.class,
+          "JdbcEvent", true, Set.of());
+
+  static final WrapperPolicy NAMED_PARAMETER_JDBC_OPERATIONS = WrapperPolicy.instrumented(NamedParameterJdbcOperations.class, JfrNamedParameterJdbcOperations.class,
+          "JdbcNamedEvent", false, Set.of("getJdbcOperations"));
+
+  static final WrapperPolicy JDBC_TEMPLATE = new WrapperPolicy(JdbcOperations.class, JfrJdbcTemplate.class,
+          Style.TEMPLATE, 0, "");
+
+  static final WrapperPolicy JDBC_TEMPLATE_SUPER_OPERATIONS = new WrapperPolicy(JdbcOperations.class, JfrJdbcTemplate.class,
+          Style.SUPER, 1, "  ");
+
+  static final WrapperPolicy BATCHING_JDBC_OPERATIONS = WrapperPolicy.delegating(BatchingJdbcOperations.class, "this.flush();");
+
+  static final WrapperPolicy CACHING_JDBC_OPERATIONS = WrapperPolicy.delegating(CachingJdbcOperations.class, null);
+
+  static final WrapperPolicy COMPACT_ROW_JDBC_OPERATIONS = WrapperPolicy.delegating(CompactRowJdbcOperations.class, null);
+
+  static final WrapperPolicy SINGLE_FLIGHT_JDBC_OPERATIONS = WrapperPolicy.delegating(SingleFlightJdbcOperations.class, null);
+
+  static final WrapperPolicy WATCHDOG_JDBC_OPERATIONS = WrapperPolicy.delegating(WatchdogJdbcOperations.class, null);
+
+  static final List<WrapperPolicy> POLICIES = List.of(JDBC_OPERATIONS, NAMED_PARAMETER_JDBC_OPERATIONS,
+          JDBC_TEMPLATE, JDBC_TEMPLATE_SUPER_OPERATIONS, BATCHING_JDBC_OPERATIONS, CACHING_JDBC_OPERATIONS,
+          COMPACT_ROW_JDBC_OPERATIONS, SINGLE_FLIGHT_JDBC_OPERATIONS, WATCHDOG_JDBC_OPERATIONS);
+
+  /**
+   * Parameter types that provide the query with {@code getSql} and whose
+   * statements are captured with {@link QueryCapture}.
+   */
+  private static final Set<Class<?>> CALLBACK_TYPES = Set.of(
+          ConnectionCallback.class, StatementCallback.class,
+          PreparedStatementCreator.class, CallableStatementCreator.class);
+
+  /**
+   * Parameter types that hold the bind arguments of a read operation.
+   */
+  private static final Set<Class<?>> ARGUMENT_TYPES = Set.of(Object[].class, Map.class, SqlParameterSource.class);
+
+  private WrapperGenerator() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Updates the generated methods of the wrappers.
+   *
+   * @param args the project directory, defaults to the current directory
+   * @throws IOException if the sources can not be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    Path projectDirectory = Path.of(args.length > 0 ? args[0] : ".");
+    for (WrapperPolicy policy : POLICIES) {
+      Path source = policy.getSourcePath(projectDirectory);
+      String original = Files.readString(source, StandardCharsets.UTF_8);
+      String updated = replaceGeneratedMethods(original, policy.getRegion(), generateMethods(policy, original));
+      if (!updated.equals(original)) {
+        Files.writeString(source, updated, StandardCharsets.UTF_8);
+      }
+    }
+  }
+
+  /**
+   * Returns the start and end index of the generated methods of a region.
+   */
+  private static int[] findRegion(String source, int region) {
+    int begin = -1;
+    int end = 0;
+    for (int i = 0; i <= region; i++) {
+      begin = source.indexOf(BEGIN_MARKER + "\n", end);
+      if (begin == -1) {
+        throw new IllegalArgumentException("markers not found");
+      }
+      begin += BEGIN_MARKER.length() + 1;
+      end = source.indexOf(END_MARKER + "\n", begin);
+      if (end == -1) {
+        throw new IllegalArgumentException("markers not found");
+      }
+    }
+    // the end marker is indented
+    return new int[] {begin, source.lastIndexOf('\n', end) + 1};
+  }
+
+  static String getGeneratedMethods(String source, int region) {
+    int[] bounds = findRegion(source, region);
+    return source.substring(bounds[0], bounds[1]);
+  }
+
+  static String replaceGeneratedMethods(String source, int region, String methods) {
+    int[] bounds = findRegion(source, region);
+    return source.substring(0, bounds[0]) + methods + source.substring(bounds[1]);
+  }
+
+  /**
+   * Generates the methods of a wrapper.
+   *
+   * @param policy the policy of the wrapper
+   * @param source the current source of the wrapper, used to find the
+   *               methods implemented outside of the generated methods
+   * @return the generated methods
+   */
+  static String generateMethods(WrapperPolicy policy, String source) {
+    String handWritten = policy.style == Style.DELEGATING ? replaceGeneratedMethods(source, policy.region, "") : "";
+    StringBuilder buffer = new StringBuilder();
+    for (Method method : getDeclaredMethodsInOrder(policy.getInterfaceClass())) {
+      MethodGenerator generator = new MethodGenerator(method, policy, buffer);
+      if (handWritten.contains("  public " + generator.signature() + " {\n")) {
+        continue;
+      }
+      buffer.append('\n');
+      generator.generate();
+    }
+    buffer.append('\n');
+    return buffer.toString();
+  }
+
+  /**
+   * Returns the methods in declaration order, which reflection does not
+   * guarantee.
+   */
+  private static List<Method> getDeclaredMethodsInOrder(Class<?> interfaceClass) {
+    Map<String, Method> methodsByDescriptor = new HashMap<>();
+    for (Method method : interfaceClass.getDeclaredMethods()) {
+      if (!Modifier.isStatic(method.getModifiers()) && !method.isSynthetic() && !Modifier.isPrivate(method.getModifiers())) {
+        methodsByDescriptor.put(method.getName() + org.springframework.asm.Type.getMethodDescriptor(method), method);
+      }
+    }
+    List<Method> methods = new ArrayList<>(methodsByDescriptor.size());
+    ClassReader classReader;
+    try {
+      classReader = new ClassReader(interfaceClass.getName());
+    } catch (IOException e) {
+      throw new IllegalStateException("could not read class file of: " + interfaceClass, e);
+    }
+    classReader.accept(new ClassVisitor(SpringAsmInfo.ASM_VERSION) {
+
+      @Override
+      public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        Method method = methodsByDescriptor.get(name + descriptor);
+        if (method != null) {
+          methods.add(method);
+        }
+        return null;
+      }
+
+    }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    return methods;
+  }
+
+  static String toSourceString(Type type) {
+    if (type instanceof Class) {
+      Class<?> clazz = (Class<?>) type;
+      if (clazz.isArray()) {
+        return toSourceString(clazz.getComponentType()) + "[]";
+      }
+      return clazz.getSimpleName();
+    } else if (type instanceof ParameterizedType) {
+      ParameterizedType parameterizedType = (ParameterizedType) type;
+      StringBuilder buffer = new StringBuilder(toSourceString(parameterizedType.getRawType()));
+      buffer.append('<');
+      Type[] typeArguments = parameterizedType.getActualTypeArguments();
+      for (int i = 0; i < typeArguments.length; i++) {
+        if (i > 0) {
+          buffer.append(", ");
+        }
+        buffer.append(toSourceString(typeArguments[i]));
+      }
+      buffer.append('>');
+      return buffer.toString();
+    } else if (type instanceof GenericArrayType) {
+      return toSourceString(((GenericArrayType) type).getGenericComponentType()) + "[]";
+    } else if (type instanceof WildcardType) {
+      WildcardType wildcardType = (WildcardType) type;
+      Type[] lowerBounds = wildcardType.getLowerBounds();
+      if (lowerBounds.length > 0) {
+        return "? super " + toSourceString(lowerBounds[0]);
+      }
+      Type upperBound = wildcardType.getUpperBounds()[0];
+      if (upperBound == Object.class) {
+        return "?";
+      }
+      return "? extends " + toSourceString(upperBound);
+    } else if (type instanceof TypeVariable) {
+      return ((TypeVariable<?>) type).getName();
+    }
+    throw new IllegalArgumentException("unknown type: " + type);
+  }
+
+  /**
+   * How the methods of a wrapper are implemented.
+   */
+  enum Style {
+
+    INSTRUMENTED,
+
+    DELEGATING,
+
+    TEMPLATE,
+
+    SUPER;
+
+  }
+
+  /**
+   * Describes the differences between the generated wrappers.
+   */
+  static final class WrapperPolicy {
+
+    private final Class<?> interfaceClass;
+
+    private final Class<?> wrapperClass;
+
+    private final Style style;
+
+    private final int region;
+
+    private final String indentation;
+
+    private String eventClassName;
+
+    private boolean countRowCallbacks;
+
+    private Set<String> passThroughMethods = Set.of();
+
+    private String beforeDelegation;
+
+    /**
+     * Constructs a new {@link WrapperPolicy}.
+     *
+     * @param interfaceClass the Spring interface
+     * @param wrapperClass the class implementing the interface
+     * @param style how the methods are implemented
+     * @param region the index of the generated region in the source
+     * @param indentation the additional indentation of the methods, eg. for
+     *                    an inner class
+     */
+    WrapperPolicy(Class<?> interfaceClass, Class<?> wrapperClass, Style style, int region, String indentation) {
+      this.interfaceClass = interfaceClass;
+      this.wrapperClass = wrapperClass;
+      this.style = style;
+      this.region = region;
+      this.indentation = indentation;
+    }
+
+    /**
+     * Creates a policy for a wrapper that generates an event per operation.
+     *
+     * @param interfaceClass the Spring interface
+     * @param wrapperClass the class implementing the interface
+     * @param eventClassName the simple name of the event class
+     * @param countRowCallbacks whether the rows passed to a
+     *                          {@link RowCallbackHandler} are counted
+     * @param passThroughMethods the names of the methods that don't generate
+     *                           events
+     * @return the policy
+     */
+    static WrapperPolicy instrumented(Class<?> interfaceClass, Class<?> wrapperClass, String eventClassName,
+            boolean countRowCallbacks, Set<String> passThroughMethods) {
+      WrapperPolicy policy = new WrapperPolicy(interfaceClass, wrapperClass, Style.INSTRUMENTED, 0, "");
+      policy.eventClassName = eventClassName;
+      policy.countRowCallbacks = countRowCallbacks;
+      policy.passThroughMethods = passThroughMethods;
+      return policy;
+    }
+
+    /**
+     * Creates a policy for a {@link JdbcOperations} decorator.
+     *
+     * @param wrapperClass the decorator
+     * @param beforeDelegation the statement executed before delegating,
+     *                         {@code null} for none
+     * @return the policy
+     */
+    static WrapperPolicy delegating(Class<?> wrapperClass, String beforeDelegation) {
+      WrapperPolicy policy = new WrapperPolicy(JdbcOperations.class, wrapperClass, Style.DELEGATING, 0, "");
+      policy.beforeDelegation = beforeDelegation;
+      return policy;
+    }
+
+    int getRegion() {
+      return this.region;
+    }
+
+    Class<?> getInterfaceClass() {
+      return this.interfaceClass;
+    }
+
+    Path getSourcePath(Path projectDirectory) {
+      return projectDirectory.resolve(Path.of("src", "main", "java"))
+              .resolve(this.wrapperClass.getName().replace('.', '/') + ".java");
+    }
+
+  }
+
+  static final class MethodGenerator {
+
+    private final Method method;
+
+    private final WrapperPolicy policy;
+
+    private final StringBuilder buffer;
+
+    private final Parameter[] parameters;
+
+    MethodGenerator(Method method, WrapperPolicy policy, StringBuilder buffer) {
+      this.method = method;
+      this.policy = policy;
+      this.buffer = buffer;
+      this.parameters = method.getParameters();
+    }
+
+    void generate() {
+      this.line("  @Override");
+      if (this.method.isAnnotationPresent(Deprecated.class)) {
+        this.line("  @Deprecated");
+      }
+      this.line("  public " + this.signature() + " {");
+      switch (this.policy.style) {
+        case INSTRUMENTED:
+          if (this.policy.passThroughMethods.contains(this.method.getName())) {
+            this.line("    " + this.returnPrefix() + this.delegateCall(false) + ";");
+          } else {
+            this.instrumented();
+          }
+          break;
+        case DELEGATING:
+          if (this.policy.beforeDelegation != null) {
+            this.line("    " + this.policy.beforeDelegation);
+          }
+          this.line("    " + this.returnPrefix() + this.delegateCall(false) + ";");
+          break;
+        case TEMPLATE:
+          this.template();
+          break;
+        case SUPER:
+          this.line("    " + this.returnPrefix() + this.call(this.policy.wrapperClass.getSimpleName() + ".super", false, false) + ";");
+          break;
+        default:
+          throw new IllegalStateException("unknown style: " + this.policy.style);
+      }
+      this.line("  }");
+    }
+
+    private void template() {
+      this.line("    if (this.isActive()) {");
+      this.line("      " + this.returnPrefix() + this.call("super", false, false) + ";");
+      if (this.isVoid()) {
+        this.line("      return;");
+      }
+      this.line("    }");
+      this.line("    this.activate();");
+      this.line("    try {");
+      this.line("      " + this.returnPrefix() + this.call("this.instrumented", false, false) + ";");
+      this.line("    } finally {");
+      this.line("      this.deactivate();");
+      this.line("    }");
+    }
+
+    private String returnPrefix() {
+      return this.isVoid() ? "" : "return ";
+    }
+
+    private void instrumented() {
+      Parameter rowCallbackHandler = this.findParameter(RowCallbackHandler.class);
+      boolean countRows = this.policy.countRowCallbacks && (rowCallbackHandler != null);
+      if (countRows) {
+        this.line("    CountingRowCallbackHandler countingRowCallbackHandler = new CountingRowCallbackHandler(" + rowCallbackHandler.getName() + ");");
+      }
+      String eventClassName = this.policy.eventClassName;
+      this.line("    " + eventClassName + " event = new " + eventClassName + "();");
+      this.line("    event.setOperationName(\"" + this.method.getName() + "\");");
+      this.query();
+      this.arguments();
+      this.line("    begin(event);");
+
+      String call = this.delegateCall(countRows);
+      Class<?> returnType = this.method.getReturnType();
+      String returnTypeName = toSourceString(this.method.getGenericReturnType());
+      if (returnType == Stream.class) {
+        this.line("    " + returnTypeName + " stream;");
+        this.line("    try {");
+        this.line("      stream = " + call + ";");
+        this.line("    } catch (RuntimeException | Error e) {");
+        this.line("      // the stream will never be closed");
+        this.line("      end(event);");
+        this.line("      throw e;");
+        this.line("    }");
+        this.line("    return commitOnClose(stream, event);");
+        return;
+      }
+      this.line("    try {");
+      if (this.isVoid()) {
+        this.line("      " + call + ";");
+        if (countRows) {
+          this.line("      event.setRowCount(countingRowCallbackHandler.getRowCount());");
+        } else if (rowCallbackHandler != null) {
+          this.line("      event.setRowCount(Statement.SUCCESS_NO_INFO);");
+        } else {
+          this.line("      event.setRowCount(NO_ROWS);");
+        }
+      } else if ((returnType == int.class) || (returnType == int[].class) || (returnType == int[][].class)) {
+        this.line("      " + returnTypeName + " updateCount = " + call + ";");
+        if (returnType == int.class) {
+          this.line("      event.setRowCount(updateCount);");
+        } else {
+          this.line("      event.setRowCount(RowCountingUtil.countRows(updateCount));");
+        }
+        this.line("      return updateCount;");
+      } else {
+        this.line("      " + returnTypeName + " result = " + call + ";");
+        if (this.method.getName().equals("queryForObject")) {
+          this.line("      event.setRowCount(1L);");
+        } else if ((returnType == List.class) || (returnType == Map.class)) {
+          this.line("      event.setRowCount(result.size());");
+        } else if (returnType == SqlRowSet.class) {
+          // the rows are not known until they are read
+          this.line("      event.setRowCount(Statement.SUCCESS_NO_INFO);");
+        } else {
+          this.line("      setRowCount(event, result);");
+        }
+        this.line("      return result;");
+      }
+      this.line("    } finally {");
+      this.line("      end(event);");
+      this.line("    }");
+    }
+
+    private void query() {
+      for (Parameter parameter : this.parameters) {
+        Class<?> type = parameter.getType();
+        String name = parameter.getName();
+        if (type == String[].class) {
+          // batchUpdate(String...), report the first statement
+          this.line("    if ((" + name + " != null) && (" + name + ".length > 0)) {");
+          this.line("      event.setQuery(" + name + "[0]);");
+          this.line("    }");
+          return;
+        } else if (type == String.class) {
+          this.line("    event.setQuery(" + name + ");");
+          return;
+        } else if (CALLBACK_TYPES.contains(type)) {
+          this.line("    event.setQuery(getSql(" + name + "));");
+          return;
+        }
+      }
+    }
+
+    /**
+     * Sets the bind arguments of read operations for {@link CacheCandidates}.
+     */
+    private void arguments() {
+      if (!this.method.getName().startsWith("query")) {
+        return;
+      }
+      for (Parameter parameter : this.parameters) {
+        if (ARGUMENT_TYPES.contains(parameter.getType())) {
+          this.line("    event.setArguments(" + parameter.getName() + ");");
+          return;
+        }
+      }
+      if ((this.parameters[0].getType() == String.class) && (this.findParameter(PreparedStatementSetter.class) == null)) {
+        this.line("    event.setArguments(CacheCandidates.NO_ARGUMENTS);");
+      }
+    }
+
+    private String delegateCall(boolean countRows) {
+      return this.call("this.delegate", this.policy.style == Style.INSTRUMENTED, countRows);
+    }
+
+    /**
+     * Generates the call of the method on a target.
+     *
+     * @param target the expression the method is called on
+     * @param capture whether callbacks are wrapped by {@link QueryCapture}
+     * @param countRows whether the {@link RowCallbackHandler} is replaced by
+     *                  the counting one
+     */
+    private String call(String target, boolean capture, boolean countRows) {
+      StringBuilder call = new StringBuilder(target).append('.');
+      call.append(this.method.getName()).append('(');
+      for (int i = 0; i < this.parameters.length; i++) {
+        if (i > 0) {
+          call.append(", ");
+        }
+        Parameter parameter = this.parameters[i];
+        Class<?> type = parameter.getType();
+        if (capture && CALLBACK_TYPES.contains(type)) {
+          call.append("QueryCapture.capture(").append(parameter.getName()).append(", event)");
+        } else if (countRows && (type == RowCallbackHandler.class)) {
+          call.append("countingRowCallbackHandler");
+        } else {
+          call.append(parameter.getName());
+        }
+      }
+      return call.append(')').toString();
+    }
+
+    String signature() {
+      StringBuilder signature = new StringBuilder();
+      TypeVariable<Method>[] typeParameters = this.method.getTypeParameters();
+      if (typeParameters.length > 0) {
+        signature.append('<');
+        for (int i = 0; i < typeParameters.length; i++) {
+          if (i > 0) {
+            signature.append(", ");
+          }
+          signature.append(typeParameters[i].getName());
+        }
+        signature.append("> ");
+      }
+      signature.append(toSourceString(this.method.getGenericReturnType()));
+      signature.append(' ').append(this.method.getName()).append('(');
+      for (int i = 0; i < this.parameters.length; i++) {
+        if (i > 0) {
+          signature.append(", ");
+        }
+        Parameter parameter = this.parameters[i];
+        String typeName = toSourceString(parameter.getParameterizedType());
+        if (parameter.isVarArgs()) {
+          typeName = typeName.substring(0, typeName.length() - 2) + "...";
+        }
+        signature.append(typeName).append(' ').append(parameter.getName());
+      }
+      signature.append(')');
+      boolean first = true;
+      for (Class<?> exceptionType : this.method.getExceptionTypes()) {
+        // unchecked exceptions like DataAccessException are not declared
+        if (!RuntimeException.class.isAssignableFrom(exceptionType)) {
+          signature.append(first ? " throws " : ", ");
+          signature.append(exceptionType.getSimpleName());
+          first = false;
+        }
+      }
+      return signature.toString();
+    }
+
+    private Parameter findParameter(Class<?> type) {
+      for (Parameter parameter : this.parameters) {
+        if (parameter.getType() == type) {
+          return parameter;
+        }
+      }
+      return null;
+    }
+
+    private boolean isVoid() {
+      return this.method.getReturnType() == void.class;
+    }
+
+    private void line(String line) {
+      this.buffer.append(this.policy.indentation).append(line).append('\n');
+    }
+
+  }
+
+}
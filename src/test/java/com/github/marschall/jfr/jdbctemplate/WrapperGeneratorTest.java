@@ -0,0 +1,48 @@
+package com.github.marschall.jfr.jdbctemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.jfr.jdbctemplate.WrapperGenerator.WrapperPolicy;
+
+class WrapperGeneratorTest {
+
+  private static void assertUpToDate(WrapperPolicy policy) throws Exception {
+    Path source = policy.getSourcePath(Path.of(""));
+    String content = Files.readString(source, StandardCharsets.UTF_8);
+    String checkedIn = WrapperGenerator.getGeneratedMethods(content, policy.getRegion());
+    assertEquals(WrapperGenerator.generateMethods(policy, content), checkedIn,
+            () -> source + " is out of date, run WrapperGenerator");
+  }
+
+  @Test
+  void jdbcOperations() throws Exception {
+    assertUpToDate(WrapperGenerator.JDBC_OPERATIONS);
+  }
+
+  @Test
+  void namedParameterJdbcOperations() throws Exception {
+    assertUpToDate(WrapperGenerator.NAMED_PARAMETER_JDBC_OPERATIONS);
+  }
+
+  @Test
+  void jdbcTemplate() throws Exception {
+    assertUpToDate(WrapperGenerator.JDBC_TEMPLATE);
+    assertUpToDate(WrapperGenerator.JDBC_TEMPLATE_SUPER_OPERATIONS);
+  }
+
+  @Test
+  void decorators() throws Exception {
+    assertUpToDate(WrapperGenerator.BATCHING_JDBC_OPERATIONS);
+    assertUpToDate(WrapperGenerator.CACHING_JDBC_OPERATIONS);
+    assertUpToDate(WrapperGenerator.COMPACT_ROW_JDBC_OPERATIONS);
+    assertUpToDate(WrapperGenerator.SINGLE_FLIGHT_JDBC_OPERATIONS);
+    assertUpToDate(WrapperGenerator.WATCHDOG_JDBC_OPERATIONS);
+  }
+
+}